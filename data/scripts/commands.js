@@ -143,6 +143,28 @@ function handleCommand(player, commandQuery, cmd, args, string) {
 //        player.getLevels().setCurrentLevel(id, level)
 //        Static.proto.sendLevel(player, id)
 //        player.getLevels().calculateCombat()
+    } else if(cmd.equals("pfcompare") && checkAdmin(player)) {
+        var samples = 500
+        if(args != null) {
+            samples = java.lang.Integer.parseInt(args[0])
+        }
+        Packages.com.ziotic.logic.map.pf.PathFinderComparison.submit(player, samples)
+    } else if(cmd.equals("walkto") && checkAdmin(player)) {
+        var x = java.lang.Integer.parseInt(args[0])
+        var y = java.lang.Integer.parseInt(args[1])
+        player.getPathProcessor().walkTo(Tile.locate(x, y, player.getZ()), PathProcessor.MOVE_SPEED_ANY)
+    } else if(cmd.equals("pfcorpus") && checkAdmin(player)) {
+        var count = 5000
+        if(args != null) {
+            count = java.lang.Integer.parseInt(args[0])
+        }
+        Packages.com.ziotic.logic.map.pf.PathCorpus.record(player, count)
+    } else if(cmd.equals("pfreplay") && checkAdmin(player)) {
+        var iterations = 5
+        if(args != null) {
+            iterations = java.lang.Integer.parseInt(args[0])
+        }
+        Packages.com.ziotic.logic.map.pf.PathCorpus.replay(player, iterations)
     } else if(cmd.equals("noclip") && checkAdmin(player)) {
         player.setClipping(false)
     } else if(cmd.equals("clip") && checkAdmin(player)) {
@@ -53,6 +53,9 @@ public class Constants {
     public static final String CONFIGURATION_FILE = "%WORK_DIR%/config.ini";
     public static final String MAP_XTEA_FILE = "%WORK_DIR%/mapxtea.dat";
     public static final String MAP_XTEA_DIR = "%WORK_DIR%/mapxtea/";
+    public static final String PATH_CORPUS_FILE = "%WORK_DIR%/pathcorpus.dat";
+    public static final String PLAYER_LOG_DIR = "%WORK_DIR%/playerlog/";
+    public static final String PLAYER_STORE_FILE = "%WORK_DIR%/playerstore/players.dat";
 
     public static final int[] REGION_SIZE = {104, 120, 136, 168};
 }
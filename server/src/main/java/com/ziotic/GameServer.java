@@ -35,6 +35,7 @@ import com.ziotic.engine.Engine;
 import com.ziotic.engine.misc.ProgressivePlayerSaver;
 import com.ziotic.io.servercache.ServerCache;
 import com.ziotic.logic.World;
+import com.ziotic.logic.map.MapWarmup;
 import com.ziotic.logic.map.MapXTEA;
 import com.ziotic.network.ConnectionHandler;
 import com.ziotic.network.handler.FrameHandlerManager;
@@ -76,6 +77,10 @@ public class GameServer implements Application {
         Static.ahs.load();
         Static.world = new World(Integer.parseInt(args[0]));
         Static.world.load();
+        int warmupThreads = Static.conf.getInt("map_warmup_threads", 0);
+        if (warmupThreads > 0) {
+            new MapWarmup(warmupThreads, Static.conf.getInt("map_warmup_budget", 120) * 1000L).run();
+        }
         Static.proto = new ProtocolAdapter();
         Static.engine.getAsyncLogicExecutor().scheduleAtFixedRate(Static.world, 0, Constants.GAME_TICK_INTERVAL, TimeUnit.MILLISECONDS);
         Static.engine.getAsyncLogicExecutor().scheduleAtFixedRate(new FrameWorker(), 50, Constants.FAST_GAME_TICK_INTERVAL, TimeUnit.MILLISECONDS);
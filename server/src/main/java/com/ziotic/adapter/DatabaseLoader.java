@@ -21,29 +21,16 @@
  */
 package com.ziotic.adapter;
 
-import com.ziotic.content.cc.Clan;
-import com.ziotic.engine.login.LoginResponse;
-import com.ziotic.logic.player.PlayerSave;
-
 /**
+ * The persistence of the link server, which is either a MySQL database or a local file, see <code>player_store</code>.
+ *
  * @author Lazaro
  */
-public interface DatabaseLoader {
-    public void banIP(String ip);
-
-    public boolean isBanned(String userName);
-
-    public boolean isIPBanned(String ip);
-
-    public LoginResponse loadPlayer(String userName, String password, PlayerSave player);
-
-    public void savePlayer(String userName, boolean lobby, PlayerSave player);
-
-    public void registerClan(String owner, String name);
-
-    public boolean loadClan(String owner, Clan clan);
-
-    public void saveClan(Clan clan);
-
+public interface DatabaseLoader extends PlayerStore, ClanStore {
     public void reload();
+
+    /**
+     * Releases whatever the loader holds open, once nothing will be written anymore.
+     */
+    public void shutdown();
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter;
+
+import com.ziotic.engine.login.LoginResponse;
+import com.ziotic.logic.player.PlayerSave;
+
+/**
+ * Where accounts and player saves are kept.
+ *
+ * @author Lazaro
+ */
+public interface PlayerStore {
+    public void banIP(String ip);
+
+    public boolean isBanned(String userName);
+
+    public boolean isIPBanned(String ip);
+
+    /**
+     * @param password The password to check, or null to load the player without checking it.
+     */
+    public LoginResponse loadPlayer(String userName, String password, PlayerSave player);
+
+    /**
+     * Writes the given groups of a save, see {@link PlayerSave#ALL_GROUPS}.
+     *
+     * @return If the save was written.
+     */
+    public boolean savePlayer(String userName, int groups, PlayerSave player);
+
+    /**
+     * Writes several saves at once, see {@link #savePlayer(String, int, PlayerSave)}.
+     *
+     * @return Which of the saves were written.
+     */
+    public boolean[] savePlayers(String[] userNames, int[] groups, PlayerSave[] players);
+}
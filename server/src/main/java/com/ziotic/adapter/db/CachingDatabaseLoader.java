@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.ziotic.Constants;
+import com.ziotic.Static;
+import com.ziotic.adapter.DatabaseLoader;
+import com.ziotic.content.cc.Clan;
+import com.ziotic.engine.login.LoginResponse;
+import com.ziotic.logic.player.PlayerSave;
+import com.ziotic.utility.Logging;
+import com.ziotic.utility.ManipulativeThreadFactory;
+import com.ziotic.utility.Text;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps the players recently loaded or saved by the link server in memory, in front of another loader.
+ * <p/>
+ * Loads are answered from memory when the player is known and, for logins, the password matches the one the player
+ * was last loaded with. Saves are applied to the player in memory, appended to a {@link PlayerLog} and only then
+ * written to the database behind, so a player who hops worlds is written once, with the groups of every save since. Saves are written within the flush
+ * interval, or sooner once too many are pending, and whatever the log still holds is written when the link server
+ * starts again.
+ * <p/>
+ * Players are loaded from the database again once they have been held for the time to live, which also bounds how long
+ * a change made directly in the database, such as a ban, may go unseen.
+ *
+ * @author Lazaro
+ */
+public class CachingDatabaseLoader implements DatabaseLoader {
+    private static final Logger logger = Logging.log();
+
+    private static class Record {
+        private PlayerSave save;
+        private final byte[] password;
+        private final long loaded = System.currentTimeMillis();
+
+        private Record(PlayerSave save, byte[] password) {
+            this.save = save;
+            this.password = password;
+        }
+    }
+
+    private final DatabaseLoader loader;
+    private final PlayerLog log;
+    private final int flushInterval;
+    private final int maxPending;
+    private final int batchSize;
+    private final long timeToLive;
+    private final byte[] salt = new byte[16];
+
+    private final Map<String, Record> records;
+    private final Map<String, PlayerLog.Entry> pending = new HashMap<String, PlayerLog.Entry>();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher = null;
+
+    private long loads = 0;
+    private long hits = 0;
+    private long saves = 0;
+    private long writes = 0;
+    private long failedWrites = 0;
+
+    public CachingDatabaseLoader(DatabaseLoader loader) {
+        this.loader = loader;
+        this.log = new PlayerLog(new File(Static.parseString(Constants.PLAYER_LOG_DIR)), Static.conf.getInt("link_player_log_sync", 1) == 1);
+        this.flushInterval = Static.conf.getInt("link_player_flush_interval", 5000);
+        this.maxPending = Static.conf.getInt("link_player_max_pending", 500);
+        this.batchSize = Math.max(1, Static.conf.getInt("link_player_batch_size", 100));
+        this.timeToLive = Static.conf.getInt("link_player_cache_ttl", 600000);
+        final int maxRecords = Static.conf.getInt("link_player_cache_size", 5000);
+        this.records = new LinkedHashMap<String, Record>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Record> eldest) {
+                return size() > maxRecords;
+            }
+        };
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public void banIP(String ip) {
+        loader.banIP(ip);
+    }
+
+    @Override
+    public boolean isBanned(String userName) {
+        return loader.isBanned(userName);
+    }
+
+    @Override
+    public boolean isIPBanned(String ip) {
+        return loader.isIPBanned(ip);
+    }
+
+    @Override
+    public LoginResponse loadPlayer(String userName, String password, PlayerSave player) {
+        String name = Text.formatNameForProtocol(userName);
+        byte[] passwordHash = password == null ? null : hash(password);
+        synchronized (this) {
+            loads++;
+            Record record = records.get(name);
+            if (record != null && System.currentTimeMillis() - record.loaded < timeToLive && (password == null || Arrays.equals(record.password, passwordHash))) {
+                hits++;
+                copy(record.save, player);
+                return LoginResponse.LOGIN;
+            }
+        }
+
+        // Anything pending for the player has to reach the database before it is read back.
+        flush(name);
+        LoginResponse resp = loader.loadPlayer(userName, password, player);
+        if (resp == LoginResponse.LOGIN) {
+            synchronized (this) {
+                if (!pending.containsKey(name)) {
+                    PlayerSave save = new PlayerSave();
+                    copy(player, save);
+                    records.put(name, new Record(save, passwordHash));
+                }
+            }
+        }
+        return resp;
+    }
+
+    @Override
+    public boolean savePlayer(String userName, int groups, PlayerSave player) {
+        String name = Text.formatNameForProtocol(userName);
+        PlayerLog.Entry entry = new PlayerLog.Entry(name, groups, player);
+        byte[] logRecord;
+        try {
+            logRecord = PlayerLog.encode(entry);
+        } catch (IOException e) {
+            logger.error("Error encoding player save [name=" + name + "]", e);
+            return false;
+        }
+        long seq = 0;
+        boolean flushNow;
+        synchronized (this) {
+            saves++;
+            Record record = records.get(name);
+            if (record != null) {
+                PlayerSave save = new PlayerSave();
+                copy(record.save, save);
+                apply(save, player, groups);
+                save.lastLoggedIn = System.currentTimeMillis();
+                record.save = save;
+            }
+            pending.put(name, merge(pending.get(name), entry));
+            try {
+                // Written in the order of the saves, but forced to the disk only once the lock is let go of.
+                seq = log.write(logRecord);
+            } catch (IOException e) {
+                logger.error("Error logging player save, writing it through [name=" + name + "]", e);
+                records.remove(name);
+                entry = null;
+            }
+            flushNow = entry == null || pending.size() >= maxPending;
+        }
+        if (entry != null) {
+            try {
+                log.sync(seq);
+            } catch (IOException e) {
+                logger.error("Error syncing player log, writing the save through [name=" + name + "]", e);
+                synchronized (this) {
+                    records.remove(name);
+                }
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            return flush(name);
+        }
+        if (flushNow && flusher != null) {
+            flusher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] savePlayers(String[] userNames, int[] groups, PlayerSave[] players) {
+        boolean[] saved = new boolean[players.length];
+        for (int i = 0; i < players.length; i++) {
+            saved[i] = savePlayer(userNames[i], groups[i], players[i]);
+        }
+        return saved;
+    }
+
+    /**
+     * Writes every pending save to the database, in batches of <code>link_player_batch_size</code>.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, PlayerLog.Entry> batch;
+            int segment;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                try {
+                    segment = log.rotate();
+                } catch (IOException e) {
+                    logger.error("Error rotating the player log", e);
+                    return;
+                }
+                batch = new HashMap<String, PlayerLog.Entry>(pending);
+                pending.clear();
+            }
+            try {
+                log.retire();
+            } catch (IOException e) {
+                logger.error("Error closing the player log segment [id=" + segment + "]", e);
+            }
+            List<PlayerLog.Entry> failed = new ArrayList<PlayerLog.Entry>();
+            List<PlayerLog.Entry> entries = new ArrayList<PlayerLog.Entry>(batch.values());
+            for (int offset = 0; offset < entries.size(); offset += batchSize) {
+                List<PlayerLog.Entry> chunk = entries.subList(offset, Math.min(offset + batchSize, entries.size()));
+                String[] names = new String[chunk.size()];
+                int[] groups = new int[chunk.size()];
+                PlayerSave[] saves = new PlayerSave[chunk.size()];
+                for (int i = 0; i < names.length; i++) {
+                    PlayerLog.Entry entry = chunk.get(i);
+                    names[i] = entry.name;
+                    groups[i] = entry.groups;
+                    saves[i] = entry.save;
+                }
+                boolean[] saved = loader.savePlayers(names, groups, saves);
+                for (int i = 0; i < saved.length; i++) {
+                    if (!saved[i]) {
+                        failed.add(chunk.get(i));
+                    }
+                }
+            }
+            long seq = 0;
+            synchronized (this) {
+                writes += batch.size() - failed.size();
+                failedWrites += failed.size();
+                for (PlayerLog.Entry entry : failed) {
+                    // Whatever arrived meanwhile is newer, and the merged save is logged again so the old segment can go.
+                    PlayerLog.Entry merged = merge(entry, pending.get(entry.name));
+                    pending.put(entry.name, merged);
+                    try {
+                        seq = log.write(PlayerLog.encode(merged));
+                    } catch (IOException e) {
+                        logger.error("Error logging player save [name=" + entry.name + "]", e);
+                        return;
+                    }
+                }
+            }
+            try {
+                log.sync(seq);
+            } catch (IOException e) {
+                logger.error("Error syncing player log", e);
+                return;
+            }
+            log.delete(segment);
+        }
+    }
+
+    /**
+     * Writes the pending save of a player to the database.
+     *
+     * @return If there was nothing to write or it was written.
+     */
+    public boolean flush(String name) {
+        synchronized (flushLock) {
+            PlayerLog.Entry entry;
+            synchronized (this) {
+                entry = pending.remove(name);
+            }
+            if (entry == null) {
+                return true;
+            }
+            if (loader.savePlayer(entry.name, entry.groups, entry.save)) {
+                synchronized (this) {
+                    writes++;
+                }
+                return true;
+            }
+            synchronized (this) {
+                failedWrites++;
+                pending.put(name, merge(entry, pending.get(name)));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Writes the pending save of a player and forgets the player, for when the database is about to be changed directly.
+     */
+    public void evict(String userName) {
+        String name = Text.formatNameForProtocol(userName);
+        flush(name);
+        synchronized (this) {
+            records.remove(name);
+        }
+    }
+
+    @Override
+    public void registerClan(String owner, String name) {
+        loader.registerClan(owner, name);
+        forget(owner);
+    }
+
+    @Override
+    public boolean loadClan(String owner, Clan clan) {
+        return loader.loadClan(owner, clan);
+    }
+
+    @Override
+    public void saveClan(Clan clan) {
+        loader.saveClan(clan);
+        forget(clan.getOwner());
+    }
+
+    /**
+     * Forgets a player whose own clan, which is loaded with the player, has changed.
+     */
+    private synchronized void forget(String owner) {
+        records.remove(Text.formatNameForProtocol(owner));
+    }
+
+    /**
+     * Writes whatever the log was left holding and starts writing saves behind.
+     */
+    @Override
+    public void reload() {
+        loader.reload();
+        if (flusher != null) {
+            return;
+        }
+        try {
+            List<PlayerLog.Entry> entries = log.open();
+            synchronized (this) {
+                for (PlayerLog.Entry entry : entries) {
+                    pending.put(entry.name, merge(pending.get(entry.name), entry));
+                }
+            }
+            if (!entries.isEmpty()) {
+                logger.info("Recovered player saves from the log [saves=" + entries.size() + ", players=" + pending.size() + "]");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error opening the player log", e);
+        }
+        flush();
+        flusher = Executors.newSingleThreadScheduledExecutor(new ManipulativeThreadFactory("player-cache", Thread.NORM_PRIORITY));
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    logger.error("Error writing player saves", e);
+                }
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.error("Error closing the player log", e);
+        }
+        loader.shutdown();
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of the hit rate of the loads and of how many saves each write stood in for.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Player cache [players=").append(records.size()).append(", pending=").append(pending.size());
+        sb.append(", loads=").append(loads).append(", hits=").append(hits);
+        sb.append(", hitRate=").append(String.format("%.1f", loads == 0 ? 0D : hits * 100D / loads)).append("%");
+        sb.append(", saves=").append(saves).append(", writes=").append(writes).append(", failedWrites=").append(failedWrites);
+        sb.append(", coalescing=").append(String.format("%.2f", writes == 0 ? 0D : saves / (double) writes)).append("]");
+        if (reset) {
+            loads = hits = saves = writes = failedWrites = 0;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Combines a pending save with a newer one, which may hold other groups.
+     */
+    private static PlayerLog.Entry merge(PlayerLog.Entry older, PlayerLog.Entry newer) {
+        if (older == null) {
+            return newer;
+        }
+        if (newer == null) {
+            return older;
+        }
+        if ((older.groups & ~newer.groups) == 0) {
+            return newer;
+        }
+        PlayerSave save = new PlayerSave();
+        apply(save, older.save, older.groups);
+        apply(save, newer.save, newer.groups);
+        return new PlayerLog.Entry(newer.name, older.groups | newer.groups, save);
+    }
+
+    private static void apply(PlayerSave to, PlayerSave from, int groups) {
+        try {
+            to.load(from.toByteArray(groups), groups);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copy(PlayerSave from, PlayerSave to) {
+        try {
+            to.load(from.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] hash(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter.db;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ziotic.Static;
+import com.ziotic.adapter.DatabaseLoader;
+import com.ziotic.content.cc.Clan;
+import com.ziotic.engine.login.LoginResponse;
+import com.ziotic.io.sql.SQLInitiator;
+import com.ziotic.io.sql.SQLSession;
+import com.ziotic.logic.player.PlayerSave;
+import com.ziotic.utility.Configuration;
+import com.ziotic.utility.Pool;
+import com.ziotic.utility.StringParser;
+
+/**
+ * Times the operations of a {@link DatabaseLoader} against generated players.
+ * <p/>
+ * Usage: <code>gradle :server:databaseBenchmark -Pargs="[jdbc url|file] [driver|directory] [players] [batch size]
+ * [threads]"</code>
+ * <p/>
+ * Given <code>file</code> this runs against a {@link FileDatabaseLoader} in a new directory, and needs nothing else.
+ * Otherwise it runs {@link DatabaseLoaderAdapter} against a database, by default an in-memory H2 database in MySQL mode,
+ * which the <code>benchmark</code> configuration puts on the class path. The schema is created if it does not exist yet, so do not point it at a live
+ * database.
+ *
+ * @author Lazaro
+ */
+public class DatabaseBenchmark {
+    private static final String PASSWORD = "benchmark";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE";
+        String driver = args.length > 1 ? args[1] : "org.h2.Driver";
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        if (Static.parser == null) {
+            Static.parser = new StringParser();
+        }
+        Static.conf = createConfiguration(url, driver);
+        final DatabaseLoader loader;
+        if (url.equals("file")) {
+            File directory = args.length > 1 ? new File(args[1]) : Files.createTempDirectory("store").toFile();
+            loader = new FileDatabaseLoader(new File(directory, "players.dat"));
+        } else {
+            Pool<SQLSession> pool = new Pool<SQLSession>(SQLSession.class, new SQLInitiator(Static.conf), 4);
+            createSchema(pool, players);
+            loader = new DatabaseLoaderAdapter(pool);
+        }
+        loader.reload();
+        final PlayerSave[] saves = new PlayerSave[players];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            saves[i] = new PlayerSave();
+            if (loader.loadPlayer(name(i), PASSWORD, saves[i]) != LoginResponse.LOGIN) {
+                throw new IllegalStateException("Could not load " + name(i));
+            }
+        }
+        report("loadPlayer (first)", players, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            loader.loadPlayer(name(i), PASSWORD, new PlayerSave());
+        }
+        report("loadPlayer", players, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            saves[i].x++;
+            loader.savePlayer(name(i), PlayerSave.ALL_GROUPS, saves[i]);
+        }
+        report("savePlayer (all groups)", players, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            saves[i].x++;
+            loader.savePlayer(name(i), PlayerSave.POSITION, saves[i]);
+        }
+        report("savePlayer (position)", players, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int offset = 0; offset < players; offset += batchSize) {
+            int count = Math.min(batchSize, players - offset);
+            String[] names = new String[count];
+            int[] groups = new int[count];
+            PlayerSave[] batch = new PlayerSave[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = name(offset + i);
+                groups[i] = (offset + i) % 2 == 0 ? PlayerSave.ALL_GROUPS : PlayerSave.POSITION;
+                batch[i] = saves[offset + i];
+                batch[i].x++;
+            }
+            for (boolean saved : loader.savePlayers(names, groups, batch)) {
+                if (!saved) {
+                    throw new IllegalStateException("Batch failed at " + offset);
+                }
+            }
+        }
+        report("savePlayers (batches of " + batchSize + ")", players, System.nanoTime() - start);
+
+        Thread[] workers = new Thread[threads];
+        final AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < saves.length) {
+                        loader.savePlayer(name(i), PlayerSave.POSITION, saves[i]);
+                    }
+                }
+            };
+        }
+        start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        report("savePlayer (" + threads + " threads)", players, System.nanoTime() - start);
+
+        int clans = Math.min(players, 500);
+        start = System.nanoTime();
+        for (int i = 0; i < clans; i++) {
+            Clan clan = new Clan(name(i));
+            clan.setName("Clan " + i);
+            clan.getRanks().put(name((i + 1) % players), Clan.Rank.CAPTAIN);
+            loader.saveClan(clan);
+        }
+        report("saveClan", clans, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < clans; i++) {
+            if (!loader.loadClan(name(i), new Clan(name(i)))) {
+                throw new IllegalStateException("Could not load the clan of " + name(i));
+            }
+        }
+        report("loadClan", clans, System.nanoTime() - start);
+
+        PlayerSave check = new PlayerSave();
+        loader.loadPlayer(name(0), PASSWORD, check);
+        if (check.x != saves[0].x) {
+            throw new IllegalStateException("Read back x=" + check.x + ", expected " + saves[0].x);
+        }
+        if (loader instanceof FileDatabaseLoader) {
+            System.out.println(((FileDatabaseLoader) loader).report());
+        }
+        loader.shutdown();
+        System.exit(0);
+    }
+
+    private static String name(int i) {
+        return "bench_" + i;
+    }
+
+    private static void report(String operation, int count, long nanos) {
+        System.out.println(String.format("%-32s %6d ops %8.1f ms %8.1f us/op", operation, count, nanos / 1e6, nanos / 1e3 / count));
+    }
+
+    private static Configuration createConfiguration(String url, String driver) throws IOException {
+        File file = File.createTempFile("benchmark", ".ini");
+        file.deleteOnExit();
+        FileWriter out = new FileWriter(file);
+        try {
+            out.write("sql_host=" + url + "\n");
+            out.write("sql_driver=" + driver + "\n");
+        } finally {
+            out.close();
+        }
+        return new Configuration(file);
+    }
+
+    private static void createSchema(Pool<SQLSession> pool, int players) throws Exception {
+        SQLSession sql = pool.acquire();
+        try {
+            Statement st = sql.createStatement();
+            st.execute("CREATE TABLE IF NOT EXISTS members (member_id INT PRIMARY KEY AUTO_INCREMENT, members_seo_name VARCHAR(255) NOT NULL, members_pass_hash VARCHAR(255) NOT NULL, members_pass_salt VARCHAR(255) NOT NULL, member_group_id INT NOT NULL, email VARCHAR(255), msg_count_new INT DEFAULT 0)");
+            st.execute("CREATE TABLE IF NOT EXISTS subscription_trans (subtrans_id INT PRIMARY KEY AUTO_INCREMENT, subtrans_member_id INT NOT NULL, subtrans_state VARCHAR(50) NOT NULL, subtrans_end_date BIGINT NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS playersave (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL UNIQUE, lastLoggedIn BIGINT DEFAULT 0 NOT NULL, lastIPs VARCHAR(64) DEFAULT '0.0.0.0;0.0.0.0;0.0.0.0' NOT NULL, x INT DEFAULT -1 NOT NULL, y INT DEFAULT -1 NOT NULL, z INT DEFAULT -1 NOT NULL, runToggled INT DEFAULT 0 NOT NULL, runEnergy INT DEFAULT 100 NOT NULL, "
+                    + "inv VARCHAR(512) DEFAULT '-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1' NOT NULL, invN VARCHAR(512) DEFAULT '0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0' NOT NULL, equip VARCHAR(256) DEFAULT '-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1;-1' NOT NULL, equipN VARCHAR(256) DEFAULT '0;0;0;0;0;0;0;0;0;0;0;0;0;0' NOT NULL, "
+                    + "bank LONGTEXT DEFAULT NULL, bankN LONGTEXT DEFAULT NULL, bankT LONGTEXT DEFAULT NULL, level VARCHAR(256) DEFAULT '1;1;1;10;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1;1' NOT NULL, exp VARCHAR(1024) DEFAULT '0;0;0;1154;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0' NOT NULL, xpCounter INT DEFAULT 0 NOT NULL, "
+                    + "autoRetaliate INT DEFAULT 0 NOT NULL, attackStyle INT DEFAULT 0 NOT NULL, prayerBook INT DEFAULT 1 NOT NULL, quickPrayers VARCHAR(256) DEFAULT '0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0' NOT NULL, friends VARCHAR(5120) DEFAULT '' NOT NULL, ignores VARCHAR(5120) DEFAULT '' NOT NULL, pmSetting INT DEFAULT 0 NOT NULL, pmColor INT DEFAULT 0 NOT NULL, lastClan VARCHAR(16) DEFAULT NULL, "
+                    + "spellBook INT DEFAULT 193 NOT NULL, looks VARCHAR(28) DEFAULT '310;307;443;599;390;646;438' NOT NULL, colors VARCHAR(20) DEFAULT '6;40;216;4;0' NOT NULL, specialEnergy INT DEFAULT 100 NOT NULL, muted INT DEFAULT 0 NOT NULL, skulled INT DEFAULT 0 NOT NULL, skullTimer INT DEFAULT 0 NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS clans (owner VARCHAR(255) PRIMARY KEY, name VARCHAR(255) NOT NULL, enabled BOOLEAN DEFAULT TRUE, enterReq INT DEFAULT 0, talkReq INT DEFAULT 0, kickReq INT DEFAULT 0, lootShareReq INT DEFAULT 0, recruits TEXT, corporals TEXT, sergeants TEXT, lieutenants TEXT, captains TEXT, generals TEXT)");
+            st.close();
+
+            String salt = "salt";
+            String hash = md5(md5(salt) + md5(PASSWORD));
+            PreparedStatement insert = sql.prepare("INSERT INTO members (members_seo_name, members_pass_hash, members_pass_salt, member_group_id) VALUES (?, ?, ?, 3)");
+            for (int i = 0; i < players; i++) {
+                insert.setString(1, name(i).replace("_", "-"));
+                insert.setString(2, hash);
+                insert.setString(3, salt);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } catch (SQLException e) {
+            sql.fail();
+            throw e;
+        } finally {
+            pool.release(sql);
+        }
+    }
+
+    private static String md5(String text) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("MD5").digest(text.getBytes())) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
@@ -23,9 +23,10 @@ package com.ziotic.adapter.db;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -49,11 +50,59 @@ import static com.ziotic.utility.ArrayUtilities.primitive;
 import static com.ziotic.utility.ArrayUtilities.toArray;
 
 /**
+ * Loads and saves players and clans with prepared statements, which every connection keeps once prepared.
+ * <p/>
+ * Every query names its columns. Player saves only update the columns of the groups they carry, several saves are sent
+ * to the database as one batch, and clans are written with a single upsert.
+ *
  * @author Lazaro
  */
 public class DatabaseLoaderAdapter implements DatabaseLoader {
   private static final Logger logger = Logging.log();
 
+  private static final String LOAD_MEMBER = "SELECT member_id, members_pass_hash, members_pass_salt, member_group_id, email, msg_count_new FROM members WHERE members_seo_name=? LIMIT 1";
+  private static final String LOAD_SUBSCRIPTIONS = "SELECT subtrans_state, subtrans_end_date FROM subscription_trans WHERE subtrans_member_id=?";
+  private static final String LOAD_PLAYER = "SELECT lastLoggedIn, lastIPs, muted, x, y, z, runToggled, runEnergy, inv, invN, equip, equipN, bank, bankN, bankT, level, exp, xpCounter, autoRetaliate, attackStyle, prayerBook, quickPrayers, spellBook, specialEnergy, looks, colors, skulled, skullTimer, friends, ignores, pmSetting, pmColor, lastClan FROM playersave WHERE id=? LIMIT 1";
+  private static final String CREATE_PLAYER = "INSERT IGNORE INTO playersave (id, name) VALUES (?, ?)";
+  private static final String REGISTER_CLAN = "INSERT INTO clans (owner, name) VALUES (?, ?) ON DUPLICATE KEY UPDATE name=VALUES(name)";
+  private static final String LOAD_CLAN = "SELECT name, enabled, enterReq, talkReq, kickReq, lootShareReq, recruits, corporals, sergeants, lieutenants, captains, generals FROM clans WHERE owner=? LIMIT 1";
+  private static final String SAVE_CLAN = "INSERT INTO clans (owner, name, enabled, enterReq, talkReq, kickReq, lootShareReq, recruits, corporals, sergeants, lieutenants, captains, generals) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE name=VALUES(name), enabled=VALUES(enabled), enterReq=VALUES(enterReq), talkReq=VALUES(talkReq), kickReq=VALUES(kickReq), lootShareReq=VALUES(lootShareReq), recruits=VALUES(recruits), corporals=VALUES(corporals), sergeants=VALUES(sergeants), lieutenants=VALUES(lieutenants), captains=VALUES(captains), generals=VALUES(generals)";
+
+  /**
+   * The playersave columns of each group, in the order they are bound by {@link #bindSave}.
+   */
+  private static final String[][] SAVE_COLUMNS = new String[PlayerSave.GROUP_COUNT][];
+
+  static {
+    SAVE_COLUMNS[0] = new String[] {"lastIPs", "muted"};
+    SAVE_COLUMNS[1] = new String[] {"friends", "ignores", "pmSetting", "pmColor"};
+    SAVE_COLUMNS[2] = new String[] {"x", "y", "z"};
+    SAVE_COLUMNS[3] = new String[] {"level", "exp", "xpCounter"};
+    SAVE_COLUMNS[4] = new String[] {"inv", "invN"};
+    SAVE_COLUMNS[5] = new String[] {"equip", "equipN"};
+    SAVE_COLUMNS[6] = new String[] {"bank", "bankN", "bankT"};
+    SAVE_COLUMNS[7] = new String[] {"runToggled", "runEnergy", "autoRetaliate", "attackStyle", "prayerBook", "quickPrayers", "spellBook", "specialEnergy", "looks", "colors", "skulled", "skullTimer", "lastClan"};
+  }
+
+  private static final String[] SAVE_QUERIES = new String[PlayerSave.ALL_GROUPS + 1];
+
+  private final Pool<SQLSession> pool;
+
+  /**
+   * Uses the connections of the link server.
+   */
+  public DatabaseLoaderAdapter() {
+    this(null);
+  }
+
+  public DatabaseLoaderAdapter(Pool<SQLSession> pool) {
+    this.pool = pool;
+  }
+
+  private Pool<SQLSession> getPool() {
+    return pool != null ? pool : Static.currentLink().getSQLPool();
+  }
+
   @Override
   public void banIP(String ip) {
   }
@@ -72,55 +121,55 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
   public LoginResponse loadPlayer(String userName, String password, PlayerSave player) {
     userName = Text.formatNameForProtocol(userName);
 
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
+    Pool<SQLSession> pool = getPool();
 
     SQLSession sql = null;
     try {
       sql = pool.acquire();
 
-      Statement st = sql.createStatement();
-
-      ResultSet rs = st.executeQuery("SELECT * FROM members WHERE " +
-          "members_seo_name='" + userName
-              .replace("_",
-                  "-")
-          + "' LIMIT 1");
-      if (!rs.next()) {
-        return LoginResponse.INVALID_DETAILS;
-      }
-
-      if (password != null) {
-        String passwordHash = rs.getString("members_pass_hash");
-        String passwordSalt = rs.getString("members_pass_salt");
-        if (!verifyPassword(password, passwordHash, passwordSalt)) {
+      PreparedStatement st = sql.prepare(LOAD_MEMBER);
+      st.setString(1, userName.replace("_", "-"));
+      ResultSet rs = st.executeQuery();
+      try {
+        if (!rs.next()) {
           return LoginResponse.INVALID_DETAILS;
         }
-      }
 
-      int userId = rs.getInt("member_id");
-      player.userId = userId;
+        if (password != null) {
+          String passwordHash = rs.getString(2);
+          String passwordSalt = rs.getString(3);
+          if (!verifyPassword(password, passwordHash, passwordSalt)) {
+            return LoginResponse.INVALID_DETAILS;
+          }
+        }
 
-      int[] userGroups = new int[1];
-      userGroups[0] = rs.getInt("member_group_id");
-      if (userGroups[0] == 5) {
-        return LoginResponse.BANNED;
-      }
-      applyGroupData(player, userGroups);
+        player.userId = rs.getInt(1);
 
-      player.email = rs.getString("email");
-      if (player.email != null && player.email.length() == 0) {
-        player.email = null;
-      }
+        int[] userGroups = new int[1];
+        userGroups[0] = rs.getInt(4);
+        if (userGroups[0] == 5) {
+          return LoginResponse.BANNED;
+        }
+        applyGroupData(player, userGroups);
 
-      player.unreadMessages = rs.getInt("msg_count_new");
-      rs.close();
+        player.email = rs.getString(5);
+        if (player.email != null && player.email.length() == 0) {
+          player.email = null;
+        }
+
+        player.unreadMessages = rs.getInt(6);
+      } finally {
+        rs.close();
+      }
 
       player.subscriptionEnd = 0;
-      rs = st.executeQuery("SELECT * FROM subscription_trans WHERE subtrans_member_id='" + userId + "'");
+      st = sql.prepare(LOAD_SUBSCRIPTIONS);
+      st.setInt(1, player.userId);
+      rs = st.executeQuery();
       while (rs.next()) {
-        String state = rs.getString("subtrans_state");
+        String state = rs.getString(1);
         if (state.equalsIgnoreCase("paid") || state.equalsIgnoreCase("canceled")) {
-          long end = rs.getLong("subtrans_end_date") * 1000;
+          long end = rs.getLong(2) * 1000;
           if (end > player.subscriptionEnd) {
             player.subscriptionEnd = end;
           }
@@ -133,195 +182,261 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
       // return LoginResponse.MEMBERS_REQUIRED;
       // }
 
-      for (int attempt = 0; attempt < 2; attempt++) {
-        rs = st.executeQuery("SELECT * FROM playersave WHERE id='" + userId + "' LIMIT 1");
+      st = sql.prepare(LOAD_PLAYER);
+      st.setInt(1, player.userId);
+      rs = st.executeQuery();
+      if (!rs.next()) {
+        rs.close();
+        PreparedStatement create = sql.prepare(CREATE_PLAYER);
+        create.setInt(1, player.userId);
+        create.setString(2, userName);
+        create.executeUpdate();
+        rs = st.executeQuery();
         if (!rs.next()) {
           rs.close();
-          st.executeUpdate("INSERT INTO playersave (id, name) VALUES ('" + userId + "', '" + userName + "')");
-          continue;
-        } else {
-          attempt++;
+          return LoginResponse.ERROR;
         }
+      }
+      try {
+        loadPlayer(player, rs);
+      } finally {
+        rs.close();
+      }
 
-        player.lastLoggedIn = rs.getLong("lastLoggedIn");
-
-        player.lastIPs = toArray(rs.getString("lastIPs"), new String[3]);
-        player.isMuted = rs.getInt("muted") == 1;
-
-        player.x = rs.getInt("x");
-        player.y = rs.getInt("y");
-        player.z = rs.getInt("z");
+      Clan clan = new Clan(userName);
+      if (loadClan(userName, clan, sql)) {
+        player.ownClan = clan;
+      }
 
-        player.runToggled = rs.getBoolean("runToggled");
-        player.runEnergy = rs.getInt("runEnergy");
+      return LoginResponse.LOGIN;
+    } catch (SQLException e) {
+      logger.error("Error loading player [name=" + userName + "]", e);
+      if (sql != null) {
+        sql.fail();
+      }
+    } finally {
+      if (sql != null) {
+        pool.release(sql);
+      }
+    }
+    return LoginResponse.ERROR;
+  }
 
-        player.inv = primitive(toArray(rs.getString("inv"), new Short[28]));
-        player.invN = primitive(toArray(rs.getString("invN"), new Integer[28]));
+  private void loadPlayer(PlayerSave player, ResultSet rs) throws SQLException {
+    player.lastLoggedIn = rs.getLong("lastLoggedIn");
 
-        player.equip = primitive(toArray(rs.getString("equip"), new Short[14]));
-        player.equipN = primitive(toArray(rs.getString("equipN"), new Integer[14]));
+    player.lastIPs = toArray(rs.getString("lastIPs"), new String[3]);
 
-        String bankS = rs.getString("bank");
-        if (bankS == null) {
-          player.bank = new int[0][3];
-        } else {
-          short[] bank = primitive(toArray(bankS, new Short[0]));
-          int[] bankN = primitive(toArray(rs.getString("bankN"), new Integer[0]));
-          byte[] bankT = primitive(toArray(rs.getString("bankT"), new Byte[0]));
+    player.x = rs.getInt("x");
+    player.y = rs.getInt("y");
+    player.z = rs.getInt("z");
 
-          player.bank = new int[bank.length][3];
-          for (int i = 0; i < bank.length; i++) {
-            int[] entry = player.bank[i];
-            entry[0] = bank[i];
-            entry[1] = bankN[i];
-            entry[2] = bankT[i];
-          }
-        }
-        player.level = primitive(toArray(rs.getString("level"), new Byte[Levels.SKILL_COUNT]));
-        player.exp = primitive(toArray(rs.getString("exp"), new Double[Levels.SKILL_COUNT]));
-        player.xpCounter = rs.getInt("xpCounter");
-
-        player.autoRetaliate = rs.getInt("autoRetaliate") == 1;
-        player.attackStyle = rs.getInt("attackStyle");
-
-        player.prayerBook = rs.getInt("prayerBook") == 1;
-        String quickPrayers = rs.getString("quickPrayers");
-        if (quickPrayers.length() == 0)
-          quickPrayers = player.prayerBook ? "0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0"
-              : "0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0";
-        player.quickPrayers = primitive(toArray(quickPrayers, new Byte[player.prayerBook ? 20 : 30]));
-        player.spellBook = rs.getInt("spellBook");
-        player.specialEnergy = rs.getInt("specialEnergy");
-        String looks = rs.getString("looks");
-        if (looks.length() == 0)
-          looks = "310;307;443;599;390;646;438";
-        player.looks = primitive(toArray(looks, new Integer[7]));
-        String colours = rs.getString("colors");
-        if (colours.length() == 0)
-          colours = "6;40;216;4;0";
-        player.colours = primitive(toArray(colours, new Integer[5]));
-        player.isMuted = rs.getInt("muted") == 1;
-        player.isSkulled = rs.getInt("skulled") == 1;
-        player.skullTimer = rs.getInt("skullTimer");
-
-        player.friends = toArray(rs.getString("friends"), new String[0]);
-        player.ignores = toArray(rs.getString("ignores"), new String[0]);
-
-        player.privateChatSetting = rs.getInt("pmSetting");
-        player.privateChatColor = rs.getInt("pmColor");
-
-        player.lastClan = rs.getString("lastClan");
+    player.runToggled = rs.getBoolean("runToggled");
+    player.runEnergy = rs.getInt("runEnergy");
 
-        rs.close();
+    player.inv = primitive(toArray(rs.getString("inv"), new Short[28]));
+    player.invN = primitive(toArray(rs.getString("invN"), new Integer[28]));
 
-        Clan clan = new Clan(userName);
-        if (loadClan(userName, clan, st)) {
-          player.ownClan = clan;
-        }
+    player.equip = primitive(toArray(rs.getString("equip"), new Short[14]));
+    player.equipN = primitive(toArray(rs.getString("equipN"), new Integer[14]));
 
-        st.close();
+    String bankS = rs.getString("bank");
+    if (bankS == null) {
+      player.bank = new int[0][3];
+    } else {
+      short[] bank = primitive(toArray(bankS, new Short[0]));
+      int[] bankN = primitive(toArray(rs.getString("bankN"), new Integer[0]));
+      byte[] bankT = primitive(toArray(rs.getString("bankT"), new Byte[0]));
 
-        return LoginResponse.LOGIN;
-      }
-    } catch (SQLException e) {
-      logger.error("Error loading player [name=" + userName + "]", e);
-    } finally {
-      if (sql != null) {
-        pool.release(sql);
+      player.bank = new int[bank.length][3];
+      for (int i = 0; i < bank.length; i++) {
+        int[] entry = player.bank[i];
+        entry[0] = bank[i];
+        entry[1] = bankN[i];
+        entry[2] = bankT[i];
       }
     }
-    return LoginResponse.ERROR;
+    player.level = primitive(toArray(rs.getString("level"), new Byte[Levels.SKILL_COUNT]));
+    player.exp = primitive(toArray(rs.getString("exp"), new Double[Levels.SKILL_COUNT]));
+    player.xpCounter = rs.getInt("xpCounter");
+
+    player.autoRetaliate = rs.getInt("autoRetaliate") == 1;
+    player.attackStyle = rs.getInt("attackStyle");
+
+    player.prayerBook = rs.getInt("prayerBook") == 1;
+    String quickPrayers = rs.getString("quickPrayers");
+    if (quickPrayers.length() == 0)
+      quickPrayers = player.prayerBook ? "0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0"
+          : "0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0;0";
+    player.quickPrayers = primitive(toArray(quickPrayers, new Byte[player.prayerBook ? 20 : 30]));
+    player.spellBook = rs.getInt("spellBook");
+    player.specialEnergy = rs.getInt("specialEnergy");
+    String looks = rs.getString("looks");
+    if (looks.length() == 0)
+      looks = "310;307;443;599;390;646;438";
+    player.looks = primitive(toArray(looks, new Integer[7]));
+    String colours = rs.getString("colors");
+    if (colours.length() == 0)
+      colours = "6;40;216;4;0";
+    player.colours = primitive(toArray(colours, new Integer[5]));
+    player.isMuted = rs.getInt("muted") == 1;
+    player.isSkulled = rs.getInt("skulled") == 1;
+    player.skullTimer = rs.getInt("skullTimer");
+
+    player.friends = toArray(rs.getString("friends"), new String[0]);
+    player.ignores = toArray(rs.getString("ignores"), new String[0]);
+
+    player.privateChatSetting = rs.getInt("pmSetting");
+    player.privateChatColor = rs.getInt("pmColor");
+
+    player.lastClan = rs.getString("lastClan");
   }
 
   @Override
-  public void savePlayer(String userName, boolean lobby, PlayerSave player) {
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
+  public boolean savePlayer(String userName, int groups, PlayerSave player) {
+    return savePlayers(new String[] {userName}, new int[] {groups}, new PlayerSave[] {player})[0];
+  }
+
+  @Override
+  public boolean[] savePlayers(String[] userNames, int[] groups, PlayerSave[] players) {
+    boolean[] saved = new boolean[players.length];
+    Pool<SQLSession> pool = getPool();
 
     SQLSession sql = null;
     try {
       sql = pool.acquire();
 
-      StringBuilder query = new StringBuilder();
-      query.append("UPDATE playersave SET");
-      query.append(" lastIPs='").append(ArrayUtilities.toString(player.lastIPs)).append("'");
-      query.append(", muted='").append(player.isMuted ? 1 : 0).append("'");
-      query.append(", lastLoggedIn='").append(System.currentTimeMillis()).append("'");
-      query.append(", friends='").append(ArrayUtilities.toString(player.friends)).append("'");
-      query.append(", ignores='").append(ArrayUtilities.toString(player.ignores)).append("'");
-      query.append(", pmSetting='").append(player.privateChatSetting).append("'");
-      query.append(", pmColor='").append(player.privateChatColor).append("'");
-      if (!lobby) {
-        query.append(", x='").append(player.x).append("'");
-        query.append(", y='").append(player.y).append("'");
-        query.append(", z='").append(player.z).append("'");
-        query.append(", runToggled='").append(player.runToggled ? 1 : 0).append("'");
-        query.append(", runEnergy='").append(player.runEnergy).append("'");
-        query.append(", inv='").append(ArrayUtilities.toString(player.inv)).append("'");
-        query.append(", invN='").append(ArrayUtilities.toString(player.invN)).append("'");
-        query.append(", equip='").append(ArrayUtilities.toString(player.equip)).append("'");
-        query.append(", equipN='").append(ArrayUtilities.toString(player.equipN)).append("'");
-
-        int[] bank = new int[player.bank.length];
-        for (int i = 0; i < bank.length; i++) {
-          bank[i] = player.bank[i][0];
+      Connection connection = sql.getConnection();
+      connection.setAutoCommit(false);
+      try {
+        // Saves of the same groups share a statement, so they are sent as one batch.
+        boolean[] batched = new boolean[PlayerSave.ALL_GROUPS + 1];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < players.length; i++) {
+          PreparedStatement st = sql.prepare(getSaveQuery(groups[i]));
+          bindSave(st, groups[i], players[i], now);
+          st.addBatch();
+          batched[groups[i]] = true;
         }
-        query.append(", bank='").append(ArrayUtilities.toString(bank)).append("'");
-        for (int i = 0; i < bank.length; i++) {
-          bank[i] = player.bank[i][1];
-        }
-        query.append(", bankN='").append(ArrayUtilities.toString(bank)).append("'");
-        for (int i = 0; i < bank.length; i++) {
-          bank[i] = player.bank[i][2];
+        for (int mask = 0; mask < batched.length; mask++) {
+          if (batched[mask]) {
+            sql.prepare(getSaveQuery(mask)).executeBatch();
+          }
         }
-        query.append(", bankT='").append(ArrayUtilities.toString(bank)).append("'");
-
-        query.append(", level='").append(ArrayUtilities.toString(player.level)).append("'");
-        query.append(", exp='").append(ArrayUtilities.toString(player.exp)).append("'");
-        query.append(", xpCounter='").append(player.xpCounter).append("'");
-        query.append(", autoRetaliate='").append(player.autoRetaliate ? 1 : 0).append("'");
-        query.append(", attackStyle='").append(player.attackStyle).append("'");
-        query.append(", prayerBook='").append(player.prayerBook ? 1 : 0).append("'");
-        query.append(", quickPrayers='").append(ArrayUtilities.toString(player.quickPrayers)).append("'");
-        query.append(", spellBook='").append(player.spellBook).append("'");
-        query.append(", specialEnergy='").append(player.specialEnergy).append("'");
-        query.append(", looks='").append(ArrayUtilities.toString(player.looks)).append("'");
-        query.append(", colors='").append(ArrayUtilities.toString(player.colours)).append("'");
-        query.append(", muted='").append(player.isMuted ? 1 : 0).append("'");
-        query.append(", skulled='").append(player.isSkulled ? 1 : 0).append("'");
-        query.append(", skullTimer='").append(player.skullTimer).append("'");
-        query.append(", lastClan=");
-        if (player.lastClan == null) {
-          query.append("NULL");
-        } else {
-          query.append("'").append(player.lastClan).append("'");
+        connection.commit();
+        for (int i = 0; i < saved.length; i++) {
+          saved[i] = true;
         }
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(true);
       }
-      query.append(" WHERE id='").append(player.userId).append("'");
-      Statement st = sql.createStatement();
-      st.executeUpdate(query.toString());
-      st.close();
     } catch (SQLException e) {
-      logger.error("Error saving player [name=" + userName + "]", e);
+      logger.error("Error saving players [count=" + players.length + ", first=" + userNames[0] + "]", e);
+      if (sql != null) {
+        sql.fail();
+      }
     } finally {
       if (sql != null) {
         pool.release(sql);
       }
     }
+    return saved;
+  }
+
+  private static String getSaveQuery(int groups) {
+    String query = SAVE_QUERIES[groups];
+    if (query == null) {
+      StringBuilder sb = new StringBuilder("UPDATE playersave SET lastLoggedIn=?");
+      for (int group = 0; group < PlayerSave.GROUP_COUNT; group++) {
+        if ((groups & (1 << group)) != 0) {
+          for (String column : SAVE_COLUMNS[group]) {
+            sb.append(", ").append(column).append("=?");
+          }
+        }
+      }
+      query = SAVE_QUERIES[groups] = sb.append(" WHERE id=?").toString();
+    }
+    return query;
+  }
+
+  private static void bindSave(PreparedStatement st, int groups, PlayerSave player, long now) throws SQLException {
+    int index = 1;
+    st.setLong(index++, now);
+    if ((groups & PlayerSave.ACCOUNT) != 0) {
+      st.setString(index++, ArrayUtilities.toString(player.lastIPs));
+      st.setInt(index++, player.isMuted ? 1 : 0);
+    }
+    if ((groups & PlayerSave.FRIENDS) != 0) {
+      st.setString(index++, ArrayUtilities.toString(player.friends));
+      st.setString(index++, ArrayUtilities.toString(player.ignores));
+      st.setInt(index++, player.privateChatSetting);
+      st.setInt(index++, player.privateChatColor);
+    }
+    if ((groups & PlayerSave.POSITION) != 0) {
+      st.setInt(index++, player.x);
+      st.setInt(index++, player.y);
+      st.setInt(index++, player.z);
+    }
+    if ((groups & PlayerSave.LEVELS) != 0) {
+      st.setString(index++, ArrayUtilities.toString(player.level));
+      st.setString(index++, ArrayUtilities.toString(player.exp));
+      st.setInt(index++, player.xpCounter);
+    }
+    if ((groups & PlayerSave.INVENTORY) != 0) {
+      st.setString(index++, ArrayUtilities.toString(player.inv));
+      st.setString(index++, ArrayUtilities.toString(player.invN));
+    }
+    if ((groups & PlayerSave.EQUIPMENT) != 0) {
+      st.setString(index++, ArrayUtilities.toString(player.equip));
+      st.setString(index++, ArrayUtilities.toString(player.equipN));
+    }
+    if ((groups & PlayerSave.BANK) != 0) {
+      int[] bank = new int[player.bank.length];
+      for (int column = 0; column < 3; column++) {
+        for (int i = 0; i < bank.length; i++) {
+          bank[i] = player.bank[i][column];
+        }
+        st.setString(index++, ArrayUtilities.toString(bank));
+      }
+    }
+    if ((groups & PlayerSave.SETTINGS) != 0) {
+      st.setInt(index++, player.runToggled ? 1 : 0);
+      st.setInt(index++, player.runEnergy);
+      st.setInt(index++, player.autoRetaliate ? 1 : 0);
+      st.setInt(index++, player.attackStyle);
+      st.setInt(index++, player.prayerBook ? 1 : 0);
+      st.setString(index++, ArrayUtilities.toString(player.quickPrayers));
+      st.setInt(index++, player.spellBook);
+      st.setInt(index++, player.specialEnergy);
+      st.setString(index++, ArrayUtilities.toString(player.looks));
+      st.setString(index++, ArrayUtilities.toString(player.colours));
+      st.setInt(index++, player.isSkulled ? 1 : 0);
+      st.setInt(index++, player.skullTimer);
+      st.setString(index++, player.lastClan);
+    }
+    st.setInt(index, player.userId);
   }
 
   @Override
   public void registerClan(String owner, String name) {
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
+    Pool<SQLSession> pool = getPool();
 
     SQLSession sql = null;
     try {
       sql = pool.acquire();
 
-      Statement st = sql.createStatement();
-      st.executeUpdate("INSERT INTO clans (owner, name) VALUES ('" + owner + "', '" + name + "')");
-      st.close();
+      PreparedStatement st = sql.prepare(REGISTER_CLAN);
+      st.setString(1, owner);
+      st.setString(2, name);
+      st.executeUpdate();
     } catch (SQLException e) {
-      logger.error("Error registering clan [owner=" + owner + "]");
+      logger.error("Error registering clan [owner=" + owner + "]", e);
+      if (sql != null) {
+        sql.fail();
+      }
     } finally {
       if (sql != null) {
         pool.release(sql);
@@ -331,21 +446,18 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
 
   @Override
   public boolean loadClan(String owner, Clan clan) {
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
+    Pool<SQLSession> pool = getPool();
 
     SQLSession sql = null;
     try {
       sql = pool.acquire();
 
-      Statement st = sql.createStatement();
-
-      boolean success = loadClan(owner, clan, st);
-
-      st.close();
-
-      return success;
+      return loadClan(owner, clan, sql);
     } catch (SQLException e) {
       logger.error("Error loading clan [owner=" + owner + "]", e);
+      if (sql != null) {
+        sql.fail();
+      }
     } finally {
       if (sql != null) {
         pool.release(sql);
@@ -354,79 +466,45 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
     return false;
   }
 
-  private boolean loadClan(String owner, Clan clan, Statement st) throws SQLException {
-    ResultSet rs = st.executeQuery("SELECT * FROM clans WHERE owner='" + owner + "' LIMIT 1");
-    if (!rs.next()) {
-      rs.close();
-      return false;
-    }
-
-    clan.setName(rs.getString("name"));
+  private boolean loadClan(String owner, Clan clan, SQLSession sql) throws SQLException {
+    PreparedStatement st = sql.prepare(LOAD_CLAN);
+    st.setString(1, owner);
+    ResultSet rs = st.executeQuery();
+    try {
+      if (!rs.next()) {
+        return false;
+      }
 
-    clan.setEnabled(rs.getBoolean("enabled"));
+      clan.setName(rs.getString(1));
 
-    clan.setEnterRequirement(Rank.forValue(rs.getInt("enterReq")));
-    clan.setTalkRequirement(Rank.forValue(rs.getInt("talkReq")));
-    clan.setKickRequirement(Rank.forValue(rs.getInt("kickReq")));
-    clan.setLootShareRequirement(Rank.forValue(rs.getInt("lootShareReq")));
+      clan.setEnabled(rs.getBoolean(2));
 
-    String[] rankedMembers;
+      clan.setEnterRequirement(Rank.forValue(rs.getInt(3)));
+      clan.setTalkRequirement(Rank.forValue(rs.getInt(4)));
+      clan.setKickRequirement(Rank.forValue(rs.getInt(5)));
+      clan.setLootShareRequirement(Rank.forValue(rs.getInt(6)));
 
-    rankedMembers = toArray(rs.getString("recruits"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.RECRUIT);
-    }
-    rankedMembers = toArray(rs.getString("corporals"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.CORPORAL);
-    }
-    rankedMembers = toArray(rs.getString("sergeants"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.SERGEANT);
-    }
-    rankedMembers = toArray(rs.getString("lieutenants"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.LIEUTENANT);
-    }
-    rankedMembers = toArray(rs.getString("captains"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.CAPTAIN);
-    }
-    rankedMembers = toArray(rs.getString("generals"), new String[0]);
-    for (String member : rankedMembers) {
-      clan.getRanks().put(member, Rank.GENERAL);
+      Rank[] ranks = {Rank.RECRUIT, Rank.CORPORAL, Rank.SERGEANT, Rank.LIEUTENANT, Rank.CAPTAIN, Rank.GENERAL};
+      for (int i = 0; i < ranks.length; i++) {
+        for (String member : toArray(rs.getString(7 + i), new String[0])) {
+          clan.getRanks().put(member, ranks[i]);
+        }
+      }
+      return true;
+    } finally {
+      rs.close();
     }
-
-    rs.close();
-
-    return true;
   }
 
   @SuppressWarnings({ "rawtypes", "unchecked" })
   @Override
   public void saveClan(Clan clan) {
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
+    Pool<SQLSession> pool = getPool();
 
     SQLSession sql = null;
     try {
       sql = pool.acquire();
 
-      Statement st = sql.createStatement();
-      ResultSet rs = st.executeQuery("SELECT * FROM clans WHERE owner='" + clan.getOwner() + "' LIMIT 1");
-      if (!rs.next()) {
-        st.executeUpdate("INSERT INTO clans (owner) VALUES ('" + clan.getOwner() + "')");
-      }
-      rs.close();
-
-      StringBuilder query = new StringBuilder();
-      query.append("UPDATE clans SET");
-      query.append(" name='").append(clan.getName()).append("'");
-      query.append(", enabled='").append(clan.isEnabled() ? 1 : 0).append("'");
-      query.append(", enterReq='").append(clan.getEnterRequirement().intValue()).append("'");
-      query.append(", talkReq='").append(clan.getTalkRequirement().intValue()).append("'");
-      query.append(", kickReq='").append(clan.getKickRequirement().intValue()).append("'");
-      query.append(", lootShareReq='").append(clan.getLootShareRequirement().intValue()).append("'");
-
       List[] ranks = new List[9];
       for (Map.Entry<String, Rank> ranked : clan.getRanks().entrySet()) {
         List rankList = ranks[ranked.getValue().intValue() + 1];
@@ -436,44 +514,26 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
 
         rankList.add(ranked.getKey());
       }
-      List curList;
-
-      query.append(", recruits='")
-          .append((curList = ranks[Rank.RECRUIT.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-      query.append(", corporals='")
-          .append((curList = ranks[Rank.CORPORAL.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-      query.append(", sergeants='")
-          .append((curList = ranks[Rank.SERGEANT.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-      query.append(", lieutenants='")
-          .append((curList = ranks[Rank.LIEUTENANT.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-      query.append(", captains='")
-          .append((curList = ranks[Rank.CAPTAIN.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-      query.append(", generals='")
-          .append((curList = ranks[Rank.GENERAL.intValue() + 1]) != null
-              ? ArrayUtilities.toString(curList.toArray(new String[0]))
-              : "")
-          .append("'");
-
-      query.append(" WHERE owner='").append(clan.getOwner()).append("'");
-      st.executeUpdate(query.toString());
-      st.close();
+
+      PreparedStatement st = sql.prepare(SAVE_CLAN);
+      st.setString(1, clan.getOwner());
+      st.setString(2, clan.getName());
+      st.setInt(3, clan.isEnabled() ? 1 : 0);
+      st.setInt(4, clan.getEnterRequirement().intValue());
+      st.setInt(5, clan.getTalkRequirement().intValue());
+      st.setInt(6, clan.getKickRequirement().intValue());
+      st.setInt(7, clan.getLootShareRequirement().intValue());
+      Rank[] columns = {Rank.RECRUIT, Rank.CORPORAL, Rank.SERGEANT, Rank.LIEUTENANT, Rank.CAPTAIN, Rank.GENERAL};
+      for (int i = 0; i < columns.length; i++) {
+        List rankList = ranks[columns[i].intValue() + 1];
+        st.setString(8 + i, rankList != null ? ArrayUtilities.toString(rankList.toArray(new String[0])) : "");
+      }
+      st.executeUpdate();
     } catch (SQLException e) {
       logger.error("Error saving clan [owner=" + clan + "]", e);
+      if (sql != null) {
+        sql.fail();
+      }
     } finally {
       if (sql != null) {
         pool.release(sql);
@@ -485,6 +545,10 @@ public class DatabaseLoaderAdapter implements DatabaseLoader {
   public void reload() {
   }
 
+  @Override
+  public void shutdown() {
+  }
+
   private boolean verifyPassword(String inputPassword, String storedPasswordHash, String storedSalt) {
     MessageDigest digest;
     try {
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import com.ziotic.Static;
+import com.ziotic.adapter.DatabaseLoader;
+import com.ziotic.content.cc.Clan;
+import com.ziotic.engine.login.LoginResponse;
+import com.ziotic.logic.player.Levels;
+import com.ziotic.logic.player.PlayerSave;
+import com.ziotic.utility.Logging;
+import com.ziotic.utility.ManipulativeThreadFactory;
+import com.ziotic.utility.Text;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps accounts, players and clans in a local {@link RecordLog}, so the link server can run without a database.
+ * <p/>
+ * There is no registration, an account is created the first time a name logs in and the password it used is kept, as a
+ * salted PBKDF2 hash. A new player starts with the same defaults the <code>playersave</code> table has.
+ *
+ * @author Lazaro
+ */
+public class FileDatabaseLoader implements DatabaseLoader {
+    private static final Logger logger = Logging.log();
+
+    private static final String ACCOUNT = "account:", PLAYER = "player:", CLAN = "clan:";
+    private static final int HASH_ITERATIONS = 20000;
+
+    private static class Account {
+        private final int userId;
+        private final int rights;
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private Account(int userId, int rights, byte[] salt, byte[] hash) {
+            this.userId = userId;
+            this.rights = rights;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    private final RecordLog log;
+    private final int compactInterval;
+    private final int compactSize;
+    private final int defaultRights;
+    private final SecureRandom random = new SecureRandom();
+
+    private int nextUserId = 1;
+    private boolean opened = false;
+    private ScheduledExecutorService compactor = null;
+
+    public FileDatabaseLoader(File file) {
+        this.log = new RecordLog(file, Static.conf.getInt("player_store_sync", 1) == 1);
+        this.compactInterval = Static.conf.getInt("player_store_compact_interval", 60000);
+        this.compactSize = Static.conf.getInt("player_store_compact_size", 1 << 20);
+        this.defaultRights = Static.conf.getInt("player_store_rights", 0);
+    }
+
+    @Override
+    public void banIP(String ip) {
+    }
+
+    @Override
+    public boolean isBanned(String userName) {
+        return false;
+    }
+
+    @Override
+    public boolean isIPBanned(String ip) {
+        return false;
+    }
+
+    @Override
+    public LoginResponse loadPlayer(String userName, String password, PlayerSave player) {
+        String name = Text.formatNameForProtocol(userName);
+        try {
+            Account account = readAccount(name);
+            if (account == null) {
+                if (password == null) {
+                    return LoginResponse.INVALID_DETAILS;
+                }
+                account = createAccount(name, password);
+                if (account == null) {
+                    return LoginResponse.INVALID_DETAILS;
+                }
+            } else if (password != null && !MessageDigest.isEqual(account.hash, hash(password, account.salt))) {
+                return LoginResponse.INVALID_DETAILS;
+            }
+
+            player.userId = account.userId;
+            player.rights = account.rights;
+            player.email = null;
+            player.unreadMessages = 0;
+            player.subscriptionEnd = 0;
+
+            if (!readPlayer(name, player)) {
+                applyDefaults(player);
+            }
+
+            Clan clan = new Clan(name);
+            if (loadClan(name, clan)) {
+                player.ownClan = clan;
+            }
+            return LoginResponse.LOGIN;
+        } catch (IOException e) {
+            logger.error("Error loading player [name=" + name + "]", e);
+        }
+        return LoginResponse.ERROR;
+    }
+
+    @Override
+    public boolean savePlayer(String userName, int groups, PlayerSave player) {
+        return savePlayers(new String[] {userName}, new int[] {groups}, new PlayerSave[] {player})[0];
+    }
+
+    @Override
+    public boolean[] savePlayers(String[] userNames, int[] groups, PlayerSave[] players) {
+        boolean[] saved = new boolean[players.length];
+        try {
+            long sequence;
+            synchronized (this) {
+                String[] keys = new String[players.length];
+                byte[][] values = new byte[players.length][];
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < players.length; i++) {
+                    String name = Text.formatNameForProtocol(userNames[i]);
+                    // Only the given groups are written, so the rest comes from what is stored.
+                    PlayerSave save = new PlayerSave();
+                    if (!readPlayer(name, save)) {
+                        applyDefaults(save);
+                    }
+                    save.load(players[i].toByteArray(groups[i]), groups[i]);
+
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(baos);
+                    out.writeLong(now);
+                    out.write(save.toByteArray(PlayerSave.ALL_GROUPS));
+                    out.close();
+                    keys[i] = PLAYER + name;
+                    values[i] = baos.toByteArray();
+                }
+                sequence = log.append(keys, values);
+            }
+            log.sync(sequence);
+            Arrays.fill(saved, true);
+        } catch (IOException e) {
+            logger.error("Error saving players [count=" + players.length + ", first=" + userNames[0] + "]", e);
+        }
+        return saved;
+    }
+
+    @Override
+    public synchronized void registerClan(String owner, String name) {
+        Clan clan = new Clan(owner);
+        loadClan(owner, clan);
+        clan.setName(name);
+        saveClan(clan);
+    }
+
+    @Override
+    public boolean loadClan(String owner, Clan clan) {
+        try {
+            byte[] data = log.get(CLAN + Text.formatNameForProtocol(owner));
+            if (data == null) {
+                return false;
+            }
+            clan.load(data);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error loading clan [owner=" + owner + "]", e);
+        }
+        return false;
+    }
+
+    @Override
+    public void saveClan(Clan clan) {
+        try {
+            log.put(CLAN + Text.formatNameForProtocol(clan.getOwner()), clan.toByteArray());
+        } catch (IOException e) {
+            logger.error("Error saving clan [owner=" + clan + "]", e);
+        }
+    }
+
+    /**
+     * Opens the file and starts compacting it whenever it has grown to more than twice what it holds.
+     */
+    @Override
+    public synchronized void reload() {
+        if (opened) {
+            return;
+        }
+        try {
+            log.open();
+            for (String key : log.keys(ACCOUNT)) {
+                Account account = readAccount(key.substring(ACCOUNT.length()));
+                nextUserId = Math.max(nextUserId, account.userId + 1);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error opening the player store", e);
+        }
+        opened = true;
+        logger.info("Player store opened " + log.report());
+
+        compactor = Executors.newSingleThreadScheduledExecutor(new ManipulativeThreadFactory("player-store", Thread.MIN_PRIORITY));
+        compactor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (log.needsCompaction(compactSize)) {
+                        log.compact();
+                    }
+                } catch (Exception e) {
+                    logger.error("Error compacting the player store", e);
+                }
+            }
+        }, compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.error("Error closing the player store", e);
+        }
+        opened = false;
+    }
+
+    /**
+     * @return A summary of the size of the store and of how many writes each sync stood in for.
+     */
+    public String report() {
+        return "Player store " + log.report();
+    }
+
+    private Account readAccount(String name) throws IOException {
+        byte[] data = log.get(ACCOUNT + name);
+        if (data == null) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int userId = in.readInt();
+        int rights = in.readByte();
+        byte[] salt = new byte[in.readUnsignedByte()];
+        in.readFully(salt);
+        byte[] hash = new byte[in.readUnsignedByte()];
+        in.readFully(hash);
+        return new Account(userId, rights, salt, hash);
+    }
+
+    /**
+     * @return The new account, or null if the name was taken in the meantime with another password.
+     */
+    private Account createAccount(String name, String password) throws IOException {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        byte[] hash = hash(password, salt);
+        synchronized (this) {
+            // Another login may have created it while the password was being hashed.
+            Account account = readAccount(name);
+            if (account != null) {
+                return MessageDigest.isEqual(account.hash, hash(password, account.salt)) ? account : null;
+            }
+            account = new Account(nextUserId++, defaultRights, salt, hash);
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeInt(account.userId);
+            out.writeByte(account.rights);
+            out.writeByte(salt.length);
+            out.write(salt);
+            out.writeByte(hash.length);
+            out.write(hash);
+            out.close();
+            log.put(ACCOUNT + name, baos.toByteArray());
+            logger.info("Created account [name=" + name + ", userId=" + account.userId + "]");
+            return account;
+        }
+    }
+
+    private boolean readPlayer(String name, PlayerSave player) throws IOException {
+        byte[] data = log.get(PLAYER + name);
+        if (data == null) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        player.lastLoggedIn = in.readLong();
+        byte[] save = new byte[data.length - 8];
+        in.readFully(save);
+        int userId = player.userId;
+        player.load(save, PlayerSave.ALL_GROUPS);
+        player.userId = userId;
+        return true;
+    }
+
+    /**
+     * The column defaults of the <code>playersave</code> table.
+     */
+    private static void applyDefaults(PlayerSave player) {
+        player.lastIPs = new String[] {"0.0.0.0", "0.0.0.0", "0.0.0.0"};
+        player.x = player.y = player.z = -1;
+        player.runEnergy = 100;
+        Arrays.fill(player.inv, (short) -1);
+        Arrays.fill(player.equip, (short) -1);
+        player.bank = new int[0][3];
+        for (int i = 0; i < Levels.SKILL_COUNT; i++) {
+            player.level[i] = 1;
+            player.exp[i] = 0;
+        }
+        player.level[3] = 10;
+        player.exp[3] = 1154;
+        player.prayerBook = true;
+        player.quickPrayers = new byte[20];
+        player.spellBook = 193;
+        player.specialEnergy = 100;
+        player.looks = new int[] {310, 307, 443, 599, 390, 646, 438};
+        player.colours = new int[] {6, 40, 216, 4, 0};
+    }
+
+    private static byte[] hash(String password, byte[] salt) {
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return factory.generateSecret(new PBEKeySpec(password.toCharArray(), salt, HASH_ITERATIONS, 256)).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter.db;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ziotic.logic.player.PlayerSave;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An append only log of the player saves which have not been written to the database yet.
+ * <p/>
+ * The log is split into numbered segments. A new segment is started whenever the saves are about to be written, and
+ * the previous one is deleted once they have been, so the log only ever holds the saves which are still pending.
+ * <p/>
+ * Appending is split in two: {@link #write} only orders a save into the log, and {@link #sync} forces it to the disk.
+ * Callers write while holding whatever lock orders their saves and sync once they have let go of it, and a sync forces
+ * every save written so far, so saves arriving together share one force.
+ *
+ * @author Lazaro
+ */
+public class PlayerLog {
+    private static final Logger logger = Logging.log();
+
+    private static final String SUFFIX = ".log";
+
+    public static class Entry {
+        public final String name;
+        public final int groups;
+        public final PlayerSave save;
+
+        public Entry(String name, int groups, PlayerSave save) {
+            this.name = name;
+            this.groups = groups;
+            this.save = save;
+        }
+    }
+
+    private final File directory;
+    private final boolean sync;
+    private int segment = 0;
+    private FileOutputStream out = null;
+
+    /**
+     * The segment before the last rotation, kept open until {@link #retire()} has forced and closed it.
+     */
+    private FileOutputStream retiring = null;
+
+    private long written = 0;
+    private long synced = 0;
+    private final Object syncLock = new Object();
+
+    /**
+     * @param sync If every append should be forced to the disk before it returns.
+     */
+    public PlayerLog(File directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+    }
+
+    /**
+     * Reads the saves left in the log by the last run, oldest first, and starts a new segment after them.
+     */
+    public synchronized List<Entry> open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        List<Entry> entries = new ArrayList<Entry>();
+        for (int id : getSegments()) {
+            read(new File(directory, id + SUFFIX), entries);
+            segment = Math.max(segment, id);
+        }
+        out = new FileOutputStream(new File(directory, ++segment + SUFFIX), true);
+        return entries;
+    }
+
+    private void read(File file, List<Entry> entries) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    // The run ended halfway through this append, so it was never acknowledged.
+                    logger.warn("Dropped a partial player log record [file=" + file + "]");
+                    break;
+                }
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                String name = recordIn.readUTF();
+                int groups = recordIn.readUnsignedShort();
+                byte[] data = new byte[recordIn.available()];
+                recordIn.readFully(data);
+                PlayerSave save = new PlayerSave();
+                save.load(data, groups);
+                entries.add(new Entry(name, groups, save));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private int[] getSegments() {
+        List<Integer> ids = new ArrayList<Integer>();
+        String[] files = directory.list();
+        if (files != null) {
+            for (String file : files) {
+                if (file.endsWith(SUFFIX)) {
+                    try {
+                        ids.add(Integer.parseInt(file.substring(0, file.length() - SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                    }
+                }
+            }
+        }
+        int[] segments = new int[ids.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ids.get(i);
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Encodes a save as a record of the log, best done before taking any lock.
+     */
+    public static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(baos);
+        record.writeInt(0);
+        record.writeUTF(entry.name);
+        record.writeShort(entry.groups);
+        record.write(entry.save.toByteArray(entry.groups));
+        byte[] bytes = baos.toByteArray();
+        int length = bytes.length - 4;
+        bytes[0] = (byte) (length >> 24);
+        bytes[1] = (byte) (length >> 16);
+        bytes[2] = (byte) (length >> 8);
+        bytes[3] = (byte) length;
+        return bytes;
+    }
+
+    /**
+     * Writes a record to the log, it may not be on the disk until {@link #sync} is called with the number returned.
+     *
+     * @return The number of the record within the log.
+     */
+    public synchronized long write(byte[] record) throws IOException {
+        out.write(record);
+        return ++written;
+    }
+
+    /**
+     * Forces every record written so far to the disk, unless the given record already is.
+     */
+    public void sync(long record) throws IOException {
+        if (!sync) {
+            return;
+        }
+        synchronized (syncLock) {
+            FileOutputStream previous, current;
+            long upTo;
+            synchronized (this) {
+                if (synced >= record) {
+                    return;
+                }
+                previous = retiring;
+                current = out;
+                upTo = written;
+            }
+            if (previous != null) {
+                previous.getChannel().force(false);
+            }
+            current.getChannel().force(false);
+            synchronized (this) {
+                synced = Math.max(synced, upTo);
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment.
+     *
+     * @return The id of the previous segment, which can be deleted once the saves in it are written.
+     */
+    public synchronized int rotate() throws IOException {
+        if (retiring != null) {
+            throw new IOException("The previous segment has not been retired");
+        }
+        FileOutputStream next = new FileOutputStream(new File(directory, segment + 1 + SUFFIX), true);
+        retiring = out;
+        out = next;
+        return segment++;
+    }
+
+    /**
+     * Forces and closes the segment left by the last rotation, which is done apart from {@link #rotate()} so the force
+     * does not hold up whoever rotated.
+     */
+    public void retire() throws IOException {
+        synchronized (syncLock) {
+            FileOutputStream previous;
+            synchronized (this) {
+                previous = retiring;
+            }
+            if (previous == null) {
+                return;
+            }
+            try {
+                if (sync) {
+                    previous.getChannel().force(false);
+                }
+            } finally {
+                previous.close();
+                synchronized (this) {
+                    retiring = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes every segment up to and including the given one.
+     */
+    public synchronized void delete(int upTo) {
+        for (int id : getSegments()) {
+            if (id <= upTo && !new File(directory, id + SUFFIX).delete()) {
+                logger.warn("Could not delete player log segment [id=" + id + "]");
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (retiring != null) {
+            retiring.close();
+            retiring = null;
+        }
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
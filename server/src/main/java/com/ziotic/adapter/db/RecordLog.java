@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.adapter.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A file of keyed records which are only ever appended, with the position of the latest record of every key held in
+ * memory.
+ * <p/>
+ * A write which asks to be durable waits for the file to be forced to disk, and writers that arrive while it is being
+ * forced share the next force, so the cost of syncing is spread over every write made in the meantime. Records which
+ * have been replaced are left in the file until it is compacted into a copy holding only the latest records.
+ *
+ * @author Lazaro
+ */
+public class RecordLog {
+    private static final Logger logger = Logging.log();
+
+    private static final int HEADER_SIZE = 8;
+
+    private static class Location {
+        private final long offset;
+        private final int length;
+
+        private Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File file;
+    private final boolean sync;
+
+    private FileChannel channel = null;
+    private final Map<String, Location> index = new HashMap<String, Location>();
+    private long end = 0;
+    private long liveBytes = 0;
+
+    private final Object syncLock = new Object();
+    private long appended = 0;
+    private long synced = 0;
+    private boolean syncing = false;
+
+    private long writes = 0;
+    private long syncs = 0;
+    private long compactions = 0;
+
+    /**
+     * @param sync If a write should only return once it has reached the disk.
+     */
+    public RecordLog(File file, boolean sync) {
+        this.file = file;
+        this.sync = sync;
+    }
+
+    /**
+     * Reads the positions of the records, cutting off whatever a crash left half written at the end.
+     *
+     * @throws IOException If a damaged record is followed by valid ones, in which case the file is left as it is.
+     */
+    public synchronized void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        liveBytes = 0;
+
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_SIZE);
+            if (checksum(body.array()) != checksum) {
+                break;
+            }
+            index(readKey(body.array()), new Location(position, HEADER_SIZE + length));
+            position += HEADER_SIZE + length;
+        }
+        if (position < size) {
+            long next = findRecord(position + 1, size);
+            if (next != -1) {
+                channel.close();
+                channel = null;
+                index.clear();
+                logger.error("Damaged record in the middle of " + file + ", leaving it untouched [damaged=" + position + ", next=" + next + ", size=" + size + "]");
+                throw new IOException("Damaged record at " + position + " of " + file + " with valid records after it");
+            }
+            logger.warn("Dropping the damaged end of " + file + " [valid=" + position + ", size=" + size + "]");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        end = position;
+    }
+
+    /**
+     * @return The value last written for the key, or null.
+     */
+    public byte[] get(String key) throws IOException {
+        ByteBuffer record;
+        synchronized (this) {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            record = ByteBuffer.allocate(location.length);
+            readFully(record, location.offset);
+        }
+        byte[] data = record.array();
+        int keyLength = HEADER_SIZE + 2 + (((data[HEADER_SIZE] & 0xff) << 8) | (data[HEADER_SIZE + 1] & 0xff));
+        byte[] value = new byte[data.length - keyLength];
+        System.arraycopy(data, keyLength, value, 0, value.length);
+        return value;
+    }
+
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * @return Every key starting with the prefix.
+     */
+    public synchronized List<String> keys(String prefix) {
+        List<String> keys = new ArrayList<String>();
+        for (String key : index.keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    public void put(String key, byte[] value) throws IOException {
+        putAll(new String[] {key}, new byte[][] {value});
+    }
+
+    /**
+     * Writes several records and waits for all of them to reach the disk at once.
+     */
+    public void putAll(String[] keys, byte[][] values) throws IOException {
+        sync(append(keys, values));
+    }
+
+    /**
+     * Writes several records without waiting for them to reach the disk, see {@link #sync(long)}.
+     *
+     * @return The sequence of the write.
+     */
+    public long append(String[] keys, byte[][] values) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int[] lengths = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byte[] record = encode(keys[i], values[i]);
+            lengths[i] = record.length;
+            baos.write(record);
+        }
+        long sequence;
+        synchronized (this) {
+            ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
+            long position = end;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            position = end;
+            for (int i = 0; i < keys.length; i++) {
+                index(keys[i], new Location(position, lengths[i]));
+                position += lengths[i];
+            }
+            end = position;
+            writes += keys.length;
+            sequence = ++appended;
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until the write with the given sequence has been forced to disk, forcing it when no other writer is, unless
+     * the log was opened without syncing.
+     */
+    public void sync(long sequence) throws IOException {
+        if (!sync) {
+            return;
+        }
+        synchronized (syncLock) {
+            while (synced < sequence && syncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for a sync");
+                }
+            }
+            if (synced >= sequence) {
+                return;
+            }
+            syncing = true;
+        }
+        long target;
+        FileChannel channel;
+        synchronized (this) {
+            target = appended;
+            channel = this.channel;
+        }
+        boolean forced = false;
+        try {
+            channel.force(false);
+            forced = true;
+        } catch (IOException e) {
+            // A compaction in the meantime has already forced a copy holding the write.
+            synchronized (syncLock) {
+                if (synced < sequence) {
+                    throw e;
+                }
+            }
+        } finally {
+            synchronized (syncLock) {
+                if (forced) {
+                    synced = Math.max(synced, target);
+                    syncs++;
+                }
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return If more than half of the file is records which have been replaced since.
+     */
+    public synchronized boolean needsCompaction(long minimumSize) {
+        return end >= minimumSize && liveBytes * 2 < end;
+    }
+
+    /**
+     * Copies the latest record of every key into a new file which then takes the place of the old one.
+     */
+    public synchronized void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        FileChannel out = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Map<String, Location> locations = new HashMap<String, Location>();
+        long position = 0;
+        try {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                ByteBuffer record = ByteBuffer.allocate(location.length);
+                readFully(record, location.offset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                locations.put(entry.getKey(), new Location(position, location.length));
+                position += location.length;
+            }
+            out.force(true);
+        } finally {
+            out.close();
+        }
+        long before = end;
+        channel.close();
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(locations);
+        end = liveBytes = position;
+        compactions++;
+        synchronized (syncLock) {
+            synced = appended;
+            syncLock.notifyAll();
+        }
+        logger.info("Compacted " + file + " [before=" + before + ", after=" + end + ", records=" + index.size() + "]");
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return A summary of the size of the file and of how many writes each sync stood in for.
+     */
+    public synchronized String report() {
+        long syncs;
+        synchronized (syncLock) {
+            syncs = this.syncs;
+        }
+        return "[records=" + index.size() + ", bytes=" + end + ", liveBytes=" + liveBytes + ", writes=" + writes + ", syncs=" + syncs + ", compactions=" + compactions + "]";
+    }
+
+    private void index(String key, Location location) {
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            liveBytes -= previous.length;
+        }
+        liveBytes += location.length;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Looks for a valid record starting anywhere in the rest of the file, which a torn write at the end cannot leave.
+     *
+     * @return The offset of the first one found, or -1.
+     */
+    private long findRecord(long from, long size) throws IOException {
+        if (from + HEADER_SIZE > size) {
+            return -1;
+        }
+        ByteBuffer rest = ByteBuffer.allocate((int) Math.min(size - from, Integer.MAX_VALUE));
+        readFully(rest, from);
+        byte[] data = rest.array();
+        for (int offset = 0; offset + HEADER_SIZE <= data.length; offset++) {
+            int length = ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+            if (length <= 0 || length > data.length - offset - HEADER_SIZE) {
+                continue;
+            }
+            int checksum = ((data[offset + 4] & 0xff) << 24) | ((data[offset + 5] & 0xff) << 16) | ((data[offset + 6] & 0xff) << 8) | (data[offset + 7] & 0xff);
+            if (checksum(data, offset + HEADER_SIZE, length) == checksum) {
+                return from + offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A record is its length, a checksum, the key and the value.
+     */
+    private static byte[] encode(String key, byte[] value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(HEADER_SIZE + key.length() + 2 + value.length);
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeUTF(key);
+        out.write(value);
+        out.close();
+        byte[] record = baos.toByteArray();
+        ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_SIZE);
+        header.putInt(record.length - HEADER_SIZE);
+        header.putInt(checksum(record, HEADER_SIZE, record.length - HEADER_SIZE));
+        return record;
+    }
+
+    private static String readKey(byte[] body) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(body)).readUTF();
+    }
+
+    private static int checksum(byte[] data) {
+        return checksum(data, 0, data.length);
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
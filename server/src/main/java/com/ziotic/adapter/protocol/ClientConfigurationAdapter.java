@@ -146,6 +146,8 @@ public class ClientConfigurationAdapter implements ClientConfiguration {
                 return 9;
             case MEMBERS_REQUIRED:
                 return 12;
+            case LOGIN_SERVER_BUSY:
+                return 16; // Shown by the client as too many logins, wait and try again
             case ERROR:
                 return 13;
             case CURRENTLY_UPDATING:
@@ -176,6 +178,8 @@ public class ClientConfigurationAdapter implements ClientConfiguration {
                 return LoginResponse.LOGIN_LIMIT_EXCEEDED;
             case 12:
                 return LoginResponse.MEMBERS_REQUIRED;
+            case 16:
+                return LoginResponse.LOGIN_SERVER_BUSY;
             case 13:
                 return LoginResponse.ERROR;
             case 14:
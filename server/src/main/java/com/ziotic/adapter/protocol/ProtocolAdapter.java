@@ -31,6 +31,7 @@ import com.ziotic.content.cc.Clan.Rank;
 import com.ziotic.engine.login.LoginResponse;
 import com.ziotic.link.WorldEntry;
 import com.ziotic.link.WorldServerSession;
+import com.ziotic.link.network.WorldListEvent;
 import com.ziotic.logic.Entity;
 import com.ziotic.logic.item.GroundItem;
 import com.ziotic.logic.item.PossesedItem;
@@ -156,7 +157,7 @@ public final class ProtocolAdapter implements Protocol {
 
             WorldServerSession session = Static.currentLink().getGame(w.id);
             if (session != null) {
-                fb.writeShort(session.getPlayers().size());
+                fb.writeShort(WorldListEvent.bucketPopulation(session.getPlayers().size()));
             } else {
                 fb.writeShort(-1);
             }
@@ -292,13 +293,10 @@ public final class ProtocolAdapter implements Protocol {
 
     @Override
     public Protocol sendWorldList(IoSession session) {
-        byte[] worldListData = Static.world.getWorldListData();
-        if (worldListData == null) {
-            return this;
+        Frame frame = Static.world.getWorldListFrame();
+        if (frame != null) {
+            session.write(frame);
         }
-        FrameBuilder fb = new FrameBuilder(90, Frame.FrameType.VAR_SHORT, 256);
-        fb.write(worldListData);
-        session.write(fb.toFrame());
         return this;
     }
     /* (non-Javadoc)
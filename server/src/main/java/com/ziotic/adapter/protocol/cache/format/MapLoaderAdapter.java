@@ -25,7 +25,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import com.ziotic.Static;
+import com.ziotic.adapter.protocol.cache.FIT;
+import com.ziotic.adapter.protocol.cache.RS2CacheAdapter;
 import com.ziotic.adapter.protocol.cache.RS2CacheFileAdapter;
+import com.ziotic.logic.map.MapData;
 import com.ziotic.logic.map.MapLoader;
 import com.ziotic.logic.map.Region;
 import com.ziotic.utility.Logging;
@@ -41,10 +44,24 @@ public class MapLoaderAdapter implements MapLoader {
 
     @Override
     public boolean loadMap(Region region, int x, int y) {
-        boolean failed = false;
+        MapData data = decodeMap(x, y);
+        if (data == null) {
+            return false;
+        }
+        return loadMap(region, data);
+    }
 
-        ByteBuffer str1 = null, str2 = null;
+    @Override
+    public boolean hasMap(int x, int y) {
+        if (Static.mapXTEA.getKey(x << 8 | y) != null) {
+            return true;
+        }
+        FIT fit = ((RS2CacheAdapter) Static.rs2Cache).getFIT(5);
+        return fit != null && fit.fileEntryMap != null && fit.fileEntryMap.containsKey(FIT.hashName("m" + x + "_" + y));
+    }
 
+    @Override
+    public MapData decodeMap(int x, int y) {
         byte[] f1 = null;
         byte[] f2 = null;
         try {
@@ -53,50 +70,60 @@ public class MapLoaderAdapter implements MapLoader {
         } catch (IOException e) {
         }
 
-        if (f1 == null || f2 == null) {
-            RS2CacheFileAdapter landscapeMap = (RS2CacheFileAdapter) Static.rs2Cache
-                    .getIndex(5).getFileForName("m" + x + "_" + y);
-            RS2CacheFileAdapter objectMap = (RS2CacheFileAdapter) Static.rs2Cache
-                    .getIndex(5).getFileForName("l" + x + "_" + y);
-            if (landscapeMap == null && objectMap == null) {
-                // logger.warn("Map [" + x + ", " + y +
-                // "] was not found in the cache!");
-                return false;
-            }
-            if (landscapeMap != null) {
-                landscapeMap.extract();
+        if (f1 != null && f2 != null) {
+            return new MapData(x, y, f2, f1, true, false);
+        }
+
+        boolean failed = false;
+
+        RS2CacheFileAdapter landscapeMap = (RS2CacheFileAdapter) Static.rs2Cache
+                .getIndex(5).getFileForName("m" + x + "_" + y);
+        RS2CacheFileAdapter objectMap = (RS2CacheFileAdapter) Static.rs2Cache
+                .getIndex(5).getFileForName("l" + x + "_" + y);
+        if (landscapeMap == null && objectMap == null) {
+            // logger.warn("Map [" + x + ", " + y +
+            // "] was not found in the cache!");
+            return null;
+        }
+        if (landscapeMap != null) {
+            landscapeMap.extract();
+        }
+        if (objectMap != null) {
+            int[] key = Static.mapXTEA.getKey(x << 8 | y);
+            if (key == null) {
+                key = new int[4];
+                // logger.warn("No mapdata for region : " + (x << 8 | y));
             }
-            if (objectMap != null) {
-                int[] key = Static.mapXTEA.getKey(x << 8 | y);
-                if (key == null) {
-                    key = new int[4];
-                    // logger.warn("No mapdata for region : " + (x << 8 | y));
-                }
-                if (!objectMap.extract(key)) {
-                    failed = true;
-                }
+            if (!objectMap.extract(key)) {
+                failed = true;
             }
+        }
 
+        byte[] landscape = landscapeMap != null && landscapeMap.isExtracted() ? landscapeMap.getData() : null;
+        byte[] objects = objectMap != null && objectMap.isExtracted() ? objectMap.getData() : null;
+        return new MapData(x, y, landscape, objects, false, failed);
+    }
+
+    @Override
+    public boolean loadMap(Region region, MapData data) {
+        ByteBuffer str1 = null, str2 = null;
+
+        if (!data.isCached()) {
             try {
-                if (objectMap.isExtracted())
-                    Static.serverCache.writeFile("l" + x + "_" + y, objectMap
-                            .getData());
-                if (landscapeMap.isExtracted())
-                    Static.serverCache.writeFile("m" + x + "_" + y,
-                            landscapeMap.getData());
+                if (data.getObjects() != null)
+                    Static.serverCache.writeFile("l" + data.getX() + "_" + data.getY(), data.getObjects());
+                if (data.getLandscape() != null)
+                    Static.serverCache.writeFile("m" + data.getX() + "_" + data.getY(), data.getLandscape());
             } catch (IOException e) {
                 logger.warn("Unable to write to server cache!");
             }
+        }
 
-            if (landscapeMap != null && landscapeMap.isExtracted()) {
-                str2 = ByteBuffer.wrap(landscapeMap.getData());
-            }
-            if (objectMap != null && objectMap.isExtracted()) {
-                str1 = ByteBuffer.wrap(objectMap.getData());
-            }
-        } else {
-            str1 = ByteBuffer.wrap(f1);
-            str2 = ByteBuffer.wrap(f2);
+        if (data.getLandscape() != null) {
+            str2 = ByteBuffer.wrap(data.getLandscape());
+        }
+        if (data.getObjects() != null) {
+            str1 = ByteBuffer.wrap(data.getObjects());
         }
         byte[][][] landscapeData = new byte[4][64][64];
         if (str2 != null) {
@@ -162,6 +189,6 @@ public class MapLoaderAdapter implements MapLoader {
                 }
             }
         }
-        return !failed;
+        return !data.isFailed();
     }
 }
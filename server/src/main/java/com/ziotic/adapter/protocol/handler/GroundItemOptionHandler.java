@@ -26,7 +26,7 @@ import com.ziotic.logic.item.GroundItem;
 import com.ziotic.logic.map.CoordinateFuture;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Tile;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
 import com.ziotic.logic.player.Player;
 import com.ziotic.network.Frame;
 import com.ziotic.network.handler.PlayerFrameHandler;
@@ -65,7 +65,7 @@ public class GroundItemOptionHandler extends PlayerFrameHandler {
                         handleItem(player, id, loc);
                     }
                 };
-                Static.world.submitPath(new AStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                Static.world.submitPath(new HeapAStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                 player.getPathProcessor().setCoordinateFuture(new CoordinateFuture(player, r));
             } else {
                 player.sendMessage("A magical force stops you from moving.");
@@ -83,7 +83,7 @@ public class GroundItemOptionHandler extends PlayerFrameHandler {
                         handleItem(player, id, loc);
                     }
                 };
-                Static.world.submitPath(new AStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                Static.world.submitPath(new HeapAStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                 player.getPathProcessor().setCoordinateFuture(new CoordinateFuture(player, r));
             }
         } else {
@@ -25,7 +25,7 @@ import com.ziotic.Static;
 import com.ziotic.logic.dialogue.Conversation;
 import com.ziotic.logic.map.CoordinateFuture;
 import com.ziotic.logic.map.PathProcessor;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
 import com.ziotic.logic.npc.NPC;
 import com.ziotic.logic.player.Player;
 import com.ziotic.network.Frame;
@@ -119,7 +119,7 @@ public class NPCOptionHandler extends PlayerFrameHandler {
                     player.getPathProcessor().setCoordinateFuture(cF);
                     player.getPathProcessor().updateCoordinateFuture();
                     if (player.getPathProcessor().getCoordinateFuture() != null) {
-                        Static.world.submitPath(new AStarPathFinder(), player, npc.getX(), npc.getY(), npc, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                        Static.world.submitPath(new HeapAStarPathFinder(), player, npc.getX(), npc.getY(), npc, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                         player.getPathProcessor().setCoordinateFuture(cF);
                     }
                 }
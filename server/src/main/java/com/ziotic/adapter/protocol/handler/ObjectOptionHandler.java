@@ -26,7 +26,7 @@ import com.ziotic.logic.map.CoordinateFuture;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Region;
 import com.ziotic.logic.map.Tile;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.player.Player;
 import com.ziotic.network.Frame;
@@ -103,7 +103,7 @@ public class ObjectOptionHandler extends PlayerFrameHandler {
                 player.getPathProcessor().updateCoordinateFuture();
                 if (player.getPathProcessor().getCoordinateFuture() != null) {
                     if (!player.getCombat().isFrozen()) {
-                        Static.world.submitPath(new AStarPathFinder(), player, x, y, obj, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                        Static.world.submitPath(new HeapAStarPathFinder(), player, x, y, obj, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                     } else {
                         player.sendMessage("A magical force stops you from moving.");
                         player.faceDirection(Tile.locate(x, y, player.getZ()));
@@ -28,7 +28,7 @@ import com.ziotic.content.trading.TradingManager;
 import com.ziotic.logic.map.Areas;
 import com.ziotic.logic.map.CoordinateFuture;
 import com.ziotic.logic.map.PathProcessor;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
 import com.ziotic.logic.player.Player;
 import com.ziotic.network.Frame;
 import com.ziotic.network.handler.PlayerFrameHandler;
@@ -82,7 +82,7 @@ public class PlayerOptionHandler extends PlayerFrameHandler {
         if (index == 0) {
             //player.resetEvents();
             player.faceEntity(player2);
-            if (Areas.GROTTO.inArea(player.getLocation())) {
+            if (Areas.GROTTO_BITMAP.inArea(player.getLocation())) {
                 Runnable r = new Runnable() {
                     @Override
                     public void run() {
@@ -94,7 +94,7 @@ public class PlayerOptionHandler extends PlayerFrameHandler {
                         player.getPathProcessor().setCoordinateFuture(cF);
                         player.getPathProcessor().updateCoordinateFuture();
                         if (player.getPathProcessor().getCoordinateFuture() != null) {
-                            Static.world.submitPath(new AStarPathFinder(), player, player2.getX(), player2.getY(), player, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                            Static.world.submitPath(new HeapAStarPathFinder(), player, player2.getX(), player2.getY(), player, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                             player.getPathProcessor().setCoordinateFuture(cF);
                         }
                     }
@@ -128,7 +128,7 @@ public class PlayerOptionHandler extends PlayerFrameHandler {
                         player.getPathProcessor().setCoordinateFuture(cF);
                         player.getPathProcessor().updateCoordinateFuture();
                         if (player.getPathProcessor().getCoordinateFuture() != null) {
-                            Static.world.submitPath(new AStarPathFinder(), player, player2.getX(), player2.getY(), player, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+                            Static.world.submitPath(new HeapAStarPathFinder(), player, player2.getX(), player2.getY(), player, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
                             player.getPathProcessor().setCoordinateFuture(cF);
                         }
                     }
@@ -26,7 +26,7 @@ import com.ziotic.content.trading.TradingManager;
 import com.ziotic.logic.item.ItemsOnDeathManager;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Tile;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
 import com.ziotic.logic.player.Player;
 import com.ziotic.network.Frame;
 import com.ziotic.network.handler.PlayerFrameHandler;
@@ -58,7 +58,7 @@ public class WalkingHandler extends PlayerFrameHandler {
         ItemsOnDeathManager.handleWalking(player);
         player.getCombat().stop(true);
         player.getPathProcessor().setCoordinateFuture(null);
-        Static.world.submitPath(new AStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
+        Static.world.submitPath(new HeapAStarPathFinder(), player, x, y, null, ctrl ? PathProcessor.MOVE_SPEED_RUN : PathProcessor.MOVE_SPEED_ANY, false, null);
         player.getPathProcessor().processPathRequest();
         player.preventFrameSpam(frame.getOpcode());
     }
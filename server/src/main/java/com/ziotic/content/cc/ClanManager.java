@@ -95,55 +95,47 @@ public class ClanManager implements ButtonHandler {
         Static.engine.dispatchToLinkWorker(new Runnable() {
             @Override
             public void run() {
-                WorldClientSession session = null;
-                try {
-                    session = Static.world.getWCSPool().acquire();
-
-                    int resp = session.joinClan(player, fOwner);
-                    if (resp == 1) {
-                        Clan clan = null;
-                        for (int i = 0; i < 5; i++) {
-                            clan = clans.get(fOwner);
-                            if (clan != null) {
-                                break;
-                            }
-
-                            try {
-                                Thread.sleep(5);
-                            } catch (InterruptedException e) {
-                            }
-                        }
-                        if (clan == null) {
-                            Static.proto.sendMessage(player, "An unexpected error occured while trying to join this channel.");
-                            return;
+                WorldClientSession session = Static.world.getLinkSession(player.getProtocolName());
+                int resp = session.joinClan(player, fOwner).join();
+                if (resp == 1) {
+                    Clan clan = null;
+                    for (int i = 0; i < 5; i++) {
+                        clan = clans.get(fOwner);
+                        if (clan != null) {
+                            break;
                         }
 
-                        player.setClan(clan);
-                        if (fOwner.equals(player.getProtocolName())) {
-                            player.setOwnClan(clan);
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException e) {
                         }
+                    }
+                    if (clan == null) {
+                        Static.proto.sendMessage(player, "An unexpected error occured while trying to join this channel.");
+                        return;
+                    }
 
-                        clan.getPlayers().put(player.getProtocolName(), player);
-                        clan.refresh();
-
-                        Static.proto.sendMessage(player, "Now talking in clan channel " + clan.getName());
-                        Static.proto.sendMessage(player, "To talk, start each line of chat with the / symbol.");
-                    } else {
-                        switch (resp) {
-                            case 2:
-                                Static.proto.sendMessage(player, "An unexpected error occured while trying to join this channel.");
-                                break;
-                            case 3:
-                                Static.proto.sendMessage(player, "The channel you tried to join does not exist.");
-                                break;
-                            case 4:
-                                Static.proto.sendMessage(player, "You do not have a high enough rank to enter this clan chat.");
-                                break;
-                        }
+                    player.setClan(clan);
+                    if (fOwner.equals(player.getProtocolName())) {
+                        player.setOwnClan(clan);
                     }
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
+
+                    clan.getPlayers().put(player.getProtocolName(), player);
+                    clan.refresh();
+
+                    Static.proto.sendMessage(player, "Now talking in clan channel " + clan.getName());
+                    Static.proto.sendMessage(player, "To talk, start each line of chat with the / symbol.");
+                } else {
+                    switch (resp) {
+                        case 2:
+                            Static.proto.sendMessage(player, "An unexpected error occured while trying to join this channel.");
+                            break;
+                        case 3:
+                            Static.proto.sendMessage(player, "The channel you tried to join does not exist.");
+                            break;
+                        case 4:
+                            Static.proto.sendMessage(player, "You do not have a high enough rank to enter this clan chat.");
+                            break;
                     }
                 }
             }
@@ -257,16 +249,8 @@ public class ClanManager implements ButtonHandler {
                     clan.refresh();
 
                     if (player instanceof Player) {
-                        WorldClientSession session = null;
-                        try {
-                            session = Static.world.getWCSPool().acquire();
-
-                            session.leaveClan((Player) player, owner);
-                        } finally {
-                            if (session != null) {
-                                Static.world.getWCSPool().release(session);
-                            }
-                        }
+                        WorldClientSession session = Static.world.getLinkSession(name);
+                        session.leaveClan((Player) player, owner);
                     }
                 } else {
                     Static.currentLink().unregisterPlayerFromClan((RemotePlayer) player, clan);
@@ -317,16 +301,8 @@ public class ClanManager implements ButtonHandler {
         Static.engine.dispatchToLinkWorker(new Runnable() {
             @Override
             public void run() {
-                WorldClientSession session = null;
-                try {
-                    session = Static.world.getWCSPool().acquire();
-
-                    session.saveClan(clan);
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
-                    }
-                }
+                WorldClientSession session = Static.world.getLinkSession(clan.getOwner());
+                session.saveClan(clan);
             }
         });
         clan.refresh();
@@ -486,16 +462,8 @@ public class ClanManager implements ButtonHandler {
         Static.engine.dispatchToLinkWorker(new Runnable() {
             @Override
             public void run() {
-                WorldClientSession session = null;
-                try {
-                    session = Static.world.getWCSPool().acquire();
-
-                    session.sendClanMessage(player, player.getClan().getOwner(), message);
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
-                    }
-                }
+                WorldClientSession session = Static.world.getLinkSession(player.getProtocolName());
+                session.sendClanMessage(player, player.getClan().getOwner(), message);
             }
         });
     }
@@ -518,16 +486,8 @@ public class ClanManager implements ButtonHandler {
                 Static.proto.sendClan(pp2);
                 Static.proto.sendMessage(pp2, "You have been kicked from the channel.");
             } else {
-                WorldClientSession session = null;
-                try {
-                    session = Static.world.getWCSPool().acquire();
-
-                    session.kickPlayerFromClan(p2.getProtocolName());
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
-                    }
-                }
+                WorldClientSession session = Static.world.getLinkSession(p2.getProtocolName());
+                session.kickPlayerFromClan(p2.getProtocolName());
             }
         }
     }
@@ -59,7 +59,6 @@ import com.ziotic.logic.item.PossesedItem;
 import com.ziotic.logic.map.Areas;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Tile;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
 import com.ziotic.logic.mask.Splat;
 import com.ziotic.logic.mask.Splat.SplatCause;
 import com.ziotic.logic.mask.Splat.SplatType;
@@ -133,7 +132,7 @@ public class Combat implements ButtonHandler {
                 entity.registerTick(new PlayerCombatHandlerTick(this));
                 if (scheduledAction != null) {
                     if (!CombatUtilities.inCorrectPosition(player, victim, scheduledAction.type) && !isFrozen)
-                        Static.world.submitPath(new AStarPathFinder(), entity, victim.getX(), victim.getY(), victim, PathProcessor.MOVE_SPEED_ANY, true, null);
+                        Static.world.submitChase(entity, victim, victim.getX(), victim.getY(), victim, PathProcessor.MOVE_SPEED_ANY, true, null);
                     else if (isFrozen) {
                         Static.proto.sendMessage(player, "A magical force stops you from moving.");
                     }
@@ -573,11 +572,11 @@ public class Combat implements ButtonHandler {
     }
 
     public static boolean isInPVPZone(Player player) {
-        return Areas.WILDERNESS.inArea(player.getLocation());
+        return Areas.WILDERNESS_BITMAP.inArea(player.getLocation());
     }
 
     public static boolean isInMultiZone(Player player) {
-        return Areas.MULTI.inArea(player.getLocation());
+        return Areas.MULTI_BITMAP.inArea(player.getLocation());
     }
 
     public static void updatePVPStatus(Player player) {
@@ -21,14 +21,13 @@
  */
 package com.ziotic.content.combat.misc;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
-
+import com.ziotic.Static;
 import com.ziotic.engine.tick.Tick;
 import com.ziotic.logic.map.Coverage;
 import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.map.event.NPCTileEventListener;
 import com.ziotic.logic.map.event.PlayerTileEventListener;
+import com.ziotic.logic.map.event.TriggerIndex;
 import com.ziotic.logic.npc.NPC;
 import com.ziotic.logic.npc.NPC.MovementType;
 import com.ziotic.logic.npc.NPCDefinition;
@@ -39,27 +38,23 @@ public class AggressionHandler implements NPCTileEventListener, PlayerTileEventL
 
     private Coverage coverage;
     private NPC owner;
-    private Set<Tile> listeners = new LinkedHashSet<Tile>();
+    private TriggerIndex.Trigger trigger = null;
 
     public AggressionHandler(NPC owner) {
         this.owner = owner;
         NPCDefinition def = owner.getDefinition();
         Tile center = owner.getCoverage().center();
-        this.coverage = new Coverage(center.translate(-def.aggressiveRange, -def.aggressiveRange, center.getZ()), def.aggressiveRange * 2);
+        this.coverage = new Coverage(center.translate(-def.aggressiveRange, -def.aggressiveRange, 0), def.aggressiveRange * 2);
     }
 
     public void register() {
-        Tile[][] tiles = coverage.tiles();
-        for (int x = 0; x < tiles.length; x++) {
-            for (int y = 0; y < tiles[x].length; y++) {
-                register(tiles[x][y]);
-            }
-        }
+        trigger = TriggerIndex.register(Tile.locate(coverage.getLowerBoundX(), coverage.getLowerBoundY(), owner.getZ()), coverage.getSize(), coverage.getSize(), this);
     }
 
     public void unregister() {
-        for (Tile t : listeners) {
-            unregister(t);
+        if (trigger != null) {
+            TriggerIndex.unregister(trigger);
+            trigger = null;
         }
         owner = null;
     }
@@ -67,7 +62,7 @@ public class AggressionHandler implements NPCTileEventListener, PlayerTileEventL
     @Override
     public void onPlayerEvent(Player player, Tile tile) {
         if (owner == null) {
-            unregister(tile);
+            unregister();
             return;
         }
         Tick t = owner.retrieveTick("CombatTick");
@@ -95,11 +90,11 @@ public class AggressionHandler implements NPCTileEventListener, PlayerTileEventL
 
     @Override
     public void onRegister(Tile tile) {
-        if (tile.containsPlayers()) {
-            for (Player player : tile.getPlayers()) {
-                if (player != null) {
-                    onPlayerEvent(player, tile);
-                }
+        // Only the players around the coverage, rather than all of those online, can be within it.
+        Tile center = coverage.center();
+        for (Player player : Static.world.getLocalPlayers(Tile.locate(center.getX(), center.getY(), tile.getZ()), coverage.getSize() / 2 + 1)) {
+            if (coverage.within(player.getLocation())) {
+                onPlayerEvent(player, player.getLocation());
             }
         }
     }
@@ -109,13 +104,4 @@ public class AggressionHandler implements NPCTileEventListener, PlayerTileEventL
         unregister();
     }
 
-    private void register(Tile tile) {
-        tile.registerEventListener(this);
-        listeners.add(tile);
-    }
-
-    private void unregister(Tile tile) {
-        tile.unregisterEventListener(this);
-    }
-
 }
@@ -37,6 +37,9 @@ import com.ziotic.logic.map.Directions;
 import com.ziotic.logic.map.Directions.NormalDirection;
 import com.ziotic.logic.map.Region;
 import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.map.pf.flow.FlowField;
+import com.ziotic.logic.map.pf.flow.FlowFields;
+import com.ziotic.logic.npc.NPC;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.player.Player;
 import com.ziotic.utility.Logging;
@@ -86,6 +89,12 @@ public class CombatUtilities {
         } else {
             counter = 2;
         }
+        if (combat && entity instanceof NPC) {
+            int moved = moveAlongFlowField(entity, partner, type, counter, npcCheck);
+            if (moved != -1) {
+                return moved > 0;
+            }
+        }
         for (int i = 0; i < counter; i++) {
             succes = false;
             loc = Tile.locate(x, y, entity.getZ());
@@ -120,6 +129,53 @@ public class CombatUtilities {
         }
     }
 
+    /**
+     * Walks an NPC towards its victim along the flow field shared by every NPC of its size chasing the same victim.
+     * <p/>
+     * Steps which would take the NPC further from its victim are left to the greedy stepping, which does not take
+     * them, so NPCs do not walk around walls and safe spots keep working.
+     *
+     * @return The number of steps queued, or -1 if the NPC chases its victim alone, is out of the field's reach or is
+     *         cut off from the victim.
+     */
+    protected static int moveAlongFlowField(Entity entity, Entity partner, ActionType type, int steps, boolean npcCheck) {
+        int x = entity.getX();
+        int y = entity.getY();
+        FlowField field = FlowFields.get(partner, entity.getSize(), x, y);
+        if (field == null || field.getCost(x, y) <= 0) {
+            return -1;
+        }
+        int moved = 0;
+        for (int i = 0; i < steps; i++) {
+            if (entity.getCoverage().correctCombatPosition(entity, partner, partner.getCoverage(), type, getAttackDistance(entity, type))) {
+                break;
+            }
+            int step = field.getStep(x, y);
+            if (step == -1) {
+                break;
+            }
+            int stepX = FlowField.getStepX(step), stepY = FlowField.getStepY(step);
+            Tile center = entity.getCoverage().center();
+            Tile partnerCenter = partner.getCoverage().center();
+            int distance = Math.max(Math.abs(center.getX() - partnerCenter.getX()), Math.abs(center.getY() - partnerCenter.getY()));
+            if (Math.max(Math.abs(center.getX() + stepX - partnerCenter.getX()), Math.abs(center.getY() + stepY - partnerCenter.getY())) > distance) {
+                return moved == 0 ? -1 : moved;
+            }
+            Tile loc = Tile.locate(x, y, entity.getZ());
+            Tile next = Tile.locate(x + stepX, y + stepY, entity.getZ());
+            if (!loc.canMove(Directions.directionFor(loc, next), entity.getSize(), npcCheck)) {
+                // Another NPC is in the way, let the greedy stepping find a way around it.
+                return moved == 0 ? -1 : moved;
+            }
+            x = next.getX();
+            y = next.getY();
+            entity.updateCoverage(next);
+            entity.getPathProcessor().add(next);
+            moved++;
+        }
+        return moved;
+    }
+
     protected static NextNode getNextNode(Tile loc, int dx, int dy, int distance, boolean combat, Entity entity, Entity partner, ActionType type, boolean npcCheck) {
         NormalDirection direction = null;
         if (combat) {
@@ -34,6 +34,7 @@ import com.ziotic.logic.item.Item;
 import com.ziotic.logic.item.PossesedItem;
 import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.map.event.TileEventListener;
+import com.ziotic.logic.map.event.TriggerIndex;
 import com.ziotic.logic.npc.NPC;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.player.Player;
@@ -175,8 +176,12 @@ public class ActionHandlerSystem {
         }
     }
 
-    public void registerTileEventListener(int[] coordinates, TileEventListener listener) {
-        Tile.locate(coordinates).registerEventListener(listener);
+    public TriggerIndex.Trigger registerTileEventListener(int[] coordinates, TileEventListener listener) {
+        return TriggerIndex.register(Tile.locate(coordinates), listener);
+    }
+
+    public TriggerIndex.Trigger registerTileEventListener(int[] coordinates, int width, int height, TileEventListener listener) {
+        return TriggerIndex.register(Tile.locate(coordinates), width, height, listener);
     }
 
     public boolean handleNPCOption(Player player, NPC npc, int type) {
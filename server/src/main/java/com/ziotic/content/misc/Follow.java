@@ -26,7 +26,6 @@ import com.ziotic.engine.tick.Tick;
 import com.ziotic.logic.Entity;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Tile;
-import com.ziotic.logic.map.pf.astar.AStarPathFinder;
 import com.ziotic.logic.player.Player;
 
 /**
@@ -90,7 +89,7 @@ public class Follow extends Tick {
 
         if (!other.getPathProcessor().isHooked(entity)) {
             if (entity instanceof Player) {
-                Static.world.submitPath(new AStarPathFinder(), entity, newDest.getX(), newDest.getY(), calcDest ? other : null, PathProcessor.MOVE_SPEED_ANY, true, new Runnable() {
+                Static.world.submitChase(entity, other, newDest.getX(), newDest.getY(), calcDest ? other : null, PathProcessor.MOVE_SPEED_ANY, true, new Runnable() {
                     @Override
                     public void run() {
                         entity.getPathProcessor().reset();
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.engine.login;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.ziotic.Static;
+import com.ziotic.utility.ManipulativeThreadFactory;
+
+/**
+ * Keeps a storm of logins, as seen after a restart, from piling up behind the link server.
+ * <p/>
+ * Logins are let through by a token bucket which refills at the configured rate for as long as the link server answers
+ * within the target latency, and proportionally slower once it does not. Logins which find no token wait in a bounded
+ * queue, and those which find the queue full or wait too long are told the login server is busy right away instead of
+ * timing out.
+ *
+ * @author Lazaro
+ */
+public class LoginAdmission {
+    private static final int DRAIN_INTERVAL = 20;
+
+    /**
+     * Where the logins go once the admission has decided on them.
+     */
+    public static interface Sink {
+        public void admit(LoginRequest req);
+
+        public void refuse(LoginRequest req);
+    }
+
+    private final Sink sink;
+    private final double maxRate;
+    private final double minRate;
+    private final int burst;
+    private final int targetLatency;
+    private final int maxWait;
+    private final Queue<LoginRequest> queue;
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(new ManipulativeThreadFactory("login-admission", Thread.NORM_PRIORITY));
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private double latency = 0;
+
+    private long admitted = 0;
+    private long rejected = 0;
+    private long expired = 0;
+    private long queued = 0;
+    private int maxQueued = 0;
+
+    public static LoginAdmission create(Sink sink) {
+        return new LoginAdmission(sink, Static.conf.getInt("login_admission_rate", 50), Static.conf.getInt("login_admission_min_rate", 5),
+                Static.conf.getInt("login_admission_burst", 100), Static.conf.getInt("login_admission_queue", 200),
+                Static.conf.getInt("login_admission_target_latency", 250), Static.conf.getInt("login_admission_wait", 2000));
+    }
+
+    /**
+     * @param maxRate       The logins let through per second while the link server is healthy.
+     * @param minRate       The logins let through per second however slow the link server is.
+     * @param burst         The logins which may be let through at once after a quiet period.
+     * @param queueSize     The logins which may wait for a token.
+     * @param targetLatency The link server latency, in milliseconds, above which the rate is lowered.
+     * @param maxWait       The time, in milliseconds since the request was decoded, a login may wait for a token.
+     */
+    public LoginAdmission(Sink sink, int maxRate, int minRate, int burst, int queueSize, int targetLatency, int maxWait) {
+        this.sink = sink;
+        this.maxRate = maxRate;
+        this.minRate = minRate;
+        this.burst = burst;
+        this.targetLatency = targetLatency;
+        this.maxWait = maxWait;
+        this.tokens = burst;
+        this.queue = new ArrayBlockingQueue<LoginRequest>(queueSize);
+        drainer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, DRAIN_INTERVAL, DRAIN_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public void offer(LoginRequest req) {
+        boolean admit = false;
+        synchronized (this) {
+            refill();
+            if (queue.isEmpty() && tokens >= 1) {
+                tokens--;
+                admitted++;
+                admit = true;
+            } else if (queue.offer(req)) {
+                queued++;
+                maxQueued = Math.max(maxQueued, queue.size());
+                return;
+            } else {
+                rejected++;
+            }
+        }
+        if (admit) {
+            sink.admit(req);
+        } else {
+            sink.refuse(req);
+        }
+    }
+
+    private void drain() {
+        List<LoginRequest> admit = new ArrayList<LoginRequest>();
+        List<LoginRequest> refuse = new ArrayList<LoginRequest>();
+        synchronized (this) {
+            refill();
+            long now = System.currentTimeMillis();
+            while (!queue.isEmpty()) {
+                LoginRequest req = queue.peek();
+                if (now - req.time >= maxWait) {
+                    queue.poll();
+                    expired++;
+                    refuse.add(req);
+                } else if (tokens >= 1) {
+                    queue.poll();
+                    tokens--;
+                    admitted++;
+                    admit.add(req);
+                } else {
+                    break;
+                }
+            }
+        }
+        for (LoginRequest req : admit) {
+            sink.admit(req);
+        }
+        for (LoginRequest req : refuse) {
+            sink.refuse(req);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1000000000D * getRate());
+        lastRefill = now;
+    }
+
+    /**
+     * @return The logins let through per second at the link server latency last measured.
+     */
+    public synchronized double getRate() {
+        if (latency <= targetLatency) {
+            return maxRate;
+        }
+        return Math.max(minRate, maxRate * targetLatency / latency);
+    }
+
+    /**
+     * Feeds the time the link server took to load a player into the rate.
+     */
+    public synchronized void recordLinkLatency(long nanos) {
+        double millis = nanos / 1000000D;
+        latency = latency == 0 ? millis : latency * 0.8 + millis * 0.2;
+    }
+
+    public synchronized long getCount() {
+        return admitted + rejected + expired + queue.size();
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Login admission [rate=").append(String.format("%.1f", getRate()));
+        sb.append(", latency=").append(String.format("%.1f", latency)).append(", queued=").append(queue.size());
+        sb.append(", maxQueued=").append(maxQueued).append(", totalQueued=").append(queued).append(", admitted=").append(admitted);
+        sb.append(", rejected=").append(rejected).append(", expired=").append(expired).append("]");
+        if (reset) {
+            admitted = rejected = expired = queued = 0;
+            maxQueued = queue.size();
+        }
+        return sb.toString();
+    }
+
+    public void shutdown() {
+        drainer.shutdown();
+    }
+}
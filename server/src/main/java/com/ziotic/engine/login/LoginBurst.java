@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.engine.login;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+
+/**
+ * Throws a burst of logins at a {@link LoginAdmission} over loopback, with the link server replaced by a fixed delay.
+ * <p/>
+ * Usage: <code>LoginBurst [clients] [link latency ms] [rate] [queue]</code>
+ *
+ * @author Lazaro
+ */
+public class LoginBurst {
+    private static final int ADMITTED = 2;
+    private static final int BUSY = 16;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int latency = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int queue = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        System.out.println(run(clients, latency, rate, queue));
+        System.exit(0);
+    }
+
+    /**
+     * @return A summary of the responses the clients saw and of the admission counters.
+     */
+    public static String run(int clients, final int latency, int rate, int queue) throws Exception {
+        final ScheduledExecutorService link = Executors.newScheduledThreadPool(4);
+        final LoginAdmission admission = new LoginAdmission(new LoginAdmission.Sink() {
+            @Override
+            public void admit(final LoginRequest req) {
+                final long start = System.nanoTime();
+                link.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        LoginAdmission admission = (LoginAdmission) req.session.getAttribute("admission");
+                        admission.recordLinkLatency(System.nanoTime() - start);
+                        reply(req.session, ADMITTED);
+                    }
+                }, latency, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void refuse(LoginRequest req) {
+                reply(req.session, BUSY);
+            }
+        }, rate, Math.max(1, rate / 10), rate, queue, 250, 2000);
+
+        NioSocketAcceptor acceptor = new NioSocketAcceptor();
+        acceptor.setHandler(new IoHandlerAdapter() {
+            @Override
+            public void messageReceived(IoSession session, Object message) {
+                LoginRequest req = new LoginRequest();
+                req.session = session;
+                req.opcode = 16;
+                req.time = System.currentTimeMillis();
+                session.setAttribute("admission", admission);
+                admission.offer(req);
+            }
+        });
+        acceptor.getSessionConfig().setReadBufferSize(64);
+        acceptor.bind(new InetSocketAddress("127.0.0.1", 0));
+        InetSocketAddress address = acceptor.getLocalAddress();
+
+        final CountDownLatch finished = new CountDownLatch(clients);
+        final AtomicInteger admitted = new AtomicInteger();
+        final AtomicInteger busy = new AtomicInteger();
+        final AtomicLong admittedTime = new AtomicLong();
+        final AtomicLong busyTime = new AtomicLong();
+        NioSocketConnector connector = new NioSocketConnector();
+        connector.setConnectTimeoutMillis(10000);
+        connector.setHandler(new IoHandlerAdapter() {
+            @Override
+            public void sessionOpened(IoSession session) {
+                session.setAttribute("start", System.nanoTime());
+                session.write(IoBuffer.wrap(new byte[] {16}));
+            }
+
+            @Override
+            public void messageReceived(IoSession session, Object message) {
+                long time = System.nanoTime() - (Long) session.getAttribute("start");
+                if ((((IoBuffer) message).get() & 0xff) == ADMITTED) {
+                    admitted.incrementAndGet();
+                    admittedTime.addAndGet(time);
+                } else {
+                    busy.incrementAndGet();
+                    busyTime.addAndGet(time);
+                }
+                session.close(true);
+                finished.countDown();
+            }
+        });
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            connector.connect(address);
+        }
+        boolean complete = finished.await(60, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        StringBuilder sb = new StringBuilder("Login burst [clients=").append(clients).append(", complete=").append(complete);
+        sb.append(", elapsed=").append(elapsed / 1000000).append("ms, admitted=").append(admitted.get());
+        sb.append(", avgAdmitted=").append(admitted.get() == 0 ? 0 : admittedTime.get() / admitted.get() / 1000000).append("ms");
+        sb.append(", busy=").append(busy.get());
+        sb.append(", avgBusy=").append(busy.get() == 0 ? 0 : busyTime.get() / busy.get() / 1000000).append("ms] ");
+        sb.append(admission.report(false));
+
+        connector.dispose();
+        acceptor.dispose();
+        admission.shutdown();
+        link.shutdown();
+        return sb.toString();
+    }
+
+    private static void reply(IoSession session, int code) {
+        session.write(IoBuffer.wrap(new byte[] {(byte) code}));
+    }
+}
@@ -22,10 +22,13 @@
 package com.ziotic.engine.login;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 import com.ziotic.Constants;
 import com.ziotic.Static;
@@ -34,160 +37,265 @@ import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.player.Player;
 import com.ziotic.logic.player.PlayerType;
 import com.ziotic.utility.Logging;
+import com.ziotic.utility.ManipulativeThreadFactory;
 import com.ziotic.utility.Text;
 
 import org.apache.log4j.Logger;
 
 /**
+ * Logs players in through a pipeline of stages, none of which waits on another.
+ * <p/>
+ * Requests first pass a {@link LoginAdmission}, which holds back those the link server could not answer in time.
+ * A request is decoded into a player, its details are requested from the link server without holding a thread, the
+ * reply is registered with the world and the map is then prepared for the player. Each stage has its own bounded
+ * executor and timeout. A request which runs out of time before it is registered is refused, the stage it was in
+ * simply never hands it on, so nothing is ever stopped halfway.
+ *
  * @author Lazaro
  */
-public class LoginEngine implements Runnable {
+public class LoginEngine {
     private static final Logger logger = Logging.log();
 
-    public static final int LOGIN_WORKERS = 8;
     public static final int LOGIN_REQUEST_TIME_OUT = 5000;
 
-    public static class LoginWorker implements Runnable {
-        public LoginEngine ctx;
-        public int id;
-        public Thread thread;
-        public LoginRequest currentRequest = null;
+    public static enum Stage {
+        DECODE, LINK, REGISTER, PREPARE
+    }
+
+    /**
+     * The state of a request as it moves through the stages.
+     */
+    private class Login {
+        private final LoginRequest request;
+        private final long deadline;
+        private Player player = null;
+        private WorldClientSession link = null;
+        private long stageStart = System.nanoTime();
 
-        public LoginWorker(LoginEngine ctx) {
-            this.ctx = ctx;
+        private Login(LoginRequest request) {
+            this.request = request;
+            this.deadline = request.time + LOGIN_REQUEST_TIME_OUT;
         }
 
-        public void run() {
-            WorldClientSession session = null;
-            while (true) {
-                currentRequest = null;
-                try {
-                    currentRequest = ctx.loginRequests.take();
-                    if (System.currentTimeMillis() - currentRequest.time >= LOGIN_REQUEST_TIME_OUT) {
-                        continue;
-                    }
+        /**
+         * Records the time spent in a stage, including the time spent waiting for it.
+         */
+        private void finish(Stage stage) {
+            long now = System.nanoTime();
+            metrics.record(stage, now - stageStart);
+            if (stage == Stage.LINK) {
+                admission.recordLinkLatency(now - stageStart);
+            }
+            stageStart = now;
+        }
 
-                    session = Static.world.getWCSPool().acquire();
+        private boolean expired(Stage stage) {
+            if (System.currentTimeMillis() >= deadline) {
+                metrics.timedOut(stage);
+                logger.debug("Login request timed out [name=" + request.name + ", stage=" + stage + "]");
+                return true;
+            }
+            return false;
+        }
+    }
 
-                    Player player = new Player(currentRequest.session, currentRequest.opcode);
-                    player.setName(Text.formatNameForDisplay(currentRequest.name));
-                    player.setProtocolName(currentRequest.name);
-                    player.setPassword(currentRequest.password);
+    private final LoginMetrics metrics = new LoginMetrics();
 
-                    LoginResponse resp = session.loadPlayerDetails(player);
+    private final int linkTimeout = Static.conf.getInt("login_link_timeout", 4000);
 
-                    // TODO Do checks here (passwords, bans)
-                    if (resp == LoginResponse.LOGIN) {
-                        PlayerType p2 = Static.world.findPlayer(player.getProtocolName());
-                        if (p2 != null) {
-                            if (!(p2 instanceof Player) || !((Player) p2).isDestroyed()) {
-                                resp = LoginResponse.ALREADY_ONLINE;
+    private final ExecutorService decodeExecutor = createExecutor("login-decode", Static.conf.getInt("login_decode_threads", 1));
+    /**
+     * A single thread, so players are registered with the world one at a time.
+     */
+    private final ExecutorService registerExecutor = createExecutor("login-register", 1);
+    private final ExecutorService prepareExecutor = createExecutor("login-prepare", Static.conf.getInt("login_prepare_threads", 2));
 
-                                // TODO Allow for reconnections
-                            }
-                        }
-                    }
-                    // Final check
-                    if (resp == LoginResponse.LOGIN) {
-                        resp = Static.world.register(player);
-                        if (resp == LoginResponse.LOGIN) {
-                            session.registerPlayer(player);
+    private static ExecutorService createExecutor(String name, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Static.conf.getInt("login_stage_queue", 256)), new ManipulativeThreadFactory(name, Thread.NORM_PRIORITY));
+    }
 
-                            player.getSession().setAttribute("player", player);
-                        }
-                    }
-                    if (player.inGame()) {
-                        Static.proto.sendLoginResponse(currentRequest.session, player, resp);
-                    } else {
-                        Static.proto.sendLobbyResponse(currentRequest.session, player, resp);
-                    }
-                    if (resp == LoginResponse.LOGIN) {
-                        if (player.inGame()) {
-                            if (player.getAttributes().isSet("loc")) {
-                                player.setLocation(player.getAttributes().<Tile>get("loc"));
-                                int depth = Constants.REGION_SIZE[0] >> 4;
-                                for (int xCalc = (player.getLocation().getPartX() - depth) / 8; xCalc <= (player.getLocation().getPartX() + depth) / 8; xCalc++) {
-                                    for (int yCalc = (player.getLocation().getPartY() - depth) / 8; yCalc <= (player.getLocation().getPartY() + depth) / 8; yCalc++) {
-                                        int region = yCalc + (xCalc << 8);
-                                        int[] key = Static.mapXTEA.getKey(region);
-                                        if (key == null) {
-                                            //TODO player.setLocation(player.spawnPoint());
-                                            //When you stayed at an area with no encryption you would go back to the spawn point
-                                        }
-                                    }
-                                }
-                                player.getAttributes().unSet("loc");
-                            } else {
-                                player.setNoob(true);
-                                player.setLocation(player.spawnPoint());
-                            }
-                            player.gei.init();
+    private final LoginAdmission admission = LoginAdmission.create(new LoginAdmission.Sink() {
+        @Override
+        public void admit(LoginRequest req) {
+            dispatch(req);
+        }
 
-                            Static.proto.sendOnLogin(player);
-                        }
-                        player.onLogin();
-                        player.setLastIP(((InetSocketAddress) player.getSession().getRemoteAddress()).getAddress().getHostAddress());
-                    }
-                } catch (Exception e) {
-                    logger.debug("Error caught in login worker!", e);
-                    e.printStackTrace();
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
-                        session = null;
+        @Override
+        public void refuse(LoginRequest req) {
+            respond(req, null, LoginResponse.LOGIN_SERVER_BUSY);
+        }
+    });
+
+    public void submit(LoginRequest req) {
+        admission.offer(req);
+    }
+
+    private void dispatch(LoginRequest req) {
+        final Login login = new Login(req);
+        try {
+            decodeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    decode(login);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.rejected(Stage.DECODE);
+            refuse(login, LoginResponse.ERROR);
+        }
+    }
+
+    private void decode(final Login login) {
+        if (login.expired(Stage.DECODE)) {
+            refuse(login, LoginResponse.ERROR);
+            return;
+        }
+        LoginRequest req = login.request;
+        Player player = new Player(req.session, req.opcode);
+        player.setName(Text.formatNameForDisplay(req.name));
+        player.setProtocolName(req.name);
+        player.setPassword(req.password);
+        login.player = player;
+        login.link = Static.world.getLinkSession(req.name);
+        login.finish(Stage.DECODE);
+
+        login.link.loadPlayerDetails(player).orTimeout(linkTimeout, TimeUnit.MILLISECONDS).whenComplete(new BiConsumer<LoginResponse, Throwable>() {
+            @Override
+            public void accept(final LoginResponse resp, Throwable t) {
+                if (t != null) {
+                    if (t instanceof TimeoutException) {
+                        metrics.timedOut(Stage.LINK);
+                        admission.recordLinkLatency(TimeUnit.MILLISECONDS.toNanos(linkTimeout));
                     }
+                    refuse(login, LoginResponse.ERROR);
+                    return;
+                }
+                login.finish(Stage.LINK);
+                try {
+                    registerExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            register(login, resp);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    metrics.rejected(Stage.REGISTER);
+                    refuse(login, LoginResponse.ERROR);
                 }
             }
-        }
+        });
     }
 
-    private Thread loginEngineThread;
-    private BlockingQueue<LoginRequest> loginRequests = new LinkedBlockingQueue<LoginRequest>();
-    private List<LoginWorker> loginWorkers = new ArrayList<LoginWorker>();
-
-    public LoginEngine() {
-        for (int i = 1; i <= LOGIN_WORKERS; i++) {
-            LoginWorker worker = new LoginWorker(this);
-            loginWorkers.add(worker);
-            worker.id = i;
-            worker.thread = new Thread(worker, "login-worker-" + i);
-            worker.thread.start();
+    private void register(final Login login, LoginResponse resp) {
+        if (login.expired(Stage.REGISTER)) {
+            refuse(login, LoginResponse.ERROR);
+            return;
+        }
+        Player player = login.player;
+        if (player.getSession().isClosing()) {
+            // The client gave up, there is nothing to register.
+            login.finish(Stage.REGISTER);
+            return;
+        }
+
+        // TODO Do checks here (passwords, bans)
+        if (resp == LoginResponse.LOGIN) {
+            PlayerType p2 = Static.world.findPlayer(player.getProtocolName());
+            if (p2 != null) {
+                if (!(p2 instanceof Player) || !((Player) p2).isDestroyed()) {
+                    resp = LoginResponse.ALREADY_ONLINE;
+
+                    // TODO Allow for reconnections
+                }
+            }
+        }
+        // Final check
+        if (resp == LoginResponse.LOGIN) {
+            resp = Static.world.register(player);
+            if (resp == LoginResponse.LOGIN) {
+                login.link.registerPlayer(player);
+
+                player.getSession().setAttribute("player", player);
+            }
+        }
+        respond(login, resp);
+        login.finish(Stage.REGISTER);
+        if (resp != LoginResponse.LOGIN) {
+            return;
+        }
+
+        Runnable prepare = new Runnable() {
+            @Override
+            public void run() {
+                prepare(login);
+            }
+        };
+        try {
+            prepareExecutor.execute(prepare);
+        } catch (RejectedExecutionException e) {
+            // The player is already in the world, so it has to be finished here rather than refused.
+            metrics.rejected(Stage.PREPARE);
+            prepare.run();
         }
-        loginEngineThread = new Thread(this, "login-engine");
-        loginEngineThread.start();
     }
 
-    @SuppressWarnings("deprecation")
-    public void run() {
-        while (true) {
-            try {
-                for (LoginWorker worker : loginWorkers) {
-                    LoginRequest req = worker.currentRequest;
-                    if (req == null) {
-                        continue;
-                    }
-                    if (System.currentTimeMillis() - req.time >= LOGIN_REQUEST_TIME_OUT) {
-                        worker.thread.stop();
-                        Static.proto.sendLoginResponse(req.session, null, LoginResponse.ERROR);
-                        worker.currentRequest = null;
-                        worker.thread = new Thread(worker, "login-worker-" + worker.id);
-                        worker.thread.start();
-                        logger.debug("Restarted login worker #" + worker.id);
+    private void prepare(Login login) {
+        Player player = login.player;
+        try {
+            if (player.inGame()) {
+                if (player.getAttributes().isSet("loc")) {
+                    player.setLocation(player.getAttributes().<Tile>get("loc"));
+                    int depth = Constants.REGION_SIZE[0] >> 4;
+                    for (int xCalc = (player.getLocation().getPartX() - depth) / 8; xCalc <= (player.getLocation().getPartX() + depth) / 8; xCalc++) {
+                        for (int yCalc = (player.getLocation().getPartY() - depth) / 8; yCalc <= (player.getLocation().getPartY() + depth) / 8; yCalc++) {
+                            int region = yCalc + (xCalc << 8);
+                            int[] key = Static.mapXTEA.getKey(region);
+                            if (key == null) {
+                                //TODO player.setLocation(player.spawnPoint());
+                                //When you stayed at an area with no encryption you would go back to the spawn point
+                            }
+                        }
                     }
+                    player.getAttributes().unSet("loc");
+                } else {
+                    player.setNoob(true);
+                    player.setLocation(player.spawnPoint());
                 }
-            } catch (Exception e) {
-                logger.error("Error caught in login engine!", e);
-            }
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
+                player.gei.init();
+
+                Static.proto.sendOnLogin(player);
             }
+            player.onLogin();
+            player.setLastIP(((InetSocketAddress) player.getSession().getRemoteAddress()).getAddress().getHostAddress());
+            player.getSaveTracker().mark(player, login.link.getConnection());
+        } catch (Exception e) {
+            logger.error("Error preparing player [" + player.getProtocolName() + "]", e);
         }
+        login.finish(Stage.PREPARE);
     }
 
-    public void submit(LoginRequest req) {
-        if (!loginRequests.offer(req)) {
-            Static.proto.sendLoginResponse(req.session, null, LoginResponse.ERROR);
+    private void refuse(Login login, LoginResponse resp) {
+        metrics.refused();
+        respond(login, resp);
+    }
+
+    private void respond(Login login, LoginResponse resp) {
+        respond(login.request, login.player, resp);
+    }
+
+    private static void respond(LoginRequest req, Player player, LoginResponse resp) {
+        if (req.opcode == 19) {
+            Static.proto.sendLobbyResponse(req.session, player, resp);
+        } else {
+            Static.proto.sendLoginResponse(req.session, player, resp);
         }
     }
+
+    public LoginMetrics getMetrics() {
+        return metrics;
+    }
+
+    public LoginAdmission getAdmission() {
+        return admission;
+    }
 }
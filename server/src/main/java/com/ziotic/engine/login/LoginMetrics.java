@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.engine.login;
+
+import com.ziotic.engine.login.LoginEngine.Stage;
+
+/**
+ * The time logins spend in each stage of the {@link LoginEngine}, which tells a slow link server apart from a slow
+ * world.
+ *
+ * @author Lazaro
+ */
+public class LoginMetrics {
+    private final long[] count = new long[Stage.values().length];
+    private final long[] totalTime = new long[Stage.values().length];
+    private final long[] maxTime = new long[Stage.values().length];
+    private final long[] timedOut = new long[Stage.values().length];
+    private final long[] rejected = new long[Stage.values().length];
+    private long refused = 0;
+
+    public synchronized void record(Stage stage, long nanos) {
+        count[stage.ordinal()]++;
+        totalTime[stage.ordinal()] += nanos;
+        maxTime[stage.ordinal()] = Math.max(maxTime[stage.ordinal()], nanos);
+    }
+
+    public synchronized void timedOut(Stage stage) {
+        timedOut[stage.ordinal()]++;
+    }
+
+    public synchronized void rejected(Stage stage) {
+        rejected[stage.ordinal()]++;
+    }
+
+    public synchronized void refused() {
+        refused++;
+    }
+
+    public synchronized long getCount() {
+        long total = refused;
+        for (long c : count) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of every stage, with the average and longest times in milliseconds.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Logins [refused=").append(refused).append("]");
+        for (Stage stage : Stage.values()) {
+            int i = stage.ordinal();
+            sb.append(" [").append(stage.name().toLowerCase()).append(": count=").append(count[i]);
+            sb.append(", avg=").append(String.format("%.2f", count[i] == 0 ? 0D : totalTime[i] / (double) count[i] / 1000000D));
+            sb.append(", max=").append(String.format("%.2f", maxTime[i] / 1000000D));
+            sb.append(", timedOut=").append(timedOut[i]).append(", rejected=").append(rejected[i]).append("]");
+            if (reset) {
+                count[i] = totalTime[i] = maxTime[i] = timedOut[i] = rejected[i] = 0;
+            }
+        }
+        if (reset) {
+            refused = 0;
+        }
+        return sb.toString();
+    }
+}
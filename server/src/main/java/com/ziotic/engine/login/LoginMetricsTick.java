@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.engine.login;
+
+import com.ziotic.Static;
+import com.ziotic.engine.tick.Tick;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Periodically logs and clears the {@link LoginMetrics} and the counters of the {@link LoginAdmission}.
+ *
+ * @author Lazaro
+ */
+public class LoginMetricsTick extends Tick {
+    private static final Logger logger = Logging.log();
+
+    public LoginMetricsTick(int interval) {
+        super("LoginMetrics", interval);
+    }
+
+    @Override
+    public boolean execute() {
+        LoginMetrics metrics = Static.engine.getLoginEngine().getMetrics();
+        if (metrics.getCount() > 0) {
+            logger.info(metrics.report(true));
+        }
+        LoginAdmission admission = Static.engine.getLoginEngine().getAdmission();
+        if (admission.getCount() > 0) {
+            logger.info(admission.report(true));
+        }
+        return true;
+    }
+}
@@ -27,7 +27,7 @@ import com.ziotic.Static;
  * @author Lazaro
  */
 public enum LoginResponse {
-    ALREADY_ONLINE, BANNED, CLIENT_UPDATED, CURRENTLY_UPDATING, ERROR, INVALID_DETAILS, IP_BANNED, LOGIN, LOGIN_LIMIT_EXCEEDED, LOGIN_SERVER_OFFLINE, WORLD_FULL, MEMBERS_REQUIRED;
+    ALREADY_ONLINE, BANNED, CLIENT_UPDATED, CURRENTLY_UPDATING, ERROR, INVALID_DETAILS, IP_BANNED, LOGIN, LOGIN_LIMIT_EXCEEDED, LOGIN_SERVER_OFFLINE, LOGIN_SERVER_BUSY, WORLD_FULL, MEMBERS_REQUIRED;
 
     public static LoginResponse valueFor(int responseCode) {
         return Static.clientConf.getLoginResponseForCode(responseCode);
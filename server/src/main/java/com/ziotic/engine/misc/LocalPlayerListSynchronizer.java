@@ -37,12 +37,11 @@ public class LocalPlayerListSynchronizer extends RecurringEvent {
 
     @Override
     public void run() {
-        WorldClientSession session = Static.world.getWCSPool().acquire();
+        WorldClientSession session = Static.world.getLinkSession();
         try {
             session.synchronizeLocalPlayerList();
         } catch (Exception e) {
             log.error("Exception caught on player list synchronize!", e);
         }
-        Static.world.getWCSPool().release(session);
     }
 }
@@ -27,18 +27,38 @@ import java.util.List;
 import com.ziotic.Static;
 import com.ziotic.link.WorldClientSession;
 import com.ziotic.logic.player.Player;
+import com.ziotic.logic.player.PlayerSave;
+import com.ziotic.logic.player.SaveTracker;
 import com.ziotic.utility.Logging;
 
 import org.apache.log4j.Logger;
 
 /**
+ * Sends the players whose state changed to the link server.
+ * <p/>
+ * Every player is checked on their own schedule, see {@link SaveTracker}, and only the groups of their save which
+ * changed are sent. The amount of players checked, sent and left alone and the bytes sent are logged every minute.
+ *
  * @author Lazaro
  */
 public class ProgressivePlayerSaver implements Runnable {
     private static final Logger logger = Logging.log();
 
+    private static final int REPORT_INTERVAL = 60000;
+
+    private final int checkInterval = Static.conf.getInt("save_check_interval", 5000);
+    private final int minInterval = Static.conf.getInt("save_min_interval", 15000);
+    private final int maxInterval = Static.conf.getInt("save_max_interval", 120000);
+
     private Thread thread;
 
+    private long checked = 0;
+    private long idle = 0;
+    private long sent = 0;
+    private long failed = 0;
+    private long bytes = 0;
+    private long lastReport = System.currentTimeMillis();
+
     public ProgressivePlayerSaver() {
         thread = new Thread(this, "auto-save");
         thread.setPriority(Thread.MIN_PRIORITY);
@@ -47,29 +67,42 @@ public class ProgressivePlayerSaver implements Runnable {
 
     @Override
     public void run() {
-        WorldClientSession session = null;
         while (true) {
             try {
-                session = Static.world.getWCSPool().acquire();
-
+                long now = System.currentTimeMillis();
                 List<Player> cachedPlayerList = new LinkedList<Player>(Static.world.getPlayers());
                 for (Player player : cachedPlayerList) {
                     if (player != null && player.isConnected() && !player.isOnLogin()) {
-                        if (!session.savePlayerDetails(player)) {
+                        SaveTracker tracker = player.getSaveTracker();
+                        if (!tracker.isDue(now)) {
+                            continue;
+                        }
+                        checked++;
+                        WorldClientSession session = Static.world.getLinkSession(player.getProtocolName());
+                        int written = session.savePlayerDetails(player, false);
+                        if (written < 0) {
+                            failed++;
                             logger.warn("Failed to auto-save player [name=" + player.getName() + "]!");
+                        } else if (written == 0) {
+                            idle++;
+                        } else {
+                            sent++;
+                            bytes += written;
                         }
+                        tracker.reschedule(now, written > 0 ? Integer.bitCount(tracker.getLastGroups() & ~PlayerSave.ACCOUNT) : 0, minInterval, maxInterval);
                     }
                 }
+
+                if (now - lastReport >= REPORT_INTERVAL) {
+                    logger.info("Player saves [checked=" + checked + ", idle=" + idle + ", sent=" + sent + ", failed=" + failed + ", bytes=" + bytes + "] in the last " + ((now - lastReport) / 1000) + "s");
+                    checked = idle = sent = failed = bytes = 0;
+                    lastReport = now;
+                }
             } catch (Exception e) {
                 logger.error("Error caught in player saver!", e);
             } finally {
-                if (session != null) {
-                    Static.world.getWCSPool().release(session);
-                    session = null;
-                }
-
                 try {
-                    Thread.sleep(15000);
+                    Thread.sleep(checkInterval);
                 } catch (InterruptedException e) {
                 }
             }
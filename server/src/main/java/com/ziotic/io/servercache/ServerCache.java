@@ -90,29 +90,29 @@ public class ServerCache {
     }
 
     public byte[] getFile(String name) throws IOException {
-        ServerCacheFileIndex fileIndex = fileIndexMap.get(name);
-        if (fileIndex == null) {
-            return null;
-        }
-        byte[] data = new byte[fileIndex.getLength()];
         synchronized (dataFile) {
+            ServerCacheFileIndex fileIndex = fileIndexMap.get(name);
+            if (fileIndex == null) {
+                return null;
+            }
+            byte[] data = new byte[fileIndex.getLength()];
             dataFile.seek(fileIndex.getPosition());
             dataFile.read(data);
+            return data;
         }
-        return data;
     }
 
     public void writeFile(String name, byte[] data) throws IOException {
-        int position = -1;
+        synchronized (dataFile) {
+            int position = -1;
 
-        ServerCacheFileIndex fileIndex = fileIndexMap.get(name);
-        if (fileIndex != null) {
-            if (data.length < fileIndex.getLength()) {
-                position = fileIndex.getPosition();
+            ServerCacheFileIndex fileIndex = fileIndexMap.get(name);
+            if (fileIndex != null) {
+                if (data.length < fileIndex.getLength()) {
+                    position = fileIndex.getPosition();
+                }
             }
-        }
 
-        synchronized (dataFile) {
             if (position == -1) {
                 position = (int) dataFile.length();
             }
@@ -23,14 +23,22 @@ package com.ziotic.io.sql;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import com.ziotic.utility.Configuration;
 import com.ziotic.utility.Poolable;
 
 /**
+ * A pooled connection, which keeps the statements prepared on it.
+ * <p/>
+ * The connection is only validated once it has been idle for <code>sql_idle_validation</code> milliseconds, or thrown
+ * away once a query on it has failed.
+ *
  * @author Lazaro
  */
 public class SQLSession implements Poolable {
@@ -38,6 +46,10 @@ public class SQLSession implements Poolable {
 
   private Configuration cfg;
   private Connection connection;
+  private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+  private long idleValidation;
+  private long lastUsed;
+  private boolean failed = false;
 
   public Connection getConnection() {
     return connection;
@@ -56,16 +68,40 @@ public class SQLSession implements Poolable {
     }
   }
 
+  /**
+   * Gets the statement prepared on this connection for the given query, preparing it the first time.
+   */
+  public synchronized PreparedStatement prepare(String sql) throws SQLException {
+    PreparedStatement statement = statements.get(sql);
+    if (statement == null) {
+      statement = connection.prepareStatement(sql);
+      statements.put(sql, statement);
+    }
+    return statement;
+  }
+
+  /**
+   * Marks this connection as broken, so the pool will not hand it out again.
+   */
+  public void fail() {
+    failed = true;
+    try {
+      connection.close();
+    } catch (SQLException e) {
+    }
+    statements.clear();
+  }
+
   public void init(Configuration configuration)
       throws InstantiationException, IllegalAccessException, ClassNotFoundException, SQLException {
     this.cfg = configuration;
 
     // Set up the properties
     Properties properties = new Properties();
-    properties.put("user", configuration.getString("sql_user"));
-    properties.put("password", configuration.getString("sql_pass"));
-    properties.put("autoReconnect", configuration.getString("sql_reconnect"));
-    properties.put("maxReconnects", configuration.getString("sql_max_reconnects"));
+    put(properties, "user", configuration.getString("sql_user"));
+    put(properties, "password", configuration.getString("sql_pass"));
+    put(properties, "autoReconnect", configuration.getString("sql_reconnect"));
+    put(properties, "maxReconnects", configuration.getString("sql_max_reconnects"));
 
     if (!loadedDriver) {
       // Load the SQL driver
@@ -76,19 +112,47 @@ public class SQLSession implements Poolable {
     // Connect to the server
     connection = DriverManager.getConnection(configuration.getString("sql_host"), properties);
 
-    createStatement().execute("use " + configuration.getString("sql_database"));
+    String database = configuration.getString("sql_database");
+    if (database != null) {
+      Statement statement = createStatement();
+      statement.execute("use " + database);
+      statement.close();
+    }
+
+    idleValidation = configuration.getInt("sql_idle_validation", 30000);
+    lastUsed = System.currentTimeMillis();
+  }
+
+  private static void put(Properties properties, String key, String value) {
+    if (value != null) {
+      properties.put(key, value);
+    }
   }
 
   @Override
   public boolean expired() {
+    if (failed) {
+      return true;
+    }
     try {
-      return connection.isClosed() || !connection.isValid(100);
-    } catch (SQLException ex) {
+      if (connection.isClosed()) {
+        return true;
+      }
+      if (System.currentTimeMillis() - lastUsed < idleValidation) {
+        return false;
+      }
+      if (!connection.isValid(1)) {
+        return true;
+      }
+      lastUsed = System.currentTimeMillis();
       return false;
+    } catch (SQLException ex) {
+      return true;
     }
   }
 
   @Override
   public void recycle() {
+    lastUsed = System.currentTimeMillis();
   }
 }
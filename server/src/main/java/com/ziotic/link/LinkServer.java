@@ -21,26 +21,33 @@
  */
 package com.ziotic.link;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.sql.ResultSet;
-import java.sql.Statement;
 import java.util.*;
 
 import com.ziotic.Application;
+import com.ziotic.Constants;
 import com.ziotic.Static;
 import com.ziotic.adapter.DatabaseLoader;
+import com.ziotic.adapter.db.CachingDatabaseLoader;
 import com.ziotic.adapter.db.DatabaseLoaderAdapter;
+import com.ziotic.adapter.db.FileDatabaseLoader;
 import com.ziotic.adapter.protocol.ProtocolAdapter;
 import com.ziotic.content.cc.Clan;
 import com.ziotic.content.cc.ClanManager;
 import com.ziotic.engine.Engine;
+import com.ziotic.engine.login.LoginResponse;
 import com.ziotic.io.sql.SQLInitiator;
 import com.ziotic.io.sql.SQLSession;
 import com.ziotic.link.network.LConnectionHandler;
 import com.ziotic.link.network.LFrameDispatcher;
 import com.ziotic.link.network.LinkCodec;
+import com.ziotic.link.network.LinkFrameExecutor;
+import com.ziotic.link.network.LinkFrameMetricsEvent;
+import com.ziotic.link.network.PresenceBatcher;
 import com.ziotic.link.network.WorldListEvent;
+import com.ziotic.logic.player.PlayerSave;
 import com.ziotic.logic.player.PlayerType;
 import com.ziotic.logic.player.RemotePlayer;
 import com.ziotic.network.Frame;
@@ -80,22 +87,39 @@ public class LinkServer implements Application {
   private Map<String, RemotePlayer> players = new HashMap<String, RemotePlayer>();
 
   private Pool<SQLSession> sqlPool = null;
-  private DatabaseLoader databaseLoader = new DatabaseLoaderAdapter();
+  private CachingDatabaseLoader databaseLoader = null;
+  private LinkFrameExecutor frameExecutor = null;
+  private PresenceBatcher presence = null;
+  private WorldListEvent worldListEvent = null;
 
   public void main(String[] args) throws Throwable {
     Static.appType = AppType.LINK;
     Static.engine = new Engine();
     Static.js = new JavaScriptManager();
 
-    sqlPool = new Pool<SQLSession>(SQLSession.class, new SQLInitiator(Static.conf), 4);
-    logger.info("Database connections pooled");
+    int sqlConnections = Static.conf.getInt("sql_connections", 4);
+    if ("file".equals(Static.conf.getString("player_store"))) {
+      databaseLoader = new CachingDatabaseLoader(new FileDatabaseLoader(new File(Static.parseString(Constants.PLAYER_STORE_FILE))));
+    } else {
+      sqlPool = new Pool<SQLSession>(SQLSession.class, new SQLInitiator(Static.conf), sqlConnections);
+      logger.info("Database connections pooled");
+      databaseLoader = new CachingDatabaseLoader(new DatabaseLoaderAdapter());
+    }
     databaseLoader.reload();
     logger.info("Database loaded");
     worldList = Static.xml.readObject(Static.parseString("%WORK_DIR%/worlds.xml"));
     logger.info("World-list loaded");
     Static.proto = new ProtocolAdapter();
     Static.frameManager = new FrameHandlerManager();
-    Static.engine.submit(new WorldListEvent());
+    frameExecutor = new LinkFrameExecutor(sqlConnections, Static.conf.getInt("link_frame_queue", 1024));
+    worldListEvent = new WorldListEvent();
+    Static.engine.submit(worldListEvent);
+    int presenceInterval = Static.conf.getInt("link_presence_interval", 50);
+    presence = new PresenceBatcher(presenceInterval);
+    if (presenceInterval > 0) {
+      Static.engine.submit(presence);
+    }
+    Static.engine.submit(new LinkFrameMetricsEvent(Static.conf.getInt("link_frame_metrics_interval", 300000)));
     Static.engine.start();
     logger.info("Started engine");
     initNetworking();
@@ -105,6 +129,8 @@ public class LinkServer implements Application {
       public void run() {
         acceptor.unbind();
         logger.info("Unbound all ports");
+        frameExecutor.shutdown();
+        databaseLoader.shutdown();
       }
     });
   }
@@ -196,6 +222,22 @@ public class LinkServer implements Application {
     return sqlPool;
   }
 
+  public LinkFrameExecutor getFrameExecutor() {
+    return frameExecutor;
+  }
+
+  public PresenceBatcher getPresence() {
+    return presence;
+  }
+
+  public WorldListEvent getWorldListEvent() {
+    return worldListEvent;
+  }
+
+  public CachingDatabaseLoader getPlayerCache() {
+    return databaseLoader;
+  }
+
   public DatabaseLoader getDBLoader() {
     return databaseLoader;
   }
@@ -228,6 +270,8 @@ public class LinkServer implements Application {
     } else {
       games.remove(world.getId());
     }
+    frameExecutor.remove(world);
+    presence.remove(world);
     logger.info("Removed world <" + world.toString() + ">");
   }
 
@@ -238,23 +282,7 @@ public class LinkServer implements Application {
     }
     players.put(player.getProtocolName(), player);
     world.registerPlayer(player);
-    Frame frame = generateRegisterPlayerFrame(player);
-    for (WorldServerSession w2 : getGames()) {
-      if (world != w2) {
-        IoSession session = w2.getSession();
-        if (session != null) {
-          session.write(frame);
-        }
-      }
-    }
-    for (WorldServerSession w2 : getLobbies()) {
-      if (world != w2) {
-        IoSession session = w2.getSession();
-        if (session != null) {
-          session.write(frame);
-        }
-      }
-    }
+    presence.registered(world, player);
     logger.info("Registered remote player [" + player + "]");
   }
 
@@ -273,23 +301,7 @@ public class LinkServer implements Application {
       players.remove(player.getProtocolName());
     }
     world.unregisterPlayer(player);
-    Frame frame = generateUnregisterPlayerFrame(player);
-    for (WorldServerSession w2 : getGames()) {
-      if (world != w2) {
-        IoSession session = w2.getSession();
-        if (session != null) {
-          session.write(frame);
-        }
-      }
-    }
-    for (WorldServerSession w2 : getLobbies()) {
-      if (world != w2) {
-        IoSession session = w2.getSession();
-        if (session != null) {
-          session.write(frame);
-        }
-      }
-    }
+    presence.unregistered(world, player);
     logger.info("Un-registered remote player [" + player + "]");
   }
 
@@ -299,12 +311,6 @@ public class LinkServer implements Application {
     return fb.toFrame();
   }
 
-  private Frame generateUnregisterPlayerFrame(RemotePlayer player) {
-    FrameBuilder fb = new FrameBuilder(3, Frame.FrameType.VAR_BYTE, 64);
-    fb.writeString(player.getProtocolName());
-    return fb.toFrame();
-  }
-
   public void sendPM(String sender, int rights, String recipient, String message) {
     RemotePlayer player = findPlayer(recipient);
     if (player == null) {
@@ -416,6 +422,7 @@ public class LinkServer implements Application {
     player.setClanOwner(clan.getOwner());
 
     WorldServerSession world = player.inLobby() ? getLobby(player.getWorld()) : getGame(player.getWorld());
+    presence.flush();
     Frame frame = generateRegisterPlayerToClanFrame(player, clan);
     for (WorldServerSession w2 : getGames()) {
       if (world != w2) {
@@ -439,6 +446,7 @@ public class LinkServer implements Application {
     player.setClanOwner(null);
 
     WorldServerSession world = player.inLobby() ? getLobby(player.getWorld()) : getGame(player.getWorld());
+    presence.flush();
     Frame frame = generateUnregisterPlayerFromClanFrame(player, clan);
     for (WorldServerSession w2 : getGames()) {
       if (world != w2) {
@@ -510,55 +518,19 @@ public class LinkServer implements Application {
 
   public void handlePlayerMuting(String moderator, boolean mute, String userName) {
     userName = Text.formatNameForProtocol(userName);
-    Pool<SQLSession> pool = Static.currentLink().getSQLPool();
-    SQLSession sql = null;
-    try {
-      sql = pool.acquire();
-      Statement st = sql.createStatement();
-
-      ResultSet rs = st.executeQuery("SELECT * FROM members WHERE " +
-          "members_seo_name='" + userName
-              .replace("_",
-                  "-")
-          + "' LIMIT 1");
-      if (!rs.next()) {
-        rs.close();
-        st.close();
-        writeMutingResponse(moderator, userName, mute, false, false);
-        return;
-      }
-
-      int userId = rs.getInt("member_id");
-      rs.close();
-
-      rs = st.executeQuery("SELECT * FROM playersave WHERE id='" + userId + "' LIMIT 1");
-      boolean currentState = false;
-      if (!rs.next()) {
-        rs.close();
-        st.close();
-        writeMutingResponse(moderator, userName, mute, false, false);
-        return;
-      } else {
-        currentState = rs.getInt("muted") == 1;
-      }
-
-      StringBuilder query = new StringBuilder();
-      query.append("UPDATE playersave SET");
-      query.append(" muted='").append(mute ? 1 : 0).append("'");
-      query.append(" WHERE id='").append(userId).append("'");
-
-      st = sql.createStatement();
-      st.executeUpdate(query.toString());
-      st.close();
-
-      writeMutingResponse(moderator, userName, mute, true, mute != currentState);
-    } catch (Exception e) {
-      logger.error("Error setting mute settings for [name=" + userName + "]", e);
-    } finally {
-      if (sql != null) {
-        pool.release(sql);
-      }
+    PlayerSave save = new PlayerSave();
+    if (databaseLoader.loadPlayer(userName, null, save) != LoginResponse.LOGIN) {
+      writeMutingResponse(moderator, userName, mute, false, false);
+      return;
+    }
+    boolean currentState = save.isMuted;
+    save.isMuted = mute;
+    if (!databaseLoader.savePlayer(userName, PlayerSave.ACCOUNT, save)) {
+      logger.error("Error setting mute settings for [name=" + userName + "]");
+      writeMutingResponse(moderator, userName, mute, false, false);
+      return;
     }
+    writeMutingResponse(moderator, userName, mute, true, mute != currentState);
   }
 
   public void writeMutingResponse(String moderator, String adjustedUser, boolean mute, boolean succesful,
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.ziotic.Static;
+import com.ziotic.logic.player.Player;
+import com.ziotic.logic.player.PlayerType;
+import com.ziotic.network.Frame;
+import com.ziotic.network.FrameBuilder;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Numbers the players logging in and out of this world, so the link server can be kept in step with only what changed
+ * since the last number it acknowledged rather than the whole player list.
+ * <p/>
+ * The whole list is only sent when the link server finds a gap in the numbers, such as after either side reconnects,
+ * and every few synchronizations a hash of the list goes along with the changes for the link server to check its copy.
+ *
+ * @author Lazaro
+ */
+public class PlayerListJournal {
+    private static final Logger logger = Logging.log();
+
+    /**
+     * How many changes may wait to be acknowledged before the whole list is sent instead.
+     */
+    private static final int MAX_PENDING = 4096;
+
+    /**
+     * How many changes are sent in a frame.
+     */
+    private static final int MAX_FRAME_CHANGES = 2048;
+
+    private static final int LEAVE = 0, JOIN = 1;
+
+    private static class Change {
+        private final int seq;
+        private final int type;
+        private final String name;
+        private final boolean lobby;
+
+        private Change(int seq, int type, String name, boolean lobby) {
+            this.seq = seq;
+            this.type = type;
+            this.name = name;
+            this.lobby = lobby;
+        }
+    }
+
+    private final LinkedList<Change> pending = new LinkedList<Change>();
+    private final int verifyInterval = Static.conf.getInt("player_list_verify_interval", 20);
+
+    private int seq = 0;
+    private int hash = 0;
+    private int size = 0;
+    private int synchronizations = 0;
+    private boolean resync = true;
+
+    /**
+     * @return The hash of a player in the list, which are added together so the order of the list does not matter.
+     */
+    public static int hash(String name, boolean lobby) {
+        int h = name.hashCode() * 31 + (lobby ? 1 : 0);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public synchronized void joined(Player player) {
+        record(JOIN, player);
+        hash += hash(player.getProtocolName(), player.inLobby());
+        size++;
+    }
+
+    public synchronized void left(Player player) {
+        record(LEAVE, player);
+        hash -= hash(player.getProtocolName(), player.inLobby());
+        size--;
+    }
+
+    private void record(int type, Player player) {
+        pending.add(new Change(++seq, type, player.getProtocolName(), player.inLobby()));
+        if (pending.size() > MAX_PENDING) {
+            pending.clear();
+            resync = true;
+        }
+    }
+
+    /**
+     * Called when the link server has applied every change up to the given number, or could not and needs the whole
+     * list.
+     */
+    public synchronized void acknowledged(int ackSeq, boolean resync) {
+        while (!pending.isEmpty() && pending.getFirst().seq <= ackSeq) {
+            pending.removeFirst();
+        }
+        if (resync) {
+            logger.info("Link server asked for the player list [seq=" + ackSeq + ", current=" + seq + "]");
+            this.resync = true;
+        }
+    }
+
+    /**
+     * Asks for the whole list to be sent next time, as the link server may have lost track of this world.
+     */
+    public synchronized void reset() {
+        resync = true;
+    }
+
+    /**
+     * Sends the link server the changes it has not acknowledged, or the whole list if it needs it.
+     */
+    public void synchronize(WorldClientSession session) {
+        Frame frame;
+        synchronized (this) {
+            frame = resync ? generateFullFrame() : generateChangesFrame();
+        }
+        if (frame != null) {
+            session.write(frame);
+        }
+    }
+
+    private Frame generateChangesFrame() {
+        boolean verify = verifyInterval > 0 && ++synchronizations % verifyInterval == 0;
+        if (pending.isEmpty() && !verify) {
+            return null;
+        }
+
+        FrameBuilder fb = new FrameBuilder(13, Frame.FrameType.VAR_SHORT, 512);
+        int count = Math.min(pending.size(), MAX_FRAME_CHANGES);
+        fb.writeInt(pending.isEmpty() ? seq + 1 : pending.getFirst().seq);
+        fb.writeShort(count);
+        int i = 0;
+        for (Change change : pending) {
+            if (i++ == count) {
+                break;
+            }
+            fb.writeByte(change.type).writeString(change.name).writeByte(change.lobby ? 1 : 0);
+        }
+        // The hash is of the list after every change, so it can only be checked when they all fit.
+        if (verify && count == pending.size()) {
+            fb.writeByte(1).writeInt(seq).writeInt(hash).writeShort(size);
+        } else {
+            fb.writeByte(0);
+        }
+        return fb.toFrame();
+    }
+
+    private Frame generateFullFrame() {
+        List<PlayerType> playerList;
+        synchronized (Static.world.getPlayerMap()) {
+            playerList = new ArrayList<PlayerType>(Static.world.getPlayerMap().values());
+        }
+
+        FrameBuilder fb = new FrameBuilder(12, Frame.FrameType.VAR_SHORT, 5120);
+        FrameBuilder block = new FrameBuilder(5120);
+        hash = 0;
+        size = 0;
+        for (PlayerType playerType : playerList) {
+            if (playerType instanceof Player) {
+                Player player = (Player) playerType;
+
+                block.writeString(player.getProtocolName());
+                block.writeString(player.getClanOwner() == null ? "" : player.getClanOwner());
+                block.writeByte(player.inLobby() ? 1 : 0);
+
+                hash += hash(player.getProtocolName(), player.inLobby());
+                size++;
+            }
+        }
+
+        fb.writeInt(seq);
+        fb.writeShort(size);
+        fb.write(block.toFrame().getBytes());
+
+        pending.clear();
+        resync = false;
+        return fb.toFrame();
+    }
+}
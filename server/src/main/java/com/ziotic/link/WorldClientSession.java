@@ -21,12 +21,15 @@
  */
 package com.ziotic.link;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import com.ziotic.Application;
 import com.ziotic.Static;
@@ -35,23 +38,29 @@ import com.ziotic.content.cc.ClanManager;
 import com.ziotic.content.combat.Magic;
 import com.ziotic.engine.login.LoginResponse;
 import com.ziotic.engine.tick.Tick;
-import com.ziotic.link.network.FrameWaiter;
+import com.ziotic.link.network.LinkClientCodec;
+import com.ziotic.link.network.LinkClientHandler;
+import com.ziotic.link.network.LinkRequests;
 import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.player.*;
 import com.ziotic.logic.player.Player.Rights;
 import com.ziotic.network.Frame;
 import com.ziotic.network.FrameBuilder;
 import com.ziotic.utility.Logging;
-import com.ziotic.utility.Poolable;
-import com.ziotic.utility.Streams;
+import com.ziotic.utility.ManipulativeThreadFactory;
 import com.ziotic.utility.Text;
 
 import org.apache.log4j.Logger;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
 
 /**
  * @author Lazaro
  */
-public class WorldClientSession implements Runnable, Poolable {
+public class WorldClientSession {
     private static Logger logger = Logging.log();
 
     public static final int[] FRAME_LENGTHS = new int[256];
@@ -75,88 +84,203 @@ public class WorldClientSession implements Runnable, Poolable {
         FRAME_LENGTHS[13] = -1; // Receive clan message
         FRAME_LENGTHS[14] = -1; // Kick player from clan
         FRAME_LENGTHS[15] = -2; // Synchronize remote player list
+        FRAME_LENGTHS[16] = -2; // Register & unregister remote players
+        FRAME_LENGTHS[17] = -1; // Acknowledge local player list changes
         FRAME_LENGTHS[20] = -1; // Handle muting
     }
 
-    private Socket socket;
-    private DataInputStream inStream;
-    private DataOutputStream outStream;
-    private FrameWaiter frameWaiter;
+    /**
+     * How long frames are gathered before being written together, in milliseconds.
+     */
+    private static final int FLUSH_INTERVAL = Static.conf.getInt("link_flush_interval", 5);
 
-    public void init() throws IOException {
-        init(FrameWaiter.INSTANCE);
-    }
+    /**
+     * How many bytes of gathered frames are written straight away rather than waiting for the flush interval.
+     */
+    private static final int FLUSH_THRESHOLD = 16384;
 
-    public void init(FrameWaiter frameWaiter) throws IOException {
-        this.frameWaiter = frameWaiter;
-        if (connect()) {
-            Thread worldClientThread = new Thread(this);
-            worldClientThread.setName("world-client");
-            worldClientThread.start();
-            return;
+    /**
+     * How many bytes may be waiting to be written before writers have to wait for the connection to catch up.
+     */
+    private static final int MAX_QUEUED_BYTES = Static.conf.getInt("link_max_queued_bytes", 1048576);
+
+    /**
+     * How long a writer waits for the connection to catch up before its frame is dropped, in milliseconds.
+     */
+    private static final int WRITE_WAIT = 2000;
+
+    private static final int MIN_RECONNECT_DELAY = 1000;
+    private static final int MAX_RECONNECT_DELAY = 30000;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ManipulativeThreadFactory("link-client", Thread.NORM_PRIORITY));
+
+    private static NioSocketConnector connector = null;
+
+    private LinkRequests requests;
+
+    private IoSession session = null;
+    private boolean authenticated = false;
+    private volatile int connection = 0;
+
+    private IoBuffer batch = newBatch();
+    private List<LinkRequests.Request> batchRequests = new ArrayList<LinkRequests.Request>();
+    private boolean flushScheduled = false;
+
+    /**
+     * The requests written to a lost connection, which are sent again once a new one is made.
+     */
+    private List<LinkRequests.Request> replay = new ArrayList<LinkRequests.Request>();
+    private int reconnectDelay = MIN_RECONNECT_DELAY;
+
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            flush();
         }
-        throw new IOException("Could not connect to link server!");
-    }
-
-    private boolean connect() throws IOException {
-        socket = new Socket(Static.conf.getString("link_host"), Static.conf.getInt("link_port"));
-        inStream = new DataInputStream(socket.getInputStream());
-        outStream = new DataOutputStream(socket.getOutputStream());
-        outStream.writeShort(5 + Static.conf.getString("link_pass").length() + Static.conf.getString("server_address").length());
-        Streams.writeString(Static.conf.getString("link_pass"), outStream);
-        outStream.writeShort(Static.world.getId());
-        outStream.writeByte(Static.appType == Application.AppType.GAME_AND_LOBBY ? 2 : Static.isLobby() ? 1 : 0);
-        Streams.writeString(Static.conf.getString("server_address"), outStream);
-        outStream.flush();
-        int response = inStream.readByte() & 0xff;
-        if (response != LinkServer.OK_RESP) {
-            logger.error("Recieved response " + response + " connecting to link server!");
-            return false;
+    };
+
+    private final Runnable connectTask = new Runnable() {
+        public void run() {
+            connect();
         }
-        return true;
+    };
+
+    private static synchronized NioSocketConnector getConnector() {
+        if (connector == null) {
+            connector = new NioSocketConnector();
+            connector.setHandler(LinkClientHandler.INSTANCE);
+            connector.getFilterChain().addLast("codec", LinkClientCodec.FILTER);
+            connector.setConnectTimeoutMillis(5000);
+            connector.getSessionConfig().setTcpNoDelay(true);
+            connector.getSessionConfig().setKeepAlive(true);
+        }
+        return connector;
     }
 
-    public void run() {
-        while (true) {
-            try {
-                int opcode = inStream.readByte() & 0xff;
-                int length = FRAME_LENGTHS[opcode];
-                switch (length) {
-                    case -1:
-                        length = inStream.readByte() & 0xff;
-                        break;
-                    case -2:
-                        length = inStream.readShort() & 0xffff;
-                        break;
-                    case -3:
-                        logger.warn("Unhandled link client opcode : " + opcode);
-                        continue;
+    private static IoBuffer newBatch() {
+        return IoBuffer.allocate(FLUSH_THRESHOLD).setAutoExpand(true);
+    }
+
+    public void init() throws IOException {
+        init(LinkRequests.INSTANCE);
+    }
+
+    /**
+     * Connects to the link server, waiting for the first connection to be made.
+     */
+    public void init(LinkRequests requests) throws IOException {
+        this.requests = requests;
+        connect();
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!authenticated) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("Could not connect to link server!");
                 }
-                byte[] payload = new byte[length];
-                inStream.readFully(payload);
-                Frame frame = new Frame(opcode, Frame.FrameType.RECIEVED, payload, length);
-                handleFrame(frame);
-            } catch (IOException e) {
                 try {
-                    socket.close();
-                } catch (IOException e1) {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    throw new IOException("Interrupted connecting to link server!");
                 }
-                logger.error("Link server disconnected : " + e.getMessage());
-                while (true) {
-                    try {
-                        connect();
-                        break;
-                    } catch (IOException e1) {
-                    }
+            }
+        }
+    }
+
+    private void connect() {
+        ConnectFuture future = getConnector().connect(new InetSocketAddress(Static.conf.getString("link_host"), Static.conf.getInt("link_port")));
+        future.addListener(new IoFutureListener<ConnectFuture>() {
+            @Override
+            public void operationComplete(ConnectFuture future) {
+                if (!future.isConnected()) {
+                    scheduleReconnect();
+                    return;
                 }
-                logger.info("Reestablished a connection with the link server.");
-            } catch (Throwable e) {
-                logger.error("Error caught while communicating with the link server!", e);
+                IoSession session = future.getSession();
+                session.setAttribute("client", WorldClientSession.this);
+
+                String password = Static.conf.getString("link_pass");
+                String address = Static.conf.getString("server_address");
+                FrameBuilder fb = new FrameBuilder(64);
+                fb.writeShort(5 + password.length() + address.length());
+                fb.writeString(password);
+                fb.writeShort(Static.world.getId());
+                fb.writeByte(Static.appType == Application.AppType.GAME_AND_LOBBY ? 2 : Static.isLobby() ? 1 : 0);
+                fb.writeString(address);
+                session.write(fb.toFrame());
             }
+        });
+    }
+
+    private synchronized void scheduleReconnect() {
+        scheduler.schedule(connectTask, reconnectDelay, TimeUnit.MILLISECONDS);
+        reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+    }
+
+    /**
+     * Called with the response of the link server to the handshake of a new connection.
+     */
+    public void authenticated(IoSession session, int response) {
+        if (response != LinkServer.OK_RESP) {
+            logger.error("Recieved response " + response + " connecting to link server!");
+            session.close(true);
+            return;
         }
+        synchronized (this) {
+            this.session = session;
+            authenticated = true;
+            connection++;
+            reconnectDelay = MIN_RECONNECT_DELAY;
+            Static.world.getPlayerListJournal().reset();
+            for (LinkRequests.Request request : replay) {
+                if (!request.getFuture().isDone()) {
+                    Frame frame = request.getFrame();
+                    batch.put(frame.getBuffer(), 0, frame.getLength());
+                    batchRequests.add(request);
+                }
+            }
+            if (!replay.isEmpty()) {
+                logger.info("Resending " + replay.size() + " link request(s) from a lost connection");
+            }
+            replay.clear();
+            flush();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Called when a connection to the link server is closed, keeping what it had not answered for the next connection.
+     */
+    public void disconnected(IoSession session) {
+        synchronized (this) {
+            if (this.session != null && this.session != session) {
+                return;
+            }
+            if (this.session == session) {
+                this.session = null;
+                authenticated = false;
+                replay.addAll(requests.getPendingSentOn(session));
+                notifyAll();
+                logger.error("Link server disconnected, reconnecting");
+            }
+        }
+        scheduleReconnect();
     }
 
-    private void handleFrame(Frame frame) {
+    /**
+     * @return The number of the current connection to the link server, which goes up every time one is made.
+     */
+    public int getConnection() {
+        return connection;
+    }
+
+    /**
+     * Called once a write to the link server has completed, waking any writers waiting for room.
+     */
+    public synchronized void drained() {
+        notifyAll();
+    }
+
+    public void handleFrame(Frame frame) {
         String name;
         int world;
         boolean lobby;
@@ -179,6 +303,33 @@ public class WorldClientSession implements Runnable, Poolable {
 
                 Static.world.unregister(name);
                 break;
+            case 16: // Register & unregister remote players, in order
+                while (frame.remaining() > 0) {
+                    boolean register = frame.readUnsigned() == 1;
+                    name = frame.readString();
+                    if (register) {
+                        world = frame.readUnsigned();
+                        lobby = frame.readUnsigned() == 1;
+
+                        Static.world.register(new RemotePlayer(name, world, lobby));
+                    } else {
+                        Static.world.unregister(name);
+                    }
+                }
+                break;
+            case 17: // Acknowledge local player list changes
+                int seq = frame.readInt();
+                if (frame.readUnsigned() == 1) {
+                    Static.world.getPlayerListJournal().acknowledged(seq, true);
+                    Static.engine.dispatchToLinkWorker(new Runnable() {
+                        public void run() {
+                            synchronizeLocalPlayerList();
+                        }
+                    });
+                } else {
+                    Static.world.getPlayerListJournal().acknowledged(seq, false);
+                }
+                break;
             case 5: // Receive PM
                 name = frame.readString();
 
@@ -275,55 +426,116 @@ public class WorldClientSession implements Runnable, Poolable {
                     }
                 }
                 break;
-            default:
-                String userName = frame.readString();
-                frameWaiter.submitFrame(userName, frame);
+            case 4: // Load player response
+            case 6: // Load clan response
+            case 7: // Join clan response
+                requests.complete(frame.readInt(), frame);
                 break;
         }
     }
 
-    public Frame waitForFrame(String userName) throws InterruptedException {
-        return frameWaiter.waitForFrame(userName);
+    /**
+     * Writes the frame of a request, failing the request straight away if the frame could not be written.
+     */
+    private CompletableFuture<Frame> send(LinkRequests.Request request, Frame frame) {
+        request.setFrame(frame);
+        if (!enqueue(frame, request)) {
+            requests.fail(request, new IOException("Could not write link request [opcode=" + request.getOpcode() + "]"));
+        }
+        return request.getFuture();
     }
 
     public boolean write(Frame frame) {
-        return write(frame, -1);
+        return enqueue(frame, null);
     }
 
-    public boolean write(Frame frame, int maxTrys) {
-        int tryNumber = 1;
-        while (true) {
-            synchronized (outStream) {
-                try {
-                    outStream.write(frame.getBuffer(), 0, frame.getLength());
-                    outStream.flush();
-                    return true;
-                } catch (IOException e) {
-                }
+    /**
+     * Gathers a frame to be written with the others of the current flush interval.
+     * <p/>
+     * While the connection is down frames are kept until it is back, up to the same limit as when it is too slow.
+     *
+     * @return If the frame was accepted, false if the connection stayed backed up for too long.
+     */
+    private synchronized boolean enqueue(Frame frame, LinkRequests.Request request) {
+        long deadline = System.currentTimeMillis() + WRITE_WAIT;
+        int queued;
+        while ((queued = getQueuedBytes()) > 0 && queued + frame.getLength() > MAX_QUEUED_BYTES) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                logger.warn("Link connection backed up, dropped frame [opcode=" + frame.getOpcode() + ", queued=" + queued + "]");
+                return false;
             }
-            if (tryNumber == maxTrys) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
                 return false;
             }
-            if (tryNumber == 3) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
+        }
+        batch.put(frame.getBuffer(), 0, frame.getLength());
+        if (request != null) {
+            batchRequests.add(request);
+        }
+        if (authenticated) {
+            if (batch.position() >= FLUSH_THRESHOLD) {
+                flush();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(flushTask, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
             }
-            tryNumber++;
         }
+        return true;
     }
 
-    public LoginResponse loadPlayerDetails(final Player player) {
-        try {
-            FrameBuilder fb = new FrameBuilder(3, Frame.FrameType.VAR_BYTE, 1024);
-            fb.writeString(player.getProtocolName());
-            fb.writeString(player.getPassword());
-            fb.writeByte(player.getLoginOpcode());
-            write(fb.toFrame());
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (!authenticated || batch.position() == 0) {
+            return;
+        }
+        IoBuffer buffer = batch;
+        batch = newBatch();
+        buffer.flip();
+        session.write(buffer);
+        for (LinkRequests.Request request : batchRequests) {
+            request.setSentOn(session);
+        }
+        batchRequests.clear();
+    }
+
+    /**
+     * @return The amount of bytes gathered or written but not yet sent.
+     */
+    public synchronized int getQueuedBytes() {
+        return batch.position() + (session == null ? 0 : (int) session.getScheduledWriteBytes());
+    }
 
-            Frame frame = waitForFrame(player.getProtocolName());
+    /**
+     * Asks the link server for a player's details, which are applied to the player as soon as the reply arrives.
+     *
+     * @return The login response, which is {@link LoginResponse#ERROR} if the link server did not answer in time.
+     */
+    public CompletableFuture<LoginResponse> loadPlayerDetails(final Player player) {
+        LinkRequests.Request request = requests.create(3);
+        FrameBuilder fb = new FrameBuilder(3, Frame.FrameType.VAR_BYTE, 1024);
+        fb.writeInt(request.getId());
+        fb.writeString(player.getProtocolName());
+        fb.writeString(player.getPassword());
+        fb.writeByte(player.getLoginOpcode());
+        return send(request, fb.toFrame()).thenApply(new Function<Frame, LoginResponse>() {
+            @Override
+            public LoginResponse apply(Frame frame) {
+                return loadPlayerDetails(player, frame);
+            }
+        }).exceptionally(new Function<Throwable, LoginResponse>() {
+            @Override
+            public LoginResponse apply(Throwable t) {
+                logger.error("Error loading player [" + player.getProtocolName() + "]", t);
+                return LoginResponse.ERROR;
+            }
+        });
+    }
 
+    private LoginResponse loadPlayerDetails(final Player player, Frame frame) {
+        try {
             LoginResponse resp = Static.clientConf.getLoginResponseForCode(frame.readUnsigned());
             if (resp != LoginResponse.LOGIN) {
                 return resp;
@@ -428,6 +640,7 @@ public class WorldClientSession implements Runnable, Poolable {
         FrameBuilder fb = new FrameBuilder(1, Frame.FrameType.VAR_BYTE, 64);
         fb.writeString(player.getProtocolName());
         fb.writeByte(player.inLobby() ? 1 : 0);
+        Static.world.getPlayerListJournal().joined(player);
         write(fb.toFrame());
     }
 
@@ -435,26 +648,60 @@ public class WorldClientSession implements Runnable, Poolable {
         unregisterPlayer(player, true);
     }
 
+    /**
+     * @param savePlayer If the player should be saved, which is sent first so the link server has it queued before it
+     *                   lets the player log in elsewhere.
+     */
     public void unregisterPlayer(Player player, boolean savePlayer) {
-        FrameBuilder fb = new FrameBuilder(2, Frame.FrameType.VAR_BYTE, 64);
-        fb.writeString(player.getProtocolName());
-        write(fb.toFrame());
-
         if (savePlayer) {
             savePlayerDetails(player);
         }
+
+        FrameBuilder fb = new FrameBuilder(2, Frame.FrameType.VAR_BYTE, 64);
+        fb.writeString(player.getProtocolName());
+        Static.world.getPlayerListJournal().left(player);
+        write(fb.toFrame());
     }
 
+    /**
+     * Saves the whole player as they log out, so nothing rests on an earlier save having reached the link server.
+     */
     public boolean savePlayerDetails(Player player) {
-        FrameBuilder fb = new FrameBuilder(4, Frame.FrameType.VAR_SHORT, 1024);
-        fb.writeString(player.getProtocolName());
-        fb.writeByte(player.inLobby() ? 1 : 0);
+        return savePlayerDetails(player, true) >= 0;
+    }
 
+    /**
+     * Sends the groups of the player's save which changed since the last one sent.
+     *
+     * @param force If every group should be sent, changed or not.
+     * @return The bytes sent, 0 if nothing changed or -1 if the save could not be written.
+     */
+    public int savePlayerDetails(Player player, boolean force) {
         PlayerSave save = new PlayerSave();
         save.load(player);
-        fb.write(save.toByteArray());
+        SaveTracker tracker = player.getSaveTracker();
+        synchronized (tracker) {
+            tracker.connected(connection);
+            int all = player.inLobby() ? PlayerSave.LOBBY_GROUPS : PlayerSave.ALL_GROUPS;
+            int groups = tracker.getChangedGroups(save, all);
+            if (force) {
+                groups = all;
+            } else if (groups == 0) {
+                return 0;
+            }
+            groups |= PlayerSave.ACCOUNT;
 
-        return write(fb.toFrame(), 5);
+            byte[] data = save.toByteArray(groups);
+            FrameBuilder fb = new FrameBuilder(4, Frame.FrameType.VAR_SHORT, data.length + 32);
+            fb.writeString(player.getProtocolName());
+            fb.writeShort(groups);
+            fb.write(data);
+            if (!write(fb.toFrame())) {
+                return -1;
+            }
+            tracker.commit(groups);
+            return data.length;
+        }
     }
 
     public void sendPM(Player player, String recipient, String message) {
@@ -467,51 +714,63 @@ public class WorldClientSession implements Runnable, Poolable {
         write(fb.toFrame());
     }
 
-    public Clan loadClan(Player player, String owner) {
-        try {
-            FrameBuilder fb = new FrameBuilder(6, Frame.FrameType.VAR_BYTE, 512);
-            fb.writeString(player.getProtocolName());
-            fb.writeString(owner);
-
-            write(fb.toFrame());
-
-            Frame frame = waitForFrame(player.getProtocolName());
-
-            int resp = frame.readUnsigned();
-            if (resp == 0) {
-                return null;
-            } else {
+    /**
+     * @return The clan, or null if it does not exist or could not be loaded.
+     */
+    public CompletableFuture<Clan> loadClan(Player player, final String owner) {
+        LinkRequests.Request request = requests.create(6);
+        FrameBuilder fb = new FrameBuilder(6, Frame.FrameType.VAR_BYTE, 512);
+        fb.writeInt(request.getId());
+        fb.writeString(player.getProtocolName());
+        fb.writeString(owner);
+        return send(request, fb.toFrame()).thenApply(new Function<Frame, Clan>() {
+            @Override
+            public Clan apply(Frame frame) {
+                int resp = frame.readUnsigned();
+                if (resp == 0) {
+                    return null;
+                }
                 byte[] data = new byte[frame.remaining()];
                 frame.read(data);
 
                 Clan clan = new Clan();
-                clan.load(data);
-
+                try {
+                    clan.load(data);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
                 return clan;
             }
-        } catch (Exception e) {
-            logger.error("Error loading clan: " + owner);
-
-            return null;
-        }
+        }).exceptionally(new Function<Throwable, Clan>() {
+            @Override
+            public Clan apply(Throwable t) {
+                logger.error("Error loading clan: " + owner, t);
+                return null;
+            }
+        });
     }
 
-    public int joinClan(Player player, String owner) {
-        try {
-            FrameBuilder fb = new FrameBuilder(7, Frame.FrameType.VAR_BYTE, 64);
-            fb.writeString(player.getProtocolName());
-            fb.writeString(owner);
-
-            write(fb.toFrame());
-
-            Frame frame = waitForFrame(player.getProtocolName());
-
-            return frame.readUnsigned();
-        } catch (Exception e) {
-            logger.error("Error joining clan: " + owner);
-
-            return 2;
-        }
+    /**
+     * @return The response code of the join attempt, 2 if the link server did not answer in time.
+     */
+    public CompletableFuture<Integer> joinClan(Player player, final String owner) {
+        LinkRequests.Request request = requests.create(7);
+        FrameBuilder fb = new FrameBuilder(7, Frame.FrameType.VAR_BYTE, 64);
+        fb.writeInt(request.getId());
+        fb.writeString(player.getProtocolName());
+        fb.writeString(owner);
+        return send(request, fb.toFrame()).thenApply(new Function<Frame, Integer>() {
+            @Override
+            public Integer apply(Frame frame) {
+                return frame.readUnsigned();
+            }
+        }).exceptionally(new Function<Throwable, Integer>() {
+            @Override
+            public Integer apply(Throwable t) {
+                logger.error("Error joining clan: " + owner, t);
+                return 2;
+            }
+        });
     }
 
     public void leaveClan(Player player, String owner) {
@@ -557,40 +816,6 @@ public class WorldClientSession implements Runnable, Poolable {
 
 
     public void synchronizeLocalPlayerList() {
-        List<PlayerType> playerList;
-        synchronized (Static.world.getPlayerMap()) {
-            playerList = new ArrayList<PlayerType>(Static.world.getPlayerMap().values());
-        }
-
-        FrameBuilder fb = new FrameBuilder(12, Frame.FrameType.VAR_SHORT, 5120);
-
-        int playerCount = 0;
-        FrameBuilder block = new FrameBuilder(5120);
-        for (PlayerType playerType : playerList) {
-            if (playerType instanceof Player) {
-                Player player = (Player) playerType;
-
-                block.writeString(player.getProtocolName());
-                block.writeString(player.getClanOwner() == null ? "" : player.getClanOwner());
-                block.writeByte(player.inLobby() ? 1 : 0);
-
-                playerCount++;
-            }
-        }
-
-        fb.writeShort(playerCount);
-        fb.write(block.toFrame().getBytes());
-
-        write(fb.toFrame());
-
-    }
-
-    @Override
-    public boolean expired() {
-        return socket == null || !socket.isConnected() || socket.isClosed();
-    }
-
-    @Override
-    public void recycle() {
+        Static.world.getPlayerListJournal().synchronize(this);
     }
 }
@@ -41,6 +41,7 @@ public class WorldServerSession implements Destroyable {
     private int currentSession = 0;
     private List<RemotePlayer> players = new ArrayList<RemotePlayer>();
     private List<RemotePlayer> lobbyPlayers = new ArrayList<RemotePlayer>();
+    private int playerListSeq = -1;
 
     public WorldServerSession(int id, int serverType, String address) {
         this.id = id;
@@ -120,6 +121,46 @@ public class WorldServerSession implements Destroyable {
         return lobbyPlayers;
     }
 
+    /**
+     * @return The number of the last player list change applied from this world, or -1 if the whole list is needed.
+     */
+    public int getPlayerListSeq() {
+        return playerListSeq;
+    }
+
+    public void setPlayerListSeq(int playerListSeq) {
+        this.playerListSeq = playerListSeq;
+    }
+
+    /**
+     * @return The hash of the players registered to this world, as worked out by {@link PlayerListJournal#hash}.
+     */
+    public int getPlayerListHash() {
+        int hash = 0;
+        synchronized (players) {
+            for (RemotePlayer player : players) {
+                hash += PlayerListJournal.hash(player.getProtocolName(), false);
+            }
+        }
+        synchronized (lobbyPlayers) {
+            for (RemotePlayer player : lobbyPlayers) {
+                hash += PlayerListJournal.hash(player.getProtocolName(), true);
+            }
+        }
+        return hash;
+    }
+
+    public int getPlayerCount() {
+        int count;
+        synchronized (players) {
+            count = players.size();
+        }
+        synchronized (lobbyPlayers) {
+            count += lobbyPlayers.size();
+        }
+        return count;
+    }
+
     public void registerPlayer(RemotePlayer player) {
         if (player.inGame()) {
             synchronized (players) {
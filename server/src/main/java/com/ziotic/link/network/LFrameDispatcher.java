@@ -22,7 +22,9 @@
 package com.ziotic.link.network;
 
 import com.ziotic.Static;
+import com.ziotic.link.WorldServerSession;
 import com.ziotic.network.Frame;
+import com.ziotic.network.FrameHandler;
 
 import org.apache.mina.core.filterchain.IoFilterAdapter;
 import org.apache.mina.core.session.IoSession;
@@ -33,18 +35,66 @@ import org.apache.mina.core.session.IoSession;
 public class LFrameDispatcher extends IoFilterAdapter {
     public static final LFrameDispatcher INSTANCE = new LFrameDispatcher();
 
+    /**
+     * The opcodes of the frames which wait on the database, and are therefore run on the {@link LinkFrameExecutor}.
+     */
+    private static final boolean[] BLOCKING = new boolean[256];
+
+    static {
+        BLOCKING[3] = true; // Load player
+        BLOCKING[4] = true; // Save player
+        BLOCKING[6] = true; // Load clan
+        BLOCKING[7] = true; // Join clan, which may load the player and the clan
+        BLOCKING[9] = true; // Save clan
+        BLOCKING[20] = true; // Player muting
+    }
+
     @Override
-    public void messageReceived(NextFilter nextFilter, IoSession session, Object message)  {
+    public void messageReceived(NextFilter nextFilter, final IoSession session, Object message)  {
         if (message instanceof Frame) {
-            Frame frame = (Frame) message;
-            /**
-             * Instead of dispatching the frame, we execute it directly in the
-             * link server.
-             *
-             * This is because the frames being handled in this server do not
-             * use much CPU and return quickly.
-             */
-            Static.frameManager.getHandler(frame.getOpcode()).handleFrame(session, frame);
+            final Frame frame = (Frame) message;
+            final FrameHandler handler = Static.frameManager.getHandler(frame.getOpcode());
+            WorldServerSession world = (WorldServerSession) session.getAttribute("world");
+            if (BLOCKING[frame.getOpcode()] && world != null) {
+                LinkFrameExecutor executor = Static.currentLink().getFrameExecutor();
+                Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.handleFrame(session, frame);
+                    }
+                };
+                switch (frame.getOpcode()) {
+                    case 3:
+                        executor.submitLoad(world, frame.getOpcode(), readPlayer(frame, 4), task);
+                        break;
+                    case 4:
+                        executor.submitSave(world, frame.getOpcode(), readPlayer(frame, 0), task);
+                        break;
+                    default:
+                        executor.submit(world, frame.getOpcode(), task);
+                        break;
+                }
+            } else {
+                /**
+                 * Every other frame is executed directly in the link server.
+                 *
+                 * This is because they only touch memory and return quickly.
+                 */
+                handler.handleFrame(session, frame);
+            }
+        }
+    }
+
+    /**
+     * Reads the name of the player a frame is about without moving the frame along.
+     *
+     * @param offset The amount of bytes in front of the name.
+     */
+    private static String readPlayer(Frame frame, int offset) {
+        Frame copy = new Frame(frame.getOpcode(), frame.getType(), frame.getBuffer(), frame.getLength());
+        for (int i = 0; i < offset; i++) {
+            copy.read();
         }
+        return copy.readString();
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import com.ziotic.link.WorldClientSession;
+import com.ziotic.network.Frame;
+import com.ziotic.network.StandardFrameEncoder;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.*;
+
+/**
+ * Decodes the frames the link server sends to a world, the first message of a connection being the single byte
+ * response to its handshake.
+ *
+ * @author Lazaro
+ */
+public class LinkClientCodec extends CumulativeProtocolDecoder implements ProtocolCodecFactory {
+    public static final ProtocolCodecFilter FILTER = new ProtocolCodecFilter(new LinkClientCodec());
+
+    private static Logger logger = Logging.log();
+
+    @Override
+    protected boolean doDecode(IoSession session, IoBuffer buffer, ProtocolDecoderOutput output) throws Exception {
+        if (!session.containsAttribute("authenticated")) {
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+            session.setAttribute("authenticated", Boolean.TRUE);
+            output.write(Integer.valueOf(buffer.get() & 0xff));
+            return true;
+        }
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        int start = buffer.position();
+        int opcode = buffer.get() & 0xff;
+        int length = WorldClientSession.FRAME_LENGTHS[opcode];
+        switch (length) {
+            case -1:
+                if (!buffer.hasRemaining()) {
+                    buffer.position(start);
+                    return false;
+                }
+                length = buffer.get() & 0xff;
+                break;
+            case -2:
+                if (buffer.remaining() < 2) {
+                    buffer.position(start);
+                    return false;
+                }
+                length = buffer.getShort() & 0xffff;
+                break;
+            case -3:
+                logger.warn("Unhandled link client opcode : " + opcode);
+                return true;
+        }
+        if (buffer.remaining() < length) {
+            buffer.position(start);
+            return false;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        output.write(new Frame(opcode, Frame.FrameType.RECIEVED, payload, length));
+        return true;
+    }
+
+    @Override
+    public ProtocolEncoder getEncoder(IoSession session) throws Exception {
+        return StandardFrameEncoder.INSTANCE;
+    }
+
+    @Override
+    public ProtocolDecoder getDecoder(IoSession session) throws Exception {
+        return this;
+    }
+}
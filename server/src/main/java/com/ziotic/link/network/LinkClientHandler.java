@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import java.io.IOException;
+
+import com.ziotic.link.WorldClientSession;
+import com.ziotic.network.Frame;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+
+/**
+ * Passes the events of the connections to the link server on to the {@link WorldClientSession} owning them.
+ *
+ * @author Lazaro
+ */
+public class LinkClientHandler extends IoHandlerAdapter {
+    public static final LinkClientHandler INSTANCE = new LinkClientHandler();
+
+    private static Logger logger = Logging.log();
+
+    private static WorldClientSession client(IoSession session) {
+        return (WorldClientSession) session.getAttribute("client");
+    }
+
+    @Override
+    public void messageReceived(IoSession session, Object message) {
+        WorldClientSession client = client(session);
+        if (client == null) {
+            return;
+        }
+        if (message instanceof Integer) {
+            client.authenticated(session, (Integer) message);
+        } else {
+            client.handleFrame((Frame) message);
+        }
+    }
+
+    @Override
+    public void messageSent(IoSession session, Object message) {
+        WorldClientSession client = client(session);
+        if (client != null) {
+            client.drained();
+        }
+    }
+
+    @Override
+    public void sessionClosed(IoSession session) {
+        WorldClientSession client = client(session);
+        if (client != null) {
+            client.disconnected(session);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(IoSession session, Throwable cause) {
+        if (!(cause instanceof IOException)) {
+            logger.error("Error caught while communicating with the link server!", cause);
+        } else {
+            session.close(true);
+        }
+    }
+}
@@ -59,6 +59,7 @@ public class LinkCodec extends CumulativeProtocolDecoder implements ProtocolCode
         FRAME_LENGTHS[10] = -1; // Send clan message
         FRAME_LENGTHS[11] = -1; // Kick player from clan
         FRAME_LENGTHS[12] = -2; // Synchronize player list
+        FRAME_LENGTHS[13] = -2; // Player list changes
         FRAME_LENGTHS[20] = -1; // Player muting
     }
 
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.ziotic.link.WorldServerSession;
+import com.ziotic.utility.Logging;
+import com.ziotic.utility.ManipulativeThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs the frames which block on the database away from the network threads.
+ * <p/>
+ * The frames of every world are queued in the order they arrived and only one of them runs at a time. Worlds take turns
+ * on a pool sized to the database connections, and once the queues hold as many frames as allowed the network thread
+ * which received the next one waits for room.
+ * <p/>
+ * As a player hopping worlds is saved by the old world and loaded by the new one, on different queues, a load is held
+ * back while any save of the same player which arrived before it is still queued or running.
+ *
+ * @author Lazaro
+ */
+public class LinkFrameExecutor {
+    private static final Logger logger = Logging.log();
+
+    private final ExecutorService pool;
+    private final Semaphore capacity;
+    private final int maxQueue;
+    private final Map<WorldServerSession, Strand> strands = new ConcurrentHashMap<WorldServerSession, Strand>();
+    private final Map<String, Integer> pendingSaves = new HashMap<String, Integer>();
+    private final Map<String, List<Task>> heldLoads = new HashMap<String, List<Task>>();
+
+    private final int[] depth = new int[256];
+    private final int[] maxDepth = new int[256];
+    private final long[] executed = new long[256];
+    private final long[] waitTime = new long[256];
+    private final long[] maxWaitTime = new long[256];
+    private final long[] runTime = new long[256];
+    private final long[] maxRunTime = new long[256];
+
+    private class Task {
+        private final Strand strand;
+        private final int opcode;
+        private final String player;
+        private final boolean save;
+        private final Runnable runnable;
+        private final long queued = System.nanoTime();
+
+        private Task(Strand strand, int opcode, String player, boolean save, Runnable runnable) {
+            this.strand = strand;
+            this.opcode = opcode;
+            this.player = player;
+            this.save = save;
+            this.runnable = runnable;
+        }
+    }
+
+    /**
+     * The queue of a single world, which is run by one pool thread at a time.
+     */
+    private class Strand implements Runnable {
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<Task>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private void add(Task task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            // One frame per turn so a busy world does not hold a thread while others wait.
+            Task task = tasks.poll();
+            try {
+                if (task != null) {
+                    execute(task);
+                }
+            } finally {
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param threads  The amount of frames which may run at once, which should match the database connections.
+     * @param maxQueue The amount of frames which may be waiting or running before the network threads are held back.
+     */
+    public LinkFrameExecutor(int threads, int maxQueue) {
+        pool = Executors.newFixedThreadPool(threads, new ManipulativeThreadFactory("link-db", Thread.NORM_PRIORITY));
+        capacity = new Semaphore(maxQueue);
+        this.maxQueue = maxQueue;
+    }
+
+    /**
+     * Queues a frame behind the others of its world.
+     */
+    public void submit(WorldServerSession world, int opcode, Runnable runnable) {
+        submit(world, opcode, null, false, runnable);
+    }
+
+    /**
+     * Queues a frame which saves a player, holding back any load of them until it has run.
+     */
+    public void submitSave(WorldServerSession world, int opcode, String player, Runnable runnable) {
+        submit(world, opcode, player, true, runnable);
+    }
+
+    /**
+     * Queues a frame which loads a player, once every save of them queued before has run.
+     */
+    public void submitLoad(WorldServerSession world, int opcode, String player, Runnable runnable) {
+        submit(world, opcode, player, false, runnable);
+    }
+
+    private void submit(WorldServerSession world, int opcode, String player, boolean save, Runnable runnable) {
+        capacity.acquireUninterruptibly();
+        synchronized (this) {
+            maxDepth[opcode] = Math.max(maxDepth[opcode], ++depth[opcode]);
+        }
+        Strand strand = strands.get(world);
+        if (strand == null) {
+            Strand newStrand = new Strand();
+            strand = strands.putIfAbsent(world, newStrand);
+            if (strand == null) {
+                strand = newStrand;
+            }
+        }
+        Task task = new Task(strand, opcode, player, save, runnable);
+        if (player != null) {
+            synchronized (pendingSaves) {
+                Integer saves = pendingSaves.get(player);
+                if (save) {
+                    pendingSaves.put(player, saves == null ? 1 : saves + 1);
+                } else if (saves != null) {
+                    List<Task> held = heldLoads.get(player);
+                    if (held == null) {
+                        heldLoads.put(player, held = new ArrayList<Task>());
+                    }
+                    held.add(task);
+                    return;
+                }
+            }
+        }
+        strand.add(task);
+    }
+
+    /**
+     * Counts a save of a player as done, queueing the loads of them which waited on it once no other is left.
+     */
+    private void saved(String player) {
+        List<Task> held = null;
+        synchronized (pendingSaves) {
+            int saves = pendingSaves.get(player) - 1;
+            if (saves == 0) {
+                pendingSaves.remove(player);
+                held = heldLoads.remove(player);
+            } else {
+                pendingSaves.put(player, saves);
+            }
+        }
+        if (held != null) {
+            for (Task task : held) {
+                task.strand.add(task);
+            }
+        }
+    }
+
+    private void execute(Task task) {
+        long start = System.nanoTime();
+        try {
+            task.runnable.run();
+        } catch (Throwable t) {
+            logger.error("Error handling link frame [opcode=" + task.opcode + "]", t);
+        } finally {
+            long end = System.nanoTime();
+            synchronized (this) {
+                depth[task.opcode]--;
+                executed[task.opcode]++;
+                waitTime[task.opcode] += start - task.queued;
+                maxWaitTime[task.opcode] = Math.max(maxWaitTime[task.opcode], start - task.queued);
+                runTime[task.opcode] += end - start;
+                maxRunTime[task.opcode] = Math.max(maxRunTime[task.opcode], end - start);
+            }
+            capacity.release();
+            if (task.save) {
+                saved(task.player);
+            }
+        }
+    }
+
+    /**
+     * Forgets the queue of a world which went offline, any frames still in it are run first.
+     */
+    public void remove(WorldServerSession world) {
+        strands.remove(world);
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of the queue depth and the time spent waiting and running for every opcode, in milliseconds.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Link frames [worlds=").append(strands.size()).append("]");
+        for (int opcode = 0; opcode < depth.length; opcode++) {
+            if (executed[opcode] == 0 && depth[opcode] == 0) {
+                continue;
+            }
+            long count = Math.max(executed[opcode], 1);
+            sb.append(" [opcode=").append(opcode).append(", depth=").append(depth[opcode]).append(", maxDepth=").append(maxDepth[opcode]);
+            sb.append(", executed=").append(executed[opcode]);
+            sb.append(", wait=").append(millis(waitTime[opcode] / count)).append("/").append(millis(maxWaitTime[opcode]));
+            sb.append(", run=").append(millis(runTime[opcode] / count)).append("/").append(millis(maxRunTime[opcode])).append("]");
+            if (reset) {
+                maxDepth[opcode] = depth[opcode];
+                executed[opcode] = waitTime[opcode] = maxWaitTime[opcode] = runTime[opcode] = maxRunTime[opcode] = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1000000D);
+    }
+
+    /**
+     * Waits for the queued frames to be run, so no save is lost, and then stops the pool.
+     */
+    public void shutdown() {
+        try {
+            if (!capacity.tryAcquire(maxQueue, 10, TimeUnit.SECONDS)) {
+                logger.warn("Gave up waiting for queued link frames [queued=" + (maxQueue - capacity.availablePermits()) + "]");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.shutdown();
+    }
+}
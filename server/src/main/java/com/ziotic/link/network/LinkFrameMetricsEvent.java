@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import com.ziotic.Static;
+import com.ziotic.engine.event.RecurringEvent;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Logs the queue depth and latency of the frames run off the network threads, and the counters of the player cache, the
+ * presence batches and the world list.
+ *
+ * @author Lazaro
+ */
+public class LinkFrameMetricsEvent extends RecurringEvent {
+    private static final Logger logger = Logging.log();
+
+    public LinkFrameMetricsEvent(int interval) {
+        super(interval, ExecutorType.SERVICE_WORKER);
+    }
+
+    @Override
+    public void run() {
+        logger.info(Static.currentLink().getFrameExecutor().report(true));
+        logger.info(Static.currentLink().getPlayerCache().report(true));
+        logger.info(Static.currentLink().getPresence().report(true));
+        logger.info(Static.currentLink().getWorldListEvent().report(true));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.ziotic.Static;
+import com.ziotic.network.Frame;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+import org.apache.mina.core.session.IoSession;
+
+/**
+ * The requests made to the link server which are still waiting for a reply.
+ * <p/>
+ * Every request is given an id which the link server echoes at the start of its reply, the reader thread of whichever
+ * connection the reply arrives on then completes the future of that request alone. Requests not answered within the
+ * timeout fail with a {@link java.util.concurrent.TimeoutException} and late replies to them are dropped.
+ *
+ * @author Lazaro
+ */
+public class LinkRequests {
+    private static final Logger logger = Logging.log();
+
+    /**
+     * The upper bounds of the latency histogram buckets, in milliseconds.
+     */
+    private static final int[] LATENCY_BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500};
+
+    public static final LinkRequests INSTANCE = new LinkRequests(Static.conf.getInt("link_request_timeout", 4000));
+
+    private final int timeout;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ConcurrentMap<Integer, Request> pending = new ConcurrentHashMap<Integer, Request>();
+
+    private final long[] latencies = new long[LATENCY_BUCKETS.length + 1];
+    private long completed = 0;
+    private long timedOut = 0;
+    private long stale = 0;
+    private long maxLatency = 0;
+
+    public class Request {
+        private final int id;
+        private final int opcode;
+        private final long created = System.nanoTime();
+        private final CompletableFuture<Frame> future = new CompletableFuture<Frame>();
+
+        private Frame frame = null;
+        private volatile IoSession sentOn = null;
+
+        private Request(int id, int opcode) {
+            this.id = id;
+            this.opcode = opcode;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getOpcode() {
+            return opcode;
+        }
+
+        public CompletableFuture<Frame> getFuture() {
+            return future;
+        }
+
+        /**
+         * @return The frame of the request, kept so it can be sent again if its connection is lost.
+         */
+        public Frame getFrame() {
+            return frame;
+        }
+
+        public void setFrame(Frame frame) {
+            this.frame = frame;
+        }
+
+        /**
+         * @return The connection the request was last written to, or null if it is still waiting to be written.
+         */
+        public IoSession getSentOn() {
+            return sentOn;
+        }
+
+        public void setSentOn(IoSession sentOn) {
+            this.sentOn = sentOn;
+        }
+    }
+
+    public LinkRequests(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Registers a new request, which must be written with its id before the link server can answer it.
+     */
+    public Request create(int opcode) {
+        final Request request = new Request(nextId.incrementAndGet(), opcode);
+        pending.put(request.id, request);
+        request.future.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete(new BiConsumer<Frame, Throwable>() {
+            @Override
+            public void accept(Frame frame, Throwable t) {
+                if (pending.remove(request.id, request)) {
+                    synchronized (LinkRequests.this) {
+                        timedOut++;
+                    }
+                    logger.warn("Link request timed out [id=" + request.id + ", opcode=" + request.opcode + "]");
+                }
+            }
+        });
+        return request;
+    }
+
+    /**
+     * Completes the request a reply is for.
+     *
+     * @return If the request was still waiting for it.
+     */
+    public boolean complete(int id, Frame frame) {
+        Request request = pending.remove(id);
+        if (request == null) {
+            synchronized (this) {
+                stale++;
+            }
+            logger.debug("Dropped a reply to a finished link request [id=" + id + ", opcode=" + frame.getOpcode() + "]");
+            return false;
+        }
+        record(System.nanoTime() - request.created);
+        request.future.complete(frame);
+        return true;
+    }
+
+    /**
+     * Fails a request which could not be written.
+     */
+    public void fail(Request request, Throwable cause) {
+        if (pending.remove(request.id, request)) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    private synchronized void record(long nanos) {
+        long millis = nanos / 1000000;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && millis >= LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        latencies[bucket]++;
+        completed++;
+        maxLatency = Math.max(maxLatency, millis);
+    }
+
+    /**
+     * @return The requests last written to a connection, which are still waiting for a reply.
+     */
+    public List<Request> getPendingSentOn(IoSession session) {
+        List<Request> requests = new ArrayList<Request>();
+        for (Request request : pending.values()) {
+            if (request.sentOn == session) {
+                requests.add(request);
+            }
+        }
+        return requests;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getFinishedCount() {
+        return completed + timedOut;
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of the requests made, with the latency histogram in milliseconds.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Link requests [pending=").append(pending.size()).append(", completed=").append(completed);
+        sb.append(", timedOut=").append(timedOut).append(", stale=").append(stale).append(", maxLatency=").append(maxLatency).append("] [");
+        for (int i = 0; i < latencies.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(i < LATENCY_BUCKETS.length ? "<" + LATENCY_BUCKETS[i] : ">=" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1]).append("=").append(latencies[i]);
+            if (reset) {
+                latencies[i] = 0;
+            }
+        }
+        sb.append("]");
+        if (reset) {
+            completed = timedOut = stale = maxLatency = 0;
+        }
+        return sb.toString();
+    }
+}
@@ -21,35 +21,29 @@
  */
 package com.ziotic.link.network;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.ziotic.engine.tick.Tick;
+import com.ziotic.utility.Logging;
 
-import com.ziotic.network.Frame;
+import org.apache.log4j.Logger;
 
 /**
+ * Periodically logs and clears the counters of the {@link LinkRequests}.
+ *
  * @author Lazaro
  */
-public class FrameWaiter {
-    public static final FrameWaiter INSTANCE = new FrameWaiter();
-
-    private Map<String, Frame> nameFrameMap = new HashMap<String, Frame>();
+public class LinkRequestsTick extends Tick {
+    private static final Logger logger = Logging.log();
 
-    public Frame waitForFrame(String userName) throws InterruptedException {
-        while (true) {
-            synchronized (nameFrameMap) {
-                nameFrameMap.wait();
-                Frame frame = nameFrameMap.get(userName);
-                if (frame != null) {
-                    return frame;
-                }
-            }
-        }
+    public LinkRequestsTick(int interval) {
+        super("LinkRequests", interval);
     }
 
-    public void submitFrame(String userName, Frame frame) {
-        synchronized (nameFrameMap) {
-            nameFrameMap.put(userName, frame);
-            nameFrameMap.notifyAll();
+    @Override
+    public boolean execute() {
+        LinkRequests requests = LinkRequests.INSTANCE;
+        if (requests.getFinishedCount() > 0 || requests.getPendingCount() > 0) {
+            logger.info(requests.report(true));
         }
+        return true;
     }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.link.network;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ziotic.Static;
+import com.ziotic.engine.event.RecurringEvent;
+import com.ziotic.link.WorldServerSession;
+import com.ziotic.logic.player.RemotePlayer;
+import com.ziotic.network.Frame;
+import com.ziotic.network.FrameBuilder;
+
+import org.apache.mina.core.session.IoSession;
+
+/**
+ * Holds the players logging in and out for every world and sends them to it as one frame per interval, rather than a
+ * frame per player per world.
+ * <p/>
+ * The changes of a world are sent in the order they were made, so the last change of a player is the one which sticks.
+ * Frames which rely on a player being known to the worlds, such as joining a clan, have to {@link #flush()} first.
+ *
+ * @author Lazaro
+ */
+public class PresenceBatcher extends RecurringEvent {
+    /**
+     * Keeps a batch within a variable short frame.
+     */
+    private static final int MAX_BATCH_SIZE = 60000;
+
+    private static final int UNREGISTER = 0, REGISTER = 1;
+
+    private static class Batch {
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream(256);
+        private int count = 0;
+        private long firstQueued = 0;
+    }
+
+    private final boolean immediate;
+    private final Map<WorldServerSession, Batch> batches = new HashMap<WorldServerSession, Batch>();
+
+    private long queued = 0;
+    private long sent = 0;
+    private long largest = 0;
+    private long latency = 0;
+    private long maxLatency = 0;
+    private long bytes = 0;
+    private long bytesUnbatched = 0;
+
+    /**
+     * @param interval How long a change may be held, or 0 to send every change straight away.
+     */
+    public PresenceBatcher(int interval) {
+        super(Math.max(interval, 1), ExecutorType.SERVICE_WORKER);
+        this.immediate = interval <= 0;
+    }
+
+    public void registered(WorldServerSession origin, RemotePlayer player) {
+        FrameBuilder fb = new FrameBuilder(32);
+        fb.writeByte(REGISTER).writeString(player.getProtocolName()).writeByte(player.getWorld()).writeByte(player.inLobby() ? 1 : 0);
+        queue(origin, fb);
+    }
+
+    public void unregistered(WorldServerSession origin, RemotePlayer player) {
+        FrameBuilder fb = new FrameBuilder(32);
+        fb.writeByte(UNREGISTER).writeString(player.getProtocolName());
+        queue(origin, fb);
+    }
+
+    private synchronized void queue(WorldServerSession origin, FrameBuilder entry) {
+        byte[] data = entry.toFrame().getBytes();
+        queue(origin, data, Static.currentLink().getGames().iterator());
+        queue(origin, data, Static.currentLink().getLobbies().iterator());
+        if (immediate) {
+            flush();
+        }
+    }
+
+    private void queue(WorldServerSession origin, byte[] entry, Iterator<WorldServerSession> worlds) {
+        while (worlds.hasNext()) {
+            WorldServerSession world = worlds.next();
+            if (world == origin || !world.isOnline()) {
+                continue;
+            }
+            Batch batch = batches.get(world);
+            if (batch == null) {
+                batches.put(world, batch = new Batch());
+            }
+            if (batch.entries.size() + entry.length > MAX_BATCH_SIZE) {
+                send(world, batch);
+            }
+            if (batch.count == 0) {
+                batch.firstQueued = System.nanoTime();
+            }
+            batch.entries.write(entry, 0, entry.length);
+            batch.count++;
+            queued++;
+            // On its own the change would have been a frame with a byte of opcode and of length, but no type.
+            bytesUnbatched += entry.length + 1;
+        }
+    }
+
+    @Override
+    public void run() {
+        flush();
+    }
+
+    /**
+     * Sends every change held so far.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<WorldServerSession, Batch> entry : batches.entrySet()) {
+            if (entry.getValue().count > 0) {
+                send(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drops the changes held for a world which has gone.
+     */
+    public synchronized void remove(WorldServerSession world) {
+        batches.remove(world);
+    }
+
+    private void send(WorldServerSession world, Batch batch) {
+        IoSession session = world.getSession();
+        if (session != null) {
+            FrameBuilder fb = new FrameBuilder(16, Frame.FrameType.VAR_SHORT, batch.entries.size() + 3);
+            fb.write(batch.entries.toByteArray());
+            session.write(fb.toFrame());
+
+            long waited = System.nanoTime() - batch.firstQueued;
+            sent++;
+            largest = Math.max(largest, batch.count);
+            latency += waited;
+            maxLatency = Math.max(maxLatency, waited);
+            bytes += batch.entries.size() + 3;
+        }
+        batch.entries.reset();
+        batch.count = 0;
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of how many changes each frame carried, how long they were held and the bytes this saved.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Presence batches [changes=").append(queued).append(", frames=").append(sent);
+        sb.append(", avgBatch=").append(String.format("%.1f", sent == 0 ? 0D : queued / (double) sent)).append(", maxBatch=").append(largest);
+        sb.append(", avgLatency=").append(String.format("%.1f", sent == 0 ? 0D : latency / 1e6 / sent)).append("ms");
+        sb.append(", maxLatency=").append(String.format("%.1f", maxLatency / 1e6)).append("ms");
+        sb.append(", bytes=").append(bytes).append(", bytesSaved=").append(bytesUnbatched - bytes).append("]");
+        if (reset) {
+            queued = sent = largest = latency = maxLatency = bytes = bytesUnbatched = 0;
+        }
+        return sb.toString();
+    }
+}
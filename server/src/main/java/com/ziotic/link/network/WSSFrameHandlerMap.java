@@ -46,7 +46,7 @@ public class WSSFrameHandlerMap implements Mapper<Integer, FrameHandler> {
     public Map<Integer, FrameHandler> map() {
         handlers = new HashMap<Integer, FrameHandler>();
 
-        bind(new WSSPlayerHandler(), 1, 2, 3, 4, 12);
+        bind(new WSSPlayerHandler(), 1, 2, 3, 4, 12, 13);
         bind(new WSSFriendHandler(), 5);
         bind(new WSSClanHandler(), 6, 7, 8, 9, 10, 11);
         bind(new WSSMuteHandler(), 20);
@@ -21,34 +21,111 @@
  */
 package com.ziotic.link.network;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import com.ziotic.Static;
 import com.ziotic.engine.event.RecurringEvent;
+import com.ziotic.link.WorldEntry;
 import com.ziotic.link.WorldServerSession;
 import com.ziotic.network.Frame;
 
 import org.apache.mina.core.session.IoSession;
 
+/**
+ * Sends the world list to the lobbies, encoding it again only when a world comes online, goes offline or its
+ * population moves to another bucket. Lobbies which already have the current list are not sent it again.
+ *
+ * @author Lazaro
+ */
 public class WorldListEvent extends RecurringEvent {
+    /**
+     * How coarsely the population of a world is shown, so a list is not encoded for every player logging in or out.
+     */
+    private static final int POPULATION_BUCKET = Math.max(1, Static.conf.getInt("world_list_population_bucket", 1));
+
+    private Object[] state = null;
+    private Frame frame = null;
+    private Set<WorldServerSession> sent = new HashSet<WorldServerSession>();
+
+    private long runs = 0;
+    private long builds = 0;
+    private long sends = 0;
+    private long bytesSaved = 0;
+
     public WorldListEvent() {
         super(1000, ExecutorType.SERVICE_WORKER);
     }
 
+    /**
+     * @return The population shown in the world list for a world with the given number of players.
+     */
+    public static int bucketPopulation(int players) {
+        return players / POPULATION_BUCKET * POPULATION_BUCKET;
+    }
+
     @Override
     public void run() {
-        Frame frame = Static.proto.generateWorldList();
-        for (WorldServerSession w : Static.currentLink().getLobbies()) {
-            IoSession session = w.getSession();
-            if (session != null) {
-                session.write(frame);
+        Object[] state = generateState();
+        synchronized (this) {
+            runs++;
+            if (!Arrays.equals(state, this.state)) {
+                this.state = state;
+                frame = Static.proto.generateWorldList();
+                sent.clear();
+                builds++;
             }
-        }
-        for (WorldServerSession w : Static.currentLink().getGames()) {
-            if (w.getServerType() == 2) {
+
+            List<WorldServerSession> targets = new ArrayList<WorldServerSession>();
+            targets.addAll(Static.currentLink().getLobbies());
+            for (WorldServerSession w : Static.currentLink().getGames()) {
+                if (w.getServerType() == 2) {
+                    targets.add(w);
+                }
+            }
+            for (WorldServerSession w : targets) {
+                if (sent.contains(w)) {
+                    bytesSaved += frame.getLength();
+                    continue;
+                }
                 IoSession session = w.getSession();
                 if (session != null) {
                     session.write(frame);
+                    sent.add(w);
+                    sends++;
                 }
             }
+            sent.retainAll(targets);
+        }
+    }
+
+    /**
+     * @return What the encoded list depends on which can change, being the session and shown population of every world.
+     */
+    private Object[] generateState() {
+        List<Object> state = new ArrayList<Object>();
+        for (WorldEntry w : Static.currentLink().getWorldList().values()) {
+            WorldServerSession session = Static.currentLink().getGame(w.id);
+            state.add(session);
+            state.add(session != null ? bucketPopulation(session.getPlayers().size()) : -1);
+        }
+        return state.toArray();
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of how often the list was encoded and sent, and the bytes not sent again.
+     */
+    public synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("World list [runs=").append(runs).append(", builds=").append(builds);
+        sb.append(", sends=").append(sends).append(", size=").append(frame == null ? 0 : frame.getLength());
+        sb.append(", bytesSaved=").append(bytesSaved).append("]");
+        if (reset) {
+            runs = builds = sends = bytesSaved = 0;
         }
+        return sb.toString();
     }
 }
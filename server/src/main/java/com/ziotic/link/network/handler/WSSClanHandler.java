@@ -99,11 +99,12 @@ public class WSSClanHandler extends WSSFrameHandler {
     }
 
     private void joinClan(WorldServerSession world, Frame frame) {
+        int requestId = frame.readInt();
         String name = frame.readString();
         String owner = frame.readString();
         int resp = ClanManager.attemptJoinChannel(name, owner);
         FrameBuilder fb = new FrameBuilder(7, Frame.FrameType.VAR_BYTE, 64);
-        fb.writeString(name);
+        fb.writeInt(requestId);
         fb.writeByte(resp);
         IoSession session = world.getSession();
         if (session != null) {
@@ -112,12 +113,13 @@ public class WSSClanHandler extends WSSFrameHandler {
     }
 
     private void loadClan(WorldServerSession world, Frame frame) {
+        int requestId = frame.readInt();
         String name = frame.readString();
         String owner = frame.readString();
         Clan clan = new Clan(owner);
         boolean resp = Static.currentLink().getDBLoader().loadClan(owner, clan);
         FrameBuilder fb = new FrameBuilder(6, Frame.FrameType.VAR_BYTE, 1024);
-        fb.writeString(name);
+        fb.writeInt(requestId);
         if (resp) {
             fb.writeByte(1);
             fb.write(clan.toByteArray());
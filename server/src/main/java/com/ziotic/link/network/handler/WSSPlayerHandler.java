@@ -65,13 +65,76 @@ public class WSSPlayerHandler extends WSSFrameHandler {
         case 12:
           synchronizePlayerList(world, frame);
           break;
+        case 13:
+          applyPlayerListChanges(world, frame);
+          break;
       }
     } catch (Exception e) {
       logger.error("Error handling player frame [" + frame.toString() + "]", e);
     }
   }
 
+  /**
+   * Applies the players who joined and left a world since the last change it was sent an acknowledgement for, asking
+   * for the whole list instead if some are missing or the hash sent along does not match.
+   */
+  private void applyPlayerListChanges(WorldServerSession world, Frame frame) {
+    int firstSeq = frame.readInt();
+    int count = frame.readShort() & 0xffff;
+    synchronized (world) {
+      int seq = world.getPlayerListSeq();
+      if (seq < 0 || firstSeq > seq + 1) {
+        logger.info("Missing player list changes of world <" + world + "> [seq=" + seq + ", first=" + firstSeq + "]");
+        acknowledgePlayerList(world, seq, true);
+        return;
+      }
+      for (int i = 0; i < count; i++) {
+        boolean join = frame.readUnsigned() == 1;
+        String name = frame.readString();
+        boolean lobby = frame.readUnsigned() == 1;
+        if (firstSeq + i <= seq) {
+          continue;
+        }
+
+        RemotePlayer player = Static.currentLink().findPlayer(name);
+        boolean registered = player != null && player.getWorld() == world.getId() && player.inLobby() == lobby;
+        if (join && !registered) {
+          Static.currentLink().registerPlayer(world, new RemotePlayer(name, world.getId(), lobby));
+        } else if (!join && registered) {
+          Static.currentLink().unregisterPlayer(world, player);
+        }
+      }
+      seq = Math.max(seq, firstSeq + count - 1);
+      world.setPlayerListSeq(seq);
+
+      boolean resync = false;
+      if (frame.readUnsigned() == 1) {
+        int hashSeq = frame.readInt();
+        int hash = frame.readInt();
+        int size = frame.readShort() & 0xffff;
+        if (hashSeq == seq && (hash != world.getPlayerListHash() || size != world.getPlayerCount())) {
+          logger.warn("Player list of world <" + world + "> does not match [seq=" + seq + ", size=" + size + ", registered=" + world.getPlayerCount() + "]");
+          world.setPlayerListSeq(-1);
+          resync = true;
+        }
+      }
+      if (count > 0 || resync) {
+        acknowledgePlayerList(world, seq, resync);
+      }
+    }
+  }
+
+  private void acknowledgePlayerList(WorldServerSession world, int seq, boolean resync) {
+    IoSession session = world.getSession();
+    if (session != null) {
+      FrameBuilder fb = new FrameBuilder(17, Frame.FrameType.VAR_BYTE, 6);
+      fb.writeInt(seq).writeByte(resync ? 1 : 0);
+      session.write(fb.toFrame());
+    }
+  }
+
   private void synchronizePlayerList(WorldServerSession world, Frame frame) {
+    int seq = frame.readInt();
     int playerCount = frame.readShort() & 0xffff;
     Map<String, RemotePlayer> playerList = new HashMap<String, RemotePlayer>(playerCount);
     for (int i = 0; i < playerCount; i++) {
@@ -87,43 +150,47 @@ public class WSSPlayerHandler extends WSSFrameHandler {
       playerList.put(name, player);
     }
 
-    if (world.getServerType() == 0 || world.getServerType() == 2) {
-      for (RemotePlayer player : new ArrayList<RemotePlayer>(world.getPlayers())) {
-        if (!playerList.containsKey(player.getProtocolName())) {
-          Static.currentLink().unregisterPlayer(world, player);
-        } else {
-          playerList.remove(player.getProtocolName());
+    synchronized (world) {
+      if (world.getServerType() == 0 || world.getServerType() == 2) {
+        for (RemotePlayer player : new ArrayList<RemotePlayer>(world.getPlayers())) {
+          if (!playerList.containsKey(player.getProtocolName())) {
+            Static.currentLink().unregisterPlayer(world, player);
+          } else {
+            playerList.remove(player.getProtocolName());
+          }
         }
       }
-    }
-    if (world.getServerType() == 1 || world.getServerType() == 2) {
-      for (RemotePlayer player : new ArrayList<RemotePlayer>(world.getLobbyPlayers())) {
-        if (!playerList.containsKey(player.getProtocolName())) {
-          Static.currentLink().unregisterPlayer(world, player);
-        } else {
-          playerList.remove(player.getProtocolName());
+      if (world.getServerType() == 1 || world.getServerType() == 2) {
+        for (RemotePlayer player : new ArrayList<RemotePlayer>(world.getLobbyPlayers())) {
+          if (!playerList.containsKey(player.getProtocolName())) {
+            Static.currentLink().unregisterPlayer(world, player);
+          } else {
+            playerList.remove(player.getProtocolName());
+          }
         }
       }
-    }
-    for (RemotePlayer player : playerList.values()) {
-      Static.currentLink().registerPlayer(world, player);
-      if (player.getClanOwner() != null) {
-        ClanManager.unregisterPlayer(player.getProtocolName(), player.getClanOwner());
+      for (RemotePlayer player : playerList.values()) {
+        Static.currentLink().registerPlayer(world, player);
+        if (player.getClanOwner() != null) {
+          ClanManager.unregisterPlayer(player.getProtocolName(), player.getClanOwner());
+        }
       }
+      world.setPlayerListSeq(seq);
     }
   }
 
   private void savePlayer(WorldServerSession world, Frame frame) throws IOException {
     String name = frame.readString();
-    boolean lobby = frame.readUnsigned() == 1;
+    int groups = frame.readShort() & 0xffff;
     byte[] data = new byte[frame.remaining()];
     frame.read(data);
     PlayerSave save = new PlayerSave();
-    save.load(data);
-    Static.currentLink().getDBLoader().savePlayer(name, lobby, save);
+    save.load(data, groups);
+    Static.currentLink().getDBLoader().savePlayer(name, groups, save);
   }
 
   private void loadPlayer(WorldServerSession world, Frame frame) {
+    int requestId = frame.readInt();
     String name = frame.readString();
     String password = frame.readString();
     int loginOpcode = frame.readUnsigned();
@@ -142,7 +209,7 @@ public class WSSPlayerHandler extends WSSFrameHandler {
       }
     }
     FrameBuilder fb = new FrameBuilder(4, Frame.FrameType.VAR_SHORT, 1024);
-    fb.writeString(name);
+    fb.writeInt(requestId);
     fb.writeByte(resp.intValue());
     if (resp == LoginResponse.LOGIN) {
       fb.write(save.toByteArray());
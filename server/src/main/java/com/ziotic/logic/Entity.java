@@ -40,6 +40,7 @@ import com.ziotic.engine.tick.Tick;
 import com.ziotic.logic.map.Coverage;
 import com.ziotic.logic.map.Directions;
 import com.ziotic.logic.map.Directions.NormalDirection;
+import com.ziotic.logic.map.MapInstance;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Region;
 import com.ziotic.logic.map.Tile;
@@ -152,6 +153,7 @@ public abstract class Entity extends Locatable implements Runnable {
     private Tile previousLocation = null;
     private boolean clipping = true;
     private boolean inMulti = false;
+    private MapInstance instance = null;
     protected Coverage coverage;
 
     protected Tile mapRegionUpdatePosition = null;
@@ -432,6 +434,14 @@ public abstract class Entity extends Locatable implements Runnable {
         this.clipping = clipping;
     }
 
+    public final MapInstance getInstance() {
+        return instance;
+    }
+
+    public final void setInstance(MapInstance instance) {
+        this.instance = instance;
+    }
+
     public final boolean isMapRegionUpdate() {
         return mapRegionUpdate;
     }
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ziotic.Static;
 import com.ziotic.adapter.protocol.update.NPCUpdateAdapter;
@@ -36,19 +37,24 @@ import com.ziotic.content.combat.Magic;
 import com.ziotic.content.combat.Ranged;
 import com.ziotic.content.magictemp.MagicTemp;
 import com.ziotic.content.skill.summoning.SummoningPouch;
+import com.ziotic.engine.login.LoginMetricsTick;
 import com.ziotic.engine.login.LoginResponse;
 import com.ziotic.engine.misc.LocalPlayerListSynchronizer;
 import com.ziotic.engine.tick.Tick;
-import com.ziotic.link.WCSInitiator;
+import com.ziotic.link.PlayerListJournal;
 import com.ziotic.link.WorldClientSession;
+import com.ziotic.link.network.LinkRequestsTick;
 import com.ziotic.logic.item.EquipmentDefinition;
 import com.ziotic.logic.item.GroundItem;
 import com.ziotic.logic.item.GroundItemManager;
 import com.ziotic.logic.item.ItemDefinition;
 import com.ziotic.logic.item.ItemXMLDefinition;
+import com.ziotic.logic.map.Areas;
 import com.ziotic.logic.map.PathFinder;
+import com.ziotic.logic.map.PathMetricsTick;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.PathRequest;
+import com.ziotic.logic.map.RegionEvictionTick;
 import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.mask.Graphic;
 import com.ziotic.logic.npc.NPC;
@@ -58,14 +64,17 @@ import com.ziotic.logic.npc.misc.FishingSpotNPC;
 import com.ziotic.logic.object.DoorManager;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.object.ObjectManager;
+import com.ziotic.logic.player.FriendIndex;
 import com.ziotic.logic.player.Player;
+import com.ziotic.logic.player.PlayerPathProcessor;
 import com.ziotic.logic.player.PlayerType;
 import com.ziotic.logic.player.RemotePlayer;
 import com.ziotic.logic.utility.EntityUpdater;
 import com.ziotic.logic.utility.NodeCollection;
 import com.ziotic.logic.utility.PlayerUpdater;
+import com.ziotic.network.Frame;
+import com.ziotic.network.FrameBuilder;
 import com.ziotic.utility.Logging;
-import com.ziotic.utility.Pool;
 
 import org.apache.log4j.Logger;
 
@@ -78,9 +87,12 @@ public final class World implements Runnable {
 
   private int id;
 
-  private Pool<WorldClientSession> wcsPool = null;
+  private WorldClientSession[] linkSessions = null;
+  private AtomicInteger nextLinkSession = new AtomicInteger();
+  private PlayerListJournal playerListJournal = new PlayerListJournal();
+  private FriendIndex friendIndex = new FriendIndex();
 
-  private byte[] worldListData = null;
+  private Frame worldListFrame = null;
 
   private NodeCollection<Player> players = null;
   private NodeCollection<Player> lobbyPlayers = null;
@@ -112,8 +124,27 @@ public final class World implements Runnable {
     return time;
   }
 
-  public Pool<WorldClientSession> getWCSPool() {
-    return wcsPool;
+  /**
+   * @return One of the connections to the link server, each of which can carry any number of requests at once.
+   */
+  public WorldClientSession getLinkSession() {
+    return linkSessions[(nextLinkSession.getAndIncrement() & 0x7fffffff) % linkSessions.length];
+  }
+
+  /**
+   * @return The connection to the link server every frame about the named player goes over, so the link server gets
+   *         them in the order they were written, such as a logout save after the last auto-save.
+   */
+  public WorldClientSession getLinkSession(String name) {
+    return linkSessions[(name.hashCode() & 0x7fffffff) % linkSessions.length];
+  }
+
+  public PlayerListJournal getPlayerListJournal() {
+    return playerListJournal;
+  }
+
+  public FriendIndex getFriendIndex() {
+    return friendIndex;
   }
 
   public LoginResponse register(Player player) {
@@ -135,6 +166,7 @@ public final class World implements Runnable {
 
       logger.debug("Registered player [" + player + "]");
 
+      friendIndex.add(player);
       notifyLoginState(player);
 
       return LoginResponse.LOGIN;
@@ -179,6 +211,7 @@ public final class World implements Runnable {
       playerMap.remove(player.getProtocolName());
     }
 
+    friendIndex.remove(player);
     notifyLoginState(player);
   }
 
@@ -203,16 +236,8 @@ public final class World implements Runnable {
     Static.engine.dispatchToLinkWorker(new Runnable() {
       @Override
       public void run() {
-        WorldClientSession session = null;
-        try {
-          session = Static.world.getWCSPool().acquire();
-
-          session.sendPlayerMuteSettings(moderator, name, mute);
-        } finally {
-          if (session != null) {
-            Static.world.getWCSPool().release(session);
-          }
-        }
+        WorldClientSession session = Static.world.getLinkSession(name);
+        session.sendPlayerMuteSettings(moderator, name, mute);
       }
     });
     synchronized (playerMap) {
@@ -248,10 +273,13 @@ public final class World implements Runnable {
   }
 
   public void load() throws Throwable {
-    wcsPool = new Pool<WorldClientSession>(WorldClientSession.class, new WCSInitiator(),
-        Static.conf.getInt("link_channels"));
+    linkSessions = new WorldClientSession[Math.max(1, Static.conf.getInt("link_channels", 1))];
+    for (int i = 0; i < linkSessions.length; i++) {
+      linkSessions[i] = new WorldClientSession();
+      linkSessions[i].init();
+    }
 
-    logger.info("Pooled " + Static.conf.getInt("link_channels") + " link client(s)");
+    logger.info("Connected " + linkSessions.length + " link client(s)");
     if (Static.isGame()) {
       players = new NodeCollection<Player>(1, 2048);
       npcs = new NodeCollection<NPC>(1, 32768);
@@ -271,13 +299,26 @@ public final class World implements Runnable {
       NPCXMLDefinition.load();
       loadNPCsAndCorrespondingRegions();
 
+      Areas.load();
+      PlayerPathProcessor.registerAreaListeners();
+
       Magic.load();
       Ranged.load();
       SummoningPouch.load();
+
+      globalProcesses.put("PathMetrics", new PathMetricsTick(Static.conf.getInt("path_metrics_interval", 500)));
+
+      int regionIdleCycles = Static.conf.getInt("map_region_idle_cycles", 6000);
+      if (regionIdleCycles > 0) {
+        globalProcesses.put("RegionEviction", new RegionEvictionTick(Static.conf.getInt("map_region_eviction_interval", 100),
+            regionIdleCycles, Static.conf.getInt("map_max_resident_regions", 0)));
+      }
     }
     if (Static.isLobby()) {
       lobbyPlayers = new NodeCollection<Player>(1, 2048);
     }
+    globalProcesses.put("LinkRequests", new LinkRequestsTick(Static.conf.getInt("link_metrics_interval", 500)));
+    globalProcesses.put("LoginMetrics", new LoginMetricsTick(Static.conf.getInt("login_metrics_interval", 500)));
     Static.engine.submit(new LocalPlayerListSynchronizer());
   }
 
@@ -307,12 +348,18 @@ public final class World implements Runnable {
     return id;
   }
 
-  public byte[] getWorldListData() {
-    return worldListData;
+  /**
+   * @return The world list frame to send to clients, encoded once each time the link server sends a new list.
+   */
+  public Frame getWorldListFrame() {
+    return worldListFrame;
   }
 
   public void setWorldListData(byte[] worldListData) {
-    this.worldListData = worldListData;
+    // Sized exactly so the frame can be written to every session without being copied.
+    FrameBuilder fb = new FrameBuilder(90, Frame.FrameType.VAR_SHORT, worldListData.length + 3);
+    fb.write(worldListData);
+    this.worldListFrame = fb.toFrame();
   }
 
   public NodeCollection<Player> getPlayers() {
@@ -584,6 +631,17 @@ public final class World implements Runnable {
     entity.getPathProcessor().pathRequest = new PathRequest(pathFinder, x, y, target, moveSpeed, automated, r);
   }
 
+  /**
+   * Submits a path for an entity chasing another, which is repaired from the previous chase path when the target has
+   * barely moved and only searched for when it can not be.
+   */
+  public void submitChase(Entity entity, Entity chaseTarget, int x, int y, Locatable target, int moveSpeed,
+      boolean automated, Runnable r) {
+    PathRequest request = new PathRequest(null, x, y, target, moveSpeed, automated, r);
+    request.chaseTarget = chaseTarget;
+    entity.getPathProcessor().pathRequest = request;
+  }
+
   public NodeCollection<Player> getLobbyPlayers() {
     return lobbyPlayers;
   }
@@ -612,22 +670,9 @@ public final class World implements Runnable {
   }
 
   private void notifyLoginState(PlayerType player) {
-    if (Static.isGame()) {
-      if (players != null) {
-        for (Player p2 : players) {
-          if (p2 != player) {
-            p2.getFriends().notify(player);
-          }
-        }
-      }
-    }
-    if (Static.isLobby()) {
-      if (lobbyPlayers != null) {
-        for (Player p2 : lobbyPlayers) {
-          if (p2 != player) {
-            p2.getFriends().notify(player);
-          }
-        }
+    for (Player p2 : friendIndex.getInterested(player.getProtocolName())) {
+      if (p2 != player) {
+        p2.getFriends().sendFriend(player.getProtocolName());
       }
     }
   }
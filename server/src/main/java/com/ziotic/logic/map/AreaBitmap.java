@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+/**
+ * An area compiled into a bitmap of the tiles it covers, so a membership test is a single bit lookup.
+ * <p/>
+ * Every region the area touches gets 64 columns of 64 bits, plus a mask of the 8x8 chunks which are only partially
+ * covered. Regions which are fully covered share one bitmap and regions which are not covered at all have none.
+ *
+ * @author Lazaro
+ */
+public class AreaBitmap implements Area {
+    private static final int MIXED_CHUNKS = 64;
+
+    private static final long[] FULL = new long[MIXED_CHUNKS + 1];
+
+    static {
+        for (int i = 0; i < MIXED_CHUNKS; i++) {
+            FULL[i] = -1L;
+        }
+    }
+
+    private final String name;
+    private final int id;
+    private final RSArea source;
+
+    private final int baseRegionX, baseRegionY;
+    private final int regionWidth, regionHeight;
+    private final long[][] regions;
+
+    protected AreaBitmap(String name, int id, RSArea source) {
+        this.name = name;
+        this.id = id;
+        this.source = source;
+
+        RSArea bounds = source.getBounds();
+        baseRegionX = bounds.getStartX() >> 6;
+        baseRegionY = bounds.getStartY() >> 6;
+        regionWidth = (bounds.getEndX() >> 6) - baseRegionX + 1;
+        regionHeight = (bounds.getEndY() >> 6) - baseRegionY + 1;
+        regions = new long[regionWidth * regionHeight][];
+        for (int rx = 0; rx < regionWidth; rx++) {
+            for (int ry = 0; ry < regionHeight; ry++) {
+                regions[rx * regionHeight + ry] = compile((baseRegionX + rx) << 6, (baseRegionY + ry) << 6);
+            }
+        }
+    }
+
+    private long[] compile(int baseX, int baseY) {
+        long[] bits = new long[MIXED_CHUNKS + 1];
+        boolean empty = true, full = true;
+        for (int x = 0; x < 64; x++) {
+            long column = 0;
+            for (int y = 0; y < 64; y++) {
+                if (source.inArea(new Tile(baseX + x, baseY + y, 0))) {
+                    column |= 1L << y;
+                }
+            }
+            bits[x] = column;
+            empty &= column == 0;
+            full &= column == -1L;
+        }
+        if (empty) {
+            return null;
+        }
+        if (full) {
+            return FULL;
+        }
+        long mixed = 0;
+        for (int chunkX = 0; chunkX < 8; chunkX++) {
+            for (int chunkY = 0; chunkY < 8; chunkY++) {
+                int first = (int) (bits[chunkX << 3] >>> (chunkY << 3)) & 0xff;
+                if (first != 0 && first != 0xff) {
+                    mixed |= 1L << (chunkX << 3 | chunkY);
+                    continue;
+                }
+                for (int x = 1; x < 8; x++) {
+                    if (((int) (bits[chunkX << 3 | x] >>> (chunkY << 3)) & 0xff) != first) {
+                        mixed |= 1L << (chunkX << 3 | chunkY);
+                        break;
+                    }
+                }
+            }
+        }
+        bits[MIXED_CHUNKS] = mixed;
+        return bits;
+    }
+
+    private long[] getRegion(int x, int y) {
+        int rx = (x >> 6) - baseRegionX;
+        int ry = (y >> 6) - baseRegionY;
+        if (rx < 0 || ry < 0 || rx >= regionWidth || ry >= regionHeight) {
+            return null;
+        }
+        return regions[rx * regionHeight + ry];
+    }
+
+    @Override
+    public boolean inArea(Tile tile) {
+        return contains(tile.getX(), tile.getY());
+    }
+
+    public boolean contains(int x, int y) {
+        long[] bits = getRegion(x, y);
+        return bits != null && ((bits[x & 63] >>> (y & 63)) & 1L) != 0;
+    }
+
+    /**
+     * @return If the chunk containing the given tile is only partially covered by this area.
+     */
+    public boolean isMixedChunk(int x, int y) {
+        long[] bits = getRegion(x, y);
+        return bits != null && ((bits[MIXED_CHUNKS] >>> (((x & 63) >> 3) << 3 | ((y & 63) >> 3))) & 1L) != 0;
+    }
+
+    /**
+     * Compares every tile around this area against the area it was compiled from.
+     *
+     * @return The amount of tiles or chunks which do not match.
+     */
+    public int verify() {
+        RSArea bounds = source.getBounds();
+        int minX = bounds.getStartX() - 8, minY = bounds.getStartY() - 8;
+        int maxX = bounds.getEndX() + 8, maxY = bounds.getEndY() + 8;
+        int mismatches = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                if (contains(x, y) != source.inArea(new Tile(x, y, 0))) {
+                    mismatches++;
+                }
+            }
+        }
+        for (int chunkX = minX >> 3; chunkX <= maxX >> 3; chunkX++) {
+            for (int chunkY = minY >> 3; chunkY <= maxY >> 3; chunkY++) {
+                int x = chunkX << 3, y = chunkY << 3;
+                if (isMixedChunk(x, y)) {
+                    continue;
+                }
+                boolean first = contains(x, y);
+                for (int i = 0; i < 64; i++) {
+                    if (contains(x + (i >> 3), y + (i & 7)) != first) {
+                        mismatches++;
+                        break;
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public RSArea getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ziotic.logic.player.Player;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The named areas of the world, compiled into bitmaps when they are registered.
+ * <p/>
+ * Every area is given a bit of the membership mask tracked for each player, so moving between areas is found by
+ * comparing two masks rather than testing every area on every step.
+ *
+ * @author Lazaro
+ */
+public final class AreaRegistry {
+    private static final Logger logger = Logging.log();
+
+    public static final int MAX_AREAS = 32;
+
+    private static final AreaBitmap[] areas = new AreaBitmap[MAX_AREAS];
+    private static final AreaListener[][] listeners = new AreaListener[MAX_AREAS][];
+    private static final Map<String, AreaBitmap> names = new HashMap<String, AreaBitmap>();
+
+    private static int areaCount = 0;
+
+    public static synchronized AreaBitmap register(String name, RSArea source) {
+        if (names.containsKey(name)) {
+            throw new IllegalArgumentException("Area already registered [name=" + name + "]");
+        }
+        if (areaCount == MAX_AREAS) {
+            throw new IllegalStateException("Too many areas registered [name=" + name + "]");
+        }
+        AreaBitmap area = new AreaBitmap(name, areaCount, source);
+        areas[areaCount] = area;
+        listeners[areaCount] = new AreaListener[0];
+        names.put(name, area);
+        areaCount++;
+        return area;
+    }
+
+    public static synchronized AreaBitmap forName(String name) {
+        return names.get(name);
+    }
+
+    public static synchronized void addListener(AreaBitmap area, AreaListener listener) {
+        AreaListener[] previous = listeners[area.getId()];
+        AreaListener[] current = new AreaListener[previous.length + 1];
+        System.arraycopy(previous, 0, current, 0, previous.length);
+        current[previous.length] = listener;
+        listeners[area.getId()] = current;
+    }
+
+    /**
+     * @return A mask with the bit of every area containing the given tile set.
+     */
+    public static int getMembership(int x, int y) {
+        int mask = 0;
+        for (int i = 0; i < areaCount; i++) {
+            if (areas[i].contains(x, y)) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return If any area only partially covers the chunk containing the given tile.
+     */
+    public static boolean isMixedChunk(int x, int y) {
+        for (int i = 0; i < areaCount; i++) {
+            if (areas[i].isMixedChunk(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void dispatch(Player player, int previous, int current) {
+        int changed = previous ^ current;
+        for (int i = 0; changed != 0; i++, changed >>>= 1) {
+            if ((changed & 1) == 0) {
+                continue;
+            }
+            boolean entered = (current & (1 << i)) != 0;
+            for (AreaListener listener : listeners[i]) {
+                try {
+                    if (entered) {
+                        listener.onEnter(player);
+                    } else {
+                        listener.onExit(player);
+                    }
+                } catch (Throwable t) {
+                    logger.error("Error handling area transition [area=" + areas[i].getName() + ", player=" + player + "]", t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks every registered area against the area it was compiled from.
+     *
+     * @return If all areas matched.
+     */
+    public static boolean verify() {
+        boolean consistent = true;
+        for (int i = 0; i < areaCount; i++) {
+            int mismatches = areas[i].verify();
+            if (mismatches > 0) {
+                logger.error("Area bitmap does not match its source [area=" + areas[i].getName() + ", mismatches=" + mismatches + "]");
+                consistent = false;
+            }
+        }
+        return consistent;
+    }
+
+    public static int getAreaCount() {
+        return areaCount;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import com.ziotic.logic.player.Player;
+
+/**
+ * Tracks which registered areas a player is in.
+ * <p/>
+ * The areas are only tested again once the player moves into another chunk, or while the player is inside a chunk
+ * which is partially covered by an area.
+ *
+ * @author Lazaro
+ */
+public class AreaTracker {
+    private final Player player;
+
+    private int membership = 0;
+    private int chunk = -1;
+    private boolean mixedChunk = false;
+
+    public AreaTracker(Player player) {
+        this.player = player;
+    }
+
+    public void update(Tile location) {
+        int x = location.getX(), y = location.getY();
+        int chunk = (x >> 3) << 16 | (y >> 3);
+        if (chunk == this.chunk && !mixedChunk) {
+            return;
+        }
+        this.chunk = chunk;
+        mixedChunk = AreaRegistry.isMixedChunk(x, y);
+
+        int membership = AreaRegistry.getMembership(x, y);
+        if (membership != this.membership) {
+            int previous = this.membership;
+            this.membership = membership;
+            AreaRegistry.dispatch(player, previous, membership);
+        }
+    }
+
+    public boolean isIn(AreaBitmap area) {
+        return (membership & (1 << area.getId())) != 0;
+    }
+
+    public int getMembership() {
+        return membership;
+    }
+}
@@ -21,7 +21,12 @@
  */
 package com.ziotic.logic.map;
 
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
 public class Areas {
+    private static final Logger logger = Logging.log();
 
     public Areas() {
     }
@@ -29,7 +34,7 @@ public class Areas {
     /**
      * Gamer's grotto
      */
-    public static Area GROTTO = RSArea.forBounds(2981, 9666, 3004, 9693);
+    public static final RSArea GROTTO = RSArea.forBounds(2981, 9666, 3004, 9693);
 
     public static final RSArea HIGH_LVL_WILD_STAIRS = RSArea.forBounds(3014, 10306, 3058, 10349);
     public static final RSArea WILDERNESS = RSArea.forBounds(2944, 3525, 3394, 3999).include(HIGH_LVL_WILD_STAIRS);
@@ -37,6 +42,19 @@ public class Areas {
     public static final RSArea MULTI = RSArea.forBounds(2944, 3525, 3394, 3712).exclude(RSArea.forBounds(2944, 3525, 3005, 3643))
             .exclude(RSArea.forBounds(3005, 3525, 3071, 3597)).exclude(RSArea.forBounds(3071, 3525, 3135, 3605));
 
+    public static final AreaBitmap GROTTO_BITMAP = AreaRegistry.register("grotto", GROTTO);
+    public static final AreaBitmap HIGH_LVL_WILD_STAIRS_BITMAP = AreaRegistry.register("high_level_wilderness_stairs", HIGH_LVL_WILD_STAIRS);
+    public static final AreaBitmap WILDERNESS_BITMAP = AreaRegistry.register("wilderness", WILDERNESS);
+    public static final AreaBitmap MULTI_BITMAP = AreaRegistry.register("multi", MULTI);
+
 //    public static final RSArea MULTI2 = RSArea.forBounds(3135, 3525, 3394, 3605);
 
+    /**
+     * Compiles the areas and checks the bitmaps against the areas they were compiled from.
+     */
+    public static void load() {
+        if (AreaRegistry.verify()) {
+            logger.info("Compiled " + AreaRegistry.getAreaCount() + " area(s)");
+        }
+    }
 }
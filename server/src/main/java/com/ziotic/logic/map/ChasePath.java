@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import java.util.List;
+
+import com.ziotic.logic.Entity;
+import com.ziotic.logic.map.pf.ObjectReach;
+import com.ziotic.logic.map.pf.Steps;
+
+/**
+ * Remembers the last path an entity took to chase another, so when the target has only moved a tile or two the path
+ * can be repaired at its end instead of searched for again.
+ *
+ * @author Lazaro
+ */
+public class ChasePath {
+    /**
+     * The furthest the destination may move for the path to be repaired, and the most steps a repair may add.
+     */
+    private static final int MAX_REPAIR_STEPS = 2;
+
+    private final Entity entity;
+
+    private Entity target = null;
+    private Tile goal = null;
+    private Tile end = null;
+
+    /**
+     * The amount of tiles at the end of the path kept by the last repair.
+     */
+    private int kept = 0;
+
+    public ChasePath(Entity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Remembers where a chase path ends, once it has been applied.
+     */
+    void update(Entity target, Tile goal, Tile end) {
+        this.target = target;
+        this.goal = goal;
+        this.end = end;
+    }
+
+    void clear() {
+        target = null;
+        goal = null;
+        end = null;
+    }
+
+    int getKept() {
+        return kept;
+    }
+
+    /**
+     * Repairs the remaining path to lead to a new destination.
+     *
+     * @param request   The chase request.
+     * @param goal      The new destination.
+     * @param remaining The tiles of the current path which have not been walked to yet.
+     * @return The repaired path, of which the first {@link #getKept()} tiles are unchanged, or <code>null</code> if the
+     *         path could not be repaired.
+     */
+    List<Tile> repair(PathRequest request, Tile goal, List<Tile> remaining) {
+        if (target == null || request.chaseTarget != target || entity.getSize() > 1) {
+            return null;
+        }
+        if (goal.getZ() != this.goal.getZ() || goal.distance(this.goal) > MAX_REPAIR_STEPS) {
+            return null;
+        }
+        Tile location = entity.getLocation();
+        Tile start = remaining.isEmpty() ? location : remaining.get(remaining.size() - 1);
+        if (!start.equals(end)) {
+            return null;
+        }
+        boolean entityTarget = request.target instanceof Entity;
+
+        kept = remaining.size();
+        if (reached(start, goal, entityTarget)) {
+            return remaining;
+        }
+
+        // The target came closer, walk back along the last straight part of the path.
+        Tile previous = remaining.size() > 1 ? remaining.get(remaining.size() - 2) : location;
+        int backX = Integer.signum(previous.getX() - start.getX());
+        int backY = Integer.signum(previous.getY() - start.getY());
+        Tile current = start;
+        for (int i = 0; i < MAX_REPAIR_STEPS && !current.equals(previous); i++) {
+            current = Tile.locate(current.getX() + backX, current.getY() + backY, current.getZ());
+            if (reached(current, goal, entityTarget)) {
+                kept = remaining.size() - 1;
+                remaining.remove(kept);
+                if (!current.equals(previous)) {
+                    remaining.add(current);
+                }
+                return remaining;
+            }
+        }
+
+        // The target moved away, step on from the end of the path.
+        current = start;
+        for (int i = 0; i < MAX_REPAIR_STEPS; i++) {
+            Tile next = step(current, Integer.signum(goal.getX() - current.getX()), Integer.signum(goal.getY() - current.getY()));
+            if (next == null) {
+                return null;
+            }
+            remaining.add(next);
+            current = next;
+            if (reached(current, goal, entityTarget)) {
+                return remaining;
+            }
+        }
+        return null;
+    }
+
+    private boolean reached(Tile tile, Tile goal, boolean entityTarget) {
+        if (entityTarget) {
+            return ObjectReach.reachedRectangle(goal.getX(), goal.getY(), tile.getX(), tile.getY(), clipping(tile.getX(), tile.getY()), 1, 1, 0x80000000);
+        }
+        return tile.equals(goal);
+    }
+
+    /**
+     * Takes a step towards a direction, sliding along an axis if the diagonal is blocked.
+     */
+    private Tile step(Tile from, int dx, int dy) {
+        if (dx == 0 && dy == 0) {
+            return null;
+        }
+        if (canStep(from.getX(), from.getY(), dx, dy)) {
+            return Tile.locate(from.getX() + dx, from.getY() + dy, from.getZ());
+        }
+        if (dx != 0 && dy != 0) {
+            if (canStep(from.getX(), from.getY(), dx, 0)) {
+                return Tile.locate(from.getX() + dx, from.getY(), from.getZ());
+            }
+            if (canStep(from.getX(), from.getY(), 0, dy)) {
+                return Tile.locate(from.getX(), from.getY() + dy, from.getZ());
+            }
+        }
+        return null;
+    }
+
+    private boolean canStep(int x, int y, int dx, int dy) {
+        return !entity.isClipping() || Steps.canStep(entity.getInstance(), x, y, entity.getZ(), dx, dy);
+    }
+
+    private int clipping(int x, int y) {
+        return Region.getAbsoluteClipping(entity.getInstance(), x, y, entity.getZ());
+    }
+}
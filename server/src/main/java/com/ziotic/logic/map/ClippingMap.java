@@ -19,16 +19,15 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-package com.ziotic.link;
-
-import com.ziotic.utility.Initiator;
+package com.ziotic.logic.map;
 
 /**
+ * A surface which objects can place clipping flags on.
+ *
  * @author Lazaro
  */
-public class WCSInitiator implements Initiator<WorldClientSession> {
-    @Override
-    public void init(WorldClientSession session) throws Exception {
-        session.init();
-    }
+public interface ClippingMap {
+    public void clip(int x, int y, int z, int flags);
+
+    public void unClip(int x, int y, int z, int flags);
 }
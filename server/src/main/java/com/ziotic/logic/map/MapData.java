@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+/**
+ * Raw, already extracted landscape and object data for a single region.
+ * <p/>
+ * Instances are produced by {@link MapLoader#decodeMap(int, int)} and may be created on any thread, but they are only
+ * applied to a {@link Region} on the thread that owns the map.
+ *
+ * @author Lazaro
+ */
+public final class MapData {
+    private final int x;
+    private final int y;
+    private final byte[] landscape;
+    private final byte[] objects;
+    private final boolean cached;
+    private final boolean failed;
+
+    public MapData(int x, int y, byte[] landscape, byte[] objects, boolean cached, boolean failed) {
+        this.x = x;
+        this.y = y;
+        this.landscape = landscape;
+        this.objects = objects;
+        this.cached = cached;
+        this.failed = failed;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public byte[] getLandscape() {
+        return landscape;
+    }
+
+    public byte[] getObjects() {
+        return objects;
+    }
+
+    /**
+     * @return If this data was read from the server cache, in which case it does not need to be written back.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return If the object map could not be decrypted, usually due to a missing or wrong XTEA key.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ziotic.logic.object.GameObject;
+import com.ziotic.logic.object.ObjectDefinition;
+
+/**
+ * A copy-on-write view of the live map.
+ * <p/>
+ * An instance reads the clipping and objects of the underlying regions and only stores the tiles it changed, so
+ * creating and destroying one costs as much as the changes made in it rather than the area it covers.
+ * <p/>
+ * Entities are placed in an instance through {@link com.ziotic.logic.Entity#setInstance(MapInstance)}, the path finder
+ * and object manager then resolve their lookups through it.
+ *
+ * @author Lazaro
+ */
+public final class MapInstance implements ClippingMap {
+    private static int nextId = 1;
+
+    private static final class Cell {
+        private int added = 0;
+        private int removed = 0;
+
+        private boolean objectReplaced = false;
+        private GameObject object = null;
+
+        private boolean wallReplaced = false;
+        private GameObject wall = null;
+    }
+
+    private final int id;
+    private final Map<Integer, Cell> cells = new HashMap<Integer, Cell>();
+    private final Map<Integer, GameObject> spawnedObjects = new HashMap<Integer, GameObject>();
+
+    private boolean destroyed = false;
+
+    public MapInstance() {
+        synchronized (MapInstance.class) {
+            id = nextId++;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    private static int hash(int x, int y, int z) {
+        return z << 28 | x << 14 | y;
+    }
+
+    private Cell cell(int x, int y, int z) {
+        int hash = hash(x, y, z);
+        Cell cell = cells.get(hash);
+        if (cell == null) {
+            cells.put(hash, cell = new Cell());
+        }
+        return cell;
+    }
+
+    public int getClipping(int x, int y, int z) {
+        int clipping = Region.getAbsoluteClipping(x, y, z);
+        Cell cell = cells.get(hash(x, y, z));
+        if (cell == null) {
+            return clipping;
+        }
+        return (clipping | cell.added) & ~cell.removed;
+    }
+
+    public GameObject getObject(int x, int y, int z) {
+        Cell cell = cells.get(hash(x, y, z));
+        if (cell != null && cell.objectReplaced) {
+            return cell.object;
+        }
+        return Region.getObject(Tile.locate(x, y, z));
+    }
+
+    public GameObject getWallObject(int x, int y, int z) {
+        Cell cell = cells.get(hash(x, y, z));
+        if (cell != null && cell.wallReplaced) {
+            return cell.wall;
+        }
+        return Region.getWallObject(Tile.locate(x, y, z));
+    }
+
+    @Override
+    public void clip(int x, int y, int z, int flags) {
+        Cell cell = cell(x, y, z);
+        cell.added |= flags;
+        cell.removed &= ~flags;
+    }
+
+    @Override
+    public void unClip(int x, int y, int z, int flags) {
+        Cell cell = cell(x, y, z);
+        cell.removed |= flags;
+        cell.added &= ~flags;
+    }
+
+    /**
+     * Places an object in this instance, replacing whatever object was on the tile.
+     *
+     * @return The placed object, or <code>null</code> if the object does not exist.
+     */
+    public GameObject addObject(int objectId, int x, int y, int z, int type, int direction) {
+        ObjectDefinition def = ObjectDefinition.forId(objectId);
+        if (def == null) {
+            return null;
+        }
+        removeObject(x, y, z);
+
+        int sizeX;
+        int sizeY;
+        if (direction != 1 && direction != 3) {
+            sizeX = def.sizeX;
+            sizeY = def.sizeY;
+        } else {
+            sizeX = def.sizeY;
+            sizeY = def.sizeX;
+        }
+        // Not flagged as spawned, so the object is kept off the live tile which all instances share.
+        GameObject obj = new GameObject(objectId, Tile.locate(x, y, z), type, direction, sizeX, sizeY);
+        ObjectClipping.clipObject(this, def, x, y, z, type, direction, false);
+
+        Cell cell = cell(x, y, z);
+        cell.objectReplaced = true;
+        cell.object = obj;
+        if (type >= 0 && type <= 3 && def.actionCount != 0) {
+            cell.wallReplaced = true;
+            cell.wall = obj;
+        }
+        spawnedObjects.put(hash(x, y, z), obj);
+        return obj;
+    }
+
+    /**
+     * Removes the object on a tile from this instance.
+     *
+     * @return The removed object, or <code>null</code> if there was none.
+     */
+    public GameObject removeObject(int x, int y, int z) {
+        GameObject oldObj = getObject(x, y, z);
+        GameObject wall = getWallObject(x, y, z);
+        Cell cell = cell(x, y, z);
+        if (wall != null && wall != oldObj) {
+            // The wall is no longer the object on record once another object was placed on its tile.
+            ObjectClipping.clipObject(this, wall.getDefinition(), x, y, z, wall.getType(), wall.getDirection(), true);
+        }
+        if (oldObj != null) {
+            ObjectClipping.clipObject(this, oldObj.getDefinition(), x, y, z, oldObj.getType(), oldObj.getDirection(), true);
+        } else {
+            oldObj = wall;
+        }
+        if (oldObj != null) {
+            oldObj = new GameObject(-1, oldObj.getLocation(), oldObj.getType(), oldObj.getDirection(), oldObj.getSizeX(), oldObj.getSizeY());
+            spawnedObjects.put(hash(x, y, z), oldObj);
+        }
+        cell.objectReplaced = true;
+        cell.object = null;
+        cell.wallReplaced = true;
+        cell.wall = null;
+        return oldObj;
+    }
+
+    /**
+     * Removes an object from this instance, undoing its clipping from its definition and rotation the way
+     * {@link #addObject(int, int, int, int, int, int)} applied it, whether or not it is the object on record for the
+     * tile.
+     *
+     * @return The removed object, or <code>null</code> if the object does not exist.
+     */
+    public GameObject removeObject(int objectId, int x, int y, int z, int type, int direction) {
+        ObjectDefinition def = ObjectDefinition.forId(objectId);
+        if (def == null) {
+            return null;
+        }
+        ObjectClipping.clipObject(this, def, x, y, z, type, direction, true);
+
+        int sizeX;
+        int sizeY;
+        if (direction != 1 && direction != 3) {
+            sizeX = def.sizeX;
+            sizeY = def.sizeY;
+        } else {
+            sizeX = def.sizeY;
+            sizeY = def.sizeX;
+        }
+        Cell cell = cell(x, y, z);
+        GameObject current = getObject(x, y, z);
+        if (current == null || current.getId() == objectId) {
+            cell.objectReplaced = true;
+            cell.object = null;
+        }
+        if (type >= 0 && type <= 3) {
+            cell.wallReplaced = true;
+            cell.wall = null;
+        }
+        GameObject obj = new GameObject(-1, Tile.locate(x, y, z), type, direction, sizeX, sizeY);
+        spawnedObjects.put(hash(x, y, z), obj);
+        return obj;
+    }
+
+    /**
+     * @return The objects placed or removed in this instance, removed objects have an id of -1.
+     */
+    public Collection<GameObject> getSpawnedObjects() {
+        return spawnedObjects.values();
+    }
+
+    public List<GameObject> getSpawnedObjects(Tile center, int depth) {
+        List<GameObject> objects = new ArrayList<GameObject>();
+        for (GameObject obj : spawnedObjects.values()) {
+            if (obj.getZ() == center.getZ() && center.withinRange(obj.getLocation(), depth)) {
+                objects.add(obj);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * @return The amount of tiles this instance differs from the live map on.
+     */
+    public int getChangeCount() {
+        return cells.size();
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Discards every change made in this instance, entities still placed in it should be moved out by the content
+     * owning it.
+     */
+    public void destroy() {
+        destroyed = true;
+        cells.clear();
+        spawnedObjects.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "MapInstance[id=" + id + ", changes=" + cells.size() + "]";
+    }
+}
@@ -26,4 +26,16 @@ package com.ziotic.logic.map;
  */
 public interface MapLoader {
     public boolean loadMap(Region region, int x, int y);
+
+    public boolean loadMap(Region region, MapData data);
+
+    /**
+     * Reads and extracts the map files for a region without touching any region state, this is safe to call from
+     * multiple threads at once.
+     *
+     * @return The decoded data, or <code>null</code> if the region has no map files.
+     */
+    public MapData decodeMap(int x, int y);
+
+    public boolean hasMap(int x, int y);
 }
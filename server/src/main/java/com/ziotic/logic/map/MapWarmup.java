@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.ziotic.utility.Logging;
+import com.ziotic.utility.ManipulativeThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Decodes every region of the map ahead of time so that the first players to walk around after a restart do not pay
+ * for it.
+ * <p/>
+ * Reading and extracting the map files is done in parallel, while the decoded data is applied to the regions on the
+ * calling thread since regions clip into their neighbours and are not thread safe.
+ *
+ * @author Lazaro
+ */
+public final class MapWarmup {
+    private static final Logger logger = Logging.log();
+
+    /**
+     * The amount of decoded regions allowed to wait for the applying thread, per decoding thread.
+     */
+    private static final int BACKLOG_PER_THREAD = 4;
+
+    private final int threads;
+    private final long budget;
+
+    private final Map<String, List<Region>> failures = new TreeMap<String, List<Region>>();
+
+    /**
+     * @param threads The amount of threads decoding map files.
+     * @param budget  The time in milliseconds after which the remaining regions are left to be loaded lazily.
+     */
+    public MapWarmup(int threads, long budget) {
+        this.threads = threads;
+        this.budget = budget;
+    }
+
+    public void run() {
+        List<Region> regions = collectRegions();
+        if (regions.isEmpty()) {
+            return;
+        }
+        logger.info("Warming up " + regions.size() + " map region(s) on " + threads + " thread(s)");
+
+        ExecutorService decoder = Executors.newFixedThreadPool(threads, new ManipulativeThreadFactory("map-warmup", Thread.NORM_PRIORITY));
+        CompletionService<Result> completion = new ExecutorCompletionService<Result>(decoder);
+
+        long start = System.currentTimeMillis();
+        long deadline = start + budget;
+
+        Iterator<Region> it = regions.iterator();
+        int inFlight = 0;
+        int done = 0;
+        int loaded = 0;
+        int lastProgress = 0;
+        boolean expired = false;
+        try {
+            while (it.hasNext() || inFlight > 0) {
+                while (it.hasNext() && inFlight < threads * BACKLOG_PER_THREAD) {
+                    completion.submit(new Decode(it.next()));
+                    inFlight++;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                Future<Result> future = remaining > 0 ? completion.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (future == null) {
+                    expired = true;
+                    break;
+                }
+                inFlight--;
+                done++;
+
+                if (apply(future.get())) {
+                    loaded++;
+                }
+
+                int progress = done * 10 / regions.size();
+                if (progress != lastProgress) {
+                    lastProgress = progress;
+                    logger.info("Map warm-up " + (progress * 10) + "% complete [" + done + "/" + regions.size() + "]");
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Map warm-up was interrupted!");
+        } catch (ExecutionException e) {
+            logger.error("Map warm-up failed!", e);
+        } finally {
+            decoder.shutdownNow();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (expired) {
+            logger.warn("Map warm-up ran out of time, " + (regions.size() - done) + " region(s) will be loaded on demand");
+        }
+        logger.info("Warmed up " + loaded + " map region(s) in " + elapsed + "ms");
+        summariseFailures();
+    }
+
+    private List<Region> collectRegions() {
+        MapLoader loader = Region.getMapLoader();
+        List<Region> regions = new ArrayList<Region>();
+        for (int x = 0; x <= Region.MAX_MAP_X >> 6; x++) {
+            for (int y = 0; y <= Region.MAX_MAP_Y >> 6; y++) {
+                if (loader.hasMap(x, y)) {
+                    Region region = Region.forRegionCoordinates(x, y);
+                    if (!region.isLoaded()) {
+                        regions.add(region);
+                    }
+                }
+            }
+        }
+        return regions;
+    }
+
+    private boolean apply(Result result) {
+        if (result.error != null) {
+            fail(result.region, result.error);
+            return false;
+        }
+        if (result.data == null) {
+            fail(result.region, "No map files found");
+            return false;
+        }
+        try {
+            if (!result.region.load(result.data)) {
+                fail(result.region, "Object map could not be decrypted");
+                return false;
+            }
+            return true;
+        } catch (Throwable e) {
+            fail(result.region, e);
+            return false;
+        }
+    }
+
+    private void fail(Region region, Throwable e) {
+        fail(region, e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
+    }
+
+    private void fail(Region region, String reason) {
+        List<Region> regions = failures.get(reason);
+        if (regions == null) {
+            failures.put(reason, regions = new ArrayList<Region>());
+        }
+        regions.add(region);
+    }
+
+    private void summariseFailures() {
+        for (Map.Entry<String, List<Region>> entry : failures.entrySet()) {
+            List<Region> regions = entry.getValue();
+            StringBuilder examples = new StringBuilder();
+            for (int i = 0; i < regions.size() && i < 5; i++) {
+                Region r = regions.get(i);
+                examples.append(i == 0 ? "" : ", ").append("[x=").append(r.getX()).append(", y=").append(r.getY()).append("]");
+            }
+            logger.warn(regions.size() + " map region(s) failed to load (" + entry.getKey() + "), e.g. " + examples);
+        }
+    }
+
+    private static final class Result {
+        private final Region region;
+        private final MapData data;
+        private final Throwable error;
+
+        private Result(Region region, MapData data, Throwable error) {
+            this.region = region;
+            this.data = data;
+            this.error = error;
+        }
+    }
+
+    private static final class Decode implements Callable<Result> {
+        private final Region region;
+
+        private Decode(Region region) {
+            this.region = region;
+        }
+
+        @Override
+        public Result call() {
+            try {
+                return new Result(region, Region.getMapLoader().decodeMap(region.getX(), region.getY()), null);
+            } catch (Throwable e) {
+                return new Result(region, null, e);
+            }
+        }
+    }
+}
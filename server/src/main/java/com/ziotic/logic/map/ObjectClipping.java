@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import com.ziotic.logic.object.ObjectDefinition;
+
+/**
+ * The clipping flags objects place on the tiles they cover, shared by the live map and any overlay on top of it.
+ *
+ * @author Lazaro
+ */
+public final class ObjectClipping {
+    public static final int FLOOR_DECORATION = 0x200000;
+
+    /**
+     * Places or removes the clipping of an object following the same rules the map loader uses.
+     *
+     * @return If the object clips at all.
+     */
+    public static boolean clipObject(ClippingMap map, ObjectDefinition def, int x, int y, int z, int type, int direction, boolean remove) {
+        if (type == 22) {
+            if (def.actionCount == 1) {
+                mark(map, remove, x, y, z, FLOOR_DECORATION);
+                return true;
+            }
+        } else if (type >= 9 && type <= 11) {
+            if (def.actionCount != 0) {
+                int sizeX;
+                int sizeY;
+                if (direction != 1 && direction != 3) {
+                    sizeX = def.sizeX;
+                    sizeY = def.sizeY;
+                } else {
+                    sizeX = def.sizeY;
+                    sizeY = def.sizeX;
+                }
+                clipSolidObject(map, x, y, z, sizeX, sizeY, def.walkable, !def.clippingFlag, remove);
+                return true;
+            }
+        } else if (type >= 0 && type <= 3) {
+            if (def.actionCount != 0) {
+                clipVariableObject(map, x, y, z, type, direction, def.walkable, !def.clippingFlag, remove);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void clipSolidObject(ClippingMap map, int x, int y, int z, int sizeX, int sizeY, boolean flag, boolean flag2, boolean remove) {
+        int flags = 256;
+        if (flag) {
+            flags |= 0x20000;
+        }
+        if (flag2) {
+            flags |= 0x40000000;
+        }
+
+        int maxX = x + sizeX;
+        int maxY = y + sizeY;
+
+        for (int x2 = x; x2 < maxX; x2++) {
+            for (int y2 = y; y2 < maxY; y2++) {
+                mark(map, remove, x2, y2, z, flags);
+            }
+        }
+    }
+
+    public static void clipVariableObject(ClippingMap map, int x, int y, int z, int type, int direction, boolean flag, boolean flag2, boolean remove) {
+        if (type == 0) {
+            if (direction == 0) {
+                mark(map, remove, x, y, z, 128);
+                mark(map, remove, x - 1, y, z, 8);
+            } else if (direction == 1) {
+                mark(map, remove, x, y, z, 2);
+                mark(map, remove, x, y + 1, z, 32);
+            } else if (direction == 2) {
+                mark(map, remove, x, y, z, 8);
+                mark(map, remove, x + 1, y, z, 128);
+            } else if (direction == 3) {
+                mark(map, remove, x, y, z, 32);
+                mark(map, remove, x, y - 1, z, 2);
+            }
+        } else if (type == 1 || type == 3) {
+            if (direction == 0) {
+                mark(map, remove, x, y, z, 1);
+                mark(map, remove, x - 1, y, z, 16);
+            } else if (direction == 1) {
+                mark(map, remove, x, y, z, 4);
+                mark(map, remove, x + 1, y + 1, z, 64);
+            } else if (direction == 2) {
+                mark(map, remove, x, y, z, 16);
+                mark(map, remove, x + 1, y - 1, z, 1);
+            } else if (direction == 3) {
+                mark(map, remove, x, y, z, 64);
+                mark(map, remove, x - 1, y - 1, z, 4);
+            }
+        } else if (type == 2) {
+            if (direction == 0) {
+                mark(map, remove, x, y, z, 130);
+                mark(map, remove, x - 1, y, z, 8);
+                mark(map, remove, x, y + 1, z, 32);
+            } else if (direction == 1) {
+                mark(map, remove, x, y, z, 10);
+                mark(map, remove, x, y + 1, z, 32);
+                mark(map, remove, x + 1, y, z, 128);
+            } else if (direction == 2) {
+                mark(map, remove, x, y, z, 40);
+                mark(map, remove, x + 1, y, z, 128);
+                mark(map, remove, x, y - 1, z, 2);
+            } else if (direction == 3) {
+                mark(map, remove, x, y, z, 160);
+                mark(map, remove, x, y - 1, z, 2);
+                mark(map, remove, x - 1, y, z, 8);
+            }
+        }
+        if (flag) {
+            if (type == 0) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 65536);
+                    mark(map, remove, x - 1, y, z, 4096);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 1024);
+                    mark(map, remove, x, y + 1, z, 16384);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 4096);
+                    mark(map, remove, x + 1, y, z, 65536);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 16384);
+                    mark(map, remove, x, y - 1, z, 1024);
+                }
+            }
+            if (type == 1 || type == 3) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 512);
+                    mark(map, remove, x - 1, y + 1, z, 8192);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 2048);
+                    mark(map, remove, x + 1, y + 1, z, 32768);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 8192);
+                    mark(map, remove, x + 1, y + 1, z, 512);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 32768);
+                    mark(map, remove, x - 1, y - 1, z, 2048);
+                }
+            } else if (type == 2) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 66560);
+                    mark(map, remove, x - 1, y, z, 4096);
+                    mark(map, remove, x, y + 1, z, 16384);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 5120);
+                    mark(map, remove, x, y + 1, z, 16384);
+                    mark(map, remove, x + 1, y, z, 65536);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 20480);
+                    mark(map, remove, x + 1, y, z, 65536);
+                    mark(map, remove, x, y - 1, z, 1024);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 81920);
+                    mark(map, remove, x, y - 1, z, 1024);
+                    mark(map, remove, x - 1, y, z, 4096);
+                }
+            }
+        }
+        if (flag2) {
+            if (type == 0) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 536870912);
+                    mark(map, remove, x - 1, y, z, 33554432);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 8388608);
+                    mark(map, remove, x, y + 1, z, 134217728);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 33554432);
+                    mark(map, remove, x + 1, y, z, 536870912);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 134217728);
+                    mark(map, remove, x, y - 1, z, 8388608);
+                }
+            }
+            if (type == 1 || type == 3) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 4194304);
+                    mark(map, remove, x - 1, y + 1, z, 67108864);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 16777216);
+                    mark(map, remove, x + 1, y + 1, z, 268435456);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 67108864);
+                    mark(map, remove, x + 1, y + 1, z, 4194304);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 268435456);
+                    mark(map, remove, x - 1, y - 1, z, 16777216);
+                }
+            } else if (type == 2) {
+                if (direction == 0) {
+                    mark(map, remove, x, y, z, 545259520);
+                    mark(map, remove, x - 1, y, z, 33554432);
+                    mark(map, remove, x, y + 1, z, 134217728);
+                } else if (direction == 1) {
+                    mark(map, remove, x, y, z, 41943040);
+                    mark(map, remove, x, y + 1, z, 134217728);
+                    mark(map, remove, x + 1, y, z, 536870912);
+                } else if (direction == 2) {
+                    mark(map, remove, x, y, z, 167772160);
+                    mark(map, remove, x + 1, y, z, 536870912);
+                    mark(map, remove, x, y - 1, z, 8388608);
+                } else if (direction == 3) {
+                    mark(map, remove, x, y, z, 671088640);
+                    mark(map, remove, x, y - 1, z, 8388608);
+                    mark(map, remove, x - 1, y, z, 33554432);
+                }
+            }
+        }
+    }
+
+    private static void mark(ClippingMap map, boolean remove, int x, int y, int z, int flags) {
+        if (remove) {
+            map.unClip(x, y, z, flags);
+        } else {
+            map.clip(x, y, z, flags);
+        }
+    }
+}
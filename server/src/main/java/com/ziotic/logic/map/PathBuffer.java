@@ -21,7 +21,9 @@
  */
 package com.ziotic.logic.map;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * @author Lazaro
@@ -107,6 +109,28 @@ public class PathBuffer implements Iterable<Tile> {
         return true;
     }
 
+    /**
+     * Removes the last tile which has not been walked to yet.
+     */
+    public void removeLast() {
+        if (remaining() <= 0 || addPos <= markedPosition) {
+            return;
+        }
+        path[--addPos] = null;
+        size--;
+    }
+
+    /**
+     * @return The tiles which have not been walked to yet.
+     */
+    public List<Tile> getRemaining() {
+        List<Tile> remaining = new ArrayList<Tile>(remaining());
+        for (int i = getPos; i < size; i++) {
+            remaining.add(path[i]);
+        }
+        return remaining;
+    }
+
     public Tile getFirst() {
         return path[0];
     }
@@ -31,5 +31,5 @@ public interface PathFinder {
 
     public boolean movedNear();
 
-    public LinkedList<Tile> findPath(Tile src, int srcX, int srcY, int dstX, int dstY, boolean moveNear, int type, int direction, int sizeX, int sizeY, int walkToData, boolean noClip, int size);
+    public LinkedList<Tile> findPath(MapInstance instance, Tile src, int srcX, int srcY, int dstX, int dstY, boolean moveNear, int type, int direction, int sizeX, int sizeY, int walkToData, boolean noClip, int size);
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import java.util.LinkedList;
+
+import com.ziotic.logic.Entity;
+import com.ziotic.logic.object.GameObject;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A path search taken from a {@link PathRequest}.
+ * <p/>
+ * Everything the search needs from the entity is read when the job is created, so the search itself can run on a map
+ * worker while the entity carries on being processed. The result is handed back to the entity's path processor.
+ *
+ * @author Lazaro
+ */
+class PathJob implements Runnable {
+    private static final Logger logger = Logging.log();
+
+    final PathRequest request;
+    final boolean walkingToObject;
+    final int requestType;
+
+    private final MapInstance instance;
+    private final Tile location;
+    private final int srcX, srcY;
+    private final int destX, destY;
+    private final int type;
+    private final int direction;
+    private final int sizeX, sizeY;
+    private final int walkToData;
+    private final boolean noClip;
+    private final int size;
+
+    private final long created = System.nanoTime();
+    private long queueTime;
+    private long computeTime;
+
+    LinkedList<Tile> path = null;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+
+    /**
+     * @param source Where the path starts, the entity's location unless it is added behind the steps it has left.
+     */
+    PathJob(Entity entity, PathRequest request, Tile destination, Tile source) {
+        this.request = request;
+
+        instance = entity.getInstance();
+        location = source;
+        srcX = location.getLocalX();
+        srcY = location.getLocalY();
+        destX = destination.getLocalX(location);
+        destY = destination.getLocalY(location);
+        noClip = !entity.isClipping();
+        size = entity.getSize();
+
+        int type = -2;
+        int direction = 0;
+        int sizeX = 0;
+        int sizeY = 0;
+        int walkToData = 0;
+
+        if (request.target instanceof GameObject) {
+            walkingToObject = true;
+            requestType = PathMetrics.OBJECT;
+
+            GameObject obj = (GameObject) request.target;
+            if (obj.getType() == 10 || obj.getType() == 11 || obj.getType() == 22) {
+                type = -1;
+                sizeX = obj.getSizeX();
+                sizeY = obj.getSizeY();
+                walkToData = obj.getDefinition().walkToData;
+                if (obj.getDirection() != 0)
+                    walkToData = (walkToData << obj.getDirection() & 0xf) + (walkToData >> 4 - obj.getDirection());
+            } else {
+                type = obj.getType();
+                direction = obj.getDirection();
+            }
+        } else {
+            walkingToObject = false;
+            if (request.target instanceof Entity) {
+                requestType = PathMetrics.ENTITY;
+
+                type = -1;
+                sizeX = 1;
+                sizeY = 1;
+                walkToData = 0x80000000;
+            } else {
+                requestType = PathMetrics.WALK;
+            }
+        }
+
+        this.type = type;
+        this.direction = direction;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.walkToData = walkToData;
+    }
+
+    /**
+     * Loads the regions the search may look at, so the search never has to load a map itself.
+     */
+    void prepare() {
+        int baseRegionX = ((location.getPartX() - 6) << 3) >> 6;
+        int baseRegionY = ((location.getPartY() - 6) << 3) >> 6;
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                Region.forRegionCoordinates(baseRegionX + x, baseRegionY + y).load();
+            }
+        }
+    }
+
+    /**
+     * @return The amount of steps between the entity and the destination, ignoring anything in the way.
+     */
+    int getDistance() {
+        return Math.max(Math.abs(destX - srcX), Math.abs(destY - srcY));
+    }
+
+    public void run() {
+        long start = System.nanoTime();
+        queueTime = start - created;
+        try {
+            if (!cancelled) {
+                path = request.pathFinder.findPath(instance, location, srcX, srcY, destX, destY, true, type, direction, sizeX, sizeY, walkToData, noClip, size);
+            }
+        } catch (Throwable e) {
+            logger.error("Error finding path [location=" + location + ", dest=" + destX + ", " + destY + "]", e);
+        } finally {
+            computeTime = System.nanoTime() - start;
+            done = true;
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    long getQueueTime() {
+        return queueTime;
+    }
+
+    long getComputeTime() {
+        return computeTime;
+    }
+}
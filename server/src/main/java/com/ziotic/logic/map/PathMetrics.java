@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+/**
+ * Counts the path searches made and how long they waited for and spent on a map worker, by the kind of request.
+ *
+ * @author Lazaro
+ */
+public class PathMetrics {
+    public static final int WALK = 0, OBJECT = 1, ENTITY = 2, LONG = 3;
+
+    private static final String[] NAMES = {"walk", "object", "entity", "long"};
+
+    private static final long[] requests = new long[NAMES.length];
+    private static final long[] synchronous = new long[NAMES.length];
+    private static final long[] queueTime = new long[NAMES.length];
+    private static final long[] maxQueueTime = new long[NAMES.length];
+    private static final long[] computeTime = new long[NAMES.length];
+    private static final long[] maxComputeTime = new long[NAMES.length];
+
+    private static long chaseHits = 0;
+    private static long chaseMisses = 0;
+
+    private static long flowFieldsShared = 0;
+    private static long flowFieldsBuilt = 0;
+
+    public static synchronized void recordChase(boolean reused) {
+        if (reused) {
+            chaseHits++;
+        } else {
+            chaseMisses++;
+        }
+    }
+
+    public static synchronized void recordFlowField(boolean shared) {
+        if (shared) {
+            flowFieldsShared++;
+        } else {
+            flowFieldsBuilt++;
+        }
+    }
+
+    public static synchronized void record(int type, boolean sync, long queueNanos, long computeNanos) {
+        requests[type]++;
+        if (sync) {
+            synchronous[type]++;
+        }
+        queueTime[type] += queueNanos;
+        maxQueueTime[type] = Math.max(maxQueueTime[type], queueNanos);
+        computeTime[type] += computeNanos;
+        maxComputeTime[type] = Math.max(maxComputeTime[type], computeNanos);
+    }
+
+    public static synchronized long getRequestCount() {
+        long count = 0;
+        for (long r : requests) {
+            count += r;
+        }
+        return count + chaseHits + flowFieldsShared + flowFieldsBuilt;
+    }
+
+    /**
+     * @param reset If the counters should be cleared afterwards.
+     * @return A summary of the counters, times are in microseconds.
+     */
+    public static synchronized String report(boolean reset) {
+        StringBuilder sb = new StringBuilder("Path searches");
+        for (int i = 0; i < NAMES.length; i++) {
+            long count = requests[i];
+            sb.append(" [").append(NAMES[i]).append(": count=").append(count).append(", sync=").append(synchronous[i]);
+            if (count > 0) {
+                long async = count - synchronous[i];
+                sb.append(", avgQueue=").append(async == 0 ? 0 : queueTime[i] / async / 1000).append(", maxQueue=").append(maxQueueTime[i] / 1000);
+                sb.append(", avgCompute=").append(computeTime[i] / count / 1000).append(", maxCompute=").append(maxComputeTime[i] / 1000);
+            }
+            sb.append("]");
+            if (reset) {
+                requests[i] = synchronous[i] = queueTime[i] = maxQueueTime[i] = computeTime[i] = maxComputeTime[i] = 0;
+            }
+        }
+        long chases = chaseHits + chaseMisses;
+        sb.append(" [chase: reused=").append(chaseHits).append(", searched=").append(chaseMisses);
+        sb.append(", hitRate=").append(chases == 0 ? 0 : chaseHits * 100 / chases).append("%]");
+        sb.append(" [flow: built=").append(flowFieldsBuilt).append(", shared=").append(flowFieldsShared).append("]");
+        if (reset) {
+            chaseHits = chaseMisses = 0;
+            flowFieldsShared = flowFieldsBuilt = 0;
+        }
+        return sb.toString();
+    }
+}
@@ -25,12 +25,15 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ziotic.Static;
 import com.ziotic.logic.Entity;
 import com.ziotic.logic.map.Directions.NormalDirection;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
+import com.ziotic.logic.map.pf.hpa.HierarchicalPathFinder;
+import com.ziotic.logic.map.pf.hpa.LongPath;
 import com.ziotic.logic.npc.NPC;
-import com.ziotic.logic.object.GameObject;
 import com.ziotic.utility.Logging;
 
 import org.apache.log4j.Logger;
@@ -44,6 +47,30 @@ public abstract class PathProcessor {
     public static final int MAX_SIZE = 255;
     public static final int MOVE_SPEED_ANY = 0, MOVE_SPEED_RUN = 1, MOVE_SPEED_WALK = 2;
 
+    /**
+     * Paths to destinations this many steps away or closer are searched for straight away rather than on a map worker.
+     */
+    private static final int SYNCHRONOUS_DISTANCE = Static.conf.getInt("path_sync_distance", 2);
+
+    /**
+     * The next segment of a long path is searched for once this many steps or fewer are left of the current one, so it
+     * is usually there before the entity runs out of steps.
+     */
+    private static final int SEGMENT_LOOKAHEAD = 2;
+
+    /**
+     * The result of a long path search, with the search it belongs to.
+     */
+    private static class FoundLongPath {
+        private final int search;
+        private final LongPath path;
+
+        private FoundLongPath(int search, LongPath path) {
+            this.search = search;
+            this.path = path;
+        }
+    }
+
     private Entity entity;
 
     protected PathBuffer buffer = new PathBuffer();
@@ -52,12 +79,23 @@ public abstract class PathProcessor {
 
     public PathRequest pathRequest = null;
 
+    private PathJob pendingJob = null;
+
+    private ChasePath chasePath;
+
+    private LongPath longPath = null;
+    private PathRequest segmentRequest = null;
+    private Tile segmentSource = null;
+    private final AtomicReference<FoundLongPath> foundLongPath = new AtomicReference<FoundLongPath>();
+    private volatile int longPathSearch = 0;
+
     private Tile[] history = new Tile[16];
 
     private Set<Entity> hooked = new HashSet<Entity>();
 
     public PathProcessor(Entity entity) {
         this.entity = entity;
+        this.chasePath = new ChasePath(entity);
     }
 
     public PathBuffer getBuffer() {
@@ -100,9 +138,24 @@ public abstract class PathProcessor {
         reset(false);
     }
 
+    /**
+     * Stops the entity, dropping any long path it was walking or waiting on.
+     */
     public void reset(boolean nullCoordinateFuture) {
         buffer.clear();
         moveSpeed = MOVE_SPEED_ANY;
+        if (pendingJob != null && pendingJob.request == segmentRequest) {
+            pendingJob.cancel();
+            pendingJob = null;
+        }
+        if (pathRequest == segmentRequest) {
+            pathRequest = null;
+        }
+        longPath = null;
+        segmentRequest = null;
+        segmentSource = null;
+        foundLongPath.set(null);
+        longPathSearch++;
         if (nullCoordinateFuture) {
             coordinateFuture = null;
         }
@@ -191,7 +244,39 @@ public abstract class PathProcessor {
         return null;
     }
 
+    /**
+     * Applies the result of a finished path search, then starts a search for the latest path request.
+     * <p/>
+     * Searches run on a map worker and their results are applied at the start of the entity's next cycle, except for
+     * short ones which are cheap enough to be searched and applied straight away.
+     */
     public void processPathRequest() {
+        FoundLongPath found = foundLongPath.getAndSet(null);
+        if (found != null && found.search == longPathSearch) {
+            longPath = found.path;
+        }
+        if (pendingJob != null && pendingJob.isDone()) {
+            PathJob job = pendingJob;
+            pendingJob = null;
+            PathMetrics.record(job.requestType, false, job.getQueueTime(), job.getComputeTime());
+            applyPath(job);
+        }
+        if (pathRequest != null && pathRequest != segmentRequest) {
+            // Any other path replaces a long path being walked or searched for.
+            longPath = null;
+            longPathSearch++;
+        }
+        if (pathRequest == null && pendingJob == null && longPath != null && steps() <= SEGMENT_LOOKAHEAD) {
+            // The segment carries on from the end of the steps left, which it is added behind.
+            Tile from = moving() ? getDestination() : entity.getLocation();
+            Tile next = longPath.nextSegment(from);
+            if (next != null) {
+                segmentSource = from;
+                pathRequest = segmentRequest = new PathRequest(new HeapAStarPathFinder(), next.getX(), next.getY(), null, longPath.getMoveSpeed(), true, null);
+            } else {
+                longPath = null;
+            }
+        }
         if (pathRequest != null) {
             final PathRequest request = pathRequest;
 
@@ -199,80 +284,144 @@ public abstract class PathProcessor {
             if (destination.equals(getDestination())) {
                 return;
             }
-            Runnable r = new Runnable() {
-                public void run() {
-                    Tile base = entity.getLocation();
-                    int srcX = base.getLocalX();
-                    int srcY = base.getLocalY();
-                    int destX = destination.getLocalX(base);
-                    int destY = destination.getLocalY(base);
-
-                    int type = -2;
-                    int direction = 0;
-                    int sizeX = 0;
-                    int sizeY = 0;
-                    int walkToData = 0;
-
-                    boolean walkingToObject = false;
-
-                    if (request.target instanceof GameObject) {
-                        walkingToObject = true;
-
-                        GameObject obj = (GameObject) request.target;
-                        if (obj != null && (obj.getType() == 10 || obj.getType() == 11 || obj.getType() == 22)) {
-                            type = -1;
-                            sizeX = obj.getSizeX();
-                            sizeY = obj.getSizeY();
-                            walkToData = obj.getDefinition().walkToData;
-                            if (obj.getDirection() != 0)
-                                walkToData = (walkToData << obj.getDirection() & 0xf) + (walkToData >> 4 - obj.getDirection());
-                        } else {
-                            type = obj.getType();
-                            direction = obj.getDirection();
-                        }
-                    } else if (request.target instanceof Entity) {
-                        type = -1;
-                        sizeX = 1;
-                        sizeY = 1;
-                        walkToData = 0x80000000;
-                    }
+            pathRequest = null;
 
-                    final LinkedList<Tile> path = request.pathFinder.findPath(entity.getLocation(), srcX, srcY, destX, destY, true, type, direction, sizeX, sizeY, walkToData, !entity.isClipping(), entity.getSize());
-                    if(request.pathFinder.isSuccessful()) {
-                        if (!request.automated) entity.resetEvents(false);
+            if (request.chaseTarget != null) {
+                if (pendingJob == null) {
+                    List<Tile> remaining = buffer.getRemaining();
+                    int before = remaining.size();
+                    List<Tile> repaired = chasePath.repair(request, destination, remaining);
+                    if (repaired != null) {
+                        PathMetrics.recordChase(true);
+                        applyRepairedPath(request, destination, repaired, before);
+                        return;
+                    }
+                }
+                PathMetrics.recordChase(false);
+                request.pathFinder = new HeapAStarPathFinder();
+            } else {
+                chasePath.clear();
+            }
 
-                        if (request.future != null) {
-                            request.future.run();
-                        }
+            if (pendingJob != null) {
+                // Only the latest request counts, the older one is dropped whether or not it has started.
+                pendingJob.cancel();
+                pendingJob = null;
+            }
 
-                        if (coordinateFuture != null) coordinateFuture.setReady(true);
+            PathJob job = new PathJob(entity, request, destination, request == segmentRequest ? segmentSource : entity.getLocation());
+            job.prepare();
+            if (job.getDistance() <= SYNCHRONOUS_DISTANCE) {
+                job.run();
+                PathMetrics.record(job.requestType, true, 0, job.getComputeTime());
+                applyPath(job);
+            } else {
+                pendingJob = job;
+                Static.engine.dispatchToMapWorker(job);
+            }
+        }
+    }
 
-                        moveSpeed = request.moveSpeed;
-                    }
-                    if (path != null) {
-                        if (request.pathFinder.movedNear() && (!(request.target instanceof NPC) || !((NPC) request.target).getDefinition().name.equalsIgnoreCase("Banker") || path.getLast().distance(request.target.getLocation()) > 2)) {
-                            if (coordinateFuture != null) coordinateFuture.setFail(true);
-                        }
-
-                        add(path);
-                    } else if (coordinateFuture != null) {
-                        coordinateFuture.faceDestination();
-                        if (request.pathFinder.isSuccessful() && (!walkingToObject || !request.pathFinder.movedNear())) {
-                            try {
-                                coordinateFuture.getFuture().run();
-                            } catch (Exception e) {
-                                logger.error("Error executing coordinate future!", e);
-                            }
-                        } else {
-                            coordinateFuture.notifyFail();
-                        }
-                        coordinateFuture = null;
-                    }
+    /**
+     * Walks to a destination any distance away, the route is searched for on a map worker over the chunk portals and
+     * then walked one segment at a time.
+     */
+    public void walkTo(final Tile destination, final int moveSpeed) {
+        final int search = ++longPathSearch;
+        final Tile src = entity.getLocation();
+        final long queued = System.nanoTime();
+        longPath = null;
+        HierarchicalPathFinder.prepare(src, destination);
+        Static.engine.dispatchToMapWorker(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                List<Tile> waypoints = null;
+                try {
+                    waypoints = new HierarchicalPathFinder().findPath(src, destination);
+                } catch (Throwable e) {
+                    logger.error("Error finding long path [src=" + src + ", dest=" + destination + "]", e);
+                }
+                PathMetrics.record(PathMetrics.LONG, false, start - queued, System.nanoTime() - start);
+                if (waypoints != null && search == longPathSearch) {
+                    foundLongPath.set(new FoundLongPath(search, new LongPath(waypoints, moveSpeed)));
                 }
-            };
-            Static.engine.dispatchToMapWorker(r);
+            }
+        });
+    }
 
-            pathRequest = null;
+    /**
+     * Applies a chase path repaired by {@link ChasePath}, only touching the end of the walking queue if it was left
+     * alone by the request's future.
+     */
+    private void applyRepairedPath(PathRequest request, Tile destination, List<Tile> repaired, int before) {
+        int kept = chasePath.getKept();
+        applyStart(request);
+        if (buffer.remaining() == before) {
+            for (int i = before; i > kept; i--) {
+                buffer.removeLast();
+            }
+            add(repaired.subList(kept, repaired.size()));
+        } else {
+            add(repaired);
+        }
+        if (repaired.isEmpty()) {
+            applyEnd(request, null, true, false, false);
+        }
+        Tile end = getDestination();
+        chasePath.update(request.chaseTarget, destination, end != null ? end : entity.getLocation());
+    }
+
+    private void applyPath(PathJob job) {
+        PathRequest request = job.request;
+        boolean successful = request.pathFinder.isSuccessful();
+        if (request == segmentRequest && (!successful || request.pathFinder.movedNear())) {
+            longPath = null;
+        }
+        if (successful) {
+            applyStart(request);
+        }
+        applyEnd(request, job.path, successful, request.pathFinder.movedNear(), job.walkingToObject);
+        if (request.chaseTarget != null) {
+            if (successful && !request.pathFinder.movedNear()) {
+                Tile end = getDestination();
+                chasePath.update(request.chaseTarget, Tile.locate(request.x, request.y, entity.getZ()), end != null ? end : entity.getLocation());
+            } else {
+                chasePath.clear();
+            }
+        }
+    }
+
+    private void applyStart(PathRequest request) {
+        if (!request.automated) entity.resetEvents(false);
+
+        if (request.future != null) {
+            request.future.run();
+        }
+
+        if (coordinateFuture != null) coordinateFuture.setReady(true);
+
+        moveSpeed = request.moveSpeed;
+    }
+
+    private void applyEnd(PathRequest request, LinkedList<Tile> path, boolean successful, boolean movedNear, boolean walkingToObject) {
+        if (path != null) {
+            if (movedNear && (!(request.target instanceof NPC) || !((NPC) request.target).getDefinition().name.equalsIgnoreCase("Banker") || path.getLast().distance(request.target.getLocation()) > 2)) {
+                if (coordinateFuture != null) coordinateFuture.setFail(true);
+            }
+
+            add(path);
+        } else if (coordinateFuture != null) {
+            coordinateFuture.faceDestination();
+            if (successful && (!walkingToObject || !movedNear)) {
+                try {
+                    coordinateFuture.getFuture().run();
+                } catch (Exception e) {
+                    logger.error("Error executing coordinate future!", e);
+                }
+            } else {
+                coordinateFuture.notifyFail();
+            }
+            coordinateFuture = null;
         }
     }
 
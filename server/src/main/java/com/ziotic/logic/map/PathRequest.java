@@ -21,6 +21,7 @@
  */
 package com.ziotic.logic.map;
 
+import com.ziotic.logic.Entity;
 import com.ziotic.logic.Locatable;
 
 /**
@@ -35,6 +36,11 @@ public class PathRequest {
     public Locatable target;
     public Runnable future;
 
+    /**
+     * The entity being chased, if the path may be repaired rather than searched for when the entity moves.
+     */
+    public Entity chaseTarget = null;
+
     public PathRequest(PathFinder pathFinder, int x, int y, Locatable target, int moveSpeed, boolean automated, Runnable future) {
         this.pathFinder = pathFinder;
         this.x = x;
@@ -68,6 +68,24 @@ public class RSArea implements Area {
         return endY;
     }
 
+    /**
+     * @return The smallest rectangle containing this area and everything it includes.
+     */
+    public RSArea getBounds() {
+        int minX = startX, minY = startY;
+        int maxX = endX, maxY = endY;
+        if (include != null) {
+            for (RSArea area : include) {
+                RSArea bounds = area.getBounds();
+                minX = Math.min(minX, bounds.startX);
+                minY = Math.min(minY, bounds.startY);
+                maxX = Math.max(maxX, bounds.endX);
+                maxY = Math.max(maxY, bounds.endY);
+            }
+        }
+        return new RSArea(minX, minY, maxX, maxY);
+    }
+
     public RSArea exclude(RSArea area) {
         try {
             if (exclude == null) {
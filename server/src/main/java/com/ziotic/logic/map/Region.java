@@ -21,8 +21,14 @@
  */
 package com.ziotic.logic.map;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 import com.ziotic.Static;
 import com.ziotic.adapter.protocol.cache.format.MapLoaderAdapter;
+import com.ziotic.logic.map.pf.hpa.PortalGraph;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.object.ObjectDefinition;
 import com.ziotic.utility.Logging;
@@ -32,7 +38,7 @@ import org.apache.log4j.Logger;
 /**
  * @author Lazaro
  */
-public final class Region {
+public final class Region implements ClippingMap {
     private static final Logger logger = Logging.log();
 
     private static final MapLoader MAP_LOADER = new MapLoaderAdapter();
@@ -43,6 +49,18 @@ public final class Region {
 
     private static Region[][] regions = new Region[(MAX_MAP_X + 1) / 64][(MAX_MAP_Y + 1) / 64];
 
+    private static final List<Region> residentRegions = new ArrayList<Region>();
+
+    private static int reloadCount = 0;
+    private static int evictionCount = 0;
+
+    private static final Comparator<Region> LEAST_RECENTLY_ACTIVE = new Comparator<Region>() {
+        @Override
+        public int compare(Region r1, Region r2) {
+            return r1.lastActiveCycle - r2.lastActiveCycle;
+        }
+    };
+
     public static Region forRegionCoordinates(int x, int y) {
         Region r = regions[x][y];
         if (r == null) {
@@ -67,6 +85,48 @@ public final class Region {
         return forAbsoluteCoordinates(x, y).getClipping(x & 0x3f, y & 0x3f, z);
     }
 
+    /**
+     * Reads the clipping of a tile without loading its region, for searches run off the tick thread.
+     *
+     * @return The clipping of the tile, or -1 (blocked every way) if its region is not loaded.
+     */
+    public static int getLoadedClipping(int x, int y, int z) {
+        int regionX = x >> 6, regionY = y >> 6;
+        if (regionX < 0 || regionY < 0 || regionX >= regions.length || regionY >= regions[regionX].length) {
+            return -1;
+        }
+        Region r = regions[regionX][regionY];
+        if (r == null || !r.loaded) {
+            return -1;
+        }
+        int[][][] clipping = r.clipping;
+        if (clipping == null || clipping[z] == null) {
+            return 0;
+        }
+        return clipping[z][x & 0x3f][y & 0x3f];
+    }
+
+    public static int getAbsoluteClipping(MapInstance instance, int x, int y, int z) {
+        if (instance != null) {
+            return instance.getClipping(x, y, z);
+        }
+        return getAbsoluteClipping(x, y, z);
+    }
+
+    public static GameObject getObject(MapInstance instance, Tile tile) {
+        if (instance != null) {
+            return instance.getObject(tile.getX(), tile.getY(), tile.getZ());
+        }
+        return getObject(tile);
+    }
+
+    public static GameObject getWallObject(MapInstance instance, Tile tile) {
+        if (instance != null) {
+            return instance.getWallObject(tile.getX(), tile.getY(), tile.getZ());
+        }
+        return getWallObject(tile);
+    }
+
     public static GameObject getObject(Tile tile) {
         return forTile(tile).getObject(tile.getX() & 0x3f, tile.getY() & 0x3f, tile.getZ());
     }
@@ -85,29 +145,197 @@ public final class Region {
     private int[][][] clipping = null;
 
     private transient boolean loaded = false;
+    private transient boolean loading = false;
+    private transient boolean everLoaded = false;
+
+    /**
+     * If objects or clipping in this region were changed at runtime, such regions can not be rebuilt from the cache.
+     */
+    private transient boolean modified = false;
+
+    private transient int lastActiveCycle = 0;
+
+    /**
+     * Clipping flags placed on this region by objects of neighbouring regions, they are re-applied when this region is
+     * reloaded since the neighbours will not load again.
+     */
+    private transient List<int[]> foreignClipping = null;
 
     public Region(int x, int y) {
         this.x = x;
         this.y = y;
     }
 
+    public static MapLoader getMapLoader() {
+        return MAP_LOADER;
+    }
+
     public void load() {
         if (!loaded) {
-            loaded = true;
+            try {
+                load(null);
+            } catch (Throwable e) {
+                //logger.error("Error loading map for region [x= " + x +", y=" + y + "]!", e);
+            }
+        }
+    }
 
-            if (Static.isGame()) {
-                try {
-                    Region.MAP_LOADER.loadMap(this, x, y);
-                } catch (Throwable e) {
-                    //logger.error("Error loading map for region [x= " + x +", y=" + y + "]!", e);
+    /**
+     * Loads this region, unlike {@link #load()} any error raised while decoding the map is passed on to the caller.
+     *
+     * @param data The pre-decoded map data for this region, or <code>null</code> to read it from the cache.
+     * @return If the map was loaded without errors.
+     */
+    public boolean load(MapData data) {
+        if (loaded) {
+            return true;
+        }
+        loaded = true;
+
+        if (!Static.isGame()) {
+            return true;
+        }
+        if (everLoaded) {
+            reloadCount++;
+        }
+        everLoaded = true;
+        lastActiveCycle = Static.world.getTime();
+        synchronized (residentRegions) {
+            residentRegions.add(this);
+        }
+
+        loading = true;
+        try {
+            if (foreignClipping != null) {
+                for (int[] clip : foreignClipping) {
+                    clip(clip[0], clip[1], clip[2], clip[3]);
                 }
-                try {
-                    Static.world.getDoorManager().loadRegion(this);
-                } catch (Exception e) {
-                    logger.error("Error loading doors for region [x= " + x + ", y=" + y + "]!", e);
+            }
+            if (data != null) {
+                return Region.MAP_LOADER.loadMap(this, data);
+            } else {
+                return Region.MAP_LOADER.loadMap(this, x, y);
+            }
+        } finally {
+            loading = false;
+            PortalGraph.invalidateRegion(x, y);
+            try {
+                Static.world.getDoorManager().loadRegion(this);
+            } catch (Exception e) {
+                logger.error("Error loading doors for region [x= " + x + ", y=" + y + "]!", e);
+            }
+        }
+    }
+
+    /**
+     * Marks this region as being within view of a player.
+     */
+    public void markActive(int cycle) {
+        lastActiveCycle = cycle;
+    }
+
+    public int getLastActiveCycle() {
+        return lastActiveCycle;
+    }
+
+    /**
+     * @return If this region holds state which would be lost when dropping its map data.
+     */
+    public boolean isPinned() {
+        if (modified) {
+            return true;
+        }
+        Tile[][][] tiles = this.tiles;
+        if (tiles != null) {
+            for (Tile[][] plane : tiles) {
+                if (plane == null) {
+                    continue;
+                }
+                for (Tile[] row : plane) {
+                    for (Tile t : row) {
+                        if (t != null && t.hasDynamicState()) {
+                            return true;
+                        }
+                    }
                 }
             }
         }
+        return false;
+    }
+
+    /**
+     * Drops the decoded map data of this region, it will be loaded again from the cache when next accessed.
+     */
+    private void unload() {
+        tiles = null;
+        objects = null;
+        walls = null;
+        clipping = null;
+        loaded = false;
+
+        PortalGraph.invalidateRegion(x, y);
+    }
+
+    /**
+     * Evicts the least recently active regions which are either idle for too long, or exceed the maximum amount of
+     * resident regions. Regions that are active this cycle or that are pinned are never evicted.
+     *
+     * @param cycle       The current world cycle.
+     * @param idleCycles  The amount of cycles without a player nearby after which a region is evicted.
+     * @param maxResident The maximum amount of loaded regions, or 0 for no limit.
+     * @return The amount of evicted regions.
+     */
+    public static int evictIdleRegions(int cycle, int idleCycles, int maxResident) {
+        List<Region> candidates;
+        synchronized (residentRegions) {
+            candidates = new ArrayList<Region>(residentRegions);
+        }
+        Collections.sort(candidates, LEAST_RECENTLY_ACTIVE);
+
+        List<Region> evicted = new ArrayList<Region>();
+        int resident = candidates.size();
+        for (Region r : candidates) {
+            if (r.lastActiveCycle >= cycle) {
+                break;
+            }
+            boolean idle = cycle - r.lastActiveCycle >= idleCycles;
+            boolean overCapacity = maxResident > 0 && resident > maxResident;
+            if (!idle && !overCapacity) {
+                break;
+            }
+            if (r.isPinned()) {
+                continue;
+            }
+            r.unload();
+            evicted.add(r);
+            resident--;
+        }
+
+        if (!evicted.isEmpty()) {
+            synchronized (residentRegions) {
+                residentRegions.removeAll(evicted);
+            }
+            evictionCount += evicted.size();
+        }
+        return evicted.size();
+    }
+
+    public static int getResidentCount() {
+        synchronized (residentRegions) {
+            return residentRegions.size();
+        }
+    }
+
+    public static int getReloadCount() {
+        return reloadCount;
+    }
+
+    public static int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
     }
 
     public int getX() {
@@ -174,11 +402,12 @@ public final class Region {
             y = absY & 0x3f;
         }
 
-        if (r.clipping == null || r.clipping[z] == null) {
+        int[][][] clipping = r.clipping;
+        if (clipping == null || clipping[z] == null) {
             return 0;
         }
 
-        return r.clipping[z][x][y];
+        return clipping[z][x][y];
     }
 
     private void registerObject(GameObject obj) {
@@ -240,6 +469,7 @@ public final class Region {
     public GameObject getObject(int x, int y, int z) {
         load();
 
+        GameObject[][][] objects = this.objects;
         if (objects == null || objects[z] == null) {
             return null;
         }
@@ -250,6 +480,7 @@ public final class Region {
     public GameObject getWallObject(int x, int y, int z) {
         load();
 
+        GameObject[][][] walls = this.walls;
         if (walls == null || walls[z] == null) {
             return null;
         }
@@ -260,6 +491,10 @@ public final class Region {
     public void addObject(int objectId, int x, int y, int z, int type, int direction, boolean ignoreObjects) {
        // load(); was called too much when loading regions, re-add if it fucks up anything.
 
+        if (!ignoreObjects) {
+            modified = true;
+        }
+
         if (objectId == -1) {
             if (!ignoreObjects) {
                 removeObject(x, y, z);
@@ -287,7 +522,7 @@ public final class Region {
                 if (!ignoreObjects) {
                     removeObject(x, y, z);
                 }
-                clip(x, y, z, 0x200000);
+                clip(x, y, z, ObjectClipping.FLOOR_DECORATION);
                 registerObject(new GameObject(objectId, Tile.locate((this.x << 6) + x, (this.y << 6) + y, z), type, direction, sizeX, sizeY));
                 objectAdded = true;
             }
@@ -296,7 +531,7 @@ public final class Region {
                 if (!ignoreObjects) {
                     removeObject(x, y, z);
                 }
-                clipSolidObject(x, y, z, sizeX, sizeY, def.walkable, !def.clippingFlag);
+                ObjectClipping.clipSolidObject(this, x, y, z, sizeX, sizeY, def.walkable, !def.clippingFlag, false);
                 registerObject(new GameObject(objectId, Tile.locate((this.x << 6) + x, (this.y << 6) + y, z), type, direction, sizeX, sizeY));
                 objectAdded = true;
             }
@@ -307,7 +542,7 @@ public final class Region {
                 }
                 GameObject wallObject = new GameObject(objectId, Tile.locate((this.x << 6) + x, (this.y << 6) + y, z), type, direction, sizeX, sizeY);
                 registerWallObject(wallObject);
-                clipVariableObject(x, y, z, type, direction, def.walkable, !def.clippingFlag);
+                ObjectClipping.clipVariableObject(this, x, y, z, type, direction, def.walkable, !def.clippingFlag, false);
                 registerObject(wallObject);
                 objectAdded = true;
             }
@@ -320,6 +555,10 @@ public final class Region {
     public void removeObject(int x, int y, int z) {
         load();
 
+        if (!loading) {
+            modified = true;
+        }
+
         GameObject wall = getWallObject(x, y, z);
         if (wall != null) {
             unregisterWallObject(wall);
@@ -343,15 +582,15 @@ public final class Region {
 
             if (oldObj.getType() == 22) {
                 if (def.actionCount == 1) {
-                    unClip(x, y, z, 0x200000);
+                    unClip(x, y, z, ObjectClipping.FLOOR_DECORATION);
                 }
             } else if (oldObj.getType() >= 9) {
                 if (def.actionCount != 0) {
-                    unClipSolidObject(x, y, z, sizeX, sizeY, def.walkable, !def.clippingFlag);
+                    ObjectClipping.clipSolidObject(this, x, y, z, sizeX, sizeY, def.walkable, !def.clippingFlag, true);
                 }
             } else if (oldObj.getType() >= 0 && oldObj.getType() <= 3) {
                 if (def.actionCount != 0) {
-                    unClipVariableObject(x, y, z, oldObj.getType(), oldObj.getDirection(), def.walkable, !def.clippingFlag);
+                    ObjectClipping.clipVariableObject(this, x, y, z, oldObj.getType(), oldObj.getDirection(), def.walkable, !def.clippingFlag, true);
                 }
             }
         }
@@ -368,6 +607,14 @@ public final class Region {
             y = absY & 0x3f;
         }
 
+        if (r != this) {
+            if (loading) {
+                r.addForeignClipping(x, y, z, shift);
+            } else {
+                r.modified = true;
+            }
+        }
+
         if (r.clipping == null) {
             r.clipping = new int[4][][];
         }
@@ -376,9 +623,25 @@ public final class Region {
         }
 
         r.clipping[z][x][y] |= shift;
+
+        if (!loading) {
+            PortalGraph.invalidate(absX, absY, z);
+        }
     }
 
-    private void unClip(int x, int y, int z, int shift) {
+    private void addForeignClipping(int x, int y, int z, int shift) {
+        if (foreignClipping == null) {
+            foreignClipping = new ArrayList<int[]>();
+        }
+        for (int[] clip : foreignClipping) {
+            if (clip[0] == x && clip[1] == y && clip[2] == z && clip[3] == shift) {
+                return;
+            }
+        }
+        foreignClipping.add(new int[]{x, y, z, shift});
+    }
+
+    public void unClip(int x, int y, int z, int shift) {
         Region r = this;
 
         int absX = (this.x << 6) + x;
@@ -389,348 +652,17 @@ public final class Region {
             y = absY & 0x3f;
         }
 
+        if (r != this) {
+            r.modified = true;
+        }
+
         if (r.clipping == null || r.clipping[z] == null) {
             return;
         }
 
         r.clipping[z][x][y] &= ~shift;
-    }
-
-    private void clipSolidObject(int x, int y, int z, int sizeX, int sizeY, boolean flag, boolean flag2) {
-        int clipping = 256;
-        if (flag) {
-            clipping |= 0x20000;
-        }
-        if (flag2) {
-            clipping |= 0x40000000;
-        }
-
-        int maxX = x + sizeX;
-        int maxY = y + sizeY;
-
-        for (int x2 = x; x2 < maxX; x2++) {
-            for (int y2 = y; y2 < maxY; y2++) {
-                clip(x2, y2, z, clipping);
-            }
-        }
-    }
-
-    private void clipVariableObject(int x, int y, int z, int type, int direction, boolean flag, boolean flag2) {
-        if (type == 0) {
-            if (direction == 0) {
-                clip(x, y, z, 128);
-                clip(x - 1, y, z, 8);
-            } else if (direction == 1) {
-                clip(x, y, z, 2);
-                clip(x, y + 1, z, 32);
-            } else if (direction == 2) {
-                clip(x, y, z, 8);
-                clip(x + 1, y, z, 128);
-            } else if (direction == 3) {
-                clip(x, y, z, 32);
-                clip(x, y - 1, z, 2);
-            }
-        } else if (type == 1 || type == 3) {
-            if (direction == 0) {
-                clip(x, y, z, 1);
-                clip(x - 1, y, z, 16);
-            } else if (direction == 1) {
-                clip(x, y, z, 4);
-                clip(x + 1, y + 1, z, 64);
-            } else if (direction == 2) {
-                clip(x, y, z, 16);
-                clip(x + 1, y - 1, z, 1);
-            } else if (direction == 3) {
-                clip(x, y, z, 64);
-                clip(x - 1, y - 1, z, 4);
-            }
-        } else if (type == 2) {
-            if (direction == 0) {
-                clip(x, y, z, 130);
-                clip(x - 1, y, z, 8);
-                clip(x, y + 1, z, 32);
-            } else if (direction == 1) {
-                clip(x, y, z, 10);
-                clip(x, y + 1, z, 32);
-                clip(x + 1, y, z, 128);
-            } else if (direction == 2) {
-                clip(x, y, z, 40);
-                clip(x + 1, y, z, 128);
-                clip(x, y - 1, z, 2);
-            } else if (direction == 3) {
-                clip(x, y, z, 160);
-                clip(x, y - 1, z, 2);
-                clip(x - 1, y, z, 8);
-            }
-        }
-        if (flag) {
-            if (type == 0) {
-                if (direction == 0) {
-                    clip(x, y, z, 65536);
-                    clip(x - 1, y, z, 4096);
-                } else if (direction == 1) {
-                    clip(x, y, z, 1024);
-                    clip(x, y + 1, z, 16384);
-                } else if (direction == 2) {
-                    clip(x, y, z, 4096);
-                    clip(x + 1, y, z, 65536);
-                } else if (direction == 3) {
-                    clip(x, y, z, 16384);
-                    clip(x, y - 1, z, 1024);
-                }
-            }
-            if (type == 1 || type == 3) {
-                if (direction == 0) {
-                    clip(x, y, z, 512);
-                    clip(x - 1, y + 1, z, 8192);
-                } else if (direction == 1) {
-                    clip(x, y, z, 2048);
-                    clip(x + 1, y + 1, z, 32768);
-                } else if (direction == 2) {
-                    clip(x, y, z, 8192);
-                    clip(x + 1, y + 1, z, 512);
-                } else if (direction == 3) {
-                    clip(x, y, z, 32768);
-                    clip(x - 1, y - 1, z, 2048);
-                }
-            } else if (type == 2) {
-                if (direction == 0) {
-                    clip(x, y, z, 66560);
-                    clip(x - 1, y, z, 4096);
-                    clip(x, y + 1, z, 16384);
-                } else if (direction == 1) {
-                    clip(x, y, z, 5120);
-                    clip(x, y + 1, z, 16384);
-                    clip(x + 1, y, z, 65536);
-                } else if (direction == 2) {
-                    clip(x, y, z, 20480);
-                    clip(x + 1, y, z, 65536);
-                    clip(x, y - 1, z, 1024);
-                } else if (direction == 3) {
-                    clip(x, y, z, 81920);
-                    clip(x, y - 1, z, 1024);
-                    clip(x - 1, y, z, 4096);
-                }
-            }
-        }
-        if (flag2) {
-            if (type == 0) {
-                if (direction == 0) {
-                    clip(x, y, z, 536870912);
-                    clip(x - 1, y, z, 33554432);
-                } else if (direction == 1) {
-                    clip(x, y, z, 8388608);
-                    clip(x, y + 1, z, 134217728);
-                } else if (direction == 2) {
-                    clip(x, y, z, 33554432);
-                    clip(x + 1, y, z, 536870912);
-                } else if (direction == 3) {
-                    clip(x, y, z, 134217728);
-                    clip(x, y - 1, z, 8388608);
-                }
-            }
-            if (type == 1 || type == 3) {
-                if (direction == 0) {
-                    clip(x, y, z, 4194304);
-                    clip(x - 1, y + 1, z, 67108864);
-                } else if (direction == 1) {
-                    clip(x, y, z, 16777216);
-                    clip(x + 1, y + 1, z, 268435456);
-                } else if (direction == 2) {
-                    clip(x, y, z, 67108864);
-                    clip(x + 1, y + 1, z, 4194304);
-                } else if (direction == 3) {
-                    clip(x, y, z, 268435456);
-                    clip(x - 1, y - 1, z, 16777216);
-                }
-            } else if (type == 2) {
-                if (direction == 0) {
-                    clip(x, y, z, 545259520);
-                    clip(x - 1, y, z, 33554432);
-                    clip(x, y + 1, z, 134217728);
-                } else if (direction == 1) {
-                    clip(x, y, z, 41943040);
-                    clip(x, y + 1, z, 134217728);
-                    clip(x + 1, y, z, 536870912);
-                } else if (direction == 2) {
-                    clip(x, y, z, 167772160);
-                    clip(x + 1, y, z, 536870912);
-                    clip(x, y - 1, z, 8388608);
-                } else if (direction == 3) {
-                    clip(x, y, z, 671088640);
-                    clip(x, y - 1, z, 8388608);
-                    clip(x - 1, y, z, 33554432);
-                }
-            }
-        }
-    }
-
-    private void unClipSolidObject(int x, int y, int z, int sizeX, int sizeY, boolean flag, boolean flag2) {
-        int clipping = 256;
-        if (flag) {
-            clipping |= 0x20000;
-        }
-        if (flag2) {
-            clipping |= 0x40000000;
-        }
 
-        int maxX = x + sizeX;
-        int maxY = y + sizeY;
-
-        for (int x2 = x; x2 < maxX; x2++) {
-            for (int y2 = y; y2 < maxY; y2++) {
-                unClip(x2, y2, z, clipping);
-            }
-        }
+        PortalGraph.invalidate(absX, absY, z);
     }
 
-    private void unClipVariableObject(int x, int y, int z, int type, int direction, boolean flag, boolean flag2) {
-        if (type == 0) {
-            if (direction == 0) {
-                unClip(x, y, z, 128);
-                unClip(x - 1, y, z, 8);
-            } else if (direction == 1) {
-                unClip(x, y, z, 2);
-                unClip(x, y + 1, z, 32);
-            } else if (direction == 2) {
-                unClip(x, y, z, 8);
-                unClip(x + 1, y, z, 128);
-            } else if (direction == 3) {
-                unClip(x, y, z, 32);
-                unClip(x, y - 1, z, 2);
-            }
-        } else if (type == 1 || type == 3) {
-            if (direction == 0) {
-                unClip(x, y, z, 1);
-                unClip(x - 1, y, z, 16);
-            } else if (direction == 1) {
-                unClip(x, y, z, 4);
-                unClip(x + 1, y + 1, z, 64);
-            } else if (direction == 2) {
-                unClip(x, y, z, 16);
-                unClip(x + 1, y - 1, z, 1);
-            } else if (direction == 3) {
-                unClip(x, y, z, 64);
-                unClip(x - 1, y - 1, z, 4);
-            }
-        } else if (type == 2) {
-            if (direction == 0) {
-                unClip(x, y, z, 130);
-                unClip(x - 1, y, z, 8);
-                unClip(x, y + 1, z, 32);
-            } else if (direction == 1) {
-                unClip(x, y, z, 10);
-                unClip(x, y + 1, z, 32);
-                unClip(x + 1, y, z, 128);
-            } else if (direction == 2) {
-                unClip(x, y, z, 40);
-                unClip(x + 1, y, z, 128);
-                unClip(x, y - 1, z, 2);
-            } else if (direction == 3) {
-                unClip(x, y, z, 160);
-                unClip(x, y - 1, z, 2);
-                unClip(x - 1, y, z, 8);
-            }
-        }
-        if (flag) {
-            if (type == 0) {
-                if (direction == 0) {
-                    unClip(x, y, z, 65536);
-                    unClip(x - 1, y, z, 4096);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 1024);
-                    unClip(x, y + 1, z, 16384);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 4096);
-                    unClip(x + 1, y, z, 65536);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 16384);
-                    unClip(x, y - 1, z, 1024);
-                }
-            }
-            if (type == 1 || type == 3) {
-                if (direction == 0) {
-                    unClip(x, y, z, 512);
-                    unClip(x - 1, y + 1, z, 8192);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 2048);
-                    unClip(x + 1, y + 1, z, 32768);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 8192);
-                    unClip(x + 1, y + 1, z, 512);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 32768);
-                    unClip(x - 1, y - 1, z, 2048);
-                }
-            } else if (type == 2) {
-                if (direction == 0) {
-                    unClip(x, y, z, 66560);
-                    unClip(x - 1, y, z, 4096);
-                    unClip(x, y + 1, z, 16384);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 5120);
-                    unClip(x, y + 1, z, 16384);
-                    unClip(x + 1, y, z, 65536);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 20480);
-                    unClip(x + 1, y, z, 65536);
-                    unClip(x, y - 1, z, 1024);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 81920);
-                    unClip(x, y - 1, z, 1024);
-                    unClip(x - 1, y, z, 4096);
-                }
-            }
-        }
-        if (flag2) {
-            if (type == 0) {
-                if (direction == 0) {
-                    unClip(x, y, z, 536870912);
-                    unClip(x - 1, y, z, 33554432);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 8388608);
-                    unClip(x, y + 1, z, 134217728);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 33554432);
-                    unClip(x + 1, y, z, 536870912);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 134217728);
-                    unClip(x, y - 1, z, 8388608);
-                }
-            }
-            if (type == 1 || type == 3) {
-                if (direction == 0) {
-                    unClip(x, y, z, 4194304);
-                    unClip(x - 1, y + 1, z, 67108864);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 16777216);
-                    unClip(x + 1, y + 1, z, 268435456);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 67108864);
-                    unClip(x + 1, y + 1, z, 4194304);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 268435456);
-                    unClip(x - 1, y - 1, z, 16777216);
-                }
-            } else if (type == 2) {
-                if (direction == 0) {
-                    unClip(x, y, z, 545259520);
-                    unClip(x - 1, y, z, 33554432);
-                    unClip(x, y + 1, z, 134217728);
-                } else if (direction == 1) {
-                    unClip(x, y, z, 41943040);
-                    unClip(x, y + 1, z, 134217728);
-                    unClip(x + 1, y, z, 536870912);
-                } else if (direction == 2) {
-                    unClip(x, y, z, 167772160);
-                    unClip(x + 1, y, z, 536870912);
-                    unClip(x, y - 1, z, 8388608);
-                } else if (direction == 3) {
-                    unClip(x, y, z, 671088640);
-                    unClip(x, y - 1, z, 8388608);
-                    unClip(x - 1, y, z, 33554432);
-                }
-            }
-        }
-    }
 }
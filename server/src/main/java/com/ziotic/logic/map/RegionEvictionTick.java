@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map;
+
+import com.ziotic.Static;
+import com.ziotic.engine.tick.Tick;
+import com.ziotic.logic.player.Player;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Periodically marks the regions around every player as active and drops the map data of regions nobody has been near
+ * for a while.
+ *
+ * @author Lazaro
+ */
+public class RegionEvictionTick extends Tick {
+    private static final Logger logger = Logging.log();
+
+    /**
+     * The amount of regions around a player's own region which are within the player's view.
+     */
+    private static final int VIEW_RADIUS = 1;
+
+    private final int idleCycles;
+    private final int maxResident;
+
+    /**
+     * @param interval    The amount of cycles between each eviction pass.
+     * @param idleCycles  The amount of cycles without a player nearby after which a region is evicted.
+     * @param maxResident The maximum amount of loaded regions, or 0 for no limit.
+     */
+    public RegionEvictionTick(int interval, int idleCycles, int maxResident) {
+        super("RegionEviction", interval);
+        this.idleCycles = idleCycles;
+        this.maxResident = maxResident;
+    }
+
+    @Override
+    public boolean execute() {
+        int cycle = Static.world.getTime();
+        for (Player player : Static.world.getPlayers()) {
+            Tile loc = player.getLocation();
+            if (loc == null) {
+                continue;
+            }
+            int maxX = Math.min(loc.getRegionX() + VIEW_RADIUS, Region.MAX_MAP_X >> 6);
+            int maxY = Math.min(loc.getRegionY() + VIEW_RADIUS, Region.MAX_MAP_Y >> 6);
+            for (int x = Math.max(loc.getRegionX() - VIEW_RADIUS, 0); x <= maxX; x++) {
+                for (int y = Math.max(loc.getRegionY() - VIEW_RADIUS, 0); y <= maxY; y++) {
+                    Region.forRegionCoordinates(x, y).markActive(cycle);
+                }
+            }
+        }
+
+        int evicted = Region.evictIdleRegions(cycle, idleCycles, maxResident);
+        if (evicted > 0) {
+            logger.info("Evicted " + evicted + " idle map region(s) [resident=" + Region.getResidentCount() + ", reloads=" + Region.getReloadCount() + ", evictions=" + Region.getEvictionCount() + "]");
+        }
+        return true;
+    }
+}
@@ -29,12 +29,7 @@ import com.ziotic.Static;
 import com.ziotic.logic.Locatable;
 import com.ziotic.logic.item.GroundItem;
 import com.ziotic.logic.map.Directions.NormalDirection;
-import com.ziotic.logic.map.event.EntityTileEventListener;
-import com.ziotic.logic.map.event.GameObjectTileEventListener;
-import com.ziotic.logic.map.event.GroundItemTileEventListener;
-import com.ziotic.logic.map.event.NPCTileEventListener;
-import com.ziotic.logic.map.event.PlayerTileEventListener;
-import com.ziotic.logic.map.event.TileEventListener;
+import com.ziotic.logic.map.event.TriggerIndex;
 import com.ziotic.logic.npc.NPC;
 import com.ziotic.logic.object.GameObject;
 import com.ziotic.logic.player.Player;
@@ -64,8 +59,6 @@ public final class Tile {
     private transient List<GroundItem> items;
     private transient GameObject spawnedObject = null;
 
-    private transient List<TileEventListener> eventListeners = new LinkedList<TileEventListener>();
-
     public Tile(int x, int y, int z) {
         this.x = x;
         this.y = y;
@@ -76,74 +69,22 @@ public final class Tile {
         if (locatable instanceof Player) {
             add((Player) locatable);
 
-            dispatchPlayerEvents((Player) locatable, true);
+            TriggerIndex.dispatchPlayerEvent((Player) locatable, this);
         } else if (locatable instanceof NPC) {
             add((NPC) locatable);
 
-            dispatchNPCEvents((NPC) locatable, true);
+            TriggerIndex.dispatchNPCEvent((NPC) locatable, this);
         } else if (locatable instanceof GroundItem) {
             add((GroundItem) locatable);
 
-            dispatchGroundItemEvents((GroundItem) locatable);
+            TriggerIndex.dispatchGroundItemEvent((GroundItem) locatable, this);
         } else if (locatable instanceof GameObject) {
             GameObject obj = (GameObject) locatable;
             if (obj.isSpawned()) {
                 spawnedObject = obj;
             }
 
-            dispatchGameObjectEvents((GameObject) locatable);
-        }
-    }
-
-    private void dispatchPlayerEvents(Player player, boolean loop) {
-        for(TileEventListener listener : eventListeners) {
-            if(listener instanceof PlayerTileEventListener) {
-                ((PlayerTileEventListener) listener).onPlayerEvent(player, this);
-            } else if(listener instanceof EntityTileEventListener) {
-                ((EntityTileEventListener) listener).onEntityEvent(player, this);
-            }
-        }
-        if(player.getSize() > 1 && loop) {
-            Tile[][] tiles = player.getCoverage().tiles();
-            for (int x = 0; x < tiles.length; x++) {
-                for (int y = 0; y < tiles[x].length; y++) {
-                    tiles[x][y].dispatchPlayerEvents(player, false);
-                }
-            }
-        }
-    }
-
-    private void dispatchNPCEvents(NPC npc, boolean loop) {
-        for(TileEventListener listener : eventListeners) {
-            if(listener instanceof NPCTileEventListener) {
-                ((NPCTileEventListener) listener).onNPCEvent(npc, this);
-            } else if(listener instanceof EntityTileEventListener) {
-                ((EntityTileEventListener) listener).onEntityEvent(npc, this);
-            }
-        }
-        if(npc.getSize() > 1 && loop) {
-            Tile[][] tiles = npc.getCoverage().tiles();
-            for (int x = 0; x < tiles.length; x++) {
-                for (int y = 0; y < tiles[x].length; y++) {
-                    tiles[x][y].dispatchNPCEvents(npc, false);
-                }
-            }
-        }
-    }
-
-    private void dispatchGroundItemEvents(GroundItem item) {
-        for(TileEventListener listener : eventListeners) {
-            if(listener instanceof GroundItemTileEventListener) {
-                ((GroundItemTileEventListener) listener).onGroundItemEvent(item, this);
-            }
-        }
-    }
-
-    private void dispatchGameObjectEvents(GameObject object) {
-        for(TileEventListener listener : eventListeners) {
-            if(listener instanceof GameObjectTileEventListener) {
-                ((GameObjectTileEventListener) listener).onGameObjectEvent(object, this);
-            }
+            TriggerIndex.dispatchGameObjectEvent(obj, this);
         }
     }
 
@@ -502,7 +443,7 @@ public final class Tile {
     }
 
     public int wildernessLevel() {
-        if (Areas.HIGH_LVL_WILD_STAIRS.inArea(this)) {
+        if (Areas.HIGH_LVL_WILD_STAIRS_BITMAP.contains(x, y)) {
             return (((y - 9920) / 8) + 1);
         }
         if (y > 3524 && y < 4000 && x > 2943 && x <= 3394)
@@ -510,13 +451,11 @@ public final class Tile {
         return 0;
     }
 
-    public void registerEventListener(TileEventListener listener) {
-        eventListeners.add(listener);
-        listener.onRegister(this);
-    }
-
-    public void unregisterEventListener(TileEventListener listener) {
-        eventListeners.remove(listener);
+    /**
+     * @return If anything was placed on this tile at runtime, such as entities, ground items or spawned objects.
+     */
+    public boolean hasDynamicState() {
+        return containsPlayers() || containsNPCs() || containsItems() || spawnedObject != null;
     }
 
 }
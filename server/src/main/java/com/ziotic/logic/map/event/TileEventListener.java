@@ -26,6 +26,11 @@ import com.ziotic.logic.map.Tile;
 
 public interface TileEventListener {
 
+    /**
+     * Called once the listener is registered in the {@link TriggerIndex}.
+     *
+     * @param tile The south-west corner of the area the listener was registered for.
+     */
     public void onRegister(Tile tile);
 
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ziotic.logic.item.GroundItem;
+import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.npc.NPC;
+import com.ziotic.logic.object.GameObject;
+import com.ziotic.logic.player.Player;
+
+/**
+ * A spatial index of tile event listeners.
+ * <p/>
+ * Listeners are registered for a rectangle of tiles which is stored in every 8x8 chunk it overlaps, so an event only
+ * has to look at the listeners of the chunk it happened in. The kind of events a listener accepts is resolved once when
+ * it is registered.
+ *
+ * @author Lazaro
+ */
+public final class TriggerIndex {
+    private static final int PLAYER = 0x1;
+    private static final int NPC = 0x2;
+    private static final int ENTITY = 0x4;
+    private static final int GROUND_ITEM = 0x8;
+    private static final int GAME_OBJECT = 0x10;
+
+    private static final Trigger[] EMPTY = new Trigger[0];
+
+    /**
+     * The triggers of each chunk, the arrays are replaced rather than modified so listeners may register or unregister
+     * while an event is being dispatched.
+     */
+    private static final Map<Integer, Trigger[]> chunks = new HashMap<Integer, Trigger[]>();
+
+    private static int triggerCount = 0;
+
+    public static final class Trigger {
+        private final TileEventListener listener;
+        private final int kinds;
+        private final int z;
+        private final int minX, minY;
+        private final int maxX, maxY;
+
+        private Trigger(TileEventListener listener, int z, int minX, int minY, int maxX, int maxY) {
+            this.listener = listener;
+            this.z = z;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+
+            int kinds = 0;
+            if (listener instanceof PlayerTileEventListener) {
+                kinds |= PLAYER;
+            }
+            if (listener instanceof NPCTileEventListener) {
+                kinds |= NPC;
+            }
+            if (listener instanceof EntityTileEventListener) {
+                kinds |= ENTITY;
+            }
+            if (listener instanceof GroundItemTileEventListener) {
+                kinds |= GROUND_ITEM;
+            }
+            if (listener instanceof GameObjectTileEventListener) {
+                kinds |= GAME_OBJECT;
+            }
+            this.kinds = kinds;
+        }
+
+        public TileEventListener getListener() {
+            return listener;
+        }
+
+        public boolean contains(Tile tile) {
+            return tile.getZ() == z && tile.getX() >= minX && tile.getX() <= maxX && tile.getY() >= minY && tile.getY() <= maxY;
+        }
+
+        private boolean intersects(Tile tile, int size) {
+            return tile.getZ() == z && tile.getX() <= maxX && tile.getX() + size - 1 >= minX && tile.getY() <= maxY && tile.getY() + size - 1 >= minY;
+        }
+    }
+
+    private static int hash(int chunkX, int chunkY, int z) {
+        return z << 30 | chunkX << 15 | chunkY;
+    }
+
+    /**
+     * Registers a listener for a rectangle of tiles.
+     *
+     * @param lowerBound The south-west corner of the rectangle.
+     * @param width      The width of the rectangle.
+     * @param height     The height of the rectangle.
+     * @param listener   The listener.
+     * @return The trigger, used to unregister the listener.
+     */
+    public static Trigger register(Tile lowerBound, int width, int height, TileEventListener listener) {
+        Trigger trigger = new Trigger(listener, lowerBound.getZ(), lowerBound.getX(), lowerBound.getY(), lowerBound.getX() + width - 1, lowerBound.getY() + height - 1);
+        synchronized (chunks) {
+            for (int chunkX = trigger.minX >> 3; chunkX <= trigger.maxX >> 3; chunkX++) {
+                for (int chunkY = trigger.minY >> 3; chunkY <= trigger.maxY >> 3; chunkY++) {
+                    int hash = hash(chunkX, chunkY, trigger.z);
+                    Trigger[] triggers = chunks.get(hash);
+                    if (triggers == null) {
+                        triggers = EMPTY;
+                    }
+                    Trigger[] newTriggers = new Trigger[triggers.length + 1];
+                    System.arraycopy(triggers, 0, newTriggers, 0, triggers.length);
+                    newTriggers[triggers.length] = trigger;
+                    chunks.put(hash, newTriggers);
+                }
+            }
+            triggerCount++;
+        }
+        listener.onRegister(lowerBound);
+        return trigger;
+    }
+
+    /**
+     * Registers a listener for a single tile.
+     */
+    public static Trigger register(Tile tile, TileEventListener listener) {
+        return register(tile, 1, 1, listener);
+    }
+
+    public static void unregister(Trigger trigger) {
+        synchronized (chunks) {
+            boolean removed = false;
+            for (int chunkX = trigger.minX >> 3; chunkX <= trigger.maxX >> 3; chunkX++) {
+                for (int chunkY = trigger.minY >> 3; chunkY <= trigger.maxY >> 3; chunkY++) {
+                    int hash = hash(chunkX, chunkY, trigger.z);
+                    Trigger[] triggers = chunks.get(hash);
+                    if (triggers == null) {
+                        continue;
+                    }
+                    int index = -1;
+                    for (int i = 0; i < triggers.length; i++) {
+                        if (triggers[i] == trigger) {
+                            index = i;
+                            break;
+                        }
+                    }
+                    if (index == -1) {
+                        continue;
+                    }
+                    removed = true;
+                    if (triggers.length == 1) {
+                        chunks.remove(hash);
+                    } else {
+                        Trigger[] newTriggers = new Trigger[triggers.length - 1];
+                        System.arraycopy(triggers, 0, newTriggers, 0, index);
+                        System.arraycopy(triggers, index + 1, newTriggers, index, triggers.length - index - 1);
+                        chunks.put(hash, newTriggers);
+                    }
+                }
+            }
+            if (removed) {
+                triggerCount--;
+            }
+        }
+    }
+
+    public static int getTriggerCount() {
+        synchronized (chunks) {
+            return triggerCount;
+        }
+    }
+
+    /**
+     * Looks up the triggers an entity of a given size standing on a tile is within, for single tiled entities this is
+     * a single chunk lookup.
+     */
+    private static List<Trigger> lookup(Tile tile, int size, int kind) {
+        List<Trigger> result = null;
+        synchronized (chunks) {
+            int maxChunkX = (tile.getX() + size - 1) >> 3;
+            int maxChunkY = (tile.getY() + size - 1) >> 3;
+            for (int chunkX = tile.getX() >> 3; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkY = tile.getY() >> 3; chunkY <= maxChunkY; chunkY++) {
+                    Trigger[] triggers = chunks.get(hash(chunkX, chunkY, tile.getZ()));
+                    if (triggers == null) {
+                        continue;
+                    }
+                    for (Trigger trigger : triggers) {
+                        if ((trigger.kinds & kind) != 0 && trigger.intersects(tile, size)) {
+                            if (result == null) {
+                                result = new ArrayList<Trigger>(4);
+                            } else if (result.contains(trigger)) {
+                                continue;
+                            }
+                            result.add(trigger);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void dispatchPlayerEvent(Player player, Tile tile) {
+        List<Trigger> triggers = lookup(tile, player.getSize(), PLAYER | ENTITY);
+        if (triggers == null) {
+            return;
+        }
+        for (Trigger trigger : triggers) {
+            if ((trigger.kinds & PLAYER) != 0) {
+                ((PlayerTileEventListener) trigger.listener).onPlayerEvent(player, tile);
+            } else {
+                ((EntityTileEventListener) trigger.listener).onEntityEvent(player, tile);
+            }
+        }
+    }
+
+    public static void dispatchNPCEvent(NPC npc, Tile tile) {
+        List<Trigger> triggers = lookup(tile, npc.getSize(), NPC | ENTITY);
+        if (triggers == null) {
+            return;
+        }
+        for (Trigger trigger : triggers) {
+            if ((trigger.kinds & NPC) != 0) {
+                ((NPCTileEventListener) trigger.listener).onNPCEvent(npc, tile);
+            } else {
+                ((EntityTileEventListener) trigger.listener).onEntityEvent(npc, tile);
+            }
+        }
+    }
+
+    public static void dispatchGroundItemEvent(GroundItem item, Tile tile) {
+        List<Trigger> triggers = lookup(tile, 1, GROUND_ITEM);
+        if (triggers == null) {
+            return;
+        }
+        for (Trigger trigger : triggers) {
+            ((GroundItemTileEventListener) trigger.listener).onGroundItemEvent(item, tile);
+        }
+    }
+
+    public static void dispatchGameObjectEvent(GameObject object, Tile tile) {
+        List<Trigger> triggers = lookup(tile, 1, GAME_OBJECT);
+        if (triggers == null) {
+            return;
+        }
+        for (Trigger trigger : triggers) {
+            ((GameObjectTileEventListener) trigger.listener).onGameObjectEvent(object, tile);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf;
+
+/**
+ * The checks deciding if a path search has reached something the entity wants to interact with, shared by the path
+ * finders.
+ *
+ * @author Lazaro
+ */
+public final class ObjectReach {
+    /**
+     * Checks if a wall, or an object with the type 0-3 or 9, can be interacted with from the current tile.
+     */
+    public static boolean reachedWall(int dstX, int dstY, int curX, int curY, int clipping, int type, int direction) {
+        if (curX == dstX && curY == dstY)
+            return true;
+        if (type == 0)
+            if (direction == 0) {
+                if (curX == dstX - 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x2c0120) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 0x2c0102) == 0)
+                    return true;
+            } else if (direction == 1) {
+                if (curX == dstX && curY == dstY + 1)
+                    return true;
+                if (curX == dstX - 1 && curY == dstY && (clipping & 0x2c0108) == 0)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x2c0180) == 0)
+                    return true;
+            } else if (direction == 2) {
+                if (curX == dstX + 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x2c0120) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 0x2c0102) == 0)
+                    return true;
+            } else if (direction == 3) {
+                if (curX == dstX && curY == dstY - 1)
+                    return true;
+                if (curX == dstX - 1 && curY == dstY && (clipping & 0x2c0108) == 0)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x2c0180) == 0)
+                    return true;
+            }
+        if (type == 2)
+            if (direction == 0) {
+                if (curX == dstX - 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY + 1)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x2c0180) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 0x2c0102) == 0)
+                    return true;
+            } else if (direction == 1) {
+                if (curX == dstX - 1 && curY == dstY && (clipping & 0x2c0108) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY + 1)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 0x2c0102) == 0)
+                    return true;
+            } else if (direction == 2) {
+                if (curX == dstX - 1 && curY == dstY && (clipping & 0x2c0108) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x2c0120) == 0)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY - 1)
+                    return true;
+            } else if (direction == 3) {
+                if (curX == dstX - 1 && curY == dstY)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x2c0120) == 0)
+                    return true;
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x2c0180) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1)
+                    return true;
+            }
+        if (type == 9) {
+            if (curX == dstX && curY == dstY + 1 && (clipping & 0x20) == 0)
+                return true;
+            if (curX == dstX && curY == dstY - 1 && (clipping & 2) == 0)
+                return true;
+            if (curX == dstX - 1 && curY == dstY && (clipping & 8) == 0)
+                return true;
+            if (curX == dstX + 1 && curY == dstY && (clipping & 0x80) == 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a wall decoration, an object with the type 4-8, can be interacted with from the current tile.
+     */
+    public static boolean reachedWallDecoration(int dstX, int dstY, int curX, int curY, int clipping, int type, int direction) {
+        if (curX == dstX && curY == dstY)
+            return true;
+        if (type == 6 || type == 7) {
+            if (type == 7)
+                direction = direction + 2 & 3;
+            if (direction == 0) {
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x80) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 2) == 0)
+                    return true;
+            } else if (direction == 1) {
+                if (curX == dstX - 1 && curY == dstY && (clipping & 8) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY - 1 && (clipping & 2) == 0)
+                    return true;
+            } else if (direction == 2) {
+                if (curX == dstX - 1 && curY == dstY && (clipping & 8) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x20) == 0)
+                    return true;
+            } else if (direction == 3) {
+                if (curX == dstX + 1 && curY == dstY && (clipping & 0x80) == 0)
+                    return true;
+                if (curX == dstX && curY == dstY + 1 && (clipping & 0x20) == 0)
+                    return true;
+            }
+        }
+        if (type == 8) {
+            if (curX == dstX && curY == dstY + 1 && (clipping & 0x20) == 0)
+                return true;
+            if (curX == dstX && curY == dstY - 1 && (clipping & 2) == 0)
+                return true;
+            if (curX == dstX - 1 && curY == dstY && (clipping & 8) == 0)
+                return true;
+            if (curX == dstX + 1 && curY == dstY && (clipping & 0x80) == 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an object or entity covering a rectangle of tiles can be interacted with from the current tile.
+     */
+    public static boolean reachedRectangle(int dstX, int dstY, int curX, int curY, int clipping, int sizeX, int sizeY, int walkToData) {
+        if ((walkToData & 0x80000000) != 0) {
+            if (curX == dstX && curY == dstY) {
+                return false;
+            }
+        }
+
+        int maxX = (dstX + sizeX) - 1;
+        int maxY = (dstY + sizeY) - 1;
+        if (curX >= dstX && curX <= maxX && curY >= dstY && curY <= maxY)
+            return true;
+        if (curX == dstX - 1 && curY >= dstY && curY <= maxY && (clipping & 8) == 0 && (walkToData & 8) == 0)
+            return true;
+        if (curX == maxX + 1 && curY >= dstY && curY <= maxY && (clipping & 0x80) == 0 && (walkToData & 2) == 0)
+            return true;
+        return curY == dstY - 1 && curX >= dstX && curX <= maxX && (clipping & 2) == 0 && (walkToData & 4) == 0 || curY == maxY + 1 && curX >= dstX && curX <= maxX && (clipping & 0x20) == 0 && (walkToData & 1) == 0;
+    }
+}
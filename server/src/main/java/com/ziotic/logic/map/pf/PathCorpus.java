@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.ziotic.Constants;
+import com.ziotic.Static;
+import com.ziotic.logic.map.PathFinder;
+import com.ziotic.logic.map.Region;
+import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
+import com.ziotic.logic.object.GameObject;
+import com.ziotic.logic.player.Player;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A set of path searches sampled from the loaded map, each stored with the path {@link AStarPathFinder} found for it.
+ * <p/>
+ * Replaying a corpus against another {@link PathFinder} reports how fast it is, how much it allocates and every
+ * search where it disagrees with the recorded behaviour, so changes to path finding can be checked against the
+ * behaviour of the original finder on real map data.
+ *
+ * @author Lazaro
+ */
+public class PathCorpus {
+    private static final Logger logger = Logging.log();
+
+    private static final int MAGIC = 0x50434f52;
+    private static final int VERSION = 1;
+
+    /**
+     * How many divergent searches are logged in detail on a replay.
+     */
+    private static final int LOGGED_DIVERGENCES = 20;
+
+    private static final int[] DECORATION_TYPES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    /**
+     * One recorded search, with coordinates absolute.
+     */
+    public static class Case {
+        public int srcX, srcY, z;
+        public int dstX, dstY;
+        public boolean moveNear;
+        public int type, direction, sizeX, sizeY, walkToData, size;
+
+        public boolean successful;
+        public boolean movedNear;
+        public int[] path;
+
+        private LinkedList<Tile> find(PathFinder pathFinder) {
+            Tile src = Tile.locate(srcX, srcY, z);
+            Tile dst = Tile.locate(dstX, dstY, z);
+            return pathFinder.findPath(null, src, src.getLocalX(), src.getLocalY(), dst.getLocalX(src), dst.getLocalY(src), moveNear, type, direction, sizeX, sizeY, walkToData, false, size);
+        }
+
+        private void record(PathFinder pathFinder, LinkedList<Tile> found) {
+            successful = pathFinder.isSuccessful();
+            movedNear = pathFinder.movedNear();
+            path = pack(found);
+        }
+
+        @Override
+        public String toString() {
+            return "src=" + srcX + "," + srcY + "," + z + " dst=" + dstX + "," + dstY + " type=" + type + " direction=" + direction
+                    + " size=" + sizeX + "x" + sizeY + " walkToData=" + Integer.toHexString(walkToData) + " entitySize=" + size + " moveNear=" + moveNear;
+        }
+    }
+
+    private final List<Case> cases;
+
+    private PathCorpus(List<Case> cases) {
+        this.cases = cases;
+    }
+
+    public List<Case> getCases() {
+        return cases;
+    }
+
+    /**
+     * Samples searches around a tile, their paths are recorded afterwards by {@link #recordPaths()}.
+     * <p/>
+     * Sources are open tiles within 32 tiles of the center. Destinations are a mix of plain tiles, real objects found
+     * near the source, with the same parameters a player walking to them would use, and entities, some of them
+     * searched for by entities larger than one tile.
+     * <p/>
+     * This reads the map and may load regions, so it has to be called on the tick thread.
+     */
+    public static PathCorpus sample(Tile center, int count, long seed) {
+        Random random = new Random(seed);
+        int z = center.getZ();
+        List<Case> cases = new ArrayList<Case>(count);
+        int attempts = 0;
+        while (cases.size() < count && attempts++ < count * 20) {
+            int srcX = center.getX() + random.nextInt(65) - 32;
+            int srcY = center.getY() + random.nextInt(65) - 32;
+            if ((Region.getAbsoluteClipping(srcX, srcY, z) & 0x1280100) != 0) {
+                continue;
+            }
+            Case c = new Case();
+            c.srcX = srcX;
+            c.srcY = srcY;
+            c.z = z;
+            c.moveNear = random.nextInt(10) != 0;
+            c.size = random.nextInt(5) == 0 ? 2 + random.nextInt(2) : 1;
+            int kind = random.nextInt(5);
+            if (kind < 2) {
+                if (!sampleObject(c, random)) {
+                    continue;
+                }
+            } else {
+                c.dstX = srcX + random.nextInt(65) - 32;
+                c.dstY = srcY + random.nextInt(65) - 32;
+                if (kind == 4) {
+                    c.type = -1;
+                    c.sizeX = c.sizeY = 1;
+                    c.walkToData = 0x80000000;
+                } else {
+                    c.type = -2;
+                }
+            }
+            cases.add(c);
+        }
+        PathCorpus corpus = new PathCorpus(cases);
+        corpus.loadRegions();
+        return corpus;
+    }
+
+    /**
+     * Records the paths {@link AStarPathFinder} finds for the sampled searches.
+     */
+    public void recordPaths() {
+        for (Case c : cases) {
+            AStarPathFinder pathFinder = new AStarPathFinder();
+            c.record(pathFinder, c.find(pathFinder));
+        }
+    }
+
+    /**
+     * Loads every region the searches of the corpus may look at, so they can run on a map worker without loading a
+     * map themselves. Has to be called on the tick thread.
+     */
+    public void loadRegions() {
+        Set<Integer> loaded = new HashSet<Integer>();
+        for (Case c : cases) {
+            // The searches look at most 64 tiles either way of their source, as in PathJob#prepare.
+            for (int x = (c.srcX - 64) >> 6; x <= (c.srcX + 64) >> 6; x++) {
+                for (int y = (c.srcY - 64) >> 6; y <= (c.srcY + 64) >> 6; y++) {
+                    if (loaded.add(x << 16 | y)) {
+                        Region.forRegionCoordinates(x, y).load();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks for an object near the source of a search to use as its destination.
+     */
+    private static boolean sampleObject(Case c, Random random) {
+        for (int i = 0; i < 32; i++) {
+            int x = c.srcX + random.nextInt(49) - 24;
+            int y = c.srcY + random.nextInt(49) - 24;
+            Tile tile = Tile.locate(x, y, c.z);
+            GameObject obj = random.nextBoolean() ? Region.getObject(tile) : Region.getWallObject(tile);
+            if (obj == null) {
+                continue;
+            }
+            c.dstX = x;
+            c.dstY = y;
+            if (obj.getType() == 10 || obj.getType() == 11 || obj.getType() == 22) {
+                c.type = -1;
+                c.sizeX = obj.getSizeX();
+                c.sizeY = obj.getSizeY();
+                int walkToData = obj.getDefinition().walkToData;
+                if (obj.getDirection() != 0) {
+                    walkToData = (walkToData << obj.getDirection() & 0xf) + (walkToData >> 4 - obj.getDirection());
+                }
+                c.walkToData = walkToData;
+            } else {
+                c.type = obj.getType();
+                c.direction = obj.getDirection();
+            }
+            return true;
+        }
+        // No object around, fall back to a random decoration so every object type still gets covered.
+        c.dstX = c.srcX + random.nextInt(49) - 24;
+        c.dstY = c.srcY + random.nextInt(49) - 24;
+        c.type = DECORATION_TYPES[random.nextInt(DECORATION_TYPES.length)];
+        c.direction = random.nextInt(4);
+        return true;
+    }
+
+    /**
+     * @return The waypoints of a path as absolute coordinates packed into one int each, or null for no path.
+     */
+    private static int[] pack(LinkedList<Tile> path) {
+        if (path == null) {
+            return null;
+        }
+        int[] packed = new int[path.size()];
+        int i = 0;
+        for (Tile tile : path) {
+            packed[i++] = tile.getX() << 14 | tile.getY();
+        }
+        return packed;
+    }
+
+    private static boolean sameEnd(int[] recorded, LinkedList<Tile> path) {
+        if (recorded == null || recorded.length == 0 || path == null || path.isEmpty()) {
+            return (recorded == null || recorded.length == 0) && (path == null || path.isEmpty());
+        }
+        Tile end = path.getLast();
+        return recorded[recorded.length - 1] == (end.getX() << 14 | end.getY());
+    }
+
+    private static boolean samePath(int[] recorded, LinkedList<Tile> path) {
+        if (recorded == null || path == null) {
+            return recorded == null && path == null;
+        }
+        if (recorded.length != path.size()) {
+            return false;
+        }
+        Iterator<Tile> it = path.iterator();
+        for (int waypoint : recorded) {
+            Tile tile = it.next();
+            if (waypoint != (tile.getX() << 14 | tile.getY())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs every search of the corpus with a path finder, checking the results against the recorded ones and timing
+     * the searches.
+     *
+     * @param pathFinderType The path finder to replay, created fresh for each search as the game does.
+     * @param iterations     How many timed passes over the corpus to make after the checking pass.
+     * @return A summary of the replay, times are in microseconds and allocation in bytes.
+     */
+    public String replay(Class<? extends PathFinder> pathFinderType, int iterations) throws Exception {
+        int diverged = 0;
+        int successDiffers = 0;
+        int moveNearDiffers = 0;
+        int pathDiffers = 0;
+        int endDiffers = 0;
+        for (Case c : cases) {
+            PathFinder pathFinder = pathFinderType.getDeclaredConstructor().newInstance();
+            LinkedList<Tile> path = c.find(pathFinder);
+            boolean success = pathFinder.isSuccessful() == c.successful;
+            boolean moveNear = pathFinder.movedNear() == c.movedNear;
+            boolean same = samePath(c.path, path);
+            if (!success) {
+                successDiffers++;
+            }
+            if (!moveNear) {
+                moveNearDiffers++;
+            }
+            boolean end = sameEnd(c.path, path);
+            if (!same) {
+                pathDiffers++;
+            }
+            if (!end) {
+                endDiffers++;
+            }
+            // A different route to the same place is not a divergence, path finders may break ties differently.
+            if (!success || !moveNear || !end) {
+                if (diverged++ < LOGGED_DIVERGENCES) {
+                    logger.info("Path divergence [" + c + ", recorded=" + (c.path == null ? "none" : c.path.length + " waypoints")
+                            + ", found=" + (path == null ? "none" : path.size() + " waypoints") + "]");
+                }
+            }
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureAllocation = threads instanceof com.sun.management.ThreadMXBean;
+        long allocated = measureAllocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Case c : cases) {
+                c.find(pathFinderType.getDeclaredConstructor().newInstance());
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (measureAllocation) {
+            allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        }
+
+        long searches = (long) cases.size() * iterations;
+        return "Path corpus replay [finder=" + pathFinderType.getSimpleName() + ", cases=" + cases.size() + ", diverged=" + diverged
+                + ", success=" + successDiffers + ", movedNear=" + moveNearDiffers + ", end=" + endDiffers + ", route=" + pathDiffers
+                + ", avg=" + (searches == 0 ? 0 : time / searches / 1000) + "us"
+                + ", perSecond=" + (time == 0 ? 0 : searches * 1000000000L / time)
+                + ", allocated=" + (!measureAllocation ? "n/a" : searches == 0 ? "0" : Long.toString(allocated / searches)) + "]";
+    }
+
+    public void write(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(cases.size());
+            for (Case c : cases) {
+                out.writeShort(c.srcX);
+                out.writeShort(c.srcY);
+                out.writeByte(c.z);
+                out.writeShort(c.dstX);
+                out.writeShort(c.dstY);
+                out.writeByte(c.type);
+                out.writeByte(c.direction);
+                out.writeByte(c.sizeX);
+                out.writeByte(c.sizeY);
+                out.writeInt(c.walkToData);
+                out.writeByte(c.size);
+                out.writeByte((c.moveNear ? 1 : 0) | (c.successful ? 2 : 0) | (c.movedNear ? 4 : 0) | (c.path != null ? 8 : 0));
+                if (c.path != null) {
+                    // Waypoints are stored as steps from the one before, which always fit in a byte within the window.
+                    out.writeShort(c.path.length);
+                    int lastX = c.srcX;
+                    int lastY = c.srcY;
+                    for (int waypoint : c.path) {
+                        int x = waypoint >> 14;
+                        int y = waypoint & 0x3fff;
+                        out.writeByte(x - lastX);
+                        out.writeByte(y - lastY);
+                        lastX = x;
+                        lastY = y;
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static PathCorpus read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a path corpus: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported path corpus version: " + version);
+            }
+            int count = in.readInt();
+            List<Case> cases = new ArrayList<Case>(count);
+            for (int i = 0; i < count; i++) {
+                Case c = new Case();
+                c.srcX = in.readUnsignedShort();
+                c.srcY = in.readUnsignedShort();
+                c.z = in.readUnsignedByte();
+                c.dstX = in.readUnsignedShort();
+                c.dstY = in.readUnsignedShort();
+                c.type = in.readByte();
+                c.direction = in.readUnsignedByte();
+                c.sizeX = in.readUnsignedByte();
+                c.sizeY = in.readUnsignedByte();
+                c.walkToData = in.readInt();
+                c.size = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                c.moveNear = (flags & 1) != 0;
+                c.successful = (flags & 2) != 0;
+                c.movedNear = (flags & 4) != 0;
+                if ((flags & 8) != 0) {
+                    c.path = new int[in.readUnsignedShort()];
+                    int x = c.srcX;
+                    int y = c.srcY;
+                    for (int j = 0; j < c.path.length; j++) {
+                        x += in.readByte();
+                        y += in.readByte();
+                        c.path[j] = x << 14 | y;
+                    }
+                }
+                cases.add(c);
+            }
+            return new PathCorpus(cases);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Samples a corpus around a player's location, then records its paths on a map worker and writes it to the corpus
+     * file.
+     */
+    public static void record(final Player player, final int count) {
+        final PathCorpus corpus = sample(player.getLocation(), count, System.nanoTime());
+        Static.engine.dispatchToMapWorker(new Runnable() {
+            public void run() {
+                try {
+                    corpus.recordPaths();
+                    File file = new File(Static.parseString(Constants.PATH_CORPUS_FILE));
+                    corpus.write(file);
+                    String result = "Recorded " + corpus.cases.size() + " path searches to " + file.getName() + " (" + file.length() + " bytes)";
+                    logger.info(result);
+                    player.sendMessage(result);
+                } catch (IOException e) {
+                    logger.error("Error recording path corpus", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replays the corpus file against the original and the heap based path finders on a map worker, and messages the
+     * player the results. The regions the corpus covers are loaded first, here on the tick thread.
+     */
+    public static void replay(final Player player, final int iterations) {
+        final PathCorpus corpus;
+        try {
+            corpus = read(new File(Static.parseString(Constants.PATH_CORPUS_FILE)));
+        } catch (IOException e) {
+            logger.error("Error reading path corpus", e);
+            return;
+        }
+        corpus.loadRegions();
+        final List<Class<? extends PathFinder>> types = new ArrayList<Class<? extends PathFinder>>();
+        types.add(AStarPathFinder.class);
+        types.add(HeapAStarPathFinder.class);
+        Static.engine.dispatchToMapWorker(new Runnable() {
+            public void run() {
+                try {
+                    for (Class<? extends PathFinder> type : types) {
+                        String result = corpus.replay(type, iterations);
+                        logger.info(result);
+                        player.sendMessage(result);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error replaying path corpus", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import com.ziotic.Static;
+import com.ziotic.logic.map.PathFinder;
+import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.map.pf.astar.AStarPathFinder;
+import com.ziotic.logic.map.pf.astar.HeapAStarPathFinder;
+import com.ziotic.logic.player.Player;
+import com.ziotic.utility.Logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs {@link AStarPathFinder} and {@link HeapAStarPathFinder} on the same random searches around a tile, comparing
+ * the paths they find and the time they take.
+ *
+ * @author Lazaro
+ */
+public class PathFinderComparison {
+    private static final Logger logger = Logging.log();
+
+    private static final int[] OBJECT_TYPES = {-2, -1, 0, 1, 2, 3, 9, 4, 5, 6, 7, 8};
+
+    private final Tile center;
+    private final int samples;
+    private final int iterations;
+    private final Random random;
+
+    private int identical = 0;
+    private int sameDestination = 0;
+    private int different = 0;
+    private int bothFailed = 0;
+    private int onlyOldFound = 0;
+    private int onlyNewFound = 0;
+    private long oldSteps = 0;
+    private long newSteps = 0;
+    private long oldTime = 0;
+    private long newTime = 0;
+
+    /**
+     * Compares the path finders around a player's location on a map worker, and messages the player the results.
+     */
+    public static void submit(final Player player, final int samples) {
+        final Tile center = player.getLocation();
+        Static.engine.dispatchToMapWorker(new Runnable() {
+            public void run() {
+                String result = new PathFinderComparison(center, samples, 20, System.nanoTime()).run();
+                logger.info(result);
+                player.sendMessage(result);
+            }
+        });
+    }
+
+    public PathFinderComparison(Tile center, int samples, int iterations, long seed) {
+        this.center = center;
+        this.samples = samples;
+        this.iterations = iterations;
+        this.random = new Random(seed);
+    }
+
+    public String run() {
+        int[][] searches = new int[samples][];
+        for (int i = 0; i < samples; i++) {
+            searches[i] = createSearch();
+        }
+
+        for (int[] search : searches) {
+            compare(search);
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            for (int[] search : searches) {
+                find(new AStarPathFinder(), search);
+            }
+            oldTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int[] search : searches) {
+                find(new HeapAStarPathFinder(), search);
+            }
+            newTime += System.nanoTime() - start;
+        }
+
+        long searchCount = (long) samples * iterations;
+        return "Path finder comparison [samples=" + samples + ", identical=" + identical + ", sameDestination=" + sameDestination
+                + ", different=" + different + ", bothFailed=" + bothFailed + ", onlyOld=" + onlyOldFound + ", onlyNew=" + onlyNewFound
+                + ", oldSteps=" + oldSteps + ", newSteps=" + newSteps
+                + ", oldAvg=" + (searchCount == 0 ? 0 : oldTime / searchCount / 1000) + "us"
+                + ", newAvg=" + (searchCount == 0 ? 0 : newTime / searchCount / 1000) + "us]";
+    }
+
+    /**
+     * @return The source, destination and object of a random search within the window around the center tile.
+     */
+    private int[] createSearch() {
+        int baseX = (center.getPartX() - 6) << 3;
+        int baseY = (center.getPartY() - 6) << 3;
+        int srcX = center.getX() - baseX;
+        int srcY = center.getY() - baseY;
+        int dstX = Math.max(0, Math.min(103, srcX + random.nextInt(65) - 32));
+        int dstY = Math.max(0, Math.min(103, srcY + random.nextInt(65) - 32));
+        int type = OBJECT_TYPES[random.nextInt(OBJECT_TYPES.length)];
+        int sizeX = type == -1 ? 1 + random.nextInt(3) : 1;
+        int sizeY = type == -1 ? 1 + random.nextInt(3) : 1;
+        return new int[]{srcX, srcY, dstX, dstY, type, random.nextInt(4), sizeX, sizeY, random.nextInt(2)};
+    }
+
+    private LinkedList<Tile> find(PathFinder pathFinder, int[] search) {
+        return pathFinder.findPath(null, center, search[0], search[1], search[2], search[3], search[8] == 1, search[4], search[5], search[6], search[7], 0, false, 1);
+    }
+
+    private void compare(int[] search) {
+        PathFinder oldFinder = new AStarPathFinder();
+        PathFinder newFinder = new HeapAStarPathFinder();
+        LinkedList<Tile> oldPath = find(oldFinder, search);
+        LinkedList<Tile> newPath = find(newFinder, search);
+
+        boolean oldFound = oldPath != null || oldFinder.isSuccessful();
+        boolean newFound = newPath != null || newFinder.isSuccessful();
+        if (!oldFound && !newFound) {
+            bothFailed++;
+        } else if (!newFound) {
+            onlyOldFound++;
+        } else if (!oldFound) {
+            onlyNewFound++;
+        } else if (oldPath == null || newPath == null) {
+            if (oldPath == newPath) {
+                identical++;
+            } else {
+                different++;
+            }
+        } else {
+            oldSteps += countSteps(center, oldPath);
+            newSteps += countSteps(center, newPath);
+            if (oldPath.equals(newPath)) {
+                identical++;
+            } else if (oldPath.getLast().equals(newPath.getLast())) {
+                sameDestination++;
+            } else {
+                different++;
+            }
+        }
+    }
+
+    /**
+     * @return The amount of steps it takes to walk a path, diagonal steps counting as one.
+     */
+    private static int countSteps(Tile src, LinkedList<Tile> path) {
+        int steps = 0;
+        Tile last = src;
+        for (Tile waypoint : path) {
+            steps += Math.max(Math.abs(waypoint.getX() - last.getX()), Math.abs(waypoint.getY() - last.getY()));
+            last = waypoint;
+        }
+        return steps;
+    }
+}
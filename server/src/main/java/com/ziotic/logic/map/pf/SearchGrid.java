@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf;
+
+import java.util.Arrays;
+
+import com.ziotic.utility.Poolable;
+
+/**
+ * The node state of a path search over a 104x104 window, with the open list kept as an indexed binary heap.
+ * <p/>
+ * Nodes are stamped with the generation of the search which last touched them, so starting a new search only has to
+ * bump the generation rather than reset every node.
+ *
+ * @author Lazaro
+ */
+public class SearchGrid implements Poolable {
+    public static final int SIZE = 104;
+
+    private static final int CLOSED = -1;
+
+    private final int[] stamp = new int[SIZE * SIZE];
+    private final int[] cost = new int[SIZE * SIZE];
+    private final int[] estimate = new int[SIZE * SIZE];
+    private final int[] via = new int[SIZE * SIZE];
+    private final int[] heapIndex = new int[SIZE * SIZE];
+
+    private final int[] heap = new int[SIZE * SIZE];
+    private int heapSize = 0;
+
+    private int generation = 0;
+
+    /**
+     * Starts a new search, forgetting every node of the previous one.
+     */
+    public void reset() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+    }
+
+    public static int index(int x, int y) {
+        return x * SIZE + y;
+    }
+
+    public boolean isVisited(int node) {
+        return stamp[node] == generation;
+    }
+
+    public boolean isClosed(int node) {
+        return stamp[node] == generation && heapIndex[node] == CLOSED;
+    }
+
+    public int getCost(int node) {
+        return cost[node];
+    }
+
+    public int getVia(int node) {
+        return via[node];
+    }
+
+    public boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * Records a path to a node, adding it to the open list or moving it up the list if it is already open.
+     *
+     * @return If the node was not reached more cheaply before.
+     */
+    public boolean offer(int node, int cost, int estimate, int via) {
+        if (stamp[node] == generation) {
+            if (cost >= this.cost[node]) {
+                return false;
+            }
+            this.cost[node] = cost;
+            this.estimate[node] = cost + estimate;
+            this.via[node] = via;
+            if (heapIndex[node] == CLOSED) {
+                push(node);
+            } else {
+                siftUp(heapIndex[node]);
+            }
+            return true;
+        }
+        stamp[node] = generation;
+        this.cost[node] = cost;
+        this.estimate[node] = cost + estimate;
+        this.via[node] = via;
+        push(node);
+        return true;
+    }
+
+    /**
+     * Removes the open node with the lowest estimated total cost and closes it.
+     */
+    public int poll() {
+        int node = heap[0];
+        heapIndex[node] = CLOSED;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return node;
+    }
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private boolean before(int a, int b) {
+        // On equal estimates prefer the node furthest along, it is usually closer to the destination.
+        return estimate[a] < estimate[b] || (estimate[a] == estimate[b] && cost[a] > cost[b]);
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (!before(node, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        int half = heapSize >> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && before(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!before(heap[child], node)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        heapIndex[node] = i;
+    }
+
+    @Override
+    public boolean expired() {
+        return false;
+    }
+
+    @Override
+    public void recycle() {
+        heapSize = 0;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf;
+
+import com.ziotic.logic.map.MapInstance;
+import com.ziotic.logic.map.Region;
+
+/**
+ * The clipping rules for a single step of an entity of size one, the same the path finders use.
+ *
+ * @author Lazaro
+ */
+public final class Steps {
+    /**
+     * @param dx          The step along the x axis, -1, 0 or 1.
+     * @param dy          The step along the y axis, -1, 0 or 1.
+     * @param destination The clipping of the tile stepped onto.
+     * @param horizontal  The clipping of the tile beside the start along the x axis, only used for diagonal steps.
+     * @param vertical    The clipping of the tile beside the start along the y axis, only used for diagonal steps.
+     */
+    public static boolean canStep(int dx, int dy, int destination, int horizontal, int vertical) {
+        if (dy == 0) {
+            return (destination & (dx < 0 ? 0x42240000 : 0x60240000)) == 0;
+        }
+        if (dx == 0) {
+            return (destination & (dy < 0 ? 0x40a40000 : 0x48240000)) == 0;
+        }
+        int diagonal;
+        if (dx < 0) {
+            diagonal = dy < 0 ? 0x43a40000 : 0x4e240000;
+        } else {
+            diagonal = dy < 0 ? 0x60e40000 : 0x78240000;
+        }
+        return (destination & diagonal) == 0 && (horizontal & (dx < 0 ? 0x42240000 : 0x60240000)) == 0 && (vertical & (dy < 0 ? 0x40a40000 : 0x48240000)) == 0;
+    }
+
+    public static boolean canStep(MapInstance instance, int x, int y, int z, int dx, int dy) {
+        int destination = Region.getAbsoluteClipping(instance, x + dx, y + dy, z);
+        if (dx == 0 || dy == 0) {
+            return canStep(dx, dy, destination, 0, 0);
+        }
+        return canStep(dx, dy, destination, Region.getAbsoluteClipping(instance, x + dx, y, z), Region.getAbsoluteClipping(instance, x, y + dy, z));
+    }
+}
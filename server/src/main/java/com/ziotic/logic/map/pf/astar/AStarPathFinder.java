@@ -23,9 +23,11 @@ package com.ziotic.logic.map.pf.astar;
 
 import java.util.LinkedList;
 
+import com.ziotic.logic.map.MapInstance;
 import com.ziotic.logic.map.PathFinder;
 import com.ziotic.logic.map.Region;
 import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.map.pf.ObjectReach;
 import com.ziotic.logic.map.pf.TileNode;
 import com.ziotic.logic.map.pf.TileNodeContainer;
 import com.ziotic.utility.Pool;
@@ -66,7 +68,7 @@ public final class AStarPathFinder implements PathFinder {
         return movedNear;
     }
 
-    public LinkedList<Tile> findPath(Tile absSrc, int srcX, int srcY, int dstX, int dstY, boolean moveNear, int type, int direction, int sizeX, int sizeY, int walkToData, boolean noClip, int size) {
+    public LinkedList<Tile> findPath(MapInstance instance, Tile absSrc, int srcX, int srcY, int dstX, int dstY, boolean moveNear, int type, int direction, int sizeX, int sizeY, int walkToData, boolean noClip, int size) {
         if (srcX < 0 || srcY < 0 || srcX >= 104 || srcY >= 104 || dstX < 0 || dstY < 0 || dstX >= 104 || dstY >= 104) {
             return null;
         }
@@ -96,9 +98,17 @@ public final class AStarPathFinder implements PathFinder {
             nodeContainer = nodeContainerPool.acquire();
 
             nodes = nodeContainer.nodes;
-            for (int x = 0; x < 104; x++) {
-                for (int y = 0; y < 104; y++) {
-                    nodes[x][y].clipping = regions[((baseX + x) >> 6) - baseRegionX][((baseY + y) >> 6) - baseRegionY].getClipping((baseX + x) & 0x3f, (baseY + y) & 0x3f, z);
+            if (instance != null) {
+                for (int x = 0; x < 104; x++) {
+                    for (int y = 0; y < 104; y++) {
+                        nodes[x][y].clipping = instance.getClipping(baseX + x, baseY + y, z);
+                    }
+                }
+            } else {
+                for (int x = 0; x < 104; x++) {
+                    for (int y = 0; y < 104; y++) {
+                        nodes[x][y].clipping = regions[((baseX + x) >> 6) - baseRegionX][((baseY + y) >> 6) - baseRegionY].getClipping((baseX + x) & 0x3f, (baseY + y) & 0x3f, z);
+                    }
                 }
             }
 
@@ -451,148 +461,14 @@ public final class AStarPathFinder implements PathFinder {
     }
 
     public boolean reachedObject(int dstX, int dstY, int curX, int curY, int type, int direction) {
-        if (curX == dstX && curY == dstY)
-            return true;
-        TileNode n = nodes[curX][curY];
-        if (type == 0)
-            if (direction == 0) {
-                if (curX == dstX - 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x2c0120) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 0x2c0102) == 0)
-                    return true;
-            } else if (direction == 1) {
-                if (curX == dstX && curY == dstY + 1)
-                    return true;
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 0x2c0108) == 0)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x2c0180) == 0)
-                    return true;
-            } else if (direction == 2) {
-                if (curX == dstX + 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x2c0120) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 0x2c0102) == 0)
-                    return true;
-            } else if (direction == 3) {
-                if (curX == dstX && curY == dstY - 1)
-                    return true;
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 0x2c0108) == 0)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x2c0180) == 0)
-                    return true;
-            }
-        if (type == 2)
-            if (direction == 0) {
-                if (curX == dstX - 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY + 1)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x2c0180) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 0x2c0102) == 0)
-                    return true;
-            } else if (direction == 1) {
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 0x2c0108) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY + 1)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 0x2c0102) == 0)
-                    return true;
-            } else if (direction == 2) {
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 0x2c0108) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x2c0120) == 0)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY - 1)
-                    return true;
-            } else if (direction == 3) {
-                if (curX == dstX - 1 && curY == dstY)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x2c0120) == 0)
-                    return true;
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x2c0180) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1)
-                    return true;
-            }
-        if (type == 9) {
-            if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x20) == 0)
-                return true;
-            if (curX == dstX && curY == dstY - 1 && (n.clipping & 2) == 0)
-                return true;
-            if (curX == dstX - 1 && curY == dstY && (n.clipping & 8) == 0)
-                return true;
-            if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x80) == 0)
-                return true;
-        }
-        return false;
+        return ObjectReach.reachedWall(dstX, dstY, curX, curY, nodes[curX][curY].clipping, type, direction);
     }
 
     public boolean reachedObject2(int dstX, int dstY, int curX, int curY, int type, int direction) {
-        if (curX == dstX && curY == dstY)
-            return true;
-        TileNode n = nodes[curX][curY];
-        if (type == 6 || type == 7) {
-            if (type == 7)
-                direction = direction + 2 & 3;
-            if (direction == 0) {
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x80) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 2) == 0)
-                    return true;
-            } else if (direction == 1) {
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 8) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY - 1 && (n.clipping & 2) == 0)
-                    return true;
-            } else if (direction == 2) {
-                if (curX == dstX - 1 && curY == dstY && (n.clipping & 8) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x20) == 0)
-                    return true;
-            } else if (direction == 3) {
-                if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x80) == 0)
-                    return true;
-                if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x20) == 0)
-                    return true;
-            }
-        }
-        if (type == 8) {
-            if (curX == dstX && curY == dstY + 1 && (n.clipping & 0x20) == 0)
-                return true;
-            if (curX == dstX && curY == dstY - 1 && (n.clipping & 2) == 0)
-                return true;
-            if (curX == dstX - 1 && curY == dstY && (n.clipping & 8) == 0)
-                return true;
-            if (curX == dstX + 1 && curY == dstY && (n.clipping & 0x80) == 0)
-                return true;
-        }
-        return false;
+        return ObjectReach.reachedWallDecoration(dstX, dstY, curX, curY, nodes[curX][curY].clipping, type, direction);
     }
 
     private boolean reachedObject3(int dstX, int dstY, int curX, int curY, int sizeX, int sizeY, int walkToData) {
-        if ((walkToData & 0x80000000) != 0) {
-            if (curX == dstX && curY == dstY) {
-                return false;
-            }
-        }
-
-        int maxX = (dstX + sizeX) - 1;
-        int maxY = (dstY + sizeY) - 1;
-        if (curX >= dstX && curX <= maxX && curY >= dstY && curY <= maxY)
-            return true;
-        TileNode n = nodes[curX][curY];
-        if (curX == dstX - 1 && curY >= dstY && curY <= maxY && (n.clipping & 8) == 0 && (walkToData & 8) == 0)
-            return true;
-        if (curX == maxX + 1 && curY >= dstY && curY <= maxY && (n.clipping & 0x80) == 0 && (walkToData & 2) == 0)
-            return true;
-        return curY == dstY - 1 && curX >= dstX && curX <= maxX && (n.clipping & 2) == 0 && (walkToData & 4) == 0 || curY == maxY + 1 && curX >= dstX && curX <= maxX && (n.clipping & 0x20) == 0 && (walkToData & 1) == 0;
+        return ObjectReach.reachedRectangle(dstX, dstY, curX, curY, nodes[curX][curY].clipping, sizeX, sizeY, walkToData);
     }
 }
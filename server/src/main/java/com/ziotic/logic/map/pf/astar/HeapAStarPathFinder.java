@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.astar;
+
+import java.util.LinkedList;
+
+import com.ziotic.logic.map.MapInstance;
+import com.ziotic.logic.map.PathFinder;
+import com.ziotic.logic.map.Region;
+import com.ziotic.logic.map.Tile;
+import com.ziotic.logic.map.pf.ObjectReach;
+import com.ziotic.logic.map.pf.SearchGrid;
+import com.ziotic.utility.Pool;
+
+/**
+ * An A* path finder over the same 104x104 window and with the same movement rules as {@link AStarPathFinder}.
+ * <p/>
+ * The open list is an indexed binary heap ordered by the cost so far plus the octile distance to the destination, the
+ * node state is reset by generation rather than node by node, and clipping is read straight from the regions as tiles
+ * are examined rather than copied into the window up front.
+ *
+ * @author Lazaro
+ */
+public final class HeapAStarPathFinder implements PathFinder {
+    private static final int SIZE = SearchGrid.SIZE;
+
+    private static final int COST_STRAIGHT = 10;
+    private static final int COST_DIAGONAL = 14;
+
+    private static final int MAX_LOOPS = SIZE * SIZE + 1;
+
+    /**
+     * How far from the start a tile may be to be moved to when the destination can not be reached.
+     */
+    private static final int MAX_MOVE_NEAR_COST = 100 * COST_STRAIGHT;
+
+    private static Pool<SearchGrid> gridPool = new Pool<SearchGrid>(SearchGrid.class, null, 4);
+
+    private boolean success = false;
+    private boolean movedNear = false;
+
+    private SearchGrid grid;
+    private MapInstance instance;
+    private int[][][] clipping;
+
+    private int z;
+    private int baseX, baseY;
+    private int baseRegionX, baseRegionY;
+
+    private int goalMinX, goalMinY;
+    private int goalMaxX, goalMaxY;
+
+    private int currentCost;
+
+    public boolean isSuccessful() {
+        return success;
+    }
+
+    @Override
+    public boolean movedNear() {
+        return movedNear;
+    }
+
+    public LinkedList<Tile> findPath(MapInstance instance, Tile absSrc, int srcX, int srcY, int dstX, int dstY, boolean moveNear, int type, int direction, int sizeX, int sizeY, int walkToData, boolean noClip, int size) {
+        if (srcX < 0 || srcY < 0 || srcX >= SIZE || srcY >= SIZE || dstX < 0 || dstY < 0 || dstX >= SIZE || dstY >= SIZE) {
+            return null;
+        }
+
+        try {
+            boolean varSized = size > 1;
+
+            this.instance = instance;
+            z = absSrc.getZ();
+
+            baseX = (absSrc.getPartX() - 6) << 3;
+            baseY = (absSrc.getPartY() - 6) << 3;
+
+            baseRegionX = baseX >> 6;
+            baseRegionY = baseY >> 6;
+
+            clipping = new int[9][][];
+            for (int x = 0; x < 3; x++) {
+                for (int y = 0; y < 3; y++) {
+                    Region r = Region.forRegionCoordinates(baseRegionX + x, baseRegionY + y);
+                    r.load();
+                    int[][][] planes = r.getClipping();
+                    if (planes != null) {
+                        clipping[x * 3 + y] = planes[z];
+                    }
+                }
+            }
+
+            if (type == -2) {
+                goalMinX = goalMaxX = dstX;
+                goalMinY = goalMaxY = dstY;
+            } else if (type == -1) {
+                goalMinX = dstX - 1;
+                goalMinY = dstY - 1;
+                goalMaxX = dstX + sizeX;
+                goalMaxY = dstY + sizeY;
+            } else {
+                goalMinX = dstX - 1;
+                goalMinY = dstY - 1;
+                goalMaxX = dstX + 1;
+                goalMaxY = dstY + 1;
+            }
+
+            grid = gridPool.acquire();
+            grid.reset();
+
+            int src = SearchGrid.index(srcX, srcY);
+            grid.offer(src, 0, estimate(srcX, srcY), 99);
+
+            int curX = dstX;
+            int curY = dstY;
+
+            boolean foundPath = false;
+
+            int loop = 0;
+            while (!grid.isEmpty() && loop++ <= MAX_LOOPS) {
+                int current = grid.poll();
+                int x = current / SIZE, y = current % SIZE;
+                currentCost = grid.getCost(current);
+
+                boolean reached;
+                if (type == -2) {
+                    reached = x == dstX && y == dstY;
+                } else if (type == -1) {
+                    reached = ObjectReach.reachedRectangle(dstX, dstY, x, y, clip(x, y), sizeX, sizeY, walkToData);
+                } else if (type == 0 || type == 1 || type == 2 || type == 3 || type == 9) {
+                    reached = ObjectReach.reachedWall(dstX, dstY, x, y, clip(x, y), type, direction);
+                } else {
+                    reached = ObjectReach.reachedWallDecoration(dstX, dstY, x, y, clip(x, y), type, direction);
+                }
+                if (reached) {
+                    curX = x;
+                    curY = y;
+                    foundPath = true;
+                    break;
+                }
+
+                if (varSized) {
+                    westCheck:
+                    do {
+                        if (x > size - 1) {
+                            if (noClip) {
+                                examine(x - 1, y, 2, COST_STRAIGHT);
+                            } else if ((clip(x - 1, y) & 0x43a40000) == 0 && (clip(x - 1, y + size - 1) & 0x4e240000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x - 1, y + offset) & 0x4fa40000) != 0)
+                                        break westCheck;
+                                }
+                                examine(x - 1, y, 2, COST_STRAIGHT);
+                            }
+                        }
+                    } while (false);
+                    eastCheck:
+                    do {
+                        if (x < SIZE - size) {
+                            if (noClip) {
+                                examine(x + 1, y, 8, COST_STRAIGHT);
+                            } else if ((clip(x + size, y) & 0x60e40000) == 0 && (clip(x + size, y + size - 1) & 0x78240000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x + size, y + offset) & 0x78e40000) != 0)
+                                        break eastCheck;
+                                }
+                                examine(x + 1, y, 8, COST_STRAIGHT);
+                            }
+                        }
+                    } while (false);
+                    southCheck:
+                    do {
+                        if (y > size - 1) {
+                            if (noClip) {
+                                examine(x, y - 1, 1, COST_STRAIGHT);
+                            } else if ((clip(x, y - 1) & 0x43a40000) == 0 && (clip(x + size - 1, y - 1) & 0x60e40000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x + offset, y - 1) & 0x63e40000) != 0)
+                                        break southCheck;
+                                }
+                                examine(x, y - 1, 1, COST_STRAIGHT);
+                            }
+                        }
+                    } while (false);
+                    northCheck:
+                    do {
+                        if (y < SIZE - size) {
+                            if (noClip) {
+                                examine(x, y + 1, 4, COST_STRAIGHT);
+                            } else if ((clip(x, y + size) & 0x4e240000) == 0 && (clip(x + size - 1, y + size) & 0x78240000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x + offset, y + size) & 0x7e240000) != 0)
+                                        break northCheck;
+                                }
+                                examine(x, y + 1, 4, COST_STRAIGHT);
+                            }
+                        }
+                    } while (false);
+                    southWestCheck:
+                    do {
+                        if (x > size - 1 && y > size - 1) {
+                            if (noClip) {
+                                examine(x - 1, y - 1, 3, COST_DIAGONAL);
+                            } else if ((clip(x - 1, y - 1) & 0x43a40000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x - 1, y + offset - 1) & 0x4fa40000) != 0 || (clip(x + offset - 1, y - 1) & 0x63e40000) != 0)
+                                        break southWestCheck;
+                                }
+                                examine(x - 1, y - 1, 3, COST_DIAGONAL);
+                            }
+                        }
+                    } while (false);
+                    southEastCheck:
+                    do {
+                        if (x < SIZE - size && y > size - 1) {
+                            if (noClip) {
+                                examine(x + 1, y - 1, 9, COST_DIAGONAL);
+                            } else if ((clip(x + size, y - 1) & 0x60e40000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x + size, y + offset - 1) & 0x78e40000) != 0 || (clip(x + offset, y - 1) & 0x63e40000) != 0)
+                                        break southEastCheck;
+                                }
+                                examine(x + 1, y - 1, 9, COST_DIAGONAL);
+                            }
+                        }
+                    } while (false);
+                    northWestCheck:
+                    do {
+                        if (x > size - 1 && y < SIZE - size) {
+                            if (noClip) {
+                                examine(x - 1, y + 1, 6, COST_DIAGONAL);
+                            } else if ((clip(x - 1, y + size) & 0x4e240000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x - 1, y + offset) & 0x4fa40000) != 0 || (clip(x + offset - 1, y + size) & 0x7e240000) != 0)
+                                        break northWestCheck;
+                                }
+                                examine(x - 1, y + 1, 6, COST_DIAGONAL);
+                            }
+                        }
+                    } while (false);
+                    northEastCheck:
+                    do {
+                        if (x < SIZE - size && y < SIZE - size) {
+                            if (noClip) {
+                                examine(x + 1, y + 1, 12, COST_DIAGONAL);
+                            } else if ((clip(x + size, y + size) & 0x78240000) == 0) {
+                                for (int offset = 1; offset < size - 1; offset++) {
+                                    if ((clip(x + size, y + offset) & 0x7e240000) != 0 || (clip(x + offset, y + size) & 0x78e40000) != 0)
+                                        break northEastCheck;
+                                }
+                                examine(x + 1, y + 1, 12, COST_DIAGONAL);
+                            }
+                        }
+                    } while (false);
+                } else {
+                    int west = x > 0 ? clip(x - 1, y) : -1;
+                    int east = x < SIZE - 1 ? clip(x + 1, y) : -1;
+                    int south = y > 0 ? clip(x, y - 1) : -1;
+                    int north = y < SIZE - 1 ? clip(x, y + 1) : -1;
+                    // west
+                    if (x > 0 && (noClip || (west & 0x42240000) == 0)) {
+                        examine(x - 1, y, 2, COST_STRAIGHT);
+                    }
+                    // east
+                    if (x < SIZE - 1 && (noClip || (east & 0x60240000) == 0)) {
+                        examine(x + 1, y, 8, COST_STRAIGHT);
+                    }
+                    // south
+                    if (y > 0 && (noClip || (south & 0x40a40000) == 0)) {
+                        examine(x, y - 1, 1, COST_STRAIGHT);
+                    }
+                    // north
+                    if (y < SIZE - 1 && (noClip || (north & 0x48240000) == 0)) {
+                        examine(x, y + 1, 4, COST_STRAIGHT);
+                    }
+                    // south-west
+                    if (x > 0 && y > 0) {
+                        if (noClip || ((clip(x - 1, y - 1) & 0x43a40000) == 0 && (west & 0x42240000) == 0 && (south & 0x40a40000) == 0)) {
+                            examine(x - 1, y - 1, 3, COST_DIAGONAL);
+                        }
+                    }
+                    // south-east
+                    if (x < SIZE - 1 && y > 0) {
+                        if (noClip || ((clip(x + 1, y - 1) & 0x60e40000) == 0 && (east & 0x60240000) == 0 && (south & 0x40a40000) == 0)) {
+                            examine(x + 1, y - 1, 9, COST_DIAGONAL);
+                        }
+                    }
+                    // north-west
+                    if (x > 0 && y < SIZE - 1) {
+                        if (noClip || ((clip(x - 1, y + 1) & 0x4e240000) == 0 && (west & 0x42240000) == 0 && (north & 0x48240000) == 0)) {
+                            examine(x - 1, y + 1, 6, COST_DIAGONAL);
+                        }
+                    }
+                    // north-east
+                    if (x < SIZE - 1 && y < SIZE - 1) {
+                        if (noClip || ((clip(x + 1, y + 1) & 0x78240000) == 0 && (east & 0x60240000) == 0 && (north & 0x48240000) == 0)) {
+                            examine(x + 1, y + 1, 12, COST_DIAGONAL);
+                        }
+                    }
+                }
+            }
+
+            if (!foundPath) {
+                if (moveNear) {
+                    int curDistance = 1000;
+                    int curCost = MAX_MOVE_NEAR_COST;
+                    int range = 10;
+                    for (int x = dstX - range; x <= dstX + range; x++) {
+                        for (int y = dstY - range; y <= dstY + range; y++) {
+                            if (x >= 0 && y >= 0 && x < SIZE && y < SIZE) {
+                                int node = SearchGrid.index(x, y);
+                                if (!grid.isVisited(node)) {
+                                    continue;
+                                }
+                                int cost = grid.getCost(node);
+                                if (cost < MAX_MOVE_NEAR_COST) {
+                                    int diffX = 0;
+                                    if (x < dstX)
+                                        diffX = dstX - x;
+                                    else if (x > dstX + sizeX - 1)
+                                        diffX = x - (dstX + sizeX - 1);
+                                    int diffY = 0;
+                                    if (y < dstY)
+                                        diffY = dstY - y;
+                                    else if (y > dstY + sizeY - 1)
+                                        diffY = y - (dstY + sizeY - 1);
+                                    int distance = diffX * diffX + diffY * diffY;
+                                    if (distance < curDistance || (distance == curDistance && (cost < curCost))) {
+                                        curDistance = distance;
+                                        curCost = cost;
+                                        curX = x;
+                                        curY = y;
+                                        foundPath = true;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    if (!foundPath) {
+                        return null;
+                    } else {
+                        movedNear = true;
+                    }
+                } else {
+                    return null;
+                }
+            }
+
+            if (srcX == curX && srcY == curY) {
+                success = true;
+                return null;
+            }
+
+            LinkedList<Tile> p = new LinkedList<Tile>();
+            p.addFirst(Tile.locate(baseX + curX, baseY + curY, z));
+            int lastVia = grid.getVia(SearchGrid.index(curX, curY));
+            while (curX != srcX || curY != srcY) {
+                int via = grid.getVia(SearchGrid.index(curX, curY));
+                if (via != lastVia) {
+                    lastVia = via;
+                    p.addFirst(Tile.locate(baseX + curX, baseY + curY, z));
+                }
+                if ((via & 2) != 0) {
+                    curX++;
+                } else if ((via & 8) != 0) {
+                    curX--;
+                }
+                if ((via & 1) != 0) {
+                    curY++;
+                } else if ((via & 4) != 0) {
+                    curY--;
+                }
+            }
+            success = true;
+
+            return p;
+        } finally {
+            if (grid != null) {
+                gridPool.release(grid);
+                grid = null;
+            }
+            this.instance = null;
+            clipping = null;
+        }
+    }
+
+    private int clip(int x, int y) {
+        if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+            return -1;
+        }
+        int absX = baseX + x;
+        int absY = baseY + y;
+        if (instance != null) {
+            return instance.getClipping(absX, absY, z);
+        }
+        int[][] plane = clipping[((absX >> 6) - baseRegionX) * 3 + ((absY >> 6) - baseRegionY)];
+        if (plane == null) {
+            return 0;
+        }
+        return plane[absX & 0x3f][absY & 0x3f];
+    }
+
+    /**
+     * The octile distance from a tile to the nearest tile the destination could be reached from.
+     */
+    private int estimate(int x, int y) {
+        int deltaX = x < goalMinX ? goalMinX - x : (x > goalMaxX ? x - goalMaxX : 0);
+        int deltaY = y < goalMinY ? goalMinY - y : (y > goalMaxY ? y - goalMaxY : 0);
+        return COST_STRAIGHT * (deltaX + deltaY) + (COST_DIAGONAL - 2 * COST_STRAIGHT) * Math.min(deltaX, deltaY);
+    }
+
+    private void examine(int x, int y, int via, int stepCost) {
+        grid.offer(SearchGrid.index(x, y), currentCost + stepCost, estimate(x, y), via);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.flow;
+
+import java.util.Arrays;
+
+import com.ziotic.logic.map.MapInstance;
+import com.ziotic.logic.map.Region;
+import com.ziotic.logic.map.pf.Steps;
+
+/**
+ * The distances of every position around a target to the nearest position beside it, for movers of one size.
+ * <p/>
+ * The field is a single Dijkstra search run backwards from the positions touching an edge of the target, so any
+ * number of movers within the radius can follow it downhill to the target without a search of their own.
+ *
+ * @author Lazaro
+ */
+public class FlowField {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int COST_STRAIGHT = 10;
+    private static final int COST_DIAGONAL = 14;
+
+    private static final int[] DELTA_X = {-1, 1, 0, 0, -1, 1, -1, 1};
+    private static final int[] DELTA_Y = {0, 0, -1, 1, -1, -1, 1, 1};
+
+    private final MapInstance instance;
+    private final int targetX, targetY, z;
+    private final int targetSize;
+    private final int size;
+
+    /**
+     * The south-west corner and width of the window of mover positions the field covers.
+     */
+    private final int baseX, baseY, width;
+
+    /**
+     * The clipping of the window, with a border wide enough for the edges of a mover on any of its positions.
+     */
+    private final int[] clipping;
+    private final int stride;
+
+    private final int[] cost;
+    private final byte[] step;
+
+    public FlowField(MapInstance instance, int targetX, int targetY, int z, int targetSize, int size, int radius) {
+        this.instance = instance;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.z = z;
+        this.targetSize = targetSize;
+        this.size = size;
+        this.baseX = targetX - radius - size + 1;
+        this.baseY = targetY - radius - size + 1;
+        this.width = radius * 2 + targetSize + size - 1;
+        this.stride = width + size + 1;
+        this.clipping = new int[stride * stride];
+        this.cost = new int[width * width];
+        this.step = new byte[width * width];
+        build();
+    }
+
+    private void build() {
+        for (int x = 0; x < stride; x++) {
+            for (int y = 0; y < stride; y++) {
+                clipping[x * stride + y] = Region.getAbsoluteClipping(instance, baseX + x - 1, baseY + y - 1, z);
+            }
+        }
+        Arrays.fill(cost, UNREACHABLE);
+
+        // Entries are the cost in the upper half and the cell in the lower, stale entries are skipped when polled.
+        long[] heap = new long[width * width * 2];
+        int heapSize = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < width; y++) {
+                if (isGoal(baseX + x, baseY + y)) {
+                    cost[x * width + y] = 0;
+                    heapSize = push(heap, heapSize, x * width + y);
+                }
+            }
+        }
+        while (heapSize > 0) {
+            long entry = heap[0];
+            heapSize = pop(heap, heapSize);
+            int cell = (int) entry;
+            int current = (int) (entry >>> 32);
+            if (current != cost[cell]) {
+                continue;
+            }
+            int x = cell / width;
+            int y = cell % width;
+            for (int i = 0; i < 8; i++) {
+                int fromX = x - DELTA_X[i];
+                int fromY = y - DELTA_Y[i];
+                if (fromX < 0 || fromY < 0 || fromX >= width || fromY >= width) {
+                    continue;
+                }
+                int from = fromX * width + fromY;
+                int next = current + (i < 4 ? COST_STRAIGHT : COST_DIAGONAL);
+                if (next >= cost[from] || !canStep(fromX, fromY, DELTA_X[i], DELTA_Y[i])) {
+                    continue;
+                }
+                cost[from] = next;
+                step[from] = (byte) i;
+                if (heapSize == heap.length) {
+                    heap = Arrays.copyOf(heap, heap.length * 2);
+                }
+                heapSize = push(heap, heapSize, ((long) next << 32) | from);
+            }
+        }
+    }
+
+    /**
+     * If a mover with its south-west corner on the position shares an edge with the target without overlapping it.
+     */
+    private boolean isGoal(int x, int y) {
+        boolean besideX = x + size == targetX || x == targetX + targetSize;
+        boolean besideY = y + size == targetY || y == targetY + targetSize;
+        boolean overlapX = x + size > targetX && x < targetX + targetSize;
+        boolean overlapY = y + size > targetY && y < targetY + targetSize;
+        return (besideX && overlapY) || (besideY && overlapX);
+    }
+
+    private int clip(int x, int y) {
+        return clipping[(x + 1) * stride + y + 1];
+    }
+
+    /**
+     * The clipping rules of the path finders for a mover with its south-west corner on a window position.
+     */
+    private boolean canStep(int x, int y, int dx, int dy) {
+        if (size == 1) {
+            return Steps.canStep(dx, dy, clip(x + dx, y + dy), clip(x + dx, y), clip(x, y + dy));
+        }
+        int edgeX = dx < 0 ? x - 1 : x + size;
+        int edgeY = dy < 0 ? y - 1 : y + size;
+        if (dy == 0) {
+            if ((clip(edgeX, y) & (dx < 0 ? 0x43a40000 : 0x60e40000)) != 0 || (clip(edgeX, y + size - 1) & (dx < 0 ? 0x4e240000 : 0x78240000)) != 0) {
+                return false;
+            }
+            for (int offset = 1; offset < size - 1; offset++) {
+                if ((clip(edgeX, y + offset) & (dx < 0 ? 0x4fa40000 : 0x78e40000)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (dx == 0) {
+            if ((clip(x, edgeY) & (dy < 0 ? 0x43a40000 : 0x4e240000)) != 0 || (clip(x + size - 1, edgeY) & (dy < 0 ? 0x60e40000 : 0x78240000)) != 0) {
+                return false;
+            }
+            for (int offset = 1; offset < size - 1; offset++) {
+                if ((clip(x + offset, edgeY) & (dy < 0 ? 0x63e40000 : 0x7e240000)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int corner;
+        if (dx < 0) {
+            corner = dy < 0 ? 0x43a40000 : 0x4e240000;
+        } else {
+            corner = dy < 0 ? 0x60e40000 : 0x78240000;
+        }
+        if ((clip(edgeX, edgeY) & corner) != 0) {
+            return false;
+        }
+        int side = dx < 0 ? 0x4fa40000 : (dy < 0 ? 0x78e40000 : 0x7e240000);
+        int end = dy < 0 ? 0x63e40000 : (dx < 0 ? 0x7e240000 : 0x78e40000);
+        for (int offset = 1; offset < size; offset++) {
+            int sideY = dy < 0 ? y + offset - 1 : y + offset;
+            int endX = dx < 0 ? x + offset - 1 : x + offset;
+            if ((clip(edgeX, sideY) & side) != 0 || (clip(endX, edgeY) & end) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int push(long[] heap, int heapSize, long entry) {
+        int i = heapSize;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+        return heapSize + 1;
+    }
+
+    private static int pop(long[] heap, int heapSize) {
+        long entry = heap[--heapSize];
+        int i = 0;
+        int half = heapSize >> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= entry) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heap[i] = entry;
+        }
+        return heapSize;
+    }
+
+    /**
+     * @return If the field was built for this target position and mover size.
+     */
+    public boolean matches(MapInstance instance, int targetX, int targetY, int z, int targetSize, int size) {
+        return this.instance == instance && this.targetX == targetX && this.targetY == targetY && this.z == z && this.targetSize == targetSize && this.size == size;
+    }
+
+    public boolean covers(int x, int y) {
+        return x >= baseX && y >= baseY && x < baseX + width && y < baseY + width;
+    }
+
+    /**
+     * @return The cost of the cheapest walk from the position to beside the target, or -1 if there is none within
+     *         the field.
+     */
+    public int getCost(int x, int y) {
+        if (!covers(x, y)) {
+            return -1;
+        }
+        int c = cost[(x - baseX) * width + y - baseY];
+        return c == UNREACHABLE ? -1 : c;
+    }
+
+    /**
+     * @return The step to take from the position, as the direction index of {@link #getStepX(int)} and
+     *         {@link #getStepY(int)}, or -1 if the position is outside the field, cut off or already beside the
+     *         target.
+     */
+    public int getStep(int x, int y) {
+        int c = getCost(x, y);
+        if (c <= 0) {
+            return -1;
+        }
+        return step[(x - baseX) * width + y - baseY];
+    }
+
+    public static int getStepX(int step) {
+        return DELTA_X[step];
+    }
+
+    public static int getStepY(int step) {
+        return DELTA_Y[step];
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.flow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ziotic.Static;
+import com.ziotic.logic.Entity;
+import com.ziotic.logic.map.MapInstance;
+import com.ziotic.logic.map.PathMetrics;
+
+/**
+ * The flow fields built during the current game tick, shared by every mover heading for the same target.
+ * <p/>
+ * A field costs a search over the whole radius, so it is only built for targets chased by several movers, either so
+ * far this tick or during the last one. A lone mover gets no field and keeps stepping greedily.
+ * <p/>
+ * Fields are keyed by the map instance, the position and size of the target and the size of the mover. A target
+ * moving changes the key so the next request builds a fresh field, and the whole cache is dropped once the tick it was
+ * built in is over. Only used from the game thread.
+ *
+ * @author Lazaro
+ */
+public class FlowFields {
+    /**
+     * How far from the target, in tiles along each axis, a field reaches.
+     */
+    public static final int RADIUS = Static.conf.getInt("flow_field_radius", 16);
+
+    /**
+     * How many movers have to chase the same target before they share a field.
+     */
+    public static final int MIN_CHASERS = Math.max(2, Static.conf.getInt("flow_field_min_chasers", 2));
+
+    private static final Map<MapInstance, Map<Long, FlowField>> fields = new HashMap<MapInstance, Map<Long, FlowField>>();
+    private static Map<Entity, Integer> chasers = new HashMap<Entity, Integer>();
+    private static Map<Entity, Integer> lastChasers = new HashMap<Entity, Integer>();
+    private static int time = -1;
+
+    /**
+     * @return The field leading movers of the size to the target, or null if the mover is out of its reach or chasing
+     *         the target alone.
+     */
+    public static FlowField get(Entity target, int size, int x, int y) {
+        int targetX = target.getX();
+        int targetY = target.getY();
+        int z = target.getZ();
+        int targetSize = target.getSize();
+        if (Math.abs(x - targetX) > RADIUS || Math.abs(y - targetY) > RADIUS) {
+            return null;
+        }
+        int now = Static.world.getTime();
+        if (now != time) {
+            fields.clear();
+            lastChasers = chasers;
+            chasers = new HashMap<Entity, Integer>();
+            time = now;
+        }
+        Integer count = chasers.get(target);
+        count = count == null ? 1 : count + 1;
+        chasers.put(target, count);
+        Integer lastCount = lastChasers.get(target);
+        if (count < MIN_CHASERS && (lastCount == null || lastCount < MIN_CHASERS)) {
+            return null;
+        }
+
+        MapInstance instance = target.getInstance();
+        Map<Long, FlowField> instanceFields = fields.get(instance);
+        if (instanceFields == null) {
+            fields.put(instance, instanceFields = new HashMap<Long, FlowField>());
+        }
+        long key = ((long) size << 48) | ((long) targetSize << 40) | ((long) z << 32) | ((long) targetX << 16) | targetY;
+        FlowField field = instanceFields.get(key);
+        if (field != null && field.matches(target.getInstance(), targetX, targetY, z, targetSize, size)) {
+            PathMetrics.recordFlowField(true);
+            return field;
+        }
+        field = new FlowField(instance, targetX, targetY, z, targetSize, size, RADIUS);
+        instanceFields.put(key, field);
+        PathMetrics.recordFlowField(false);
+        return field;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.hpa;
+
+import java.util.Arrays;
+
+import com.ziotic.logic.map.Region;
+import com.ziotic.logic.map.pf.Steps;
+
+/**
+ * The portals of an 8x8 chunk: the tiles along its edges an entity can cross into a neighbouring chunk from, and the
+ * cost of walking between each pair of them without leaving the chunk.
+ * <p/>
+ * Every run of crossable tiles along an edge gets one portal in its middle. The neighbouring chunk finds the same run
+ * from its own side, so the portals of both chunks always face each other.
+ * <p/>
+ * Chunks are built on the map workers, so regions are never loaded here: the tiles of a region which is not loaded
+ * count as blocked, and the chunk is built again once it loads.
+ *
+ * @author Lazaro
+ */
+public class ChunkPortals {
+    public static final int WEST = 0x1, EAST = 0x2, SOUTH = 0x4, NORTH = 0x8;
+
+    public static final int COST_STRAIGHT = 10;
+    public static final int COST_DIAGONAL = 14;
+
+    private static final int[] SIDES = {WEST, EAST, SOUTH, NORTH};
+    private static final int[] SIDE_DX = {-1, 1, 0, 0};
+    private static final int[] SIDE_DY = {0, 0, -1, 1};
+
+    final int chunkX, chunkY, z;
+
+    /**
+     * The clipping of the chunk and the ring of tiles around it, indexed by <code>(x + 1) * 10 + (y + 1)</code>.
+     */
+    private final int[] clipping = new int[100];
+
+    /**
+     * The portals, each as <code>x << 3 | y</code> within the chunk.
+     */
+    int[] nodes;
+
+    /**
+     * The sides each portal can be crossed through.
+     */
+    int[] sides;
+
+    /**
+     * The cost of walking from one portal to another within the chunk, or -1 if there is no way.
+     */
+    int[][] costs;
+
+    private ChunkPortals(int chunkX, int chunkY, int z) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.z = z;
+    }
+
+    static ChunkPortals build(int chunkX, int chunkY, int z) {
+        ChunkPortals chunk = new ChunkPortals(chunkX, chunkY, z);
+        int baseX = chunkX << 3, baseY = chunkY << 3;
+        for (int x = -1; x <= 8; x++) {
+            for (int y = -1; y <= 8; y++) {
+                chunk.clipping[(x + 1) * 10 + (y + 1)] = Region.getLoadedClipping(baseX + x, baseY + y, z);
+            }
+        }
+
+        int[] sides = new int[64];
+        for (int s = 0; s < 4; s++) {
+            int runStart = -1;
+            for (int i = 0; i <= 8; i++) {
+                boolean open = i < 8 && chunk.canCross(s, i);
+                if (open && runStart == -1) {
+                    runStart = i;
+                } else if (!open && runStart != -1) {
+                    int middle = runStart + (i - 1 - runStart) / 2;
+                    sides[edgeTile(s, middle)] |= SIDES[s];
+                    runStart = -1;
+                }
+            }
+        }
+
+        int count = 0;
+        for (int side : sides) {
+            if (side != 0) {
+                count++;
+            }
+        }
+        chunk.nodes = new int[count];
+        chunk.sides = new int[count];
+        for (int tile = 0, i = 0; tile < 64; tile++) {
+            if (sides[tile] != 0) {
+                chunk.nodes[i] = tile;
+                chunk.sides[i++] = sides[tile];
+            }
+        }
+        chunk.costs = new int[count][count];
+        for (int i = 0; i < count; i++) {
+            int[] distances = chunk.distances(chunk.nodes[i], false);
+            for (int j = 0; j < count; j++) {
+                chunk.costs[i][j] = i == j ? -1 : distances[chunk.nodes[j]];
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * @return The tile, as <code>x << 3 | y</code>, at an index along a side of the chunk.
+     */
+    private static int edgeTile(int side, int index) {
+        switch (side) {
+            case 0:
+                return index;
+            case 1:
+                return 7 << 3 | index;
+            case 2:
+                return index << 3;
+            default:
+                return index << 3 | 7;
+        }
+    }
+
+    /**
+     * @return If the edge tile at an index along a side can be crossed both ways.
+     */
+    private boolean canCross(int side, int index) {
+        int tile = edgeTile(side, index);
+        int x = tile >> 3, y = tile & 7;
+        int dx = SIDE_DX[side], dy = SIDE_DY[side];
+        return Steps.canStep(dx, dy, clip(x + dx, y + dy), 0, 0) && Steps.canStep(-dx, -dy, clip(x, y), 0, 0);
+    }
+
+    private int clip(int x, int y) {
+        return clipping[(x + 1) * 10 + (y + 1)];
+    }
+
+    private boolean canStep(int x, int y, int dx, int dy) {
+        return Steps.canStep(dx, dy, clip(x + dx, y + dy), clip(x + dx, y), clip(x, y + dy));
+    }
+
+    /**
+     * Finds the cost of walking between a tile and every other tile of the chunk, without leaving it.
+     *
+     * @param tile    The tile, as <code>x << 3 | y</code>.
+     * @param reverse If the costs should be of walking to the tile rather than from it.
+     * @return The costs indexed by tile, -1 for tiles which can not be walked between.
+     */
+    int[] distances(int tile, boolean reverse) {
+        int[] cost = new int[64];
+        Arrays.fill(cost, -1);
+        boolean[] done = new boolean[64];
+        cost[tile] = 0;
+        while (true) {
+            int current = -1;
+            for (int i = 0; i < 64; i++) {
+                if (!done[i] && cost[i] != -1 && (current == -1 || cost[i] < cost[current])) {
+                    current = i;
+                }
+            }
+            if (current == -1) {
+                return cost;
+            }
+            done[current] = true;
+            int x = current >> 3, y = current & 7;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int nx = x + dx, ny = y + dy;
+                    if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx > 7 || ny > 7) {
+                        continue;
+                    }
+                    int next = nx << 3 | ny;
+                    if (done[next]) {
+                        continue;
+                    }
+                    if (reverse ? !canStep(nx, ny, -dx, -dy) : !canStep(x, y, dx, dy)) {
+                        continue;
+                    }
+                    int c = cost[current] + (dx != 0 && dy != 0 ? COST_DIAGONAL : COST_STRAIGHT);
+                    if (cost[next] == -1 || c < cost[next]) {
+                        cost[next] = c;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The index of the portal on a tile, or -1 if there is none.
+     */
+    int indexOf(int tile) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == tile) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int sideDeltaX(int side) {
+        return side == WEST ? -1 : (side == EAST ? 1 : 0);
+    }
+
+    static int sideDeltaY(int side) {
+        return side == SOUTH ? -1 : (side == NORTH ? 1 : 0);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.hpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.ziotic.logic.map.Region;
+import com.ziotic.logic.map.Tile;
+
+/**
+ * Finds paths of any length over the portal graph of the chunks, without the 104x104 window of the tile path finders.
+ * <p/>
+ * The result is a list of portal tiles, close enough to each other that the tile path finders can walk between them,
+ * see {@link LongPath}.
+ *
+ * @author Lazaro
+ */
+public class HierarchicalPathFinder {
+    /**
+     * The most portals a search may expand before giving up.
+     */
+    private static final int MAX_EXPANSIONS = 50000;
+
+    /**
+     * How much the distance estimate is inflated, as a fraction over 5. Portals sit in the middle of the chunk edges so
+     * the octile estimate is far below the real cost over long distances, inflating it keeps the search narrow at the
+     * price of routes up to a fifth longer than the shortest one through the portals.
+     */
+    private static final int ESTIMATE_WEIGHT = 6;
+
+    private static class Node implements Comparable<Node> {
+        private final int hash;
+        private final ChunkPortals chunk;
+        private final int index;
+        private final int cost;
+        private final int estimate;
+        private final Node parent;
+
+        private Node(int hash, ChunkPortals chunk, int index, int cost, int estimate, Node parent) {
+            this.hash = hash;
+            this.chunk = chunk;
+            this.index = index;
+            this.cost = cost;
+            this.estimate = estimate;
+            this.parent = parent;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            if (estimate != other.estimate) {
+                return estimate - other.estimate;
+            }
+            // On equal estimates prefer the node furthest along, it is usually closer to the destination.
+            return other.cost - cost;
+        }
+    }
+
+    /**
+     * The most regions {@link #prepare} loads to cover the whole way between the two tiles.
+     */
+    private static final int MAX_PREPARED_REGIONS = 64;
+
+    private final PriorityQueue<Node> open = new PriorityQueue<Node>();
+    private final Map<Integer, Integer> costs = new HashMap<Integer, Integer>();
+
+    private int dstX, dstY;
+
+    /**
+     * Loads the regions a search between two tiles is likely to cross, as the search itself only sees loaded regions.
+     * This has to be called on the tick thread before the search is handed to a map worker.
+     * <p/>
+     * If the rectangle around both tiles holds too many regions only those around each end are loaded, the search then
+     * only finds ways through regions some player has kept loaded.
+     */
+    public static void prepare(Tile src, Tile dst) {
+        int minX = (Math.min(src.getX(), dst.getX()) >> 6) - 1, maxX = (Math.max(src.getX(), dst.getX()) >> 6) + 1;
+        int minY = (Math.min(src.getY(), dst.getY()) >> 6) - 1, maxY = (Math.max(src.getY(), dst.getY()) >> 6) + 1;
+        if ((maxX - minX + 1) * (maxY - minY + 1) <= MAX_PREPARED_REGIONS) {
+            loadRegions(minX, minY, maxX, maxY);
+        } else {
+            loadRegions(src.getRegionX() - 1, src.getRegionY() - 1, src.getRegionX() + 1, src.getRegionY() + 1);
+            loadRegions(dst.getRegionX() - 1, dst.getRegionY() - 1, dst.getRegionX() + 1, dst.getRegionY() + 1);
+        }
+    }
+
+    private static void loadRegions(int minX, int minY, int maxX, int maxY) {
+        for (int x = Math.max(minX, 0); x <= Math.min(maxX, Region.MAX_MAP_X >> 6); x++) {
+            for (int y = Math.max(minY, 0); y <= Math.min(maxY, Region.MAX_MAP_Y >> 6); y++) {
+                Region.forRegionCoordinates(x, y).load();
+            }
+        }
+    }
+
+    /**
+     * @return The portal tiles to walk through followed by the destination, or <code>null</code> if there is no way.
+     */
+    public List<Tile> findPath(Tile src, Tile dst) {
+        if (src.getZ() != dst.getZ()) {
+            return null;
+        }
+        int z = src.getZ();
+        dstX = dst.getX();
+        dstY = dst.getY();
+
+        ChunkPortals srcChunk = PortalGraph.get(src.getX() >> 3, src.getY() >> 3, z);
+        ChunkPortals dstChunk = PortalGraph.get(dstX >> 3, dstY >> 3, z);
+        int[] fromSrc = srcChunk.distances(local(src.getX(), src.getY()), false);
+        int[] toDst = dstChunk.distances(local(dstX, dstY), true);
+
+        int best = Integer.MAX_VALUE;
+        Node bestNode = null;
+        if (srcChunk.chunkX == dstChunk.chunkX && srcChunk.chunkY == dstChunk.chunkY) {
+            int direct = fromSrc[local(dstX, dstY)];
+            if (direct != -1) {
+                best = direct;
+            }
+        }
+
+        try {
+            for (int i = 0; i < srcChunk.nodes.length; i++) {
+                int cost = fromSrc[srcChunk.nodes[i]];
+                if (cost != -1) {
+                    offer(srcChunk, i, cost, null);
+                }
+            }
+
+            int expansions = 0;
+            Node node;
+            while ((node = open.poll()) != null) {
+                if (node.estimate >= best) {
+                    break;
+                }
+                if (costs.get(node.hash) < node.cost) {
+                    continue;
+                }
+                if (++expansions > MAX_EXPANSIONS) {
+                    return null;
+                }
+                ChunkPortals chunk = node.chunk;
+                if (chunk.chunkX == dstChunk.chunkX && chunk.chunkY == dstChunk.chunkY) {
+                    int toGoal = toDst[chunk.nodes[node.index]];
+                    if (toGoal != -1 && node.cost + toGoal < best) {
+                        best = node.cost + toGoal;
+                        bestNode = node;
+                    }
+                }
+
+                int[] edges = chunk.costs[node.index];
+                for (int i = 0; i < edges.length; i++) {
+                    if (edges[i] != -1) {
+                        offer(chunk, i, node.cost + edges[i], node);
+                    }
+                }
+
+                int tile = chunk.nodes[node.index];
+                int x = (chunk.chunkX << 3) + (tile >> 3), y = (chunk.chunkY << 3) + (tile & 7);
+                int sides = chunk.sides[node.index];
+                for (int side = ChunkPortals.WEST; side <= ChunkPortals.NORTH; side <<= 1) {
+                    if ((sides & side) == 0) {
+                        continue;
+                    }
+                    int nx = x + ChunkPortals.sideDeltaX(side), ny = y + ChunkPortals.sideDeltaY(side);
+                    ChunkPortals neighbour = PortalGraph.get(nx >> 3, ny >> 3, z);
+                    int index = neighbour.indexOf(local(nx, ny));
+                    if (index != -1) {
+                        offer(neighbour, index, node.cost + ChunkPortals.COST_STRAIGHT, node);
+                    }
+                }
+            }
+
+            if (best == Integer.MAX_VALUE) {
+                return null;
+            }
+            List<Tile> path = new ArrayList<Tile>();
+            path.add(dst);
+            for (Node n = bestNode; n != null; n = n.parent) {
+                int tile = n.chunk.nodes[n.index];
+                path.add(Tile.locate((n.chunk.chunkX << 3) + (tile >> 3), (n.chunk.chunkY << 3) + (tile & 7), z));
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            open.clear();
+            costs.clear();
+        }
+    }
+
+    private void offer(ChunkPortals chunk, int index, int cost, Node parent) {
+        int tile = chunk.nodes[index];
+        int x = (chunk.chunkX << 3) + (tile >> 3), y = (chunk.chunkY << 3) + (tile & 7);
+        int hash = chunk.z << 30 | x << 15 | y;
+        Integer known = costs.get(hash);
+        if (known != null && known <= cost) {
+            return;
+        }
+        costs.put(hash, cost);
+        open.add(new Node(hash, chunk, index, cost, cost + estimate(x, y) * ESTIMATE_WEIGHT / 5, parent));
+    }
+
+    /**
+     * The octile distance to the destination.
+     */
+    private int estimate(int x, int y) {
+        int deltaX = Math.abs(x - dstX), deltaY = Math.abs(y - dstY);
+        return ChunkPortals.COST_STRAIGHT * (deltaX + deltaY) + (ChunkPortals.COST_DIAGONAL - 2 * ChunkPortals.COST_STRAIGHT) * Math.min(deltaX, deltaY);
+    }
+
+    private static int local(int x, int y) {
+        return (x & 7) << 3 | (y & 7);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.hpa;
+
+import java.util.List;
+
+import com.ziotic.logic.map.Tile;
+
+/**
+ * A path found by the {@link HierarchicalPathFinder}, walked one segment at a time. Each segment is turned into a tile
+ * path by a tile path finder only once the entity has nearly reached the end of the previous one.
+ *
+ * @author Lazaro
+ */
+public class LongPath {
+    /**
+     * The furthest a segment may reach, well within the window of the tile path finders.
+     */
+    public static final int SEGMENT_LENGTH = 32;
+
+    private final List<Tile> waypoints;
+    private final int moveSpeed;
+    private int index = 0;
+
+    public LongPath(List<Tile> waypoints, int moveSpeed) {
+        this.waypoints = waypoints;
+        this.moveSpeed = moveSpeed;
+    }
+
+    /**
+     * Skips ahead to the furthest waypoint within a segment's length of a location, where the segment starts.
+     *
+     * @return The end of the next segment, or <code>null</code> if the path has been walked.
+     */
+    public Tile nextSegment(Tile location) {
+        if (index >= waypoints.size()) {
+            return null;
+        }
+        Tile end = waypoints.get(index++);
+        while (index < waypoints.size() && withinSegment(location, waypoints.get(index))) {
+            end = waypoints.get(index++);
+        }
+        return end;
+    }
+
+    private static boolean withinSegment(Tile location, Tile tile) {
+        return Math.abs(tile.getX() - location.getX()) <= SEGMENT_LENGTH && Math.abs(tile.getY() - location.getY()) <= SEGMENT_LENGTH;
+    }
+
+    public Tile getDestination() {
+        return waypoints.get(waypoints.size() - 1);
+    }
+
+    public int getMoveSpeed() {
+        return moveSpeed;
+    }
+}
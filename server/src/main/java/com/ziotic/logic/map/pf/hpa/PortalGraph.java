@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.map.pf.hpa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The cache of chunk portals the hierarchical path finder searches over.
+ * <p/>
+ * Chunks are built the first time a search reaches them and dropped whenever the clipping they were built from may
+ * have changed, a chunk built while it was being invalidated is not cached.
+ *
+ * @author Lazaro
+ */
+public final class PortalGraph {
+    private static final Map<Integer, ChunkPortals> chunks = new HashMap<Integer, ChunkPortals>();
+
+    private static int modCount = 0;
+
+    private static int hash(int chunkX, int chunkY, int z) {
+        return z << 30 | chunkX << 15 | chunkY;
+    }
+
+    public static ChunkPortals get(int chunkX, int chunkY, int z) {
+        int hash = hash(chunkX, chunkY, z);
+        int version;
+        synchronized (chunks) {
+            ChunkPortals chunk = chunks.get(hash);
+            if (chunk != null) {
+                return chunk;
+            }
+            version = modCount;
+        }
+        ChunkPortals chunk = ChunkPortals.build(chunkX, chunkY, z);
+        synchronized (chunks) {
+            if (version == modCount) {
+                chunks.put(hash, chunk);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Drops the chunks whose portals may depend on the clipping of a tile.
+     */
+    public static void invalidate(int x, int y, int z) {
+        int chunkX = x >> 3, chunkY = y >> 3;
+        synchronized (chunks) {
+            modCount++;
+            if (chunks.isEmpty()) {
+                return;
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    chunks.remove(hash(chunkX + dx, chunkY + dy, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the chunks of a region and the chunks bordering it, used when a region is loaded or unloaded.
+     */
+    public static void invalidateRegion(int regionX, int regionY) {
+        int minX = (regionX << 3) - 1, minY = (regionY << 3) - 1;
+        int maxX = (regionX << 3) + 8, maxY = (regionY << 3) + 8;
+        synchronized (chunks) {
+            modCount++;
+            if (chunks.isEmpty()) {
+                return;
+            }
+            for (int z = 0; z < 4; z++) {
+                for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+                    for (int chunkY = minY; chunkY <= maxY; chunkY++) {
+                        chunks.remove(hash(chunkX, chunkY, z));
+                    }
+                }
+            }
+        }
+    }
+
+    public static int getCachedCount() {
+        synchronized (chunks) {
+            return chunks.size();
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import com.ziotic.Static;
+import com.ziotic.logic.map.MapInstance;
 import com.ziotic.logic.map.Region;
 import com.ziotic.logic.map.Tile;
 import com.ziotic.logic.player.Player;
@@ -111,6 +112,57 @@ public class ObjectManager {
         }
     }
 
+    /**
+     * Places an object in an instance without changing the live map, only players in the same instance will see it.
+     */
+    public void add(MapInstance instance, int id, Tile loc, int type, int direction) {
+        if (instance == null) {
+            add(id, loc, type, direction);
+            return;
+        }
+        GameObject obj = instance.addObject(id, loc.getX(), loc.getY(), loc.getZ(), type, direction);
+        if (obj != null) {
+            refresh(instance, obj);
+        }
+    }
+
+    /**
+     * Removes an object from an instance without changing the live map, only players in the same instance will see it.
+     */
+    public void remove(MapInstance instance, Tile loc) {
+        if (instance == null) {
+            remove(loc);
+            return;
+        }
+        GameObject obj = instance.removeObject(loc.getX(), loc.getY(), loc.getZ());
+        if (obj != null) {
+            refresh(instance, obj);
+        }
+    }
+
+    /**
+     * Removes an object from an instance by what it is rather than by what is on record for the tile, so its clipping
+     * is undone even when another object has taken its place on record.
+     */
+    public void remove(MapInstance instance, int id, Tile loc, int type, int direction) {
+        if (instance == null) {
+            remove(loc);
+            return;
+        }
+        GameObject obj = instance.removeObject(id, loc.getX(), loc.getY(), loc.getZ(), type, direction);
+        if (obj != null) {
+            refresh(instance, obj);
+        }
+    }
+
+    private void refresh(MapInstance instance, GameObject obj) {
+        for (Player player : Static.world.getLocalPlayers(obj.getLocation(), 48)) {
+            if (player.getInstance() == instance) {
+                refresh(player, obj);
+            }
+        }
+    }
+
     private void checkNullObject(GameObject obj) {
         if (obj.getId() == -1) {
             GameObject originalObject = previousObjects.get(obj.getLocation());
@@ -146,6 +198,14 @@ public class ObjectManager {
                 }
             }
         }
+        MapInstance instance = player.getInstance();
+        if (instance != null) {
+            for (GameObject obj : instance.getSpawnedObjects(player.getLocation(), 48)) {
+                if (obj.exists() && !player.getLocalGameObjects().contains(obj)) {
+                    refresh(player, obj);
+                }
+            }
+        }
     }
 
     public void refresh(Player player, GameObject obj) {
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a name to the players online in this world who have it on their friends list, so only they are told when it
+ * logs in or out rather than every player being asked.
+ *
+ * @author Lazaro
+ */
+public class FriendIndex {
+    private static final Player[] NO_PLAYERS = new Player[0];
+
+    private final Map<String, List<Player>> index = new HashMap<String, List<Player>>();
+    private final Set<Player> indexed = new HashSet<Player>();
+
+    /**
+     * Adds the friends of a player who has logged in.
+     */
+    public synchronized void add(Player player) {
+        if (!indexed.add(player)) {
+            return;
+        }
+        for (String friend : player.getFriends().getFriendsList()) {
+            link(friend, player);
+        }
+    }
+
+    /**
+     * Removes the friends of a player who has logged out.
+     */
+    public synchronized void remove(Player player) {
+        if (!indexed.remove(player)) {
+            return;
+        }
+        for (String friend : player.getFriends().getFriendsList()) {
+            unlink(friend, player);
+        }
+    }
+
+    public synchronized void addFriend(Player player, String friend) {
+        if (indexed.contains(player)) {
+            link(friend, player);
+        }
+    }
+
+    public synchronized void removeFriend(Player player, String friend) {
+        if (indexed.contains(player)) {
+            unlink(friend, player);
+        }
+    }
+
+    /**
+     * @return The players online in this world with the name on their friends list.
+     */
+    public synchronized Player[] getInterested(String name) {
+        List<Player> players = index.get(name);
+        if (players == null) {
+            return NO_PLAYERS;
+        }
+        return players.toArray(new Player[players.size()]);
+    }
+
+    private void link(String friend, Player player) {
+        List<Player> players = index.get(friend);
+        if (players == null) {
+            index.put(friend, players = new ArrayList<Player>(2));
+        }
+        if (!players.contains(player)) {
+            players.add(player);
+        }
+    }
+
+    private void unlink(String friend, Player player) {
+        List<Player> players = index.get(friend);
+        if (players != null && players.remove(player) && players.isEmpty()) {
+            index.remove(friend);
+        }
+    }
+}
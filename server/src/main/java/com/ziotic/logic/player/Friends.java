@@ -51,12 +51,17 @@ public class Friends {
 
     public void addFriend(String friend) {
         friend = Text.formatNameForProtocol(friend);
-        friendsList.add(friend);
+        if (friendsList.add(friend)) {
+            Static.world.getFriendIndex().addFriend(player, friend);
+        }
         sendFriend(friend);
     }
 
     public void removeFriend(String friend) {
-        friendsList.remove(Text.formatNameForProtocol(friend));
+        friend = Text.formatNameForProtocol(friend);
+        if (friendsList.remove(friend)) {
+            Static.world.getFriendIndex().removeFriend(player, friend);
+        }
     }
 
     public void addIgnore(String ignore) {
@@ -125,16 +130,8 @@ public class Friends {
             Static.engine.dispatchToLinkWorker(new Runnable() {
                 @Override
                 public void run() {
-                    WorldClientSession session = null;
-                    try {
-                        session = Static.world.getWCSPool().acquire();
-
-                        session.sendPM(player, fRecipient, message);
-                    } finally {
-                        if (session != null) {
-                            Static.world.getWCSPool().release(session);
-                        }
-                    }
+                    WorldClientSession session = Static.world.getLinkSession(player.getProtocolName());
+                    session.sendPM(player, fRecipient, message);
                 }
             });
         }
@@ -57,6 +57,7 @@ import com.ziotic.logic.item.ItemContainer;
 import com.ziotic.logic.item.ItemDefinition;
 import com.ziotic.logic.item.ItemsOnDeathManager;
 import com.ziotic.logic.item.PossesedItem;
+import com.ziotic.logic.map.AreaTracker;
 import com.ziotic.logic.map.Directions.NormalDirection;
 import com.ziotic.logic.map.PathProcessor;
 import com.ziotic.logic.map.Tile;
@@ -262,11 +263,14 @@ public class Player extends Entity implements PlayerType, Destroyable {
 
     private double[] bonuses = new double[18];
 
+    private final SaveTracker saveTracker = new SaveTracker();
+
     private long lastPing = 0;
 
     private Shop currentShop = null;
 
     private boolean inGrotto;
+    private AreaTracker areaTracker;
 
     private Familiar familiar;
 
@@ -309,6 +313,7 @@ public class Player extends Entity implements PlayerType, Destroyable {
             bank = new BankContainer(this);
 
             setPathProcessor(new PlayerPathProcessor(this));
+            areaTracker = new AreaTracker(this);
 
             registerTick(new RunEnergyRestore(this));
             registerTick(new LevelNormalize(this));
@@ -421,16 +426,8 @@ public class Player extends Entity implements PlayerType, Destroyable {
         Static.engine.dispatchToLinkWorker(new Runnable() {
             @Override
             public void run() {
-                WorldClientSession session = null;
-                try {
-                    session = Static.world.getWCSPool().acquire();
-
-                    session.unregisterPlayer(thisPlayer);
-                } finally {
-                    if (session != null) {
-                        Static.world.getWCSPool().release(session);
-                    }
-                }
+                WorldClientSession session = Static.world.getLinkSession(thisPlayer.getProtocolName());
+                session.unregisterPlayer(thisPlayer);
             }
         });
         if (clan != null) {
@@ -746,6 +743,10 @@ public class Player extends Entity implements PlayerType, Destroyable {
         return friends;
     }
 
+    public SaveTracker getSaveTracker() {
+        return saveTracker;
+    }
+
     @Override
     public int getSize() {
         if (appearance.isNPC()) {
@@ -930,6 +931,10 @@ public class Player extends Entity implements PlayerType, Destroyable {
         Static.proto.sendConfig(this, 1801, (int) (levels.getXPGained() * 10));
     }
 
+    public AreaTracker getAreaTracker() {
+        return areaTracker;
+    }
+
     public void setInGrotto(boolean inGrotto) {
         this.inGrotto = inGrotto;
     }
@@ -25,6 +25,8 @@ import java.awt.Point;
 
 import com.ziotic.Static;
 import com.ziotic.content.combat.Combat;
+import com.ziotic.logic.map.AreaListener;
+import com.ziotic.logic.map.AreaRegistry;
 import com.ziotic.logic.map.Areas;
 import com.ziotic.logic.map.Directions;
 import com.ziotic.logic.map.Directions.NormalDirection;
@@ -37,6 +39,62 @@ import com.ziotic.logic.map.Tile;
 public class PlayerPathProcessor extends PathProcessor {
     private Player player;
 
+    /**
+     * Adds the listeners which update a player's status when moving between areas.
+     */
+    public static void registerAreaListeners() {
+        AreaRegistry.addListener(Areas.WILDERNESS_BITMAP, new AreaListener() {
+            @Override
+            public void onEnter(Player player) {
+                player.setInPVP(true);
+                Combat.updatePVPStatus(player);
+
+                if (player.getAppearance().isNPC()) {
+                    player.getAppearance().toPlayer();
+                    player.getAppearance().refresh();
+                }
+
+                Static.proto.sendInterfaceShowConfig(player, 381, 0, false);
+                player.getCombat().setInWilderness(true);
+            }
+
+            @Override
+            public void onExit(Player player) {
+                player.setInPVP(false);
+                Combat.updatePVPStatus(player);
+
+                Static.proto.sendInterfaceShowConfig(player, 381, 0, true);
+                player.getCombat().setInWilderness(false);
+            }
+        });
+        AreaRegistry.addListener(Areas.GROTTO_BITMAP, new AreaListener() {
+            @Override
+            public void onEnter(Player player) {
+                Static.proto.sendPlayerOption(player, "Challenge", 1, true);
+                player.setInGrotto(true);
+            }
+
+            @Override
+            public void onExit(Player player) {
+                Static.proto.sendPlayerOption(player, "null", 1, true);
+                player.setInGrotto(false);
+            }
+        });
+        AreaRegistry.addListener(Areas.MULTI_BITMAP, new AreaListener() {
+            @Override
+            public void onEnter(Player player) {
+                Static.proto.sendInterfaceShowConfig(player, 745, 1, false);
+                player.setInMulti(true);
+            }
+
+            @Override
+            public void onExit(Player player) {
+                Static.proto.sendInterfaceShowConfig(player, 745, 1, true);
+                player.setInMulti(false);
+            }
+        });
+    }
+
     public PlayerPathProcessor(Player player) {
         super(player);
         this.player = player;
@@ -170,41 +228,7 @@ public class PlayerPathProcessor extends PathProcessor {
             teleport();
         }
 
-        if (!player.isInPVP() && Combat.isInPVPZone(player)) {
-            player.setInPVP(true);
-            Combat.updatePVPStatus(player);
-
-            if (player.getAppearance().isNPC()) {
-                player.getAppearance().toPlayer();
-                player.getAppearance().refresh();
-            }
-        } else if (player.isInPVP() && !Combat.isInPVPZone(player)) {
-            player.setInPVP(false);
-            Combat.updatePVPStatus(player);
-        }
-        if (!player.isInGrotto() && Areas.GROTTO.inArea(player.getLocation())) {
-            Static.proto.sendPlayerOption(player, "Challenge", 1, true);
-            player.setInGrotto(true);
-        } else if (player.isInGrotto() && !Areas.GROTTO.inArea(player.getLocation())) {
-            Static.proto.sendPlayerOption(player, "null", 1, true);
-            player.setInGrotto(false);
-        }
-        if (!player.isInMulti() && Combat.isInMultiZone(player)) {
-            Static.proto.sendInterfaceShowConfig(player, 745, 1, false);
-            player.setInMulti(true);
-        } else if (player.isInMulti() && !Combat.isInMultiZone(player)) {
-            Static.proto.sendInterfaceShowConfig(player, 745, 1, true);
-            player.setInMulti(false);
-        }
-
-
-        if (!player.getCombat().isInWilderness() && player.getLocation().wildernessLevel() > 0) {
-            Static.proto.sendInterfaceShowConfig(player, 381, 0, false);
-            player.getCombat().setInWilderness(true);
-        } else if (player.getCombat().isInWilderness() && player.getLocation().wildernessLevel() <= 0) {
-            Static.proto.sendInterfaceShowConfig(player, 381, 0, true);
-            player.getCombat().setInWilderness(false);
-        }
+        player.getAreaTracker().update(player.getLocation());
 
         player.setPreviousLocation(oldLocation);
     }
@@ -22,6 +22,10 @@
 package com.ziotic.logic.player;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import com.ziotic.content.cc.Clan;
 import com.ziotic.content.combat.Magic;
@@ -30,10 +34,99 @@ import com.ziotic.logic.item.PossesedItem;
 import com.ziotic.utility.Streams;
 
 /**
+ * The state of a player as it travels between the game servers, the link server and the database.
+ * <p/>
+ * A save is written as a list of tagged sections, one per group plus the profile and the clan of the player. Each
+ * section carries its own length, so a reader skips the sections it does not know, and ignores fields appended to the
+ * end of a section it does know. Numbers are written as varints, bank item ids as deltas from the previous item, and a
+ * large section is deflated when that makes it smaller. Saves from before {@link #FORMAT_VERSION} are still read, and
+ * are written in the new format the next time the player is saved.
+ *
  * @author Lazaro
  */
 public class PlayerSave {
     private static final int MAGIC_NUMBER = 0x9E3779B9;
+    private static final int SECTION_MAGIC = 0x5A535631;
+
+    /**
+     * Raised when the existing sections change in a way older readers cannot skip over.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int SECTION_END = 0, SECTION_PROFILE = 16, SECTION_CLAN = 17;
+    private static final int FLAG_DEFLATED = 0x1;
+    private static final int DEFLATE_THRESHOLD = 256;
+
+    private static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED, true);
+        }
+    };
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    /**
+     * A byte array stream without the locking, as a save is written one varint byte at a time.
+     */
+    private static class SectionBuffer extends ByteArrayOutputStream {
+        public SectionBuffer(int size) {
+            super(size);
+        }
+
+        @Override
+        public void write(int b) {
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+
+        public byte[] deflate() {
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            deflater.setInput(buf, 0, count);
+            deflater.finish();
+            SectionBuffer deflated = new SectionBuffer(count / 2 + 8);
+            try {
+                Streams.writeVarInt(count, deflated);
+            } catch (IOException e) {
+            }
+            byte[] chunk = new byte[512];
+            while (!deflater.finished()) {
+                deflated.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return deflated.toByteArray();
+        }
+    }
+
+    /**
+     * The groups of state a save can be limited to, see {@link #toByteArray(int)}.
+     */
+    public static final int ACCOUNT = 0x1, FRIENDS = 0x2, POSITION = 0x4, LEVELS = 0x8, INVENTORY = 0x10, EQUIPMENT = 0x20, BANK = 0x40, SETTINGS = 0x80;
+    public static final int GROUP_COUNT = 8;
+    public static final int ALL_GROUPS = (1 << GROUP_COUNT) - 1;
+    /**
+     * The groups a lobby player has loaded.
+     */
+    public static final int LOBBY_GROUPS = ACCOUNT | FRIENDS;
 
     public int userId = 0;
 
@@ -154,7 +247,455 @@ public class PlayerSave {
         privateChatColor = player.getFriends().getPrivateChatColor();
     }
 
+    public byte[] toByteArray() {
+        return encode(ALL_GROUPS, true);
+    }
+
+    /**
+     * Writes the user id and the given groups only.
+     */
+    public byte[] toByteArray(int groups) {
+        return encode(groups, false);
+    }
+
     public void load(byte[] data) throws IOException {
+        if (isLegacy(data)) {
+            loadLegacy(data);
+        } else {
+            decode(data, ALL_GROUPS, true);
+        }
+    }
+
+    /**
+     * Reads a save written by {@link #toByteArray(int)}, leaving the fields of the other groups alone.
+     */
+    public void load(byte[] data, int groups) throws IOException {
+        if (isLegacy(data)) {
+            loadLegacy(data, groups);
+        } else {
+            decode(data, groups, false);
+        }
+    }
+
+    /**
+     * @return The group on its own, which is what tells whether it has changed since the last save.
+     */
+    public byte[] groupToByteArray(int group) {
+        try {
+            return sectionToByteArray(Integer.numberOfTrailingZeros(group) + 1);
+        } catch (IOException e) {
+        }
+        return null;
+    }
+
+    private static boolean isLegacy(byte[] data) {
+        return data.length >= 4 && Streams.readInt(0, data) == MAGIC_NUMBER;
+    }
+
+    private byte[] encode(int groups, boolean full) {
+        try {
+            SectionBuffer buffer = new SectionBuffer(1024);
+            DataOutputStream out = new DataOutputStream(buffer);
+            SectionBuffer section = new SectionBuffer(512);
+            DataOutputStream sectionOut = new DataOutputStream(section);
+            out.writeInt(SECTION_MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            Streams.writeVarInt(userId, out);
+            if (full) {
+                writeSection(out, section, sectionOut, SECTION_PROFILE);
+            }
+            for (int group = 0; group < GROUP_COUNT; group++) {
+                if ((groups & (1 << group)) != 0) {
+                    writeSection(out, section, sectionOut, group + 1);
+                }
+            }
+            if (full && ownClan != null) {
+                writeSection(out, section, sectionOut, SECTION_CLAN);
+            }
+            out.writeByte(SECTION_END);
+            out.close();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+        }
+        return null;
+    }
+
+    private void decode(byte[] data, int groups, boolean full) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != SECTION_MAGIC) {
+            throw new IOException("Invalid header key");
+        }
+        int version = in.readUnsignedByte();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Unsupported save version [version=" + version + "]");
+        }
+        userId = Streams.readVarInt(in);
+        int tag;
+        while ((tag = in.readUnsignedByte()) != SECTION_END) {
+            int flags = in.readUnsignedByte();
+            byte[] payload = new byte[Streams.readVarInt(in)];
+            in.readFully(payload);
+
+            boolean wanted;
+            if (tag <= GROUP_COUNT) {
+                wanted = (groups & (1 << (tag - 1))) != 0;
+            } else {
+                wanted = full && (tag == SECTION_PROFILE || tag == SECTION_CLAN);
+            }
+            if (!wanted) {
+                continue;
+            }
+            if ((flags & ~FLAG_DEFLATED) != 0) {
+                throw new IOException("Unsupported section flags [tag=" + tag + ", flags=" + flags + "]");
+            }
+            if ((flags & FLAG_DEFLATED) != 0) {
+                payload = inflate(payload);
+            }
+            readSection(new DataInputStream(new ByteArrayInputStream(payload)), tag);
+        }
+    }
+
+    private void writeSection(DataOutputStream out, SectionBuffer section, DataOutputStream sectionOut, int tag) throws IOException {
+        section.reset();
+        writeSection(sectionOut, tag);
+        out.writeByte(tag);
+        if (section.size() >= DEFLATE_THRESHOLD) {
+            byte[] deflated = section.deflate();
+            if (deflated.length < section.size()) {
+                out.writeByte(FLAG_DEFLATED);
+                Streams.writeVarInt(deflated.length, out);
+                out.write(deflated);
+                return;
+            }
+        }
+        out.writeByte(0);
+        Streams.writeVarInt(section.size(), out);
+        section.writeTo(out);
+    }
+
+    private byte[] sectionToByteArray(int tag) throws IOException {
+        SectionBuffer buffer = new SectionBuffer(256);
+        DataOutputStream out = new DataOutputStream(buffer);
+        writeSection(out, tag);
+        out.close();
+        return buffer.toByteArray();
+    }
+
+    private void writeSection(DataOutputStream out, int tag) throws IOException {
+        switch (tag) {
+            case SECTION_PROFILE:
+                writeText(email, out);
+                Streams.writeVarInt(unreadMessages, out);
+                out.writeLong(subscriptionEnd);
+                out.writeLong(lastLoggedIn);
+                out.writeByte(rights);
+                break;
+            case SECTION_CLAN:
+                out.write(ownClan.toByteArray());
+                break;
+            default:
+                writeGroup(out, 1 << (tag - 1));
+                break;
+        }
+    }
+
+    private void readSection(DataInputStream in, int tag) throws IOException {
+        switch (tag) {
+            case SECTION_PROFILE:
+                email = readText(in);
+                unreadMessages = Streams.readVarInt(in);
+                subscriptionEnd = in.readLong();
+                lastLoggedIn = in.readLong();
+                rights = in.readByte();
+                break;
+            case SECTION_CLAN:
+                byte[] clanData = new byte[in.available()];
+                in.readFully(clanData);
+                ownClan = new Clan();
+                try {
+                    ownClan.load(clanData);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                break;
+            default:
+                readGroup(in, 1 << (tag - 1));
+                break;
+        }
+    }
+
+    private void writeGroup(DataOutputStream out, int group) throws IOException {
+        switch (group) {
+            case ACCOUNT:
+                writeTexts(lastIPs, out);
+                out.writeBoolean(isMuted);
+                break;
+            case FRIENDS:
+                writeTexts(friends, out);
+                writeTexts(ignores, out);
+                Streams.writeVarInt(privateChatSetting, out);
+                Streams.writeVarInt(privateChatColor, out);
+                break;
+            case POSITION:
+                Streams.writeVarInt(Streams.zigZag(x), out);
+                Streams.writeVarInt(Streams.zigZag(y), out);
+                Streams.writeVarInt(Streams.zigZag(z), out);
+                break;
+            case LEVELS:
+                Streams.writeVarInt(level.length, out);
+                for (int i = 0; i < level.length; i++) {
+                    Streams.writeVarInt(level[i] & 0xff, out);
+                    writeExperience(exp[i], out);
+                }
+                Streams.writeVarInt(Streams.zigZag(xpCounter), out);
+                break;
+            case INVENTORY:
+                writeItems(inv, invN, out);
+                break;
+            case EQUIPMENT:
+                writeItems(equip, equipN, out);
+                break;
+            case BANK:
+                Streams.writeVarInt(bank.length, out);
+                int last = 0;
+                for (int[] item : bank) {
+                    Streams.writeVarInt(Streams.zigZag(item[0] - last), out);
+                    Streams.writeVarInt(item[1], out);
+                    last = item[0];
+                }
+                // Items of a tab sit together, so the tabs are written as runs.
+                int runs = 0;
+                for (int i = 0; i < bank.length; i++) {
+                    if (i == 0 || bank[i][2] != bank[i - 1][2]) {
+                        runs++;
+                    }
+                }
+                Streams.writeVarInt(runs, out);
+                for (int i = 0; i < bank.length; ) {
+                    int end = i + 1;
+                    while (end < bank.length && bank[end][2] == bank[i][2]) {
+                        end++;
+                    }
+                    Streams.writeVarInt(bank[i][2], out);
+                    Streams.writeVarInt(end - i, out);
+                    i = end;
+                }
+                break;
+            case SETTINGS:
+                out.writeBoolean(runToggled);
+                Streams.writeVarInt(runEnergy, out);
+                out.writeBoolean(autoRetaliate);
+                Streams.writeVarInt(attackStyle, out);
+                out.writeBoolean(prayerBook);
+                Streams.writeVarInt(quickPrayers.length, out);
+                out.write(quickPrayers);
+                Streams.writeVarInt(spellBook, out);
+                Streams.writeVarInt(specialEnergy, out);
+                writeInts(looks, out);
+                writeInts(colours, out);
+                out.writeBoolean(isSkulled);
+                Streams.writeVarInt(skullTimer, out);
+                writeText(lastClan, out);
+                break;
+        }
+    }
+
+    private void readGroup(DataInputStream in, int group) throws IOException {
+        switch (group) {
+            case ACCOUNT:
+                lastIPs = readTexts(in);
+                isMuted = in.readBoolean();
+                break;
+            case FRIENDS:
+                friends = readTexts(in);
+                ignores = readTexts(in);
+                privateChatSetting = Streams.readVarInt(in);
+                privateChatColor = Streams.readVarInt(in);
+                break;
+            case POSITION:
+                x = Streams.unZigZag(Streams.readVarInt(in));
+                y = Streams.unZigZag(Streams.readVarInt(in));
+                z = Streams.unZigZag(Streams.readVarInt(in));
+                break;
+            case LEVELS:
+                int skills = Streams.readVarInt(in);
+                level = new byte[Math.max(skills, Levels.SKILL_COUNT)];
+                exp = new double[level.length];
+                for (int i = 0; i < skills; i++) {
+                    level[i] = (byte) Streams.readVarInt(in);
+                    exp[i] = readExperience(in);
+                }
+                xpCounter = Streams.unZigZag(Streams.readVarInt(in));
+                break;
+            case INVENTORY:
+                inv = new short[28];
+                invN = new int[28];
+                readItems(inv, invN, in);
+                break;
+            case EQUIPMENT:
+                equip = new short[14];
+                equipN = new int[14];
+                readItems(equip, equipN, in);
+                break;
+            case BANK:
+                bank = new int[Streams.readVarInt(in)][3];
+                int last = 0;
+                for (int[] item : bank) {
+                    item[0] = last + Streams.unZigZag(Streams.readVarInt(in));
+                    item[1] = Streams.readVarInt(in);
+                    last = item[0];
+                }
+                int index = 0;
+                for (int runs = Streams.readVarInt(in); runs > 0; runs--) {
+                    int tab = Streams.readVarInt(in);
+                    for (int count = Streams.readVarInt(in); count > 0; count--) {
+                        bank[index++][2] = tab;
+                    }
+                }
+                break;
+            case SETTINGS:
+                runToggled = in.readBoolean();
+                runEnergy = Streams.readVarInt(in);
+                autoRetaliate = in.readBoolean();
+                attackStyle = Streams.readVarInt(in);
+                prayerBook = in.readBoolean();
+                quickPrayers = new byte[Streams.readVarInt(in)];
+                in.readFully(quickPrayers);
+                spellBook = Streams.readVarInt(in);
+                specialEnergy = Streams.readVarInt(in);
+                looks = readInts(in);
+                colours = readInts(in);
+                isSkulled = in.readBoolean();
+                skullTimer = Streams.readVarInt(in);
+                lastClan = readText(in);
+                break;
+        }
+    }
+
+    /**
+     * Writes a slot as its item id plus one, followed by the amount when the slot is not empty.
+     */
+    private static void writeItems(short[] ids, int[] amounts, OutputStream out) throws IOException {
+        Streams.writeVarInt(ids.length, out);
+        for (int i = 0; i < ids.length; i++) {
+            Streams.writeVarInt(ids[i] + 1, out);
+            if (ids[i] != -1) {
+                Streams.writeVarInt(amounts[i], out);
+            }
+        }
+    }
+
+    private static void readItems(short[] ids, int[] amounts, InputStream in) throws IOException {
+        int slots = Streams.readVarInt(in);
+        for (int i = 0; i < slots; i++) {
+            short id = (short) (Streams.readVarInt(in) - 1);
+            int amount = id != -1 ? Streams.readVarInt(in) : 0;
+            if (i < ids.length) {
+                ids[i] = id;
+                amounts[i] = amount;
+            }
+        }
+        for (int i = slots; i < ids.length; i++) {
+            ids[i] = -1;
+        }
+    }
+
+    /**
+     * Experience is kept to a tenth of a point, which makes it a whole number of tenths unless it has drifted.
+     */
+    private static void writeExperience(double experience, DataOutputStream out) throws IOException {
+        long tenths = Math.round(experience * 10);
+        if (tenths >= 0 && tenths / 10.0 == experience) {
+            Streams.writeVarLong(tenths << 1, out);
+        } else {
+            Streams.writeVarLong(1, out);
+            out.writeDouble(experience);
+        }
+    }
+
+    private static double readExperience(DataInputStream in) throws IOException {
+        long value = Streams.readVarLong(in);
+        if ((value & 1) != 0) {
+            return in.readDouble();
+        }
+        return (value >>> 1) / 10.0;
+    }
+
+    private static void writeInts(int[] values, OutputStream out) throws IOException {
+        Streams.writeVarInt(values.length, out);
+        for (int value : values) {
+            Streams.writeVarInt(value, out);
+        }
+    }
+
+    private static int[] readInts(InputStream in) throws IOException {
+        int[] values = new int[Streams.readVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Streams.readVarInt(in);
+        }
+        return values;
+    }
+
+    /**
+     * Writes the length plus one and the UTF-8 bytes of a string, or zero for null.
+     */
+    private static void writeText(String text, OutputStream out) throws IOException {
+        if (text == null) {
+            Streams.writeVarInt(0, out);
+            return;
+        }
+        byte[] bytes = text.getBytes("UTF-8");
+        Streams.writeVarInt(bytes.length + 1, out);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = Streams.readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeTexts(String[] texts, OutputStream out) throws IOException {
+        Streams.writeVarInt(texts.length, out);
+        for (String text : texts) {
+            writeText(text, out);
+        }
+    }
+
+    private static String[] readTexts(DataInputStream in) throws IOException {
+        String[] texts = new String[Streams.readVarInt(in)];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = readText(in);
+        }
+        return texts;
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        byte[] inflated = new byte[Streams.readVarInt(in)];
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        try {
+            inflater.setInput(data, data.length - in.available(), in.available());
+            int length = 0;
+            while (length < inflated.length) {
+                int read = inflater.inflate(inflated, length, inflated.length - length);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated section");
+                }
+                length += read;
+            }
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void loadLegacy(byte[] data) throws IOException {
         DataInputStream in = new DataInputStream(/*new GZIPInputStream(*/new ByteArrayInputStream(data)/*)*/);
 
         int mN = in.readInt();
@@ -310,7 +851,10 @@ public class PlayerSave {
         }
     }
 
-    public byte[] toByteArray() {
+    /**
+     * Writes the whole save in the format used before {@link #FORMAT_VERSION}, which is only kept to compare against.
+     */
+    byte[] toLegacyByteArray() {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             DataOutputStream out = new DataOutputStream(/*new GZIPOutputStream(*/baos/*)*/);
@@ -436,4 +980,204 @@ public class PlayerSave {
         }
         return null;
     }
+
+    /**
+     * Writes the given groups in the format used before {@link #FORMAT_VERSION}.
+     */
+    byte[] toLegacyByteArray(int groups) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(userId);
+            for (int group = 0; group < GROUP_COUNT; group++) {
+                if ((groups & (1 << group)) != 0) {
+                    writeLegacyGroup(out, 1 << group);
+                }
+            }
+            out.writeInt(MAGIC_NUMBER);
+            out.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+        }
+        return null;
+    }
+
+    private void loadLegacy(byte[] data, int groups) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC_NUMBER) {
+            throw new IOException("Invalid header key");
+        }
+        userId = in.readInt();
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            if ((groups & (1 << group)) != 0) {
+                readLegacyGroup(in, 1 << group);
+            }
+        }
+        if (in.readInt() != MAGIC_NUMBER) {
+            throw new IOException("Invalid footer key");
+        }
+    }
+
+    private void writeLegacyGroup(DataOutputStream out, int group) throws IOException {
+        switch (group) {
+            case ACCOUNT:
+                for (int i = 0; i < lastIPs.length; i++) {
+                    Streams.writeString(lastIPs[i] == null ? "" : lastIPs[i], out);
+                }
+                out.writeBoolean(isMuted);
+                break;
+            case FRIENDS:
+                out.writeByte(friends.length);
+                for (String friend : friends) {
+                    Streams.writeString(friend, out);
+                }
+                out.writeByte(ignores.length);
+                for (String ignore : ignores) {
+                    Streams.writeString(ignore, out);
+                }
+                out.writeByte(privateChatSetting);
+                out.writeByte(privateChatColor);
+                break;
+            case POSITION:
+                out.writeShort(x);
+                out.writeShort(y);
+                out.writeByte(z);
+                break;
+            case LEVELS:
+                for (int i = 0; i < level.length; i++) {
+                    out.writeByte(level[i]);
+                    out.writeDouble(exp[i]);
+                }
+                out.writeInt(xpCounter);
+                break;
+            case INVENTORY:
+                for (int i = 0; i < 28; i++) {
+                    out.writeShort(inv[i]);
+                    out.writeInt(invN[i]);
+                }
+                break;
+            case EQUIPMENT:
+                for (int i = 0; i < 14; i++) {
+                    out.writeShort(equip[i]);
+                    out.writeInt(equipN[i]);
+                }
+                break;
+            case BANK:
+                out.writeShort(bank.length);
+                for (int[] item : bank) {
+                    out.writeShort(item[0]);
+                    out.writeInt(item[1]);
+                    out.writeByte(item[2]);
+                }
+                break;
+            case SETTINGS:
+                out.writeBoolean(runToggled);
+                out.writeByte(runEnergy);
+                out.writeBoolean(autoRetaliate);
+                out.writeByte(attackStyle);
+                out.writeBoolean(prayerBook);
+                out.writeByte(quickPrayers.length);
+                out.write(quickPrayers);
+                out.writeShort(spellBook);
+                out.writeByte(specialEnergy);
+                for (int i = 0; i < 7; i++) {
+                    out.writeShort(looks[i]);
+                }
+                for (int i = 0; i < 5; i++) {
+                    out.writeShort(colours[i]);
+                }
+                out.writeBoolean(isSkulled);
+                out.writeShort(skullTimer);
+                Streams.writeString(lastClan == null ? "" : lastClan, out);
+                break;
+        }
+    }
+
+    private void readLegacyGroup(DataInputStream in, int group) throws IOException {
+        switch (group) {
+            case ACCOUNT:
+                lastIPs = new String[lastIPs.length];
+                for (int i = 0; i < lastIPs.length; i++) {
+                    lastIPs[i] = Streams.readString(in);
+                }
+                isMuted = in.readBoolean();
+                break;
+            case FRIENDS:
+                friends = new String[in.readByte() & 0xff];
+                for (int i = 0; i < friends.length; i++) {
+                    friends[i] = Streams.readString(in);
+                }
+                ignores = new String[in.readByte() & 0xff];
+                for (int i = 0; i < ignores.length; i++) {
+                    ignores[i] = Streams.readString(in);
+                }
+                privateChatSetting = in.readByte() & 0xff;
+                privateChatColor = in.readByte() & 0xff;
+                break;
+            case POSITION:
+                x = in.readShort();
+                y = in.readShort();
+                z = in.readByte();
+                break;
+            case LEVELS:
+                level = new byte[Levels.SKILL_COUNT];
+                exp = new double[Levels.SKILL_COUNT];
+                for (int i = 0; i < level.length; i++) {
+                    level[i] = in.readByte();
+                    exp[i] = in.readDouble();
+                }
+                xpCounter = in.readInt();
+                break;
+            case INVENTORY:
+                inv = new short[28];
+                invN = new int[28];
+                for (int i = 0; i < 28; i++) {
+                    inv[i] = in.readShort();
+                    invN[i] = in.readInt();
+                }
+                break;
+            case EQUIPMENT:
+                equip = new short[14];
+                equipN = new int[14];
+                for (int i = 0; i < 14; i++) {
+                    equip[i] = in.readShort();
+                    equipN[i] = in.readInt();
+                }
+                break;
+            case BANK:
+                bank = new int[in.readShort() & 0xffff][3];
+                for (int[] item : bank) {
+                    item[0] = in.readShort();
+                    item[1] = in.readInt();
+                    item[2] = in.readByte();
+                }
+                break;
+            case SETTINGS:
+                runToggled = in.readBoolean();
+                runEnergy = in.readByte() & 0xff;
+                autoRetaliate = in.readBoolean();
+                attackStyle = in.readByte();
+                prayerBook = in.readBoolean();
+                quickPrayers = new byte[in.readByte() & 0xff];
+                in.readFully(quickPrayers);
+                spellBook = in.readShort();
+                specialEnergy = in.readByte();
+                looks = new int[7];
+                for (int i = 0; i < 7; i++) {
+                    looks[i] = in.readShort();
+                }
+                colours = new int[5];
+                for (int i = 0; i < 5; i++) {
+                    colours[i] = in.readShort();
+                }
+                isSkulled = in.readBoolean();
+                skullTimer = in.readShort();
+                lastClan = Streams.readString(in);
+                if (lastClan.equals("")) {
+                    lastClan = null;
+                }
+                break;
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.player;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the size and the encode and decode times of {@link PlayerSave} against the format it replaced, on generated
+ * saves with banks of increasing size.
+ * <p/>
+ * Usage: <code>SaveFormatBenchmark [iterations]</code>
+ *
+ * @author Lazaro
+ */
+public class SaveFormatBenchmark {
+    private static final int[] BANK_SIZES = {0, 100, 300, 496};
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(7);
+        System.out.println(String.format("%-6s %10s %10s %8s %12s %12s %12s %12s", "bank", "old bytes", "new bytes", "ratio", "old enc us", "new enc us", "old dec us", "new dec us"));
+        for (int bankSize : BANK_SIZES) {
+            PlayerSave save = sample(random, bankSize);
+            byte[] legacy = save.toLegacyByteArray();
+            byte[] current = save.toByteArray();
+            verify(save, true);
+            verify(save, false);
+
+            double legacyEncode = 0, currentEncode = 0, legacyDecode = 0, currentDecode = 0;
+            for (int round = 0; round < 2; round++) {
+                // The first round only warms up the compiler.
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    save.toLegacyByteArray();
+                }
+                legacyEncode = (System.nanoTime() - start) / 1e3 / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    save.toByteArray();
+                }
+                currentEncode = (System.nanoTime() - start) / 1e3 / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    new PlayerSave().load(legacy);
+                }
+                legacyDecode = (System.nanoTime() - start) / 1e3 / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    new PlayerSave().load(current);
+                }
+                currentDecode = (System.nanoTime() - start) / 1e3 / iterations;
+            }
+            System.out.println(String.format("%-6d %10d %10d %8.2f %12.2f %12.2f %12.2f %12.2f", bankSize, legacy.length, current.length, (double) current.length / legacy.length, legacyEncode, currentEncode, legacyDecode, currentDecode));
+        }
+    }
+
+    /**
+     * Reads the save back and checks it against the original, which also covers migrating a save in the old format.
+     */
+    private static void verify(PlayerSave save, boolean legacy) throws Exception {
+        PlayerSave copy = new PlayerSave();
+        copy.load(legacy ? save.toLegacyByteArray() : save.toByteArray());
+        if (!Arrays.equals(save.toByteArray(), copy.toByteArray())) {
+            throw new IllegalStateException("Save did not survive a round trip [legacy=" + legacy + "]");
+        }
+        for (int group = 0; group < PlayerSave.GROUP_COUNT; group++) {
+            PlayerSave partial = new PlayerSave();
+            partial.load(legacy ? save.toLegacyByteArray(1 << group) : save.toByteArray(1 << group), 1 << group);
+            if (!Arrays.equals(save.groupToByteArray(1 << group), partial.groupToByteArray(1 << group))) {
+                throw new IllegalStateException("Group " + group + " did not survive a round trip [legacy=" + legacy + "]");
+            }
+        }
+    }
+
+    private static PlayerSave sample(Random random, int bankSize) {
+        PlayerSave save = new PlayerSave();
+        save.userId = 1 + random.nextInt(100000);
+        save.email = "player" + save.userId + "@example.com";
+        save.lastLoggedIn = System.currentTimeMillis();
+        save.lastIPs = new String[] {"10.0.0." + random.nextInt(255), "192.168.1." + random.nextInt(255), "127.0.0.1"};
+        save.x = 3200 + random.nextInt(100);
+        save.y = 3200 + random.nextInt(100);
+        for (int i = 0; i < save.inv.length; i++) {
+            save.inv[i] = (short) (random.nextInt(3) == 0 ? -1 : random.nextInt(15000));
+            save.invN[i] = save.inv[i] == -1 ? 0 : 1 + random.nextInt(random.nextInt(4) == 0 ? 100000 : 10);
+        }
+        for (int i = 0; i < save.equip.length; i++) {
+            save.equip[i] = (short) (random.nextInt(4) == 0 ? -1 : random.nextInt(15000));
+            save.equipN[i] = save.equip[i] == -1 ? 0 : 1;
+        }
+        // Banks tend to be sorted into tabs of related, often neighbouring, items.
+        save.bank = new int[bankSize][3];
+        int id = random.nextInt(500);
+        for (int i = 0; i < bankSize; i++) {
+            id = random.nextInt(5) == 0 ? random.nextInt(15000) : id + 1 + random.nextInt(30);
+            save.bank[i][0] = id % 15000;
+            save.bank[i][1] = random.nextInt(3) == 0 ? 1 : 1 + random.nextInt(random.nextInt(10) == 0 ? 50000000 : 5000);
+            save.bank[i][2] = Math.min(8, i * 9 / Math.max(1, bankSize));
+        }
+        for (int i = 0; i < save.level.length; i++) {
+            save.exp[i] = random.nextInt(130000000) / 10.0;
+            save.level[i] = (byte) (1 + random.nextInt(99));
+        }
+        save.quickPrayers = new byte[30];
+        save.looks = new int[] {310, 307, 443, 599, 390, 646, 438};
+        save.colours = new int[] {6, 40, 216, 4, 0};
+        save.friends = new String[60];
+        for (int i = 0; i < save.friends.length; i++) {
+            save.friends[i] = "friend_" + random.nextInt(100000);
+        }
+        save.ignores = new String[] {"spammer"};
+        save.lastClan = "clan_" + random.nextInt(100);
+        return save;
+    }
+}
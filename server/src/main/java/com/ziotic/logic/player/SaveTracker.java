@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2024 Lazaro Brito
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.ziotic.logic.player;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which groups of a player's save have changed since they were last sent to the link server.
+ * <p/>
+ * A group is changed when its digest differs from the one last sent, so a player left idle is never sent at all. The
+ * tracker also keeps how often the player is checked, which goes back to the shortest interval as soon as the player
+ * changes anything and lengthens while they do not.
+ * <p/>
+ * A group only counts as sent for as long as the link connection it was written to stays up, as whatever was still on
+ * its way is lost with it.
+ *
+ * @author Lazaro
+ */
+public class SaveTracker {
+    private final long[] digests = new long[PlayerSave.GROUP_COUNT];
+    private final long[] pendingDigests = new long[PlayerSave.GROUP_COUNT];
+    private int lastGroups = 0;
+    private int connection = -1;
+    private int interval = 0;
+    private long nextCheck = 0;
+
+    /**
+     * @param groups The groups to look at.
+     * @return The groups which differ from the last ones sent.
+     */
+    public synchronized int getChangedGroups(PlayerSave save, int groups) {
+        int changed = 0;
+        for (int i = 0; i < PlayerSave.GROUP_COUNT; i++) {
+            int group = 1 << i;
+            if ((groups & group) != 0) {
+                pendingDigests[i] = digest(save.groupToByteArray(group));
+                if (pendingDigests[i] != digests[i]) {
+                    changed |= group;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Remembers the groups last looked at as sent.
+     */
+    public synchronized void commit(int groups) {
+        lastGroups = groups;
+        for (int i = 0; i < PlayerSave.GROUP_COUNT; i++) {
+            if ((groups & (1 << i)) != 0) {
+                digests[i] = pendingDigests[i];
+            }
+        }
+    }
+
+    /**
+     * Forgets the groups sent over an earlier link connection, so they are all sent again over this one.
+     *
+     * @param connection The number of the link connection the next save is written to.
+     */
+    public synchronized void connected(int connection) {
+        if (this.connection != connection) {
+            this.connection = connection;
+            Arrays.fill(digests, 0);
+        }
+    }
+
+    /**
+     * @return The groups last sent.
+     */
+    public synchronized int getLastGroups() {
+        return lastGroups;
+    }
+
+    /**
+     * Takes the state a player was loaded with as already saved.
+     *
+     * @param connection The number of the link connection the player is saved over.
+     */
+    public void mark(Player player, int connection) {
+        PlayerSave save = new PlayerSave();
+        save.load(player);
+        int groups = player.inLobby() ? PlayerSave.LOBBY_GROUPS : PlayerSave.ALL_GROUPS;
+        synchronized (this) {
+            this.connection = connection;
+            getChangedGroups(save, groups);
+            commit(groups);
+        }
+    }
+
+    /**
+     * @return If the player is due to be checked.
+     */
+    public synchronized boolean isDue(long now) {
+        return now >= nextCheck;
+    }
+
+    /**
+     * Schedules the next check after one which found the given amount of changed groups, not counting
+     * {@link PlayerSave#ACCOUNT} which is sent with every save.
+     */
+    public synchronized void reschedule(long now, int changedGroups, int minInterval, int maxInterval) {
+        if (interval == 0) {
+            interval = minInterval;
+        }
+        if (changedGroups > 0) {
+            interval = minInterval;
+        } else {
+            interval = Math.min(maxInterval, interval * 2);
+        }
+        nextCheck = now + interval;
+    }
+
+    /**
+     * FNV-1a, which is plenty to tell a changed group apart from an unchanged one.
+     */
+    private static long digest(byte[] data) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : data) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -82,6 +82,13 @@ public class Configuration {
         throw new RuntimeException("Requested variable, " + key + ", is not an integer or isn't available!");
     }
 
+    public int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        if (value instanceof Integer)
+            return (Integer) value;
+        return defaultValue;
+    }
+
     public int[] getIntArray(String key) {
         return getIntArray(key, 0);
     }